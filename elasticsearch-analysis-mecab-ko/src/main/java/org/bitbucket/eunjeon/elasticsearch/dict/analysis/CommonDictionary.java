@@ -1,6 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.Accountable;
 import org.elasticsearch.common.logging.Loggers;
 
 import java.util.*;
@@ -47,7 +48,26 @@ public class CommonDictionary<T, P> {
 		return systemDictionary.seq();
 	}
 	public boolean ignoreCase() {
-		return ((TagProbDictionary) systemDictionary).ignoreCase();
+		return systemDictionary.ignoreCase();
+	}
+
+	public Dictionary<T, P> getSystemDictionary() {
+		return systemDictionary;
+	}
+
+	// 모든 사전의 추가명사 등록이 끝난뒤 시스템사전을 읽기전용 사전으로 교체할 때 사용한다.
+	public void setSystemDictionary(Dictionary<T, P> systemDictionary) {
+		this.systemDictionary = systemDictionary;
+	}
+
+	/**
+	 * 시스템사전의 힙 사용량 추정치(byte). 추정할 수 없는 사전이면 -1
+	 */
+	public long systemDictionaryRamBytesUsed() {
+		if (systemDictionary instanceof Accountable) {
+			return ((Accountable) systemDictionary).ramBytesUsed();
+		}
+		return -1;
 	}
 	public <D extends SourceDictionary<?>> D  getDictionary(String dictionaryId, Class<D> cls) {
 		try {
@@ -1,9 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 
 import com.danawa.io.DataInput;
-import com.danawa.io.DataOutput;
 import com.danawa.io.InputStreamDataInput;
-import com.danawa.io.OutputStreamDataOutput;
 import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
 
 import java.io.*;
@@ -105,30 +103,15 @@ public class CompoundDictionary extends MapDictionary {
 	}
 
 	@Override
-	@SuppressWarnings("resource")
-	public void writeTo(OutputStream out) throws IOException {
-		if (!(out instanceof BufferedOutputStream)) {
-			try { out = new BufferedOutputStream(out); } catch (Exception ignore) { }
-		}
-		super.writeTo(out);
-		DataOutput output = new OutputStreamDataOutput(out);
-		// write size of synonyms
-		output.writeVInt(mainWordSet.size());
-		// write synonyms
-		Iterator<CharSequence> mainWordIter = mainWordSet.iterator();
-		while (mainWordIter.hasNext()) {
-			CharVector value = CharVector.valueOf(mainWordIter.next());
-			output.writeUString(value.array(), value.offset(), value.length());
-		}
-		// write size of synonyms
-		output.writeVInt(wordSet.size());
-		// write synonyms
-		Iterator<CharSequence> wordIter = wordSet.iterator();
-		while (wordIter.hasNext()) {
-			CharVector value = CharVector.valueOf(wordIter.next());
-			output.writeUString(value.array(), value.offset(), value.length());
-		}
-		try { out.flush(); } catch (Exception ignore) { }
+	protected MappedDictionary.Writer writer() {
+		return super.writer().addSet(mainWordSet).addSet(wordSet);
+	}
+
+	@Override
+	protected void mapFrom(MappedDictionary dictionary) {
+		super.mapFrom(dictionary);
+		mainWordSet = dictionary.set(1);
+		wordSet = dictionary.set(2);
 	}
 
 	@Override
@@ -137,6 +120,10 @@ public class CompoundDictionary extends MapDictionary {
 		if (!(in instanceof BufferedInputStream)) {
 			try { in = new BufferedInputStream(in); } catch (Exception ignore) { }
 		}
+		if (MappedDictionary.isMappedStream(in)) {
+			mapFrom(MappedDictionary.read(in, ignoreCase));
+			return;
+		}
 		super.readFrom(in);
 		DataInput input = new InputStreamDataInput(in);
 		mainWordSet = new HashSet<>();
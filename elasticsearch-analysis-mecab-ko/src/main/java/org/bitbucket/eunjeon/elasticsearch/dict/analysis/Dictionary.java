@@ -17,5 +17,7 @@ public interface Dictionary<T, P> {
 
 	public abstract String label();
 
+	public abstract boolean ignoreCase();
+
 	public abstract void appendAdditionalNounEntry(Set<CharSequence> set, String tokenType);
 }
@@ -0,0 +1,493 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import com.danawa.io.DataInput;
+import com.danawa.io.DataOutput;
+import com.danawa.io.InputStreamDataInput;
+import com.danawa.io.OutputStreamDataOutput;
+import org.apache.logging.log4j.Logger;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 사전 변경분(패치).
+ * 단어 몇개가 바뀔 때마다 사전 전체를 다시 컴파일하지 않도록, 바뀐 단어의 최종 결과만 구역별로 기록한다.
+ * 구역은 컴파일된 사전파일의 구역과 같다. (예: 유사어사전은 0 = 단어별 유사어 map, 1 = 단어목록)
+ *
+ * 패치는 사전파일 옆의 .patch 파일에 이어서 기록하고, 사전을 적재할 때 사전파일 위에 덧씌운다.
+ * 패치된 사전은 원래 사전의 map, set 을 바꾸지 않고 그 위에 변경분을 얹은 읽기전용 map, set 을 사용한다.
+ * 패치파일이 커지면 사전파일에 합쳐서 다시 기록한다.
+ */
+public class DictionaryPatch {
+
+	private static final Logger logger = Loggers.getLogger(DictionaryPatch.class, "");
+
+	public static final String SUFFIX = ".patch";
+	/** 패치파일이 이 크기와 사전파일 크기의 1/10 보다 커지면 사전파일에 합친다. */
+	public static final long COMPACT_MIN_BYTES = 256 * 1024;
+
+	private static final byte OP_REMOVE = 0;
+	private static final byte OP_ADD_WORD = 1;
+	private static final byte OP_PUT_VALUES = 2;
+
+	private final List<PatchEntry> entries = new ArrayList<>();
+
+	public int size() {
+		return entries.size();
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public static File getPatchFile(File dictFile) {
+		return new File(dictFile.getParentFile(), dictFile.getName() + SUFFIX);
+	}
+
+	public static boolean needsCompaction(File dictFile, File patchFile) {
+		return patchFile.exists() && patchFile.length() > Math.max(COMPACT_MIN_BYTES, dictFile.length() / 10);
+	}
+
+	/**
+	 * 패치를 적용할 수 있는 사전인지 여부. CustomDictionary 는 값 형식이 달라 지원하지 않는다.
+	 */
+	public static boolean isSupported(SourceDictionary<?> dictionary) {
+		return dictionary instanceof SetDictionary || dictionary instanceof MapDictionary;
+	}
+
+	/**
+	 * dictionary 와 같은 종류, 같은 설정의 빈 사전을 만든다.
+	 */
+	public static SourceDictionary<?> newDictionary(SourceDictionary<?> like) {
+		SourceDictionary<?> dictionary = null;
+		boolean ignoreCase = like.ignoreCase();
+		if (like instanceof CompoundDictionary) {
+			dictionary = new CompoundDictionary(ignoreCase);
+		} else if (like instanceof SynonymDictionary) {
+			dictionary = new SynonymDictionary(ignoreCase);
+		} else if (like instanceof SpaceDictionary) {
+			dictionary = new SpaceDictionary(ignoreCase);
+		} else if (like instanceof InvertMapDictionary) {
+			dictionary = new InvertMapDictionary(ignoreCase);
+		} else if (like instanceof MapDictionary) {
+			dictionary = new MapDictionary(ignoreCase);
+		} else if (like instanceof SetDictionary) {
+			dictionary = new SetDictionary(ignoreCase);
+		} else {
+			throw new IllegalArgumentException("Unsupported dictionary " + like);
+		}
+		dictionary.label = like.label;
+		dictionary.seq = like.seq;
+		dictionary.tokenType = like.tokenType;
+		dictionary.type = like.type;
+		return dictionary;
+	}
+
+	/**
+	 * 사전의 구역들. 컴파일된 사전파일에 기록되는 순서와 같다.
+	 */
+	static List<Object> sections(SourceDictionary<?> dictionary) {
+		List<Object> sections = new ArrayList<>(3);
+		if (dictionary instanceof SetDictionary) {
+			sections.add(((SetDictionary) dictionary).set());
+		} else if (dictionary instanceof MapDictionary) {
+			sections.add(((MapDictionary) dictionary).map());
+			if (dictionary instanceof CompoundDictionary) {
+				sections.add(((CompoundDictionary) dictionary).getMainWordSet());
+				sections.add(((CompoundDictionary) dictionary).getWordSet());
+			} else if (dictionary instanceof SynonymDictionary) {
+				sections.add(((SynonymDictionary) dictionary).getWordSet());
+			} else if (dictionary instanceof SpaceDictionary) {
+				sections.add(((SpaceDictionary) dictionary).getWordSet());
+			}
+		}
+		return sections;
+	}
+
+	private static void setSections(SourceDictionary<?> dictionary, List<Object> sections) {
+		if (dictionary instanceof SetDictionary) {
+			((SetDictionary) dictionary).setSet(asSet(sections.get(0)));
+		} else if (dictionary instanceof MapDictionary) {
+			((MapDictionary) dictionary).setMap(asMap(sections.get(0)));
+			if (dictionary instanceof CompoundDictionary) {
+				((CompoundDictionary) dictionary).setMainWordSet(asSet(sections.get(1)));
+				((CompoundDictionary) dictionary).setWordSet(asSet(sections.get(2)));
+			} else if (dictionary instanceof SynonymDictionary) {
+				((SynonymDictionary) dictionary).setWordSet(asSet(sections.get(1)));
+			} else if (dictionary instanceof SpaceDictionary) {
+				((SpaceDictionary) dictionary).setWordSet(asSet(sections.get(1)));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<CharSequence> asSet(Object section) {
+		return (Set<CharSequence>) section;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<CharSequence, CharSequence[]> asMap(Object section) {
+		return (Map<CharSequence, CharSequence[]>) section;
+	}
+
+	/**
+	 * 사전의 모든 구역에 나오는 단어
+	 */
+	public static Set<CharSequence> words(SourceDictionary<?> dictionary) {
+		Set<CharSequence> words = new HashSet<>();
+		for (Object section : sections(dictionary)) {
+			if (section instanceof Map) {
+				words.addAll(asMap(section).keySet());
+			} else {
+				words.addAll(asSet(section));
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * words 의 결과가 current 와 rebuilt 에서 다른 것만 패치로 만든다.
+	 * rebuilt 는 words 중 하나라도 포함하는 사전 데이터를 모두 넣어 만든 사전이어야 한다.
+	 * (단어의 결과는 그 단어를 포함하는 데이터로만 정해지므로 rebuilt 에서의 결과가 전체 사전에서의 결과와 같다)
+	 */
+	public static DictionaryPatch diff(SourceDictionary<?> current, SourceDictionary<?> rebuilt, Set<CharSequence> words) {
+		DictionaryPatch patch = new DictionaryPatch();
+		List<Object> currentSections = sections(current);
+		List<Object> rebuiltSections = sections(rebuilt);
+		for (int section = 0; section < currentSections.size(); section++) {
+			Object before = currentSections.get(section);
+			Object after = rebuiltSections.get(section);
+			for (CharSequence word : words) {
+				if (before instanceof Map) {
+					CharSequence[] beforeValues = asMap(before).get(word);
+					CharSequence[] afterValues = asMap(after).get(word);
+					if (!sameValues(beforeValues, afterValues)) {
+						patch.entries.add(new PatchEntry(section, word, afterValues != null ? OP_PUT_VALUES : OP_REMOVE, afterValues));
+					}
+				} else {
+					boolean beforeContains = asSet(before).contains(word);
+					boolean afterContains = asSet(after).contains(word);
+					if (beforeContains != afterContains) {
+						patch.entries.add(new PatchEntry(section, word, afterContains ? OP_ADD_WORD : OP_REMOVE, null));
+					}
+				}
+			}
+		}
+		return patch;
+	}
+
+	private static boolean sameValues(CharSequence[] a, CharSequence[] b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		if (a.length != b.length) {
+			return false;
+		}
+		for (int inx = 0; inx < a.length; inx++) {
+			if (!String.valueOf(a[inx]).equals(String.valueOf(b[inx]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 패치를 적용한 새 사전을 반환한다. dictionary 는 변경하지 않는다.
+	 */
+	public SourceDictionary<?> applyTo(SourceDictionary<?> dictionary) {
+		List<Object> sections = sections(dictionary);
+		List<Object> patched = new ArrayList<>(sections.size());
+		for (int section = 0; section < sections.size(); section++) {
+			List<PatchEntry> sectionEntries = new ArrayList<>();
+			for (PatchEntry entry : entries) {
+				if (entry.section == section) {
+					sectionEntries.add(entry);
+				}
+			}
+			Object base = sections.get(section);
+			if (sectionEntries.isEmpty()) {
+				patched.add(base);
+			} else if (base instanceof Map) {
+				patched.add(new PatchedMap(asMap(base), sectionEntries));
+			} else {
+				patched.add(new PatchedSet(asSet(base), sectionEntries));
+			}
+		}
+		SourceDictionary<?> ret = newDictionary(dictionary);
+		setSections(ret, patched);
+		return ret;
+	}
+
+	/**
+	 * 패치파일 끝에 이어서 기록한다.
+	 */
+	public void appendTo(File file) throws IOException {
+		try (FileOutputStream ostream = new FileOutputStream(file, true)) {
+			BufferedOutputStream buffered = new BufferedOutputStream(ostream);
+			DataOutput output = new OutputStreamDataOutput(buffered);
+			for (PatchEntry entry : entries) {
+				output.writeVInt(entry.section);
+				output.writeByte(entry.op);
+				writeWord(output, entry.word);
+				if (entry.op == OP_PUT_VALUES) {
+					output.writeVInt(entry.values.length);
+					for (CharSequence value : entry.values) {
+						writeWord(output, value);
+					}
+				}
+			}
+			buffered.flush();
+			ostream.getFD().sync();
+		}
+	}
+
+	private static void writeWord(DataOutput output, CharSequence word) throws IOException {
+		CharVector cv = CharVector.valueOf(word);
+		output.writeUString(cv.array(), cv.offset(), cv.length());
+	}
+
+	/**
+	 * 패치파일을 읽는다. 기록중에 중단되어 마지막 항목이 잘려 있으면 그 항목은 버린다.
+	 */
+	public static DictionaryPatch read(File file, boolean ignoreCase) throws IOException {
+		DictionaryPatch patch = new DictionaryPatch();
+		try (InputStream istream = new BufferedInputStream(new FileInputStream(file))) {
+			DataInput input = new InputStreamDataInput(istream);
+			while (true) {
+				int section;
+				try {
+					section = input.readVInt();
+				} catch (EOFException e) {
+					break;
+				}
+				try {
+					byte op = input.readByte();
+					CharSequence word = new CharVector(input.readUString(), ignoreCase);
+					CharSequence[] values = null;
+					if (op == OP_PUT_VALUES) {
+						values = new CharSequence[input.readVInt()];
+						for (int inx = 0; inx < values.length; inx++) {
+							values[inx] = new CharVector(input.readUString(), ignoreCase);
+						}
+					}
+					patch.entries.add(new PatchEntry(section, word, op, values));
+				} catch (EOFException e) {
+					logger.warn("PATCH FILE TRUNCATED : {} / {} entries", file.getAbsolutePath(), patch.size());
+					break;
+				}
+			}
+		}
+		return patch;
+	}
+
+	private static final class PatchEntry {
+		final int section;
+		final CharSequence word;
+		final byte op;
+		final CharSequence[] values;
+
+		PatchEntry(int section, CharSequence word, byte op, CharSequence[] values) {
+			this.section = section;
+			this.word = word;
+			this.op = op;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * 원래 map 위에 변경분을 얹은 읽기전용 map.
+	 * 이미 패치된 map 에 다시 패치하면 원래 map 위에 변경분을 합쳐서 한단계만 유지한다.
+	 */
+	private static final class PatchedMap extends AbstractMap<CharSequence, CharSequence[]> {
+		private final Map<CharSequence, CharSequence[]> base;
+		private final Map<CharSequence, CharSequence[]> puts;
+		private final Set<CharSequence> removes;
+		private final int size;
+
+		PatchedMap(Map<CharSequence, CharSequence[]> map, List<PatchEntry> entries) {
+			if (map instanceof PatchedMap) {
+				PatchedMap patched = (PatchedMap) map;
+				base = patched.base;
+				puts = new HashMap<>(patched.puts);
+				removes = new HashSet<>(patched.removes);
+			} else {
+				base = map;
+				puts = new HashMap<>();
+				removes = new HashSet<>();
+			}
+			for (PatchEntry entry : entries) {
+				if (entry.op == OP_PUT_VALUES) {
+					puts.put(entry.word, entry.values);
+					removes.remove(entry.word);
+				} else {
+					puts.remove(entry.word);
+					if (base.containsKey(entry.word)) {
+						removes.add(entry.word);
+					}
+				}
+			}
+			int size = base.size() - removes.size();
+			for (CharSequence word : puts.keySet()) {
+				if (!base.containsKey(word)) {
+					size++;
+				}
+			}
+			this.size = size;
+		}
+
+		@Override public CharSequence[] get(Object key) {
+			CharSequence[] values = puts.get(key);
+			if (values != null || removes.contains(key)) {
+				return values;
+			}
+			return base.get(key);
+		}
+
+		@Override public boolean containsKey(Object key) {
+			return puts.containsKey(key) || (!removes.contains(key) && base.containsKey(key));
+		}
+
+		@Override public int size() {
+			return size;
+		}
+
+		@Override public Set<Map.Entry<CharSequence, CharSequence[]>> entrySet() {
+			return new AbstractSet<Map.Entry<CharSequence, CharSequence[]>>() {
+				@Override public Iterator<Map.Entry<CharSequence, CharSequence[]>> iterator() {
+					return new Iterator<Map.Entry<CharSequence, CharSequence[]>>() {
+						private final Iterator<Map.Entry<CharSequence, CharSequence[]>> putIterator = puts.entrySet().iterator();
+						private final Iterator<Map.Entry<CharSequence, CharSequence[]>> baseIterator = base.entrySet().iterator();
+						private Map.Entry<CharSequence, CharSequence[]> next = advance();
+
+						private Map.Entry<CharSequence, CharSequence[]> advance() {
+							if (putIterator.hasNext()) {
+								return putIterator.next();
+							}
+							while (baseIterator.hasNext()) {
+								Map.Entry<CharSequence, CharSequence[]> entry = baseIterator.next();
+								if (!puts.containsKey(entry.getKey()) && !removes.contains(entry.getKey())) {
+									return entry;
+								}
+							}
+							return null;
+						}
+
+						@Override public boolean hasNext() {
+							return next != null;
+						}
+
+						@Override public Map.Entry<CharSequence, CharSequence[]> next() {
+							if (next == null) {
+								throw new NoSuchElementException();
+							}
+							Map.Entry<CharSequence, CharSequence[]> ret = next;
+							next = advance();
+							return ret;
+						}
+					};
+				}
+
+				@Override public int size() {
+					return size;
+				}
+			};
+		}
+	}
+
+	/**
+	 * 원래 set 위에 변경분을 얹은 읽기전용 set.
+	 */
+	private static final class PatchedSet extends AbstractSet<CharSequence> {
+		private final Set<CharSequence> base;
+		private final Set<CharSequence> adds;
+		private final Set<CharSequence> removes;
+		private final int size;
+
+		PatchedSet(Set<CharSequence> set, List<PatchEntry> entries) {
+			if (set instanceof PatchedSet) {
+				PatchedSet patched = (PatchedSet) set;
+				base = patched.base;
+				adds = new HashSet<>(patched.adds);
+				removes = new HashSet<>(patched.removes);
+			} else {
+				base = set;
+				adds = new HashSet<>();
+				removes = new HashSet<>();
+			}
+			for (PatchEntry entry : entries) {
+				if (entry.op == OP_ADD_WORD) {
+					removes.remove(entry.word);
+					if (!base.contains(entry.word)) {
+						adds.add(entry.word);
+					}
+				} else {
+					adds.remove(entry.word);
+					if (base.contains(entry.word)) {
+						removes.add(entry.word);
+					}
+				}
+			}
+			this.size = base.size() - removes.size() + adds.size();
+		}
+
+		@Override public boolean contains(Object word) {
+			return adds.contains(word) || (!removes.contains(word) && base.contains(word));
+		}
+
+		@Override public int size() {
+			return size;
+		}
+
+		@Override public Iterator<CharSequence> iterator() {
+			return new Iterator<CharSequence>() {
+				private final Iterator<CharSequence> addIterator = adds.iterator();
+				private final Iterator<CharSequence> baseIterator = base.iterator();
+				private CharSequence next = advance();
+
+				private CharSequence advance() {
+					if (addIterator.hasNext()) {
+						return addIterator.next();
+					}
+					while (baseIterator.hasNext()) {
+						CharSequence word = baseIterator.next();
+						if (!removes.contains(word)) {
+							return word;
+						}
+					}
+					return null;
+				}
+
+				@Override public boolean hasNext() {
+					return next != null;
+				}
+
+				@Override public CharSequence next() {
+					if (next == null) {
+						throw new NoSuchElementException();
+					}
+					CharSequence ret = next;
+					next = advance();
+					return ret;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,501 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.PosTag;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PreResult;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 더블 어레이 트라이(double-array trie)로 구현한 시스템 사전.
+ * TagProbDictionary 는 단어마다 CharVector, ArrayList, TagProb 객체를 HashMap 에 가지고 있으므로
+ * 수십만 단어의 사전에서는 힙 사용량이 크다. 이 사전은 단어를 base/check 정수 배열에 저장하고,
+ * 품사/확률 목록은 같은 목록끼리 공유하므로 힙 사용량이 훨씬 작고, 찾을 때 객체를 따라가지 않는다.
+ *
+ * 문자는 출현 빈도 순서의 작은 코드로 바꾸어 저장하며, 코드 0 은 단어의 끝을 나타낸다.
+ * (mecab 의 darts 와 같은 구조로 check[base[p] + code] == base[p] 이면 전이가 존재한다.)
+ * 트라이는 생성된 뒤에 변경할 수 없으므로, 변환한 뒤에 등록하는 추가 명사는 작은 HashMap(overlay)에
+ * 트라이의 품사목록과 합쳐서 저장하고, 찾을 때 트라이 다음에 확인하여 overlay 의 목록을 사용한다.
+ */
+public class DoubleArrayTagProbDictionary implements Dictionary<TagProb, PreResult<CharSequence>>, Accountable {
+	private static Logger logger = Loggers.getLogger(DoubleArrayTagProbDictionary.class, "");
+
+	private static final int END_CODE = 0;
+
+	private final boolean ignoreCase;
+	private int seq;
+	private String label;
+	private Map<CharSequence, PreResult<CharSequence>> preMap;
+
+	// 문자 -> 코드. 0 이면 사전에 없는 문자
+	private final char[] codeMap;
+	private final int[] base;
+	private final int[] check;
+	// 같은 목록을 공유하는 값. 트라이의 leaf(-n - 1)가 가리킨다.
+	private final List<List<TagProb>> values;
+	private final int size;
+	// 변환한 뒤 추가한 단어. 추가할 때마다 새 맵으로 바꾸므로 찾는 쪽은 잠그지 않는다.
+	private volatile Map<CharSequence, List<TagProb>> overlay;
+	private int overlaySize;
+	private int overlayMaxLength;
+
+	private DoubleArrayTagProbDictionary(boolean ignoreCase, char[] codeMap, int[] base, int[] check,
+		List<List<TagProb>> values, int size) {
+		this.ignoreCase = ignoreCase;
+		this.codeMap = codeMap;
+		this.base = base;
+		this.check = check;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * TagProbDictionary 의 모든 단어로 사전을 만든다.
+	 */
+	public static DoubleArrayTagProbDictionary build(TagProbDictionary dictionary) {
+		Map<CharSequence, List<TagProb>> probMap = dictionary.getUnmodifiableDictionary();
+		String[] keys = new String[probMap.size()];
+		List<?>[] lists = new List<?>[probMap.size()];
+		int inx = 0;
+		for (Map.Entry<CharSequence, List<TagProb>> entry : probMap.entrySet()) {
+			keys[inx] = toKey(entry.getKey(), dictionary.ignoreCase());
+			lists[inx] = entry.getValue();
+			inx++;
+		}
+		DoubleArrayTagProbDictionary ret = build(keys, lists, dictionary.ignoreCase());
+		ret.setSeq(dictionary.seq());
+		ret.setLabel(dictionary.label());
+		ret.setPreDictionary(dictionary.getPreDictionary());
+		return ret;
+	}
+
+	private static String toKey(CharSequence key, boolean ignoreCase) {
+		String str = key.toString();
+		return ignoreCase ? str.toUpperCase() : str;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static DoubleArrayTagProbDictionary build(String[] keys, List<?>[] lists, boolean ignoreCase) {
+		long st = System.nanoTime();
+		// 1. 같은 품사/확률 목록은 하나의 불변 목록을 공유한다.
+		Map<List<String>, Integer> valueIds = new HashMap<>();
+		List<List<TagProb>> valueList = new ArrayList<>();
+		int[] keyValues = new int[keys.length];
+		for (int inx = 0; inx < keys.length; inx++) {
+			List<TagProb> probs = (List<TagProb>) lists[inx];
+			List<String> signature = new ArrayList<>(probs.size());
+			for (TagProb tagProb : probs) {
+				signature.add(tagProb.toString());
+			}
+			Integer id = valueIds.get(signature);
+			if (id == null) {
+				id = valueList.size();
+				valueIds.put(signature, id);
+				valueList.add(Collections.unmodifiableList(new ArrayList<>(probs)));
+			}
+			keyValues[inx] = id;
+		}
+
+		// 2. 자주 나오는 문자가 작은 코드를 갖도록 한다.
+		int[] freq = new int[Character.MAX_VALUE + 1];
+		for (String key : keys) {
+			for (int inx = 0; inx < key.length(); inx++) {
+				freq[key.charAt(inx)]++;
+			}
+		}
+		Integer[] chars = new Integer[freq.length];
+		int charCount = 0;
+		for (int ch = 0; ch < freq.length; ch++) {
+			if (freq[ch] > 0) {
+				chars[charCount++] = ch;
+			}
+		}
+		Arrays.sort(chars, 0, charCount, (a, b) -> freq[b] - freq[a]);
+		char[] codeMap = new char[Character.MAX_VALUE + 1];
+		for (int inx = 0; inx < charCount; inx++) {
+			codeMap[chars[inx]] = (char) (inx + 1);
+		}
+
+		// 3. 코드 순서로 정렬한뒤 더블 어레이를 만든다.
+		int[][] codes = new int[keys.length][];
+		Integer[] order = new Integer[keys.length];
+		for (int inx = 0; inx < keys.length; inx++) {
+			String key = keys[inx];
+			int[] code = new int[key.length()];
+			for (int cinx = 0; cinx < key.length(); cinx++) {
+				code[cinx] = codeMap[key.charAt(cinx)];
+			}
+			codes[inx] = code;
+			order[inx] = inx;
+		}
+		Arrays.sort(order, (a, b) -> compare(codes[a], codes[b]));
+		int[][] sortedCodes = new int[keys.length][];
+		int[] sortedValues = new int[keys.length];
+		int count = 0;
+		for (int inx = 0; inx < order.length; inx++) {
+			int[] code = codes[order[inx]];
+			if (count > 0 && compare(sortedCodes[count - 1], code) == 0) {
+				// 대소문자를 무시하면 같은 단어가 될수 있다. 먼저 나온 단어를 사용한다.
+				continue;
+			}
+			sortedCodes[count] = code;
+			sortedValues[count] = keyValues[order[inx]];
+			count++;
+		}
+		Builder builder = new Builder(sortedCodes, sortedValues, count, charCount + 1);
+		builder.build();
+
+		// 남는 용량 없이 복사한다.
+		List<List<TagProb>> values = new ArrayList<>(valueList);
+		DoubleArrayTagProbDictionary ret = new DoubleArrayTagProbDictionary(ignoreCase, codeMap,
+			Arrays.copyOf(builder.base, builder.size), Arrays.copyOf(builder.check, builder.size), values, count);
+		logger.debug("double-array dictionary built {} entries, {} units, {} values, {} bytes in {}ms",
+			count, builder.size, values.size(), ret.ramBytesUsed(), (System.nanoTime() - st) / 1000000);
+		return ret;
+	}
+
+	private static int compare(int[] a, int[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int inx = 0; inx < length; inx++) {
+			if (a[inx] != b[inx]) {
+				return a[inx] - b[inx];
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/**
+	 * darts 방식의 더블 어레이 생성기
+	 */
+	private static final class Builder {
+		private final int[][] keys;
+		private final int[] keyValues;
+		private final int keyCount;
+		private final int alphabetSize;
+		private int[] base;
+		private int[] check;
+		private boolean[] used;
+		private int size;
+		private int nextCheckPos;
+
+		private Builder(int[][] keys, int[] keyValues, int keyCount, int alphabetSize) {
+			this.keys = keys;
+			this.keyValues = keyValues;
+			this.keyCount = keyCount;
+			this.alphabetSize = alphabetSize;
+			int capacity = Math.max(keyCount * 4, alphabetSize * 2);
+			base = new int[capacity];
+			check = new int[capacity];
+			used = new boolean[capacity];
+		}
+
+		private void build() {
+			size = 1;
+			if (keyCount == 0) {
+				return;
+			}
+			// insert 가 배열을 늘릴 수 있으므로 결과를 받은 뒤에 저장한다.
+			int begin = insert(fetch(0, keyCount, 0), 0);
+			base[0] = begin;
+		}
+
+		/**
+		 * [left, right) 범위의 단어들이 depth 위치에서 갖는 자식 코드 목록.
+		 * 각 자식은 {code, left, right} 로 표현한다.
+		 */
+		private List<int[]> fetch(int left, int right, int depth) {
+			List<int[]> siblings = new ArrayList<>();
+			int prev = -1;
+			for (int inx = left; inx < right; inx++) {
+				int[] key = keys[inx];
+				int code = key.length == depth ? END_CODE : key[depth];
+				if (code != prev) {
+					if (siblings.size() > 0) {
+						siblings.get(siblings.size() - 1)[2] = inx;
+					}
+					siblings.add(new int[] { code, inx, right });
+					prev = code;
+				}
+			}
+			return siblings;
+		}
+
+		private int insert(List<int[]> siblings, int depth) {
+			int firstCode = siblings.get(0)[0];
+			int lastCode = siblings.get(siblings.size() - 1)[0];
+			int pos = Math.max(firstCode + 1, nextCheckPos) - 1;
+			int nonzero = 0;
+			boolean first = true;
+			int begin;
+			outer:
+			while (true) {
+				pos++;
+				ensure(pos + 1);
+				if (check[pos] != 0) {
+					nonzero++;
+					continue;
+				} else if (first) {
+					nextCheckPos = pos;
+					first = false;
+				}
+				begin = pos - firstCode;
+				ensure(begin + lastCode + 1);
+				if (used[begin]) {
+					continue;
+				}
+				for (int inx = 1; inx < siblings.size(); inx++) {
+					if (check[begin + siblings.get(inx)[0]] != 0) {
+						continue outer;
+					}
+				}
+				break;
+			}
+			// 빈칸이 거의 없는 구간은 다음 탐색에서 건너뛴다.
+			if ((double) nonzero / (pos - nextCheckPos + 1) >= 0.95) {
+				nextCheckPos = pos;
+			}
+			used[begin] = true;
+			size = Math.max(size, begin + lastCode + 1);
+			for (int[] sibling : siblings) {
+				check[begin + sibling[0]] = begin;
+			}
+			for (int[] sibling : siblings) {
+				if (sibling[0] == END_CODE) {
+					base[begin] = -keyValues[sibling[1]] - 1;
+				} else {
+					int childBegin = insert(fetch(sibling[1], sibling[2], depth + 1), depth + 1);
+					base[begin + sibling[0]] = childBegin;
+				}
+			}
+			return begin;
+		}
+
+		private void ensure(int required) {
+			if (required <= base.length) {
+				return;
+			}
+			int capacity = Math.max(required, base.length + (base.length >> 1) + alphabetSize);
+			base = Arrays.copyOf(base, capacity);
+			check = Arrays.copyOf(check, capacity);
+			used = Arrays.copyOf(used, capacity);
+		}
+	}
+
+	private List<TagProb> findInTrie(CharSequence token) {
+		int b = base[0];
+		int length = token.length();
+		for (int inx = 0; inx < length; inx++) {
+			char ch = token.charAt(inx);
+			if (ignoreCase) {
+				ch = Character.toUpperCase(ch);
+			}
+			int code = codeMap[ch];
+			if (code == 0) {
+				return null;
+			}
+			int p = b + code;
+			if (p >= check.length || check[p] != b) {
+				return null;
+			}
+			b = base[p];
+		}
+		if (b < 0 || b >= check.length || check[b] != b) {
+			return null;
+		}
+		int n = base[b];
+		return n < 0 ? values.get(-n - 1) : null;
+	}
+
+	@Override
+	public List<TagProb> find(CharSequence token) {
+		List<TagProb> ret = findInTrie(token);
+		Map<CharSequence, List<TagProb>> overlay = this.overlay;
+		if (overlay != null && token.length() <= overlayMaxLength) {
+			List<TagProb> added = overlay.get(token instanceof CharVector ? token : new CharVector(token));
+			if (added != null) {
+				ret = added;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * buffer[offset] 에서 시작하는 모든 사전 단어를 찾는다. (common prefix search)
+	 * 트라이를 한번만 따라가면서 단어가 끝나는 위치마다 길이와 품사목록을 짧은 단어부터 채운다.
+	 * lengths, tagLists 는 length 이상의 크기여야 하며, 찾은 단어 수를 반환한다.
+	 */
+	public int commonPrefixSearch(char[] buffer, int offset, int length, int[] lengths, List<TagProb>[] tagLists) {
+		int found = 0;
+		int b = base[0];
+		for (int inx = 0; inx < length; inx++) {
+			char ch = buffer[offset + inx];
+			if (ignoreCase) {
+				ch = Character.toUpperCase(ch);
+			}
+			int code = codeMap[ch];
+			if (code == 0) {
+				break;
+			}
+			int p = b + code;
+			if (p >= check.length || check[p] != b) {
+				break;
+			}
+			b = base[p];
+			if (b < check.length && check[b] == b) {
+				int n = base[b];
+				if (n < 0) {
+					lengths[found] = inx + 1;
+					tagLists[found] = values.get(-n - 1);
+					found++;
+				}
+			}
+		}
+		Map<CharSequence, List<TagProb>> overlay = this.overlay;
+		if (overlay != null) {
+			found = overlayPrefixSearch(overlay, buffer, offset, Math.min(length, overlayMaxLength),
+				lengths, tagLists, found);
+		}
+		return found;
+	}
+
+	/**
+	 * overlay 에서 찾은 단어로 트라이 검색결과를 바꾸거나, 길이 순서를 유지하며 끼워넣는다.
+	 */
+	private int overlayPrefixSearch(Map<CharSequence, List<TagProb>> overlay, char[] buffer, int offset,
+		int length, int[] lengths, List<TagProb>[] tagLists, int found) {
+		CharVector key = new CharVector(buffer, offset, 0, ignoreCase);
+		int position = 0;
+		for (int column = 1; column <= length; column++) {
+			key.length(column);
+			List<TagProb> added = overlay.get(key);
+			while (position < found && lengths[position] < column) {
+				position++;
+			}
+			if (added == null) {
+				continue;
+			}
+			if (position < found && lengths[position] == column) {
+				tagLists[position] = added;
+			} else {
+				System.arraycopy(lengths, position, lengths, position + 1, found - position);
+				System.arraycopy(tagLists, position, tagLists, position + 1, found - position);
+				lengths[position] = column;
+				tagLists[position] = added;
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public PreResult<CharSequence> findPreResult(CharSequence token) {
+		if (preMap != null) {
+			return preMap.get(token);
+		}
+		return null;
+	}
+
+	@Override
+	public void setPreDictionary(Map<CharSequence, PreResult<CharSequence>> map) {
+		this.preMap = map;
+	}
+
+	@Override
+	public int size() {
+		return size + overlaySize;
+	}
+
+	@Override
+	public int seq() {
+		return seq;
+	}
+
+	@Override
+	public String label() {
+		return label;
+	}
+
+	@Override
+	public boolean ignoreCase() {
+		return ignoreCase;
+	}
+
+	public void setSeq(int seq) {
+		this.seq = seq;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * 추가 명사를 overlay 에 등록한다. TagProbDictionary 와 같이 트라이의 품사목록에 명사를 합친 목록을 저장한다.
+	 */
+	@Override
+	public synchronized void appendAdditionalNounEntry(Set<CharSequence> set, String tokenType) {
+		if (set == null) {
+			return;
+		}
+		double prob = TagProb.getProb(tokenType);
+		if (prob == -1) {
+			// 입력하지 않았으면 추가하지 않는다.
+			return;
+		}
+		TagProb tagProb = new TagProb(PosTag.N, prob);
+		Map<CharSequence, List<TagProb>> map = overlay != null ? new HashMap<>(overlay) : new HashMap<>();
+		int addedSize = overlaySize;
+		int maxLength = overlayMaxLength;
+		for (CharSequence word : set) {
+			CharVector key = new CharVector(word.toString(), ignoreCase);
+			List<TagProb> tagProbList = map.get(key);
+			if (tagProbList == null) {
+				List<TagProb> trieList = findInTrie(key);
+				if (trieList == null) {
+					addedSize++;
+				}
+				tagProbList = trieList != null ? new ArrayList<>(trieList) : new ArrayList<>(1);
+				map.put(key, tagProbList);
+			}
+			TagProbDictionary.putAndReplace(tagProbList, tagProb);
+			maxLength = Math.max(maxLength, key.length());
+		}
+		overlaySize = addedSize;
+		overlayMaxLength = maxLength;
+		overlay = map;
+	}
+
+	/**
+	 * 사용하는 힙 메모리 추정치(byte). 목록이 공유하는 TagProb 객체를 포함한다.
+	 */
+	@Override
+	public long ramBytesUsed() {
+		long bytes = RamUsageEstimator.sizeOf(codeMap) + RamUsageEstimator.sizeOf(base) +
+			RamUsageEstimator.sizeOf(check) +
+			// ArrayList + Object[]
+			24 + RamUsageEstimator.alignObjectSize(16 + 4L * values.size());
+		for (List<TagProb> list : values) {
+			// unmodifiableList + ArrayList + Object[] + TagProb
+			bytes += 16 + 24 + RamUsageEstimator.alignObjectSize(16 + 4L * list.size()) + 24L * list.size();
+		}
+		Map<CharSequence, List<TagProb>> overlay = this.overlay;
+		if (overlay != null) {
+			for (Map.Entry<CharSequence, List<TagProb>> entry : overlay.entrySet()) {
+				// HashMap.Node + CharVector + char[] + ArrayList + Object[] + TagProb
+				bytes += 32 + 32 + RamUsageEstimator.alignObjectSize(16 + 2L * entry.getKey().length()) + 24 +
+					RamUsageEstimator.alignObjectSize(16 + 4L * entry.getValue().size()) + 24L * entry.getValue().size();
+			}
+		}
+		return bytes;
+	}
+}
@@ -1,9 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 
 import com.danawa.io.DataInput;
-import com.danawa.io.DataOutput;
 import com.danawa.io.InputStreamDataInput;
-import com.danawa.io.OutputStreamDataOutput;
 import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
 
 import java.io.*;
@@ -40,12 +38,16 @@ public class MapDictionary extends SourceDictionary<Object> {
 		}
 		InputStream is = null;
 		try {
+			if (MappedDictionary.isMappedFile(file)) {
+				mapFrom(MappedDictionary.open(file, ignoreCase));
+				return;
+			}
 			is = new FileInputStream(file);
 			readFrom(is);
 		} catch (IOException e) {
 			logger.error("", e);
 		} finally {
-			try { is.close(); } catch (Exception ignore) { }
+			try { if (is != null) { is.close(); } } catch (Exception ignore) { }
 		}
 	}
 
@@ -91,30 +93,26 @@ public class MapDictionary extends SourceDictionary<Object> {
 		return map.get(key);
 	}
 
+	/**
+	 * 컴파일된 사전파일 형식으로 기록한다. 기록할 구역은 writer() 가 정한다.
+	 */
 	@Override
-	@SuppressWarnings("resource")
 	public void writeTo(OutputStream out) throws IOException {
-		if (!(out instanceof BufferedOutputStream)) {
-			try { out = new BufferedOutputStream(out); } catch (Exception ignore) { }
-		}
-		DataOutput output = new OutputStreamDataOutput(out);
-		Iterator<CharSequence> keySet = map.keySet().iterator();
-		// write size of map
-		output.writeVInt(map.size());
-		// write key and value map
-		for (; keySet.hasNext();) {
-			// write key
-			CharVector key = CharVector.valueOf(keySet.next());
-			output.writeUString(key.array(), key.offset(), key.length());
-			// write values
-			CharSequence[] values = map.get(key);
-			output.writeVInt(values.length);
-			for (CharSequence v : values) {
-				CharVector value = CharVector.valueOf(v);
-				output.writeUString(value.array(), value.offset(), value.length());
-			}
-		}
-		try { out.flush(); } catch (Exception ignore) { }
+		writer().writeTo(out);
+	}
+
+	/**
+	 * 0번 구역에 map 을 기록한다. 하위 사전은 단어목록 구역을 이어서 추가한다.
+	 */
+	protected MappedDictionary.Writer writer() {
+		return new MappedDictionary.Writer().addMap(map);
+	}
+
+	/**
+	 * 매핑된 사전의 단어를 그대로 사용한다. 매핑된 Map 은 변경할 수 없다.
+	 */
+	protected void mapFrom(MappedDictionary dictionary) {
+		map = dictionary.map(0);
 	}
 
 	@Override
@@ -123,6 +121,10 @@ public class MapDictionary extends SourceDictionary<Object> {
 		if (!(in instanceof BufferedInputStream)) {
 			try { in = new BufferedInputStream(in); } catch (Exception ignore) { }
 		}
+		if (MappedDictionary.isMappedStream(in)) {
+			mapFrom(MappedDictionary.read(in, ignoreCase));
+			return;
+		}
 		DataInput input = new InputStreamDataInput(in);
 		map = new HashMap<>();
 		int size = input.readVInt();
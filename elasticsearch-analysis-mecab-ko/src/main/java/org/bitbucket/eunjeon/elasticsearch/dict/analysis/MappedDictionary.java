@@ -0,0 +1,580 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 메모리 매핑으로 읽는 컴파일된 사전파일 형식.
+ * 기존 .dict 파일은 시작할 때와 재적재할 때마다 모든 단어를 읽어서 CharVector 의 HashMap/HashSet 으로 만들어야 했다.
+ * 이 형식은 단어를 정렬된 글자블럭과 위치표, 해시표로 저장하므로, 파일을 FileChannel.map 으로 매핑한 뒤 그대로 찾는다.
+ *
+ * 파일구조 (big endian)
+ * 헤더 : MAGIC(8) FORMAT_VERSION(4) 구역갯수(4) 구역마다 [종류(4) 위치(4) 길이(4) CRC32(4)]
+ * SET 구역 : 단어수(4) 글자수(4) 해시표크기(4) 예약(4) 단어시작위치[단어수+1](4) 해시표[해시표크기](4) 글자[글자수](2)
+ * MAP 구역 : 단어수(4) 값갯수(4) 단어글자수(4) 값글자수(4) 해시표크기(4) 예약(4) 단어시작위치[단어수+1](4)
+ *           해시표[해시표크기](4) 단어별값시작번호[단어수+1](4) 값시작위치[값갯수+1](4) 단어글자[단어글자수](2) 값글자[값글자수](2)
+ *
+ * 단어는 영문 대소문자를 구분하지 않은 순서로 정렬하고, 해시표는 CharVector.hashCode 와 같이 대소문자를 구분하지 않은
+ * 해시값으로 단어번호+1 을 선형탐사로 저장한다. 따라서 ignoreCase 사전과 그렇지 않은 사전 모두
+ * CharVector 의 equals 와 같은 규칙으로 찾을 수 있다. 구역의 CRC32 는 파일을 열 때 확인한다.
+ * 매핑된 Set, Map 은 변경할 수 없으며, 사용중인 파일을 덮어쓰면 안되므로 새 파일로 교체해야 한다.
+ */
+public final class MappedDictionary {
+
+	static final long MAGIC = 0x504E44494354001AL;
+	static final int FORMAT_VERSION = 1;
+	static final int SECTION_SET = 1;
+	static final int SECTION_MAP = 2;
+	private static final int HEADER_SIZE = 16;
+	private static final int SECTION_ENTRY_SIZE = 16;
+	private static final int SET_HEADER_SIZE = 16;
+	private static final int MAP_HEADER_SIZE = 24;
+
+	private final ByteBuffer buffer;
+	private final boolean ignoreCase;
+	private final int[] kinds;
+	private final int[] offsets;
+	private final int[] lengths;
+
+	private MappedDictionary(ByteBuffer buffer, boolean ignoreCase) throws IOException {
+		this.buffer = buffer;
+		this.ignoreCase = ignoreCase;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+			throw new IOException("Not a compiled dictionary file");
+		}
+		int version = buffer.getInt(8);
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported dictionary format version : " + version);
+		}
+		int sectionCount = buffer.getInt(12);
+		kinds = new int[sectionCount];
+		offsets = new int[sectionCount];
+		lengths = new int[sectionCount];
+		CRC32 crc = new CRC32();
+		for (int inx = 0; inx < sectionCount; inx++) {
+			int entry = HEADER_SIZE + inx * SECTION_ENTRY_SIZE;
+			kinds[inx] = buffer.getInt(entry);
+			offsets[inx] = buffer.getInt(entry + 4);
+			lengths[inx] = buffer.getInt(entry + 8);
+			if (offsets[inx] < 0 || lengths[inx] < 0 || (long) offsets[inx] + lengths[inx] > buffer.capacity()) {
+				throw new IOException("Broken dictionary section " + inx);
+			}
+			crc.reset();
+			crc.update(slice(inx));
+			if ((int) crc.getValue() != buffer.getInt(entry + 12)) {
+				throw new IOException("Dictionary section " + inx + " checksum mismatch");
+			}
+		}
+	}
+
+	/**
+	 * 파일을 읽기전용으로 매핑한다. 매핑은 채널을 닫아도 유지된다.
+	 */
+	public static MappedDictionary open(File file, boolean ignoreCase) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new MappedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), ignoreCase);
+		}
+	}
+
+	/**
+	 * 스트림으로 받은 사전은 힙 버퍼에 읽어서 같은 방식으로 사용한다.
+	 */
+	public static MappedDictionary read(InputStream in, boolean ignoreCase) throws IOException {
+		return new MappedDictionary(ByteBuffer.wrap(in.readAllBytes()), ignoreCase);
+	}
+
+	public static boolean isMappedFile(File file) {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readLong() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 스트림의 처음이 컴파일된 사전형식인지 확인한다. 스트림은 mark 를 지원해야 하며, 읽은 위치는 되돌려 놓는다.
+	 */
+	public static boolean isMappedStream(InputStream in) throws IOException {
+		in.mark(8);
+		try {
+			long magic = 0;
+			for (int inx = 0; inx < 8; inx++) {
+				int b = in.read();
+				if (b < 0) {
+					return false;
+				}
+				magic = (magic << 8) | b;
+			}
+			return magic == MAGIC;
+		} finally {
+			in.reset();
+		}
+	}
+
+	public int sectionCount() {
+		return kinds.length;
+	}
+
+	public Set<CharSequence> set(int section) {
+		checkKind(section, SECTION_SET);
+		ByteBuffer buffer = slice(section);
+		int count = buffer.getInt(0);
+		int tableSize = buffer.getInt(8);
+		int tablePosition = SET_HEADER_SIZE + (count + 1) * 4;
+		Keys keys = new Keys(buffer, count, SET_HEADER_SIZE, tablePosition + tableSize * 4, buffer.getInt(4),
+			tablePosition, tableSize);
+		return new MappedSet(keys, ignoreCase);
+	}
+
+	public Map<CharSequence, CharSequence[]> map(int section) {
+		checkKind(section, SECTION_MAP);
+		return new MappedMap(slice(section), ignoreCase);
+	}
+
+	private void checkKind(int section, int kind) {
+		if (section >= kinds.length || kinds[section] != kind) {
+			throw new IllegalArgumentException("Dictionary section " + section + " is not " + (kind == SECTION_SET ? "SET" : "MAP"));
+		}
+	}
+
+	private ByteBuffer slice(int section) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(offsets[section]);
+		duplicate.limit(offsets[section] + lengths[section]);
+		return duplicate.slice();
+	}
+
+	private static int fold(int ch) {
+		// CharVector 와 같이 영문 소문자만 대문자로 바꾼다.
+		return ch <= 'z' && ch >= 'a' ? ch - 32 : ch;
+	}
+
+	private static IntBuffer ints(ByteBuffer section, int position, int count) {
+		ByteBuffer duplicate = section.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + count * 4);
+		return duplicate.slice().asIntBuffer();
+	}
+
+	private static int slot(int hash, int mask) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * 정렬된 단어목록. 위치표(starts), 해시표(table), 글자블럭(chars)을 매핑된 버퍼에서 바로 읽는다.
+	 */
+	static final class Keys {
+		final int count;
+		final IntBuffer starts;
+		final CharBuffer chars;
+		final IntBuffer table;
+		final int mask;
+
+		Keys(ByteBuffer section, int count, int startsPosition, int charsPosition, int charCount, int tablePosition, int tableSize) {
+			this.count = count;
+			starts = ints(section, startsPosition, count + 1);
+			table = ints(section, tablePosition, tableSize);
+			mask = tableSize - 1;
+			ByteBuffer duplicate = section.duplicate();
+			duplicate.position(charsPosition);
+			duplicate.limit(charsPosition + charCount * 2);
+			chars = duplicate.slice().asCharBuffer();
+		}
+
+		/**
+		 * key 와 같은 단어의 번호를 반환한다. 없으면 -1
+		 * 해시표에서 대소문자를 구분하지 않고 같은 단어를 찾은 뒤, 대소문자를 구분해야 하면 같은 단어가 나올때까지 살펴본다.
+		 * 찾는 단어는 복사하지 않고 매핑된 글자와 바로 비교한다.
+		 */
+		int find(Object o, boolean ignoreCase) {
+			if (!(o instanceof CharSequence)) {
+				return -1;
+			}
+			CharSequence key = (CharSequence) o;
+			boolean caseInsensitive = ignoreCase || (key instanceof CharVector && ((CharVector) key).isIgnoreCase());
+			int length = key.length();
+			for (int slot = slot(hash(key), mask);; slot = (slot + 1) & mask) {
+				int inx = table.get(slot) - 1;
+				if (inx == -1) {
+					return -1;
+				}
+				if (equalsIgnoreCase(inx, key, length) && (caseInsensitive || equalsExactly(inx, key, length))) {
+					return inx;
+				}
+			}
+		}
+
+		/**
+		 * CharVector.hashCode 와 같은 해시값. CharVector 는 저장된 해시값을 사용한다.
+		 */
+		private static int hash(CharSequence key) {
+			if (key instanceof CharVector) {
+				return key.hashCode();
+			}
+			int h = 0;
+			for (int pos = 0; pos < key.length(); pos++) {
+				h = 31 * h + fold(key.charAt(pos));
+			}
+			return h;
+		}
+
+		private boolean equalsIgnoreCase(int inx, CharSequence key, int length) {
+			int start = starts.get(inx);
+			if (starts.get(inx + 1) - start != length) {
+				return false;
+			}
+			for (int pos = 0; pos < length; pos++) {
+				if (fold(chars.get(start + pos)) != fold(key.charAt(pos))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean equalsExactly(int inx, CharSequence key, int length) {
+			int start = starts.get(inx);
+			for (int pos = 0; pos < length; pos++) {
+				if (chars.get(start + pos) != key.charAt(pos)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		CharVector get(int inx, boolean ignoreCase) {
+			int start = starts.get(inx);
+			char[] array = new char[starts.get(inx + 1) - start];
+			for (int pos = 0; pos < array.length; pos++) {
+				array[pos] = chars.get(start + pos);
+			}
+			return new CharVector(array, ignoreCase);
+		}
+	}
+
+	static final class MappedSet extends AbstractSet<CharSequence> {
+		private final Keys keys;
+		private final boolean ignoreCase;
+
+		MappedSet(Keys keys, boolean ignoreCase) {
+			this.keys = keys;
+			this.ignoreCase = ignoreCase;
+		}
+
+		@Override public boolean contains(Object o) {
+			return keys.find(o, ignoreCase) != -1;
+		}
+
+		@Override public int size() {
+			return keys.count;
+		}
+
+		@Override public Iterator<CharSequence> iterator() {
+			return new Iterator<CharSequence>() {
+				private int inx;
+
+				@Override public boolean hasNext() {
+					return inx < keys.count;
+				}
+
+				@Override public CharSequence next() {
+					if (inx >= keys.count) {
+						throw new NoSuchElementException();
+					}
+					return keys.get(inx++, ignoreCase);
+				}
+			};
+		}
+	}
+
+	/**
+	 * 값은 찾을 때마다 CharVector 배열로 만들어서 반환한다.
+	 */
+	static final class MappedMap extends AbstractMap<CharSequence, CharSequence[]> {
+		private final Keys keys;
+		private final IntBuffer valueIndex;
+		private final Keys values;
+		private final boolean ignoreCase;
+
+		MappedMap(ByteBuffer section, boolean ignoreCase) {
+			this.ignoreCase = ignoreCase;
+			int count = section.getInt(0);
+			int valueCount = section.getInt(4);
+			int keyCharCount = section.getInt(8);
+			int valueCharCount = section.getInt(12);
+			int tableSize = section.getInt(16);
+			int keyStarts = MAP_HEADER_SIZE;
+			int tablePosition = keyStarts + (count + 1) * 4;
+			int valueIndexPosition = tablePosition + tableSize * 4;
+			int valueStarts = valueIndexPosition + (count + 1) * 4;
+			int keyChars = valueStarts + (valueCount + 1) * 4;
+			int valueChars = keyChars + keyCharCount * 2;
+			keys = new Keys(section, count, keyStarts, keyChars, keyCharCount, tablePosition, tableSize);
+			values = new Keys(section, valueCount, valueStarts, valueChars, valueCharCount, tablePosition, 0);
+			valueIndex = ints(section, valueIndexPosition, count + 1);
+		}
+
+		@Override public boolean containsKey(Object key) {
+			return keys.find(key, ignoreCase) != -1;
+		}
+
+		@Override public CharSequence[] get(Object key) {
+			int inx = keys.find(key, ignoreCase);
+			return inx == -1 ? null : values(inx);
+		}
+
+		private CharSequence[] values(int inx) {
+			int start = valueIndex.get(inx);
+			CharSequence[] ret = new CharSequence[valueIndex.get(inx + 1) - start];
+			for (int pos = 0; pos < ret.length; pos++) {
+				ret[pos] = values.get(start + pos, ignoreCase);
+			}
+			return ret;
+		}
+
+		@Override public int size() {
+			return keys.count;
+		}
+
+		@Override public Set<CharSequence> keySet() {
+			return new MappedSet(keys, ignoreCase);
+		}
+
+		@Override public Set<Entry<CharSequence, CharSequence[]>> entrySet() {
+			return new AbstractSet<Entry<CharSequence, CharSequence[]>>() {
+				@Override public int size() {
+					return keys.count;
+				}
+
+				@Override public Iterator<Entry<CharSequence, CharSequence[]>> iterator() {
+					return new Iterator<Entry<CharSequence, CharSequence[]>>() {
+						private int inx;
+
+						@Override public boolean hasNext() {
+							return inx < keys.count;
+						}
+
+						@Override public Entry<CharSequence, CharSequence[]> next() {
+							if (inx >= keys.count) {
+								throw new NoSuchElementException();
+							}
+							Entry<CharSequence, CharSequence[]> entry =
+								new SimpleImmutableEntry<>(keys.get(inx, ignoreCase), values(inx));
+							inx++;
+							return entry;
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/**
+	 * 구역을 차례로 추가한 뒤 writeTo 로 기록한다.
+	 */
+	public static final class Writer {
+		private final List<Integer> kinds = new ArrayList<>();
+		private final List<byte[]> sections = new ArrayList<>();
+
+		public Writer addSet(Set<CharSequence> set) {
+			List<CharVector> words = sortedWords(set == null ? Collections.<CharSequence>emptySet() : set);
+			int charCount = charCount(words);
+			int[] table = table(words);
+			ByteBuffer section = ByteBuffer.allocate(SET_HEADER_SIZE + (words.size() + 1) * 4 + table.length * 4 + charCount * 2);
+			section.putInt(words.size());
+			section.putInt(charCount);
+			section.putInt(table.length);
+			section.putInt(0);
+			putStarts(section, words);
+			putInts(section, table);
+			putChars(section, words);
+			kinds.add(SECTION_SET);
+			sections.add(section.array());
+			return this;
+		}
+
+		public Writer addMap(Map<CharSequence, CharSequence[]> map) {
+			if (map == null) {
+				map = Collections.emptyMap();
+			}
+			List<CharVector> words = sortedWords(map.keySet());
+			List<CharVector> values = new ArrayList<>();
+			int[] valueIndex = new int[words.size() + 1];
+			for (int inx = 0; inx < words.size(); inx++) {
+				valueIndex[inx] = values.size();
+				CharSequence[] list = map.get(words.get(inx));
+				if (list != null) {
+					for (CharSequence value : list) {
+						values.add(CharVector.valueOf(value));
+					}
+				}
+			}
+			valueIndex[words.size()] = values.size();
+			int keyCharCount = charCount(words);
+			int valueCharCount = charCount(values);
+			int[] table = table(words);
+			ByteBuffer section = ByteBuffer.allocate(MAP_HEADER_SIZE + (words.size() + 1) * 8 + table.length * 4
+				+ (values.size() + 1) * 4 + (keyCharCount + valueCharCount) * 2);
+			section.putInt(words.size());
+			section.putInt(values.size());
+			section.putInt(keyCharCount);
+			section.putInt(valueCharCount);
+			section.putInt(table.length);
+			section.putInt(0);
+			putStarts(section, words);
+			putInts(section, table);
+			putInts(section, valueIndex);
+			putStarts(section, values);
+			putChars(section, words);
+			putChars(section, values);
+			kinds.add(SECTION_MAP);
+			sections.add(section.array());
+			return this;
+		}
+
+		public void writeTo(OutputStream out) throws IOException {
+			if (!(out instanceof BufferedOutputStream)) {
+				out = new BufferedOutputStream(out);
+			}
+			DataOutputStream output = new DataOutputStream(out);
+			output.writeLong(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.writeInt(sections.size());
+			int offset = align(HEADER_SIZE + sections.size() * SECTION_ENTRY_SIZE);
+			int[] offsets = new int[sections.size()];
+			CRC32 crc = new CRC32();
+			for (int inx = 0; inx < sections.size(); inx++) {
+				byte[] section = sections.get(inx);
+				offsets[inx] = offset;
+				crc.reset();
+				crc.update(section);
+				output.writeInt(kinds.get(inx));
+				output.writeInt(offset);
+				output.writeInt(section.length);
+				output.writeInt((int) crc.getValue());
+				offset = align(offset + section.length);
+			}
+			for (int inx = 0; inx < sections.size(); inx++) {
+				pad(output, offsets[inx]);
+				output.write(sections.get(inx));
+			}
+			output.flush();
+		}
+
+		private static int align(int position) {
+			return (position + 7) & ~7;
+		}
+
+		private static void pad(DataOutputStream output, int position) throws IOException {
+			while (output.size() < position) {
+				output.writeByte(0);
+			}
+		}
+
+		private static List<CharVector> sortedWords(Set<CharSequence> set) {
+			List<CharVector> words = new ArrayList<>(set.size());
+			for (CharSequence word : set) {
+				words.add(CharVector.valueOf(word));
+			}
+			words.sort(WORD_ORDER);
+			return words;
+		}
+
+		/**
+		 * 단어수의 2배 이상인 2의 거듭제곱 크기로 해시표를 만든다. 빈칸은 0 이다.
+		 */
+		private static int[] table(List<CharVector> words) {
+			int size = 2;
+			while (size < words.size() * 2) {
+				size <<= 1;
+			}
+			int[] table = new int[size];
+			for (int inx = 0; inx < words.size(); inx++) {
+				int slot = slot(words.get(inx).hashCode(), size - 1);
+				while (table[slot] != 0) {
+					slot = (slot + 1) & (size - 1);
+				}
+				table[slot] = inx + 1;
+			}
+			return table;
+		}
+
+		private static void putInts(ByteBuffer section, int[] values) {
+			for (int value : values) {
+				section.putInt(value);
+			}
+		}
+
+		private static int charCount(List<CharVector> words) {
+			int count = 0;
+			for (CharVector word : words) {
+				count += word.length();
+			}
+			return count;
+		}
+
+		private static void putStarts(ByteBuffer section, List<CharVector> words) {
+			int start = 0;
+			for (CharVector word : words) {
+				section.putInt(start);
+				start += word.length();
+			}
+			section.putInt(start);
+		}
+
+		private static void putChars(ByteBuffer section, List<CharVector> words) {
+			for (CharVector word : words) {
+				char[] array = word.array();
+				for (int pos = 0; pos < word.length(); pos++) {
+					section.putChar(array[word.offset() + pos]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 대소문자를 구분하지 않은 순서, 같으면 원래 글자 순서.
+	 */
+	private static final Comparator<CharVector> WORD_ORDER = (a, b) -> {
+		int size = Math.min(a.length(), b.length());
+		for (int pos = 0; pos < size; pos++) {
+			int diff = fold(a.array()[a.offset() + pos]) - fold(b.array()[b.offset() + pos]);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		if (a.length() != b.length()) {
+			return a.length() - b.length();
+		}
+		for (int pos = 0; pos < size; pos++) {
+			int diff = a.array()[a.offset() + pos] - b.array()[b.offset() + pos];
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	};
+}
@@ -3,7 +3,9 @@ package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 import org.apache.logging.log4j.Logger;
 import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
 import org.bitbucket.eunjeon.elasticsearch.dict.korean.PreResult;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.WordExtractionCache;
 import org.bitbucket.eunjeon.elasticsearch.plugin.analysis.AnalysisMeCabKoStandardPlugin;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
 import org.bitbucket.eunjeon.elasticsearch.util.ContextStore;
 import org.bitbucket.eunjeon.elasticsearch.util.ResourceResolver;
 import org.bitbucket.eunjeon.elasticsearch.util.SearchUtil;
@@ -17,9 +19,18 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<CharSequence>> {
 
@@ -62,6 +73,13 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
     private static final String ATTR_DICTIONARY_FILE_PATH = "filePath";
     private static final String ATTR_DICTIONARY_SEQ = "seq";
     private static final String ATTR_DICTIONARY_LABEL = "label";
+    private static final String ATTR_DICTIONARY_BACKEND = "backend";
+    private static final String BACKEND_DOUBLE_ARRAY = "double-array";
+    private static final String ATTR_DICTIONARY_LOAD_THREADS = "loadThreads";
+    private static final int DEFAULT_LOAD_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private static final String ATTR_DICTIONARY_COMPILE_SLICES = "compileSlices";
+    /** 슬라이스가 사전색인의 샤드 갯수보다 많으면 _id 로 나누게 되어 메모리를 많이 쓰므로 작게 잡는다. */
+    private static final int DEFAULT_COMPILE_SLICES = 2;
 
     public static final String TAB = "\t";
 
@@ -69,11 +87,82 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
 
     private static File baseFile;
     private static File configFile;
+    /** 사전 스냅샷이 만들어질 때마다 증가하는 버전 */
+    private static final AtomicLong version = new AtomicLong();
+    /** 이 스냅샷의 버전. 분석결과 캐시의 무효화에 사용한다. */
+    private final long snapshotVersion = version.incrementAndGet();
+    /** context 에 공용사전으로 게시된 적이 있는지 여부 */
+    private volatile boolean published;
+    /** 어절 분해결과 캐시. 이 사전을 사용하는 모든 분해기가 공유한다. */
+    private final WordExtractionCache wordCache = new WordExtractionCache();
+    /** 사전별 적재시간(ms). 설정파일의 순서를 따른다. */
+    private final Map<String, Long> loadTimes = new LinkedHashMap<>();
 
     public ProductNameDictionary(Dictionary<TagProb, PreResult<CharSequence>> systemDictionary) {
         super(systemDictionary);
     }
 
+    public WordExtractionCache getWordCache() {
+        return wordCache;
+    }
+
+    public Map<String, Long> getLoadTimes() {
+        return loadTimes;
+    }
+
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    /**
+     * 현재 게시된 최신 사전 스냅샷을 반환한다.
+     * 게시된 적이 없는 사전(테스트 등에서 직접 만든 사전)이면 자기 자신을 반환한다.
+     * 분석기는 스트림을 reset 할 때 이 값을 받아서 스트림 하나를 분석하는 동안 같은 스냅샷만 사용한다.
+     */
+    public ProductNameDictionary latest() {
+        if (!published) {
+            return this;
+        }
+        ProductNameDictionary current = contextStore.getAs(PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
+        return current != null ? current : this;
+    }
+
+    /**
+     * 사전 스냅샷을 공용사전으로 게시한다. context 의 참조 하나만 바꾸므로
+     * 분석중인 스트림은 이전 스냅샷을 끝까지 사용하고, 참조하는 스트림이 없어지면 이전 스냅샷은 GC 된다.
+     */
+    public static ProductNameDictionary publish(ProductNameDictionary dictionary) {
+        dictionary.published = true;
+        contextStore.put(PRODUCT_NAME_DICTIONARY, dictionary);
+        return dictionary;
+    }
+
+    /**
+     * key 의 첫글자에서 시작하는 시스템사전 단어들을 짧은 단어부터 lengths, tagLists 에 채우고 찾은 갯수를 반환한다.
+     * 더블어레이 사전이면 트라이를 한번 따라가서 찾고, 그렇지 않으면 key 의 길이를 바꿔가며 길이별로 사전을 조회한다.
+     * (조회가 끝나면 key 의 길이는 원래대로 돌려놓는다.)
+     */
+    public int commonPrefixSearch(CharVector key, int[] lengths, List<TagProb>[] tagLists) {
+        Dictionary<TagProb, PreResult<CharSequence>> systemDictionary = getSystemDictionary();
+        if (systemDictionary instanceof DoubleArrayTagProbDictionary) {
+            return ((DoubleArrayTagProbDictionary) systemDictionary)
+                    .commonPrefixSearch(key.array(), key.offset(), key.length(), lengths, tagLists);
+        }
+        int found = 0;
+        int length = key.length();
+        for (int column = 1; column <= length; column++) {
+            key.length(column);
+            List<TagProb> tagList = systemDictionary.find(key);
+            if (tagList != null) {
+                lengths[found] = column;
+                tagLists[found] = tagList;
+                found++;
+            }
+        }
+        key.length(length);
+        return found;
+    }
+
     private static File getDictionaryFile(File envBase, JSONObject prop, String basePath) {
         File ret = null;
         // 속성에서 발견되면 속성내부 경로를 사용해 파일을 얻어오며, 그렇지 않은경우 지정된 경로에서 사전파일을 얻어온다
@@ -200,145 +289,212 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
         return AccessController.doPrivileged((PrivilegedAction<ProductNameDictionary>) () -> {
             Dictionary<TagProb, PreResult<CharSequence>> dictionary = null;
             ProductNameDictionary commonDictionary = null;
+            JSONObject systemRow = null;
             JSONArray dictList = dictProp.optJSONArray(ATTR_DICTIONARY_LIST);
             String basePath = dictProp.optString(ATTR_DICTIONARY_BASE_PATH);
+            int loadThreads = Math.max(1, Math.min(dictList.length(),
+                    dictProp.optInt(ATTR_DICTIONARY_LOAD_THREADS, DEFAULT_LOAD_THREADS)));
 
-            // 시스템사전을 먼저 읽어오도록 한다.
-            for (int inx = 0; inx < dictList.length(); inx++) {
-                JSONObject row = dictList.optJSONObject(inx);
-                if (getType(row) == Type.SYSTEM) {
-                    dictionary = loadSystemDictionary(baseFile, row, basePath);
-                    commonDictionary = new ProductNameDictionary(dictionary);
-                    break;
+            // 사전파일들은 서로 독립적이므로 동시에 읽어들인다.
+            long loadStart = System.nanoTime();
+            ExecutorService executor = newExecutor(loadThreads, "product-dictionary-loader-");
+            List<Future<LoadedDictionary>> futures = new ArrayList<>();
+            try {
+                for (int inx = 0; inx < dictList.length(); inx++) {
+                    JSONObject row = dictList.optJSONObject(inx);
+                    futures.add(executor.submit(() -> loadDictionary(baseFile, row, basePath)));
+                }
+                List<LoadedDictionary> loadedList = new ArrayList<>();
+                for (Future<LoadedDictionary> future : futures) {
+                    loadedList.add(getLoaded(future));
                 }
-            }
 
-            for (int inx = 0; inx < dictList.length(); inx++) {
-                JSONObject row = dictList.optJSONObject(inx);
-                String dictionaryId = row.optString(ATTR_DICTIONARY_NAME);
-                Type type = getType(row);
-                String tokenType = getTokenType(row);
-                String label = getLabel(row);
-                int seq = getSeq(row);
-                File dictFile = getDictionaryFile(baseFile, row, basePath);
-                boolean ignoreCase = getIgnoreCase(row);
-                SourceDictionary<?> sourceDictionary = null;
-                logger.info("Dictionary Setting Name: {}, type: {}", label, type.name());
-
-                if (type == Type.SET) {
-                    SetDictionary setDictionary = new SetDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(setDictionary.set(), tokenType);
-                    }
-                    sourceDictionary = setDictionary;
-                } else if (type == Type.MAP) {
-                    MapDictionary mapDictionary = new MapDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(mapDictionary.map().keySet(), tokenType);
-                    }
-                    sourceDictionary = mapDictionary;
-                } else if (type == Type.SYNONYM || type == Type.SYNONYM_2WAY) {
-                    SynonymDictionary synonymDictionary = new SynonymDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(synonymDictionary.getWordSet(), tokenType);
-                    }
-                    sourceDictionary = synonymDictionary;
-                } else if (type == Type.SPACE) {
-                    SpaceDictionary spaceDictionary = new SpaceDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(spaceDictionary.getWordSet(), tokenType);
-                        Map<CharSequence, PreResult<CharSequence>> map = new HashMap<>();
-                        for (Map.Entry<CharSequence, CharSequence[]> e : spaceDictionary.map().entrySet()) {
-                            PreResult<CharSequence> preResult = new PreResult<>();
-                            preResult.setResult(e.getValue());
-                            map.put(e.getKey(), preResult);
-                        }
-                        // commonDictionary.setPreDictionary(map);
+                // 시스템사전을 먼저 설정한다.
+                for (LoadedDictionary loaded : loadedList) {
+                    if (loaded.type == Type.SYSTEM) {
+                        dictionary = loaded.systemDictionary;
+                        commonDictionary = new ProductNameDictionary(dictionary);
+                        systemRow = loaded.row;
+                        break;
                     }
-                    sourceDictionary = spaceDictionary;
-                } else if (type == Type.CUSTOM) {
-                    CustomDictionary customDictionary = new CustomDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(customDictionary.getWordSet(), tokenType);
-                    }
-                    sourceDictionary = customDictionary;
-                } else if (type == Type.INVERT_MAP) {
-                    InvertMapDictionary invertMapDictionary = new InvertMapDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(invertMapDictionary.map().keySet(), tokenType);
+                }
+
+                // 추가명사는 설정파일의 순서대로 시스템사전에 등록한다. (적재가 끝난 순서와 관계없이 결과가 같다)
+                for (LoadedDictionary loaded : loadedList) {
+                    logger.info("Dictionary [{}] loaded {}ms >> type: {}", loaded.dictionaryId, loaded.loadTime, loaded.type.name());
+                    commonDictionary.loadTimes.put(loaded.dictionaryId, loaded.loadTime);
+                    SourceDictionary<?> sourceDictionary = loaded.sourceDictionary;
+                    if (sourceDictionary == null) {
+                        continue;
                     }
-                    sourceDictionary = invertMapDictionary;
-                } else if (type == Type.COMPOUND) {
-                    CompoundDictionary compoundDictionary = new CompoundDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
-                    if (tokenType != null) {
-                        commonDictionary.appendAdditionalNounEntry(compoundDictionary.map().keySet(), tokenType);
+                    if (loaded.tokenType != null) {
+                        commonDictionary.appendAdditionalNounEntry(getNounEntries(sourceDictionary), loaded.tokenType);
                     }
-                    sourceDictionary = compoundDictionary;
-                } else if (type == Type.SYSTEM) {
-                    // ignore
-                } else {
-                    logger.error("Unknown Dictionary type > {}", type);
-                }
-                if (sourceDictionary != null) {
-                    commonDictionary.addDictionary(dictionaryId, sourceDictionary);
+                    commonDictionary.addDictionary(loaded.dictionaryId, sourceDictionary);
                 }
+            } finally {
+                executor.shutdownNow();
+            }
+            logger.info("Dictionaries loaded {}ms >> {} dictionaries, {} threads",
+                    (System.nanoTime() - loadStart) / 1000000, dictList.length(), loadThreads);
+
+            // 추가명사 등록이 끝난 시스템사전을 더블어레이 사전으로 변환한다. (backend: double-array)
+            if (systemRow != null && dictionary instanceof TagProbDictionary &&
+                    BACKEND_DOUBLE_ARRAY.equalsIgnoreCase(systemRow.optString(ATTR_DICTIONARY_BACKEND, "").trim())) {
+                long st = System.nanoTime();
+                DoubleArrayTagProbDictionary doubleArrayDictionary =
+                        DoubleArrayTagProbDictionary.build((TagProbDictionary) dictionary);
+                commonDictionary.setSystemDictionary(doubleArrayDictionary);
+                logger.info("System Dictionary converted to double-array {}ms >> {} entries, {} bytes",
+                        (System.nanoTime() - st) / 1000000, doubleArrayDictionary.size(),
+                        doubleArrayDictionary.ramBytesUsed());
             }
             return commonDictionary;
         });
     }
 
     /**
-     * 시스템 사전과 그외 사전들을 처음부터 다시 읽어들여서 머징한뒤,
-     * 현재사용중인 context 에 있는 사전에 적용한다.
+     * 설정 한줄에 해당하는 사전파일을 읽는다. 사전 적재 스레드에서 실행된다.
+     */
+    private static LoadedDictionary loadDictionary(File baseFile, JSONObject row, String basePath) {
+        long st = System.nanoTime();
+        LoadedDictionary loaded = new LoadedDictionary();
+        loaded.row = row;
+        loaded.dictionaryId = row.optString(ATTR_DICTIONARY_NAME);
+        loaded.type = getType(row);
+        loaded.tokenType = getTokenType(row);
+        Type type = loaded.type;
+        String tokenType = loaded.tokenType;
+        String label = getLabel(row);
+        int seq = getSeq(row);
+        File dictFile = getDictionaryFile(baseFile, row, basePath);
+        boolean ignoreCase = getIgnoreCase(row);
+        logger.info("Dictionary Setting Name: {}, type: {}", label, type.name());
+
+        if (type == Type.SYSTEM) {
+            loaded.systemDictionary = loadSystemDictionary(baseFile, row, basePath);
+        } else if (type == Type.SET) {
+            loaded.sourceDictionary = new SetDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else if (type == Type.MAP) {
+            loaded.sourceDictionary = new MapDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else if (type == Type.SYNONYM || type == Type.SYNONYM_2WAY) {
+            loaded.sourceDictionary = new SynonymDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else if (type == Type.SPACE) {
+            loaded.sourceDictionary = new SpaceDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else if (type == Type.CUSTOM) {
+            loaded.sourceDictionary = new CustomDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else if (type == Type.INVERT_MAP) {
+            loaded.sourceDictionary = new InvertMapDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else if (type == Type.COMPOUND) {
+            loaded.sourceDictionary = new CompoundDictionary(dictFile, ignoreCase, label, seq, tokenType, type);
+        } else {
+            logger.error("Unknown Dictionary type > {}", type);
+        }
+        // 컴파일 이후의 변경분이 있으면 덧씌운다.
+        File patchFile = DictionaryPatch.getPatchFile(dictFile);
+        if (patchFile.exists() && DictionaryPatch.isSupported(loaded.sourceDictionary)) {
+            try {
+                DictionaryPatch patch = DictionaryPatch.read(patchFile, ignoreCase);
+                loaded.sourceDictionary = patch.applyTo(loaded.sourceDictionary);
+                logger.info("Dictionary [{}] patched >> {} entries", loaded.dictionaryId, patch.size());
+            } catch (Exception e) {
+                logger.error("DICTIONARY PATCH LOAD FAILED! {} / {}", loaded.dictionaryId, patchFile.getAbsolutePath(), e);
+            }
+        }
+        if (loaded.sourceDictionary instanceof SynonymDictionary) {
+            // 양방향 유사어 그룹은 분석중에 계산하지 않도록 적재할 때 만들어 둔다.
+            ((SynonymDictionary) loaded.sourceDictionary).getSynonymGroups();
+        }
+        loaded.loadTime = (System.nanoTime() - st) / 1000000;
+        return loaded;
+    }
+
+    private static ExecutorService newExecutor(int threads, String namePrefix) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static <T> T getLoaded(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Dictionary loading interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 시스템사전에 추가명사로 등록할 단어들
+     */
+    private static Set<CharSequence> getNounEntries(SourceDictionary<?> sourceDictionary) {
+        if (sourceDictionary instanceof SetDictionary) {
+            return ((SetDictionary) sourceDictionary).set();
+        } else if (sourceDictionary instanceof SynonymDictionary) {
+            return ((SynonymDictionary) sourceDictionary).getWordSet();
+        } else if (sourceDictionary instanceof SpaceDictionary) {
+            return ((SpaceDictionary) sourceDictionary).getWordSet();
+        } else if (sourceDictionary instanceof CustomDictionary) {
+            return ((CustomDictionary) sourceDictionary).getWordSet();
+        } else if (sourceDictionary instanceof MapDictionary) {
+            // MAP, INVERT_MAP, COMPOUND
+            return ((MapDictionary) sourceDictionary).map().keySet();
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * 사전 적재 스레드가 읽어들인 결과
+     */
+    private static class LoadedDictionary {
+        JSONObject row;
+        String dictionaryId;
+        Type type;
+        String tokenType;
+        Dictionary<TagProb, PreResult<CharSequence>> systemDictionary;
+        SourceDictionary<?> sourceDictionary;
+        long loadTime;
+    }
+
+    /**
+     * 시스템 사전과 그외 사전들을 처음부터 다시 읽어들여 새 스냅샷을 만든뒤 공용사전으로 게시한다.
+     * 사용중인 사전은 변경하지 않으므로, 분석중인 스트림은 한 스트림 안에서 이전 사전과 새 사전을 섞어 쓰지 않는다.
      * */
-    public static void reloadDictionary() {
+    public static synchronized void reloadDictionary() {
         if (baseFile == null || configFile == null) {
             logger.error("DICTIONARY NOT LOADED!");
             return;
         }
         ProductNameDictionary newCommonDictionary = loadDictionary(baseFile, ResourceResolver.readYmlConfig(configFile));
         ProductNameDictionary commonDictionary = contextStore.getAs(PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
-        // 1. commonDictionary에 systemdictinary셋팅.
-        commonDictionary.reset(newCommonDictionary);
-        // 2. dictionaryMap 에 셋팅.
-        Map<String, SourceDictionary<?>> dictionaryMap = commonDictionary.getDictionaryMap();
-
-        for (Map.Entry<String, SourceDictionary<?>> entry : dictionaryMap.entrySet()) {
-            String dictionaryId = entry.getKey();
-            SourceDictionary<?> dictionary = entry.getValue();
-            // dictionary 객체 자체는 유지하고, 내부 실데이터(map,set등)만 업데이트해준다.
-            // 상속시 instanceof로는 정확한 클래스가 판별이 불가능하므로 isAssignableFrom 로 판별한다.
-            if (dictionary.getClass().isAssignableFrom(SetDictionary.class)) {
-                SetDictionary setDictionary = (SetDictionary) dictionary;
-                SetDictionary newDictionary = newCommonDictionary.getDictionary(dictionaryId, SetDictionary.class);
-                setDictionary.setSet(newDictionary.set());
-            } else if (dictionary.getClass().isAssignableFrom(MapDictionary.class)) {
-                MapDictionary mapDictionary = (MapDictionary) dictionary;
-                MapDictionary newDictionary = newCommonDictionary.getDictionary(dictionaryId, MapDictionary.class);
-                mapDictionary.setMap(newDictionary.map());
-            } else if (dictionary.getClass().isAssignableFrom(SynonymDictionary.class)) {
-                SynonymDictionary synonymDictionary = (SynonymDictionary) dictionary;
-                SynonymDictionary newDictionary = newCommonDictionary.getDictionary(dictionaryId, SynonymDictionary.class);
-                synonymDictionary.setMap(newDictionary.map());
-                synonymDictionary.setWordSet(newDictionary.getWordSet());
-            } else if (dictionary.getClass().isAssignableFrom(SpaceDictionary.class)) {
-                SpaceDictionary spaceDictionary = (SpaceDictionary) dictionary;
-                SpaceDictionary newDictionary = newCommonDictionary.getDictionary(dictionaryId, SpaceDictionary.class);
-                spaceDictionary.setMap(newDictionary.map());
-                spaceDictionary.setWordSet(newDictionary.getWordSet());
-            } else if (dictionary.getClass().isAssignableFrom(CustomDictionary.class)) {
-                CustomDictionary customDictionary = (CustomDictionary) dictionary;
-                CustomDictionary newDictionary = newCommonDictionary.getDictionary(dictionaryId, CustomDictionary.class);
-                customDictionary.setMap(newDictionary.map());
-                customDictionary.setWordSet(newDictionary.getWordSet());
-            } else if (dictionary.getClass().isAssignableFrom(CompoundDictionary.class)) {
-                CompoundDictionary compoundDictionary = (CompoundDictionary) dictionary;
-                CompoundDictionary newDictionary = newCommonDictionary.getDictionary(dictionaryId, CompoundDictionary.class);
-                compoundDictionary.setMap(newDictionary.map());
-            }
+        publish(newCommonDictionary);
+        for (String dictionaryId : newCommonDictionary.getDictionaryMap().keySet()) {
             logger.info("Dictionary [{}] is reloaded!", dictionaryId);
         }
-        newCommonDictionary = null;
+        logger.info("DICTIONARY SNAPSHOT {} -> {} PUBLISHED",
+                commonDictionary != null ? commonDictionary.getSnapshotVersion() : 0,
+                newCommonDictionary.getSnapshotVersion());
+    }
+
+    /**
+     * 게시된 사전 스냅샷의 버전을 반환한다. reloadDictionary 가 호출될 때마다 바뀐다.
+     */
+    public static long getVersion() {
+        ProductNameDictionary commonDictionary = contextStore.getAs(PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
+        return commonDictionary != null ? commonDictionary.getSnapshotVersion() : 0;
     }
 
     /**
@@ -366,7 +522,9 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
             JSONObject dictProp =  ResourceResolver.readYmlConfig(configFile);
             JSONArray dictList = dictProp.optJSONArray(ATTR_DICTIONARY_LIST);
             String basePath = dictProp.optString(ATTR_DICTIONARY_BASE_PATH);
+            int slices = Math.max(1, dictProp.optInt(ATTR_DICTIONARY_COMPILE_SLICES, DEFAULT_COMPILE_SLICES));
 
+            List<JSONObject> rows = new ArrayList<>();
             for (int inx = 0; inx < dictList.length(); inx++) {
                 JSONObject row = dictList.optJSONObject(inx);
                 String dictionaryId = row.optString(ATTR_DICTIONARY_NAME);
@@ -375,42 +533,101 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
                 if (filters.size() > 0 && !filters.contains(dictionaryId)) {
                     continue;
                 }
+                rows.add(row);
+            }
+            if (rows.size() == 0) {
+                return null;
+            }
 
-                //사전 한개를 로딩한다.
-//				SourceDictionary<?> sourceDictionary = compileDictionaryOne(repo, dictList, dictionaryId);
-                // 사전과 컴파일된 Count를 Map형태로 받는다.
-                Map<String, Object> compileDictMap = compileDictionaryOne(repo, dictList, dictionaryId);
-                SourceDictionary<?> sourceDictionary = (SourceDictionary) compileDictMap.get("dict");
-                if (sourceDictionary != null) {
-
-                    // 엘라스틱서치에 .dsearch_dict_apply 인덱스에 upsert 한다.
-                    SearchUtil.upsertData(client,".dsearch_dict_apply", compileDictMap);
-
-                    //파일로 기록. 컴파일.
-                    if (exportFile) {
-                        File dictFile = getDictionaryFile(baseFile, row, basePath);
-                        OutputStream ostream = null;
-                        try {
-                            ostream = new FileOutputStream(dictFile);
-                            sourceDictionary.writeTo(ostream);
-                            logger.info("DICTIONARY FILE SAVED! {} / {}", dictionaryId, dictFile.getAbsolutePath());
-                        } catch (Exception ignore) {
-                        } finally {
-                            try {
-                                ostream.close();
-                            } catch (Exception ignore) {
+            // 사전들은 서로 독립적이므로 동시에 컴파일하고, 사전 하나는 슬라이스로 나누어 동시에 읽는다.
+            long compileStart = System.nanoTime();
+            int compileThreads = Math.max(1, Math.min(rows.size(),
+                    dictProp.optInt(ATTR_DICTIONARY_LOAD_THREADS, DEFAULT_LOAD_THREADS)));
+            ExecutorService executor = newExecutor(compileThreads, "product-dictionary-compiler-");
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            try {
+                for (JSONObject row : rows) {
+                    String dictionaryId = row.optString(ATTR_DICTIONARY_NAME);
+                    futures.add(executor.submit(() -> {
+                        // 사전과 컴파일된 Count를 Map형태로 받는다.
+                        Map<String, Object> compileDictMap = compileDictionaryOne(repo, dictList, dictionaryId, slices);
+                        SourceDictionary<?> sourceDictionary = compileDictMap == null ? null : (SourceDictionary) compileDictMap.get("dict");
+                        //파일로 기록. 컴파일.
+                        if (sourceDictionary != null && exportFile) {
+                            File dictFile = getDictionaryFile(baseFile, row, basePath);
+                            // 전체 데이터로 다시 만들었으므로 이전 변경분(패치)은 필요없다.
+                            if (writeDictionaryFile(dictionaryId, sourceDictionary, dictFile)) {
+                                DictionaryPatch.getPatchFile(dictFile).delete();
                             }
                         }
+                        return compileDictMap;
+                    }));
+                }
+                for (int inx = 0; inx < rows.size(); inx++) {
+                    String dictionaryId = rows.get(inx).optString(ATTR_DICTIONARY_NAME);
+                    Map<String, Object> compileDictMap = null;
+                    try {
+                        compileDictMap = getLoaded(futures.get(inx));
+                    } catch (RuntimeException e) {
+                        // 일부만 읽힌 사전이 기록되지 않도록 실패한 사전은 건너뛴다.
+                        logger.error("DICTIONARY COMPILE FAILED! {}", dictionaryId, e);
+                        continue;
+                    }
+                    if (compileDictMap != null && compileDictMap.get("dict") != null) {
+                        // 엘라스틱서치에 .dsearch_dict_apply 인덱스에 upsert 한다.
+                        SearchUtil.upsertData(client,".dsearch_dict_apply", compileDictMap);
                     }
                 }
+            } finally {
+                executor.shutdownNow();
             }
+            logger.info("Dictionaries compiled {}ms >> {} dictionaries, {} threads, {} slices",
+                    (System.nanoTime() - compileStart) / 1000000, rows.size(), compileThreads, slices);
             logger.debug("DICTIONARY LOAD COMPLETE! [{}]", filter == null ? "ALL" : filter);
             return null;
         });
     }
 
+    /**
+     * 사전파일을 기록한다.
+     * 사용중인 사전이 파일을 매핑하고 있으므로 덮어쓰지 않고 새 파일로 교체한다.
+     */
+    private static boolean writeDictionaryFile(String dictionaryId, SourceDictionary<?> sourceDictionary, File dictFile) {
+        File tempFile = new File(dictFile.getParentFile(), dictFile.getName() + ".tmp");
+        OutputStream ostream = null;
+        try {
+            ostream = new FileOutputStream(tempFile);
+            sourceDictionary.writeTo(ostream);
+            ostream.close();
+            ostream = null;
+            Files.move(tempFile.toPath(), dictFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("DICTIONARY FILE SAVED! {} / {}", dictionaryId, dictFile.getAbsolutePath());
+            return true;
+        } catch (Exception e) {
+            logger.error("DICTIONARY FILE SAVE FAILED! {} / {}", dictionaryId, dictFile.getAbsolutePath(), e);
+            return false;
+        } finally {
+            try {
+                if (ostream != null) {
+                    ostream.close();
+                }
+            } catch (Exception ignore) {
+            }
+            tempFile.delete();
+        }
+    }
+
     public static Map<String, Object> compileDictionaryOne(final DictionaryRepository repo,
                                                            JSONArray dictList, String dictionaryId) {
+        return compileDictionaryOne(repo, dictList, dictionaryId, 1);
+    }
+
+    /**
+     * 사전 하나를 컴파일한다. 사전 데이터는 slices 개로 나누어 동시에 읽는다.
+     */
+    public static Map<String, Object> compileDictionaryOne(final DictionaryRepository repo,
+                                                           JSONArray dictList, String dictionaryId, int slices) {
 
         Map<String, Object> result = new HashMap<>();
 
@@ -427,7 +644,7 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
             int seq = getSeq(row);
             boolean ignoreCase = row.optBoolean(ATTR_DICTIONARY_IGNORECASE, true);
 
-            Iterator<CharSequence[]> source = repo.getSource(dictionaryId);
+            Iterator<CharSequence[]> source = repo.getSource(dictionaryId, slices);
 
             //사전 타입으로 객체생성.
             SourceDictionary<?> sourceDictionary = null;
@@ -450,40 +667,7 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
             if (sourceDictionary != null) {
                 int cnt = 0;
                 for (; source.hasNext(); cnt++) {
-                    CharSequence[] data = source.next();
-                    String id = "";
-                    String keyword = "";
-                    String value = "";
-                    String line = "";
-                    if (data[0] != null) {
-                        id = String.valueOf(data[0]).trim();
-                    }
-                    if (data[1] != null) {
-                        keyword = String.valueOf(data[1]).trim();
-                    }
-                    if (data[2] != null) {
-                        value = String.valueOf(data[2]).trim();
-                    }
-                    if (type == Type.SYNONYM || type == Type.SYNONYM_2WAY) {
-                        if (keyword.length() > 0) {
-                            line = keyword + "\t" + value;
-                        } else {
-                            line = value;
-                        }
-                    } else if (type == Type.CUSTOM) {
-                        if (id.length() > 0) {
-                            line = keyword + "\t" + id;
-                        } else {
-                            line = keyword;
-                        }
-                    } else {
-                        if (value.length() > 0) {
-                            line = keyword + "\t" + value;
-                        } else {
-                            line = keyword;
-                        }
-                    }
-                    sourceDictionary.addSourceLineEntry(line);
+                    sourceDictionary.addSourceLineEntry(toSourceLine(type, source.next()));
                 }
                 result.put("cnt", cnt);
                 logger.info("DICTIONARY LOADED! [{}] / {} / {} / {}", cnt, dictionaryId, type, tokenType);
@@ -496,6 +680,167 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
         return null;
     }
 
+    /**
+     * 사전 하나의 변경된 데이터만 반영한 새 사전 스냅샷을 게시한다. (사전 전체를 다시 컴파일하지 않는다)
+     * changes 는 사전 색인에서 추가, 수정, 삭제된 데이터 (id, keyword, value) 이며, 사전 색인에는 이미 반영되어 있어야 한다.
+     * changes 에 나오는 단어를 하나라도 포함하는 데이터만 사전 색인에서 다시 읽어서 그 단어들의 결과만 새로 만든다.
+     * 양방향 유사어는 한 그룹의 단어들이 서로를 포함하므로 변경된 그룹만 다시 계산된다.
+     * exportFile 이면 변경분을 패치파일에 이어서 기록하고, 패치파일이 커지면 사전파일에 합친다.
+     * 추가명사(tokenType)를 등록하는 사전은 시스템사전도 바뀌어야 하므로 패치를 기록한 뒤 사전 전체를 다시 적재한다.
+     */
+    public static synchronized Map<String, Object> updateDictionary(NodeClient client, final DictionaryRepository repo,
+                                                                    String dictionaryId, List<CharSequence[]> changes, boolean exportFile) {
+        Map<String, Object> result = new HashMap<>();
+        ProductNameDictionary commonDictionary = contextStore.getAs(PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
+        if (commonDictionary == null) {
+            logger.error("DICTIONARY NOT LOADED!");
+            return result;
+        }
+        SourceDictionary<?> current = commonDictionary.getDictionaryMap().get(dictionaryId);
+        if (!DictionaryPatch.isSupported(current)) {
+            // 패치할 수 없는 사전은 해당 사전만 컴파일하고 다시 적재한다.
+            logger.info("DICTIONARY [{}] CANNOT BE PATCHED. COMPILING WHOLE DICTIONARY", dictionaryId);
+            compileDictionary(client, repo, dictionaryId, exportFile);
+            reloadDictionary();
+            return result;
+        }
+        long st = System.nanoTime();
+        Type type = current.type();
+
+        // 변경된 데이터에 나오는 단어들
+        SourceDictionary<?> changed = DictionaryPatch.newDictionary(current);
+        Set<CharSequence> queryWords = new HashSet<>();
+        for (CharSequence[] data : changes) {
+            changed.addSourceLineEntry(toSourceLine(type, data));
+            for (int inx = 1; inx < data.length; inx++) {
+                if (data[inx] == null) {
+                    continue;
+                }
+                for (String word : String.valueOf(data[inx]).split(",")) {
+                    if (word.trim().length() > 0) {
+                        queryWords.add(word.trim());
+                    }
+                }
+            }
+        }
+        Set<CharSequence> words = DictionaryPatch.words(changed);
+        queryWords.addAll(words);
+
+        // 그 단어들을 포함하는 현재 데이터로 다시 만든다.
+        SourceDictionary<?> rebuilt = DictionaryPatch.newDictionary(current);
+        int cnt = 0;
+        for (Iterator<CharSequence[]> source = repo.getSource(dictionaryId, queryWords); source.hasNext(); cnt++) {
+            rebuilt.addSourceLineEntry(toSourceLine(type, source.next()));
+        }
+        DictionaryPatch patch = DictionaryPatch.diff(current, rebuilt, words);
+        logger.info("DICTIONARY [{}] DELTA {}ms >> changes: {}, words: {}, source: {}, patch: {}", dictionaryId,
+                (System.nanoTime() - st) / 1000000, changes.size(), words.size(), cnt, patch.size());
+        result.put("id", dictionaryId);
+        result.put("type", dictionaryId);
+        result.put("patch", patch.size());
+        if (patch.isEmpty()) {
+            result.put("cnt", getDictionaryInfo(current)[0]);
+            return result;
+        }
+        SourceDictionary<?> patched = patch.applyTo(current);
+        if (patched instanceof SynonymDictionary) {
+            ((SynonymDictionary) patched).getSynonymGroups();
+        }
+        result.put("cnt", getDictionaryInfo(patched)[0]);
+
+        if (exportFile && configFile != null) {
+            JSONObject dictProp = ResourceResolver.readYmlConfig(configFile);
+            JSONArray dictList = dictProp.optJSONArray(ATTR_DICTIONARY_LIST);
+            String basePath = dictProp.optString(ATTR_DICTIONARY_BASE_PATH);
+            for (int inx = 0; inx < dictList.length(); inx++) {
+                JSONObject row = dictList.optJSONObject(inx);
+                if (dictionaryId.equals(row.optString(ATTR_DICTIONARY_NAME))) {
+                    writePatchFile(dictionaryId, patch, patched, getDictionaryFile(baseFile, row, basePath));
+                    break;
+                }
+            }
+        }
+        if (client != null) {
+            SearchUtil.upsertData(client, ".dsearch_dict_apply", result);
+        }
+
+        if (current.tokenType() != null && exportFile) {
+            reloadDictionary();
+        } else {
+            if (current.tokenType() != null) {
+                logger.warn("DICTIONARY [{}] ADDITIONAL NOUNS ARE NOT UPDATED UNTIL RELOAD", dictionaryId);
+            }
+            ProductNameDictionary newCommonDictionary = new ProductNameDictionary(commonDictionary.getSystemDictionary());
+            newCommonDictionary.getDictionaryMap().putAll(commonDictionary.getDictionaryMap());
+            newCommonDictionary.addDictionary(dictionaryId, patched);
+            newCommonDictionary.loadTimes.putAll(commonDictionary.loadTimes);
+            publish(newCommonDictionary);
+            logger.info("DICTIONARY SNAPSHOT {} -> {} PUBLISHED", commonDictionary.getSnapshotVersion(),
+                    newCommonDictionary.getSnapshotVersion());
+        }
+        return result;
+    }
+
+    /**
+     * 변경분을 패치파일에 이어서 기록한다. 패치파일이 커졌으면 패치된 사전을 사전파일로 기록하고 패치파일을 지운다.
+     */
+    private static void writePatchFile(String dictionaryId, DictionaryPatch patch, SourceDictionary<?> patched, File dictFile) {
+        File patchFile = DictionaryPatch.getPatchFile(dictFile);
+        try {
+            patch.appendTo(patchFile);
+            logger.info("DICTIONARY PATCH SAVED! {} / {} / {} bytes", dictionaryId, patchFile.getAbsolutePath(), patchFile.length());
+        } catch (Exception e) {
+            logger.error("DICTIONARY PATCH SAVE FAILED! {} / {}", dictionaryId, patchFile.getAbsolutePath(), e);
+            return;
+        }
+        if (DictionaryPatch.needsCompaction(dictFile, patchFile)) {
+            // 사전파일을 먼저 교체한 뒤 패치파일을 지운다. 그 사이에 중단되어도 패치를 다시 적용한 결과는 같다.
+            if (writeDictionaryFile(dictionaryId, patched, dictFile)) {
+                patchFile.delete();
+                logger.info("DICTIONARY PATCH COMPACTED! {} / {}", dictionaryId, dictFile.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * 사전 색인의 데이터 (id, keyword, value) 를 사전 소스 한줄로 만든다.
+     */
+    private static String toSourceLine(Type type, CharSequence[] data) {
+        String id = "";
+        String keyword = "";
+        String value = "";
+        String line = "";
+        if (data[0] != null) {
+            id = String.valueOf(data[0]).trim();
+        }
+        if (data[1] != null) {
+            keyword = String.valueOf(data[1]).trim();
+        }
+        if (data[2] != null) {
+            value = String.valueOf(data[2]).trim();
+        }
+        if (type == Type.SYNONYM || type == Type.SYNONYM_2WAY) {
+            if (keyword.length() > 0) {
+                line = keyword + "\t" + value;
+            } else {
+                line = value;
+            }
+        } else if (type == Type.CUSTOM) {
+            if (id.length() > 0) {
+                line = keyword + "\t" + id;
+            } else {
+                line = keyword;
+            }
+        } else {
+            if (value.length() > 0) {
+                line = keyword + "\t" + value;
+            } else {
+                line = keyword;
+            }
+        }
+        return line;
+    }
+
     public static int[] getDictionaryInfo(SourceDictionary<?> sourceDictionary) {
         int[] ret = {0, 0};
         if (sourceDictionary.getClass().isAssignableFrom(SetDictionary.class)) {
@@ -527,99 +872,60 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
         return ret;
     }
 
-    public static List<CharSequence> getTwowaySynonymWord(CharSequence mainWord, Map<CharSequence, CharSequence[]> synonymMap) {
-        CharSequence word = null;
-        Map<CharSequence, List<CharSequence>> map = new HashMap<>();
-        List<CharSequence> keys = new ArrayList<>();
-        List<CharSequence> values = null;
-        CharSequence[] synonyms = null;
-        CharSequence[] subSynonyms = null;
-        map.put(mainWord, values = new ArrayList<>());
-        keys.addAll(map.keySet());
-        values.addAll(Arrays.asList(synonymMap.get(mainWord)));
-
-        for (int kinx = 0; kinx < keys.size(); kinx++) {
-            word = keys.get(kinx);
-            synonyms = synonymMap.get(word);
-            logger.trace("SYN {} : {}", word, synonyms);
-
-            for (int sinx = 0; sinx < synonyms.length; sinx++) {
-                CharSequence synonym = synonyms[sinx];
-                if (keys.contains(synonym)) { continue; }
-                subSynonyms = synonymMap.get(synonym);
-                if (subSynonyms != null && synonyms.length > 0) {
-                    for (CharSequence subSynonym : subSynonyms) {
-                        if (mainWord.equals(subSynonym)) {
-                            map.put(synonym, values = new ArrayList<>());
-                            keys.add(synonym);
-                            values.addAll(Arrays.asList(subSynonyms));
-                            break;
-                        }
-                    }
-                }
+    /**
+     * 양방향 유사어를 제외한 유사어가 하나라도 있으면 단방향 유사어이다.
+     * 양방향 유사어 그룹은 사전을 적재할 때 계산해 두므로 유사어 갯수만큼만 조회한다.
+     */
+    public static boolean isOneWaySynonym(CharSequence word, SynonymDictionary dictionary) {
+        CharSequence[] synonyms = dictionary.map().get(word);
+        if (synonyms != null) {
+            SynonymGroups groups = dictionary.getSynonymGroups();
+            for (CharSequence value : synonyms) {
+                if (groups.inGroup(word, value)) { continue; }
+                // 단방향이 하나라도 있으면 단방향 동의어
+                logger.trace("ONE-WAY {} -> {}", word, value);
+                return true;
             }
         }
-        if (map.size() > 1) {
-            normalizeSynonymMap(map);
-        }
-        logger.trace("MAP:{}", map);
-        if (map.size() > 1) {
-            keys.clear();
-            keys.addAll(new TreeSet<CharSequence>(map.keySet()));
-            return keys;
-        }
-        return null;
+        return false;
     }
 
-    public static void normalizeSynonymMap(Map<CharSequence, List<CharSequence>> map) {
-        CharSequence word = null;
-        List<CharSequence> keys = new ArrayList<>();
-        List<CharSequence> values = null;
-        keys.addAll(map.keySet());
-        // 키값에 없는 동의어 제거
-        for (int inx = 0; inx < keys.size(); inx++) {
-            word = keys.get(inx);
-            values = map.get(word);
-            for (int vinx = 0; vinx < values.size(); vinx++) {
-                CharSequence value = values.get(vinx);
-                if (!keys.contains(value)) {
-                    values.remove(vinx);
-                    vinx--;
+    /**
+     * 유사어 사전을 다시 적재할 수 있는 원본 데이터로 만든다.
+     * 양방향 유사어 그룹은 "\t단어,단어" 로, 그룹에 없는 유사어는 "단어\t유사어,유사어" 로 저장하며,
+     * 그룹의 모든 단어가 서로 유사어이므로 다시 적재하면 원래의 유사어 사전과 같아진다.
+     */
+    public static Set<CharSequence> getSynonymSourceLines(SynonymDictionary dictionary) {
+        Set<CharSequence> words = new HashSet<>();
+        Map<CharSequence, CharSequence[]> map = dictionary.map();
+        SynonymGroups groups = dictionary.getSynonymGroups();
+        for (CharSequence word : map.keySet()) {
+            List<CharSequence> twoway = groups.group(word);
+            {
+                // 단방향 동의어에서 양방향을 뺀 나머지 값들만 저장한다.
+                StringBuilder sb = new StringBuilder();
+                for (CharSequence value : map.get(word)) {
+                    if (twoway != null && twoway.contains(value)) { continue; }
+                    if (sb.length() > 0) { sb.append(","); }
+                    sb.append(String.valueOf(value).trim());
                 }
-            }
-        }
-        List<CharSequence> delete = new ArrayList<>();
-        // 동의어에 없는 키값 제거
-        logger.trace("MAP:{}", map);
-        for (int sinx = 0; sinx < keys.size(); sinx++) {
-            word = keys.get(sinx);
-            for (int tinx = 0; tinx < keys.size(); tinx++) {
-                if (sinx == tinx) { continue; }
-                values = map.get(keys.get(tinx));
-                if (!values.contains(word)) {
-                    delete.add(word);
-                    break;
+                if (sb.length() > 0) {
+                    words.add(String.valueOf(word) + TAB + String.valueOf(sb));
                 }
             }
-        }
-        for (CharSequence key : delete) {
-            map.remove(key);
-        }
-        logger.trace("MAP:{}", map);
-    }
-
-    public static boolean isOneWaySynonym(CharSequence word, Map<CharSequence, CharSequence[]> map) {
-        if (map.containsKey(word)) {
-            List<CharSequence> twoway = getTwowaySynonymWord(word, map);
-            logger.trace("TWO-WAY {} = {}", word, twoway);
-            for (CharSequence value : map.get(word)) {
-                if (twoway != null && twoway.contains(value)) { continue; }
-                // 단방향이 하나라도 있으면 단방향 동의어
-                logger.trace("ONE-WAY {} -> {}", word, value);
-                return true;
+            if (twoway != null && twoway.size() > 0) {
+                // 양방향 동의어를 저장한다.
+                StringBuilder sb = new StringBuilder();
+                for (CharSequence value : twoway) {
+                    if (sb.length() > 0) { sb.append(","); }
+                    sb.append(String.valueOf(value).trim());
+                }
+                if (sb.length() > 0) {
+                    words.add(TAB + String.valueOf(sb));
+                }
             }
         }
-        return false;
+        return words;
     }
 
     public static void restoreDictionary(final DictionaryRepository repo, String index) {
@@ -648,34 +954,7 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
                 repo.restore(key, dictionary.ignoreCase(), words);
             } else if (sourceDictionary.getClass().isAssignableFrom(SynonymDictionary.class)) {
                 SynonymDictionary dictionary = (SynonymDictionary) sourceDictionary;
-                Set<CharSequence> words = new HashSet<>();
-                Map<CharSequence, CharSequence[]> map = dictionary.map();
-                for (CharSequence word : map.keySet()) {
-                    List<CharSequence> twoway = getTwowaySynonymWord(word, map);
-                    {
-                        // 단방향 동의어에서 양방향을 뺀 나머지 값들만 저장한다.
-                        StringBuilder sb = new StringBuilder();
-                        for (CharSequence value : map.get(word)) {
-                            if (twoway != null && twoway.contains(value)) { continue; }
-                            if (sb.length() > 0) { sb.append(","); }
-                            sb.append(String.valueOf(value).trim());
-                        }
-                        if (sb.length() > 0) {
-                            words.add(String.valueOf(word) + TAB + String.valueOf(sb));
-                        }
-                    }
-                    if (twoway != null && twoway.size() > 0) {
-                        // 양방향 동의어를 저장한다.
-                        StringBuilder sb = new StringBuilder();
-                        for (CharSequence value : twoway) {
-                            if (sb.length() > 0) { sb.append(","); }
-                            sb.append(String.valueOf(value).trim());
-                        }
-                        if (sb.length() > 0) {
-                            words.add(TAB + String.valueOf(sb));
-                        }
-                    }
-                }
+                Set<CharSequence> words = getSynonymSourceLines(dictionary);
                 repo.restore(key, dictionary.ignoreCase(), words);
             } else if (sourceDictionary.getClass().isAssignableFrom(SpaceDictionary.class)) {
                 SpaceDictionary dictionary = (SpaceDictionary) sourceDictionary;
@@ -751,6 +1030,20 @@ public class ProductNameDictionary extends CommonDictionary<TagProb, PreResult<C
 
     public static abstract class DictionaryRepository {
         public abstract Iterator<CharSequence[]> getSource(String type);
+        /**
+         * words 중 하나라도 포함하는 사전 데이터를 반환한다.
+         * 더 많이 반환하는 것은 괜찮으므로 기본구현은 전체 데이터를 반환한다.
+         */
+        public Iterator<CharSequence[]> getSource(String type, Collection<CharSequence> words) {
+            return getSource(type);
+        }
+        /**
+         * 사전 데이터를 slices 개로 나누어 동시에 읽는다. 반환하는 데이터의 순서는 읽을 때마다 같아야 한다.
+         * 같은 저장소로 여러 사전을 동시에 읽을 수 있어야 한다. 기본구현은 getSource(type) 이다.
+         */
+        public Iterator<CharSequence[]> getSource(String type, int slices) {
+            return getSource(type);
+        }
         public abstract void restore(String type, boolean ignoreCase, Set<CharSequence> wordSet);
         public abstract void close();
     }
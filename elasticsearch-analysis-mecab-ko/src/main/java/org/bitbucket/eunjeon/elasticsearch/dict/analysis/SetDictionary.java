@@ -1,9 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 
 import com.danawa.io.DataInput;
-import com.danawa.io.DataOutput;
 import com.danawa.io.InputStreamDataInput;
-import com.danawa.io.OutputStreamDataOutput;
 import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
 
 import java.io.*;
@@ -36,12 +34,16 @@ public class SetDictionary extends SourceDictionary<Object> {
 		}
 		InputStream is = null;
 		try {
+			if (MappedDictionary.isMappedFile(file)) {
+				mapFrom(MappedDictionary.open(file, ignoreCase));
+				return;
+			}
 			is = new FileInputStream(file);
 			readFrom(is);
 		} catch (IOException e) {
 			logger.error("", e);
 		} finally {
-			try { is.close(); } catch (Exception ignore) { }
+			try { if (is != null) { is.close(); } } catch (Exception ignore) { }
 		}
 	}
 
@@ -79,22 +81,19 @@ public class SetDictionary extends SourceDictionary<Object> {
 		return set.contains(key);
 	}
 	
+	/**
+	 * 컴파일된 사전파일 형식으로 기록한다.
+	 */
 	@Override
-	@SuppressWarnings("resource")
 	public void writeTo(OutputStream out) throws IOException {
-		if (!(out instanceof BufferedOutputStream)) {
-			try { out = new BufferedOutputStream(out); } catch (Exception ignore) { }
-		}
-		DataOutput output = new OutputStreamDataOutput(out);
-		Iterator<CharSequence> valueIter = set.iterator();
-		// write size of set
-		output.writeInt(set.size());
-		// write values
-		for (; valueIter.hasNext();) {
-			CharSequence value = valueIter.next();
-			output.writeString(value.toString());
-		}
-		try { out.flush(); } catch (Exception ignore) { }
+		new MappedDictionary.Writer().addSet(set).writeTo(out);
+	}
+
+	/**
+	 * 매핑된 사전의 단어를 그대로 사용한다. 매핑된 Set 은 변경할 수 없다.
+	 */
+	protected void mapFrom(MappedDictionary dictionary) {
+		set = dictionary.set(0);
 	}
 
 	@Override
@@ -103,6 +102,10 @@ public class SetDictionary extends SourceDictionary<Object> {
 		if (!(in instanceof BufferedInputStream)) {
 			try { in = new BufferedInputStream(in); } catch (Exception ignore) { }
 		}
+		if (MappedDictionary.isMappedStream(in)) {
+			mapFrom(MappedDictionary.read(in, ignoreCase));
+			return;
+		}
 		DataInput input = new InputStreamDataInput(in);
 		set = new HashSet<>();
 		int size = input.readInt();
@@ -1,9 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 
 import com.danawa.io.DataInput;
-import com.danawa.io.DataOutput;
 import com.danawa.io.InputStreamDataInput;
-import com.danawa.io.OutputStreamDataOutput;
 import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
 
 import java.io.*;
@@ -64,23 +62,14 @@ public class SpaceDictionary extends MapDictionary {
 	}
 
 	@Override
-	@SuppressWarnings("resource")
-	public void writeTo(OutputStream out) throws IOException {
-		if (!(out instanceof BufferedOutputStream)) {
-			try { out = new BufferedOutputStream(out); } catch (Exception ignore) { }
-		}
-		super.writeTo(out);
-		DataOutput output = new OutputStreamDataOutput(out);
-		// write size of synonyms
-		output.writeVInt(wordSet.size());
+	protected MappedDictionary.Writer writer() {
+		return super.writer().addSet(wordSet);
+	}
 
-		// write synonyms
-		Iterator<CharSequence> synonymIter = wordSet.iterator();
-		for (; synonymIter.hasNext();) {
-			CharVector value = CharVector.valueOf(synonymIter.next());
-			output.writeUString(value.array(), value.offset(), value.length());
-		}
-		try { out.flush(); } catch (Exception ignore) { }
+	@Override
+	protected void mapFrom(MappedDictionary dictionary) {
+		super.mapFrom(dictionary);
+		wordSet = dictionary.set(1);
 	}
 
 	@Override
@@ -89,6 +78,10 @@ public class SpaceDictionary extends MapDictionary {
 		if (!(in instanceof BufferedInputStream)) {
 			try { in = new BufferedInputStream(in); } catch (Exception ignore) { }
 		}
+		if (MappedDictionary.isMappedStream(in)) {
+			mapFrom(MappedDictionary.read(in, ignoreCase));
+			return;
+		}
 		super.readFrom(in);
 		DataInput input = new InputStreamDataInput(in);
 		wordSet = new HashSet<>();
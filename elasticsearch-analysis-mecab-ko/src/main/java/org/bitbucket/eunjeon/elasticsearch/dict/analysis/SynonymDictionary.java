@@ -1,9 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
 
 import com.danawa.io.DataInput;
-import com.danawa.io.DataOutput;
 import com.danawa.io.InputStreamDataInput;
-import com.danawa.io.OutputStreamDataOutput;
 import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
 
 import java.io.*;
@@ -12,6 +10,8 @@ import java.util.*;
 public class SynonymDictionary extends MapDictionary {
 
 	private Set<CharSequence> wordSet;
+	/** map 에서 계산한 양방향 유사어 그룹. map 이 바뀌면 다시 계산한다. */
+	private volatile SynonymGroups synonymGroups;
 	
 	public SynonymDictionary() {
 		this(false);
@@ -50,6 +50,18 @@ public class SynonymDictionary extends MapDictionary {
 		return Collections.unmodifiableSet(wordSet);
 	}
 
+	/**
+	 * 양방향 유사어 그룹. 처음 호출할 때 한번 계산한다.
+	 */
+	public SynonymGroups getSynonymGroups() {
+		SynonymGroups groups = synonymGroups;
+		if (groups == null || groups.source() != map) {
+			groups = SynonymGroups.build(map);
+			synonymGroups = groups;
+		}
+		return groups;
+	}
+
 	private CharSequence[] duplicateCharList(CharSequence[] arr) {
 		if (arr != null) {
 			CharSequence[] list = new CharSequence[arr.length];
@@ -61,6 +73,7 @@ public class SynonymDictionary extends MapDictionary {
 	// key가 null일수 있다. 양방향의 경우.
 	@Override
 	public void addEntry(CharSequence keyword, Object[] values, List<Object> columnSettingList) {
+		synonymGroups = null;
 		List<CharSequence> list = new ArrayList<>(4);
 		CharVector mainWord = null;
 		if (keyword != null) {
@@ -212,22 +225,14 @@ public class SynonymDictionary extends MapDictionary {
 	}
 
 	@Override
-	@SuppressWarnings("resource")
-	public void writeTo(OutputStream out) throws IOException {
-		if (!(out instanceof BufferedOutputStream)) {
-			try { out = new BufferedOutputStream(out); } catch (Exception ignore) { }
-		}
-		super.writeTo(out);
-		DataOutput output = new OutputStreamDataOutput(out);
-		// write size of synonyms
-		output.writeVInt(wordSet.size());
-		// write synonyms
-		Iterator<CharSequence> synonymIter = wordSet.iterator();
-		for (; synonymIter.hasNext();) {
-			CharVector value = CharVector.valueOf(synonymIter.next());
-			output.writeUString(value.array(), value.offset(), value.length());
-		}
-		try { out.flush(); } catch (Exception ignore) { }
+	protected MappedDictionary.Writer writer() {
+		return super.writer().addSet(wordSet);
+	}
+
+	@Override
+	protected void mapFrom(MappedDictionary dictionary) {
+		super.mapFrom(dictionary);
+		wordSet = dictionary.set(1);
 	}
 
 	@Override
@@ -236,6 +241,10 @@ public class SynonymDictionary extends MapDictionary {
 		if (!(in instanceof BufferedInputStream)) {
 			try { in = new BufferedInputStream(in); } catch (Exception ignore) { }
 		}
+		if (MappedDictionary.isMappedStream(in)) {
+			mapFrom(MappedDictionary.read(in, ignoreCase));
+			return;
+		}
 		super.readFrom(in);
 		DataInput input = new InputStreamDataInput(in);
 		wordSet = new HashSet<>();
@@ -0,0 +1,174 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 양방향 유사어 그룹.
+ * 단어마다, 서로를 유사어로 가지는 단어들 중 모든 단어가 서로를 유사어로 가지는 단어들만 그룹으로 묶는다.
+ * 그룹의 모든 단어 쌍이 양방향 유사어이므로, 그룹을 양방향 한 줄로 저장해도 원래 없던 유사어가 생기지 않는다.
+ * 예를 들어 "A,B" 와 "B,C" 가 있으면 A 는 {A,B}, C 는 {B,C} 그룹이 되고, B 는 A 와 C 가 서로 유사어가 아니므로 그룹이 없다.
+ * 사전을 적재할 때 한번만 계산하며, 같은 그룹은 공용 배열의 한 구간을 함께 사용한다.
+ */
+public class SynonymGroups {
+
+	private static final Comparator<CharSequence> ORDER = new Comparator<CharSequence>() {
+		@Override public int compare(CharSequence o1, CharSequence o2) {
+			return String.valueOf(o1).compareTo(String.valueOf(o2));
+		}
+	};
+
+	private final Map<CharSequence, CharSequence[]> source;
+	/** 단어 -> 그룹번호 */
+	private final Map<CharSequence, Integer> groupIds;
+	/** 그룹번호 -> members 시작위치. 마지막은 members 길이 */
+	private final int[] offsets;
+	/** 모든 그룹의 단어를 그룹순서대로 이어붙인 배열. 그룹 안에서는 정렬되어 있다. */
+	private final CharSequence[] members;
+
+	private SynonymGroups(Map<CharSequence, CharSequence[]> source, Map<CharSequence, Integer> groupIds, int[] offsets, CharSequence[] members) {
+		this.source = source;
+		this.groupIds = groupIds;
+		this.offsets = offsets;
+		this.members = members;
+	}
+
+	/**
+	 * 유사어 map 에서 양방향 유사어 그룹을 만든다.
+	 */
+	public static SynonymGroups build(Map<CharSequence, CharSequence[]> map) {
+		Map<CharSequence, Set<CharSequence>> synonymSets = new HashMap<>();
+		Map<List<CharSequence>, Integer> groupIndex = new HashMap<>();
+		List<CharSequence> members = new ArrayList<>();
+		List<Integer> offsets = new ArrayList<>();
+		Map<CharSequence, Integer> groupIds = new HashMap<>();
+		for (CharSequence word : map.keySet()) {
+			List<CharSequence> group = clique(word, map, synonymSets);
+			if (group == null) {
+				continue;
+			}
+			Integer id = groupIndex.get(group);
+			if (id == null) {
+				id = offsets.size();
+				groupIndex.put(group, id);
+				offsets.add(members.size());
+				members.addAll(group);
+			}
+			groupIds.put(word, id);
+		}
+		int[] offsetArray = new int[offsets.size() + 1];
+		for (int inx = 0; inx < offsets.size(); inx++) {
+			offsetArray[inx] = offsets.get(inx);
+		}
+		offsetArray[offsets.size()] = members.size();
+		return new SynonymGroups(map, groupIds, offsetArray, members.toArray(new CharSequence[0]));
+	}
+
+	/**
+	 * 단어의 양방향 유사어 그룹(정렬됨). 두 단어 이상이 아니면 null
+	 * 단어와 서로 유사어인 단어들을 모은 뒤, 다른 모든 단어의 유사어에 포함되는 단어만 남긴다.
+	 */
+	private static List<CharSequence> clique(CharSequence word, Map<CharSequence, CharSequence[]> map,
+		Map<CharSequence, Set<CharSequence>> synonymSets) {
+		List<CharSequence> keys = new ArrayList<>();
+		Set<CharSequence> keySet = new HashSet<>();
+		keys.add(word);
+		keySet.add(word);
+		for (int kinx = 0; kinx < keys.size(); kinx++) {
+			for (CharSequence synonym : map.get(keys.get(kinx))) {
+				if (keySet.contains(synonym)) { continue; }
+				if (map.containsKey(synonym) && synonyms(synonym, map, synonymSets).contains(word)) {
+					keys.add(synonym);
+					keySet.add(synonym);
+				}
+			}
+		}
+		if (keys.size() < 2) {
+			return null;
+		}
+		List<CharSequence> group = new ArrayList<>(keys.size());
+		for (CharSequence key : keys) {
+			boolean contained = true;
+			for (CharSequence other : keys) {
+				if (other != key && !synonyms(other, map, synonymSets).contains(key)) {
+					contained = false;
+					break;
+				}
+			}
+			if (contained) {
+				group.add(key);
+			}
+		}
+		if (group.size() < 2) {
+			return null;
+		}
+		Collections.sort(group, ORDER);
+		return group;
+	}
+
+	private static Set<CharSequence> synonyms(CharSequence word, Map<CharSequence, CharSequence[]> map,
+		Map<CharSequence, Set<CharSequence>> synonymSets) {
+		Set<CharSequence> set = synonymSets.get(word);
+		if (set == null) {
+			set = new HashSet<>(Arrays.asList(map.get(word)));
+			synonymSets.put(word, set);
+		}
+		return set;
+	}
+
+	/**
+	 * 그룹을 만든 유사어 map
+	 */
+	Map<CharSequence, CharSequence[]> source() {
+		return source;
+	}
+
+	/**
+	 * 단어의 그룹번호. 양방향 유사어가 없으면 -1
+	 */
+	public int groupId(CharSequence word) {
+		Integer group = groupIds.get(word);
+		return group != null ? group : -1;
+	}
+
+	/**
+	 * 단어의 양방향 유사어 그룹(자신 포함, 정렬됨). 그룹이 없으면 null
+	 */
+	public List<CharSequence> group(CharSequence word) {
+		int group = groupId(word);
+		if (group == -1) {
+			return null;
+		}
+		return Collections.unmodifiableList(Arrays.asList(members).subList(offsets[group], offsets[group + 1]));
+	}
+
+	/**
+	 * other 가 단어의 양방향 유사어 그룹에 포함되는지 여부
+	 */
+	public boolean inGroup(CharSequence word, CharSequence other) {
+		int group = groupId(word);
+		if (group == -1) {
+			return false;
+		}
+		for (int inx = offsets[group]; inx < offsets[group + 1]; inx++) {
+			if (members[inx].equals(other)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 서로 다른 그룹 갯수
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+}
@@ -50,6 +50,7 @@ public class TagProbDictionary implements Dictionary<TagProb, PreResult<CharSequ
 		}
 	}
 
+	@Override
 	public boolean ignoreCase() {
 		return ignoreCase;
 	}
@@ -62,6 +63,9 @@ public class TagProbDictionary implements Dictionary<TagProb, PreResult<CharSequ
 	public void setPreMap(Map<CharSequence, PreResult<CharSequence>> preMap) {
 		this.preMap = preMap;
 	}
+	public Map<CharSequence, PreResult<CharSequence>> getPreDictionary() {
+		return preMap;
+	}
 
 	public void appendNounEntry(Set<CharSequence> entrySet) {
 		appendPosTagEntry(entrySet, PosTag.N, TagProb.MAX_PROB);
@@ -174,22 +178,29 @@ public class TagProbDictionary implements Dictionary<TagProb, PreResult<CharSequ
 			tagProbList.add(tagProb);
 			probMap.put(key, tagProbList);
 		} else {
-			boolean foundTag = false;
-			for (int i = 0; i < tagProbList.size(); i++) {
-				TagProb oldTagProb = tagProbList.get(i);
-				if (oldTagProb.equals(tagProb)) {
-					if (tagProb.prob() > oldTagProb.prob()) {
-						// 새로 셋팅할 tagprob가 더 크면 재 셋팅필요.
-						tagProbList.remove(i);
-					} else {
-						foundTag = true;
-					}
-					break;
+			putAndReplace(tagProbList, tagProb);
+		}
+	}
+
+	/**
+	 * 같은 품사가 있으면 확률이 더 큰 경우에만 바꾸고, 없으면 추가한다.
+	 */
+	static void putAndReplace(List<TagProb> tagProbList, TagProb tagProb) {
+		boolean foundTag = false;
+		for (int i = 0; i < tagProbList.size(); i++) {
+			TagProb oldTagProb = tagProbList.get(i);
+			if (oldTagProb.equals(tagProb)) {
+				if (tagProb.prob() > oldTagProb.prob()) {
+					// 새로 셋팅할 tagprob가 더 크면 재 셋팅필요.
+					tagProbList.remove(i);
+				} else {
+					foundTag = true;
 				}
+				break;
 			}
-			if (!foundTag) {
-				tagProbList.add(tagProb);
-			}
+		}
+		if (!foundTag) {
+			tagProbList.add(tagProb);
 		}
 	}
 
@@ -3,6 +3,8 @@ package org.bitbucket.eunjeon.elasticsearch.dict.korean;
 import org.apache.logging.log4j.Logger;
 import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
 import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.PosTag;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.WordExtractionCache.ExtractedWord;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.WordExtractionCache.WordKey;
 import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
 import org.bitbucket.eunjeon.elasticsearch.product.analysis.AnalyzeExceedException;
 import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
@@ -12,12 +14,22 @@ import java.util.*;
 
 import static org.bitbucket.eunjeon.elasticsearch.product.analysis.ProductNameTokenizer.*;
 
+/**
+ * 한글 어절을 사전단어로 분해한다.
+ * 후보표(tabular)와 후보경로(beam)는 모두 인스턴스에 재사용되는 배열로 관리하며,
+ * extract 가 반환하는 ExtractedEntry 도 재사용되므로 다음 setInput 전까지만 유효하다.
+ * 잘리지 않은 어절의 분해결과는 사전의 WordExtractionCache 에 저장해 두고 같은 어절이 다시 들어오면 그대로 사용한다.
+ */
 public class KoreanWordExtractor {
 	private static Logger logger = Loggers.getLogger(KoreanWordExtractor.class, "");
 
+	private static final int NONE = -1;
+	private static final int QUEUE_MAX = 200;
+	private static final int RESULT_MAX = 10;
+
 	private ProductNameDictionary koreanDict;
 
-	private PosTagProbEntry[][] tabular;
+	private final int tabularSize;
 	private int[] status;
 	private Set<CharVector> josaSet;
 	// 최상의 후보가 만들어지면 바로 리턴. 기본 true;
@@ -28,19 +40,41 @@ public class KoreanWordExtractor {
 	int remnantLength;
 	boolean isUnicode;
 	CharVector charVector = new CharVector();
+	CharVector segmentVector = new CharVector();
 	TabularStringer tabularStringer;
-	EntryStringer entryStringer;
 
-	private PriorityQueue<ExtractedEntry> queue = new PriorityQueue<ExtractedEntry>(8, new Comparator<ExtractedEntry>() {
-		@Override
-		public int compare(ExtractedEntry o1, ExtractedEntry o2) {
-			return (int) (o2.totalScore() - o1.totalScore());
-		}
-	});
-	
-	private static final int QUEUE_MAX = 200;
-	private static final int RESULT_MAX = 10;
-	private List<ExtractedEntry> result = new ArrayList<>();
+	// 시작위치별 사전단어 조회결과. cellWords[cell(row, column)] 은 row 에서 끝나는 길이 column 의 단어
+	private List<TagProb>[] cellWords;
+	private int[] prefixLengths;
+	private List<TagProb>[] prefixTags;
+
+	// tabular. 칸마다 후보 태그목록의 첫 후보 (없으면 NONE)
+	private int[] cellHead;
+	// 후보 태그목록. candidateNext 로 같은 칸의 다음 후보를 잇는다.
+	private TagProb[] candidateTag;
+	private int[] candidateNext;
+	private int candidateCount;
+
+	// 후보경로 노드. 노드는 뒤쪽 노드(nodeNext)를 가리키며, nodeScore 는 뒤쪽 노드까지의 합산점수이다.
+	private int[] nodeRow;
+	private int[] nodeColumn;
+	private TagProb[] nodeTag;
+	private int[] nodeNext;
+	private double[] nodeScore;
+	private int nodeCount;
+
+	// 점수가 높은 노드가 먼저 나오는 고정크기 힙
+	private final int[] queue = new int[QUEUE_MAX];
+	private int queueSize;
+
+	private final int[] result = new int[RESULT_MAX];
+	private int resultSize;
+
+	// 반환용 ExtractedEntry. setInput 때마다 처음부터 다시 사용한다.
+	private ExtractedEntry[] entries = new ExtractedEntry[16];
+	private int entryCount;
+	// 어절 분해결과 캐시 조회용 키
+	private final WordKey cacheKey = new WordKey();
 
 	protected char[] source;
 	protected int offset;
@@ -51,11 +85,17 @@ public class KoreanWordExtractor {
 	}
 
 	public KoreanWordExtractor(ProductNameDictionary koreanDict, int tabularSize) {
-		tabular = new PosTagProbEntry[tabularSize][];
+		this.tabularSize = tabularSize;
 		// tabular 파싱 초기화.
-		for (int row = 0; row < tabular.length; row++) {
-			tabular[row] = new PosTagProbEntry[row + 2];
-		}
+		int cells = tabularSize * (tabularSize + 1);
+		cellWords = newTagLists(cells);
+		cellHead = new int[cells];
+		Arrays.fill(cellHead, NONE);
+		candidateTag = new TagProb[cells];
+		candidateNext = new int[cells];
+		growNodes(64);
+		prefixLengths = new int[tabularSize];
+		prefixTags = newTagLists(tabularSize);
 		status = new int[tabularSize];
 		this.koreanDict = koreanDict;
 		josaSet = new HashSet<CharVector>();
@@ -65,7 +105,15 @@ public class KoreanWordExtractor {
 			josaSet.add(new CharVector(j));
 		}
 		tabularStringer = new TabularStringer();
-		entryStringer = new EntryStringer();
+	}
+
+	/*
+	 * 사전 조회결과를 담는 배열. 조회마다 리스트를 만들지 않도록 배열을 재사용한다.
+	 * 배열에는 사전이 반환한 List<TagProb> 만 넣으므로 형변환은 안전하다.
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<TagProb>[] newTagLists(int size) {
+		return (List<TagProb>[]) new List<?>[size];
 	}
 
 	public ProductNameDictionary dictionary() {
@@ -80,91 +128,119 @@ public class KoreanWordExtractor {
 		this.fastResultOption = fastResultOption;
 	}
 
+	private int cell(int row, int column) {
+		return row * (tabularSize + 1) + column;
+	}
+
+	/*
+	 * 시작위치마다 사전을 한번씩 따라가서(common prefix search) 그 위치에서 시작하는 모든 단어를 cellWords 에 채운다.
+	 */
+	private void lookupWords() {
+		Arrays.fill(cellWords, 0, cell(length, 0), null);
+		CharVector key = charVector;
+		for (int start = 0; start < length; start++) {
+			key.init(source, offset + start, length - start);
+			int found = koreanDict.commonPrefixSearch(key, prefixLengths, prefixTags);
+			for (int inx = 0; inx < found; inx++) {
+				int column = prefixLengths[inx];
+				cellWords[cell(start + column - 1, column)] = prefixTags[inx];
+				prefixTags[inx] = null;
+			}
+		}
+	}
+
+	/*
+	 * 칸의 후보목록 맨 앞에 후보를 추가한다.
+	 */
+	private void pushCandidate(int cell, TagProb tagProb) {
+		if (candidateCount == candidateTag.length) {
+			candidateTag = Arrays.copyOf(candidateTag, candidateCount * 2);
+			candidateNext = Arrays.copyOf(candidateNext, candidateCount * 2);
+		}
+		candidateTag[candidateCount] = tagProb;
+		candidateNext[candidateCount] = cellHead[cell];
+		cellHead[cell] = candidateCount++;
+	}
+
+	/*
+	 * 칸의 후보목록을 태그목록 순서대로 채운다.
+	 */
+	private void setCandidates(int cell, List<TagProb> tagList) {
+		for (int i = tagList.size() - 1; i >= 0; i--) {
+			pushCandidate(cell, tagList.get(i));
+		}
+	}
+
 	/*
 	 * 음절을 조합하여 사전에서 찾아준다. 찾은 단어와 tag는 table에 저장한다.
 	 */
 	private ExtractedEntry doSegment() {
-		CharVector cv = new CharVector(source, offset, length);
+		CharVector cv = segmentVector;
+		cv.init(source, offset, length);
+		lookupWords();
 		// 길이가 1~2 단어는 완전매칭이 아니면 UNK이다.
 		if (length == 1) {
 			// FIXME 나중엔 뺀다. extractor를 제일 먼저받을 것이기 때문..
 			// 조사이면 전체 조사로.
-			List<TagProb> tag = koreanDict.find(cv);
+			List<TagProb> tag = cellWords[cell(0, 1)];
 			if (tag != null) {
-				return new ExtractedEntry(length - 1, length, tag.get(0), offset);
+				return newEntry(length - 1, length, tag.get(0));
 			}
 			if (isDigit(cv)) {
-				return new ExtractedEntry(length - 1, length, TagProb.DIGIT, offset);
+				return newEntry(length - 1, length, TagProb.DIGIT);
 			} else if (isSymbol(cv)) {
-				return new ExtractedEntry(length - 1, length, TagProb.SYMBOL, offset);
+				return newEntry(length - 1, length, TagProb.SYMBOL);
 			}
-			return new ExtractedEntry(length - 1, length, TagProb.UNK, offset);
+			return newEntry(length - 1, length, TagProb.UNK);
 		}
-		List<TagProb> tag = koreanDict.find(cv);
+		List<TagProb> tag = cellWords[cell(length - 1, length)];
 		if (tag != null) {
-			return new ExtractedEntry(length - 1, length, tag.get(0), offset);
+			return newEntry(length - 1, length, tag.get(0));
 		}
+		Arrays.fill(cellHead, 0, cell(length, 0), NONE);
+		candidateCount = 0;
 		int start = length - 1;
 		for (int row = start; row >= 0; row--) {
 			for (int column = row + 1; column >= 1; column--) {
 				cv.init(offset + row - column + 1, column);
+				int cell = cell(row, column);
 				List<TagProb> tagList = null;
 				boolean isAlpha = false;
 				if (isDigit(cv)) {
 					// 무조건 셋팅.
-					tabular[row][column] = new PosTagProbEntry(TagProb.DIGIT);
+					pushCandidate(cell, TagProb.DIGIT);
 					status[row]++;
 				} else if (isSymbol(cv)) {
-					tabular[row][column] = new PosTagProbEntry(TagProb.SYMBOL);
+					pushCandidate(cell, TagProb.SYMBOL);
 					status[row]++;
 				} else {
 					if (isAlpha(cv)) {
 						if (column == 1) {
-							tabular[row][column] = new PosTagProbEntry(TagProb.ALPHA);
+							pushCandidate(cell, TagProb.ALPHA);
 							/* 2019.3.28 @swsong ALPHA 는 분석발견이 아니라고 가정한다. */
 							continue;
 						}
 						// 길이가 2이상이면 사전에서 확인해본다.
 						isAlpha = true;
 					}
-					tagList = koreanDict.find(cv);
+					tagList = cellWords[cell];
 					if (tagList != null) {
 						if (column == length) {
 							// 완전일치시
 							// logger.debug("Exact match {}", cv);
-							return new ExtractedEntry(row, column, tagList.get(0), offset);
-						}
-						PosTagProbEntry chainedEntry = null;
-						for (int i = 0; i < tagList.size(); i++) {
-							TagProb tagProb = tagList.get(i);
-							if (i == 0) {
-								chainedEntry = new PosTagProbEntry(tagProb);
-								tabular[row][column] = chainedEntry;
-							} else {
-								chainedEntry = chainedEntry.next(tagProb);
-							}
+							return newEntry(row, column, tagList.get(0));
 						}
+						setCandidates(cell, tagList);
 						status[row]++;
-					} else {
-
-						if (isAlpha) {
-							// 영문자이면 null이 아닌 ALPHA로 셋팅한다.
-							tabular[row][column] = new PosTagProbEntry(TagProb.ALPHA);
-						} else {
-							tabular[row][column] = null;
-						}
+					} else if (isAlpha) {
+						// 영문자이면 null이 아닌 ALPHA로 셋팅한다.
+						pushCandidate(cell, TagProb.ALPHA);
 					}
 
 					if (column < 3) {
 						// 1글자가 조사인지.
 						if (josaSet.contains(cv)) {
-							PosTagProbEntry entry = new PosTagProbEntry(TagProb.JOSA);
-							if (tabular[row][column] == null) {
-								tabular[row][column] = entry;
-							} else {
-								entry.next = tabular[row][column];
-								tabular[row][column] = entry;
-							}
+							pushCandidate(cell, TagProb.JOSA);
 							status[row]++;
 						}
 					}
@@ -221,7 +297,59 @@ public class KoreanWordExtractor {
 		}
 		return true;
 	}
-	
+
+	private void growNodes(int capacity) {
+		if (nodeRow == null) {
+			nodeRow = new int[capacity];
+			nodeColumn = new int[capacity];
+			nodeTag = new TagProb[capacity];
+			nodeNext = new int[capacity];
+			nodeScore = new double[capacity];
+		} else {
+			nodeRow = Arrays.copyOf(nodeRow, capacity);
+			nodeColumn = Arrays.copyOf(nodeColumn, capacity);
+			nodeTag = Arrays.copyOf(nodeTag, capacity);
+			nodeNext = Arrays.copyOf(nodeNext, capacity);
+			nodeScore = Arrays.copyOf(nodeScore, capacity);
+		}
+	}
+
+	/*
+	 * 후보경로 노드를 만든다. 점수는 자신의 확률에 뒤쪽 노드의 합산점수를 더한 값이다.
+	 */
+	private int newNode(int row, int column, TagProb tagProb, int next) {
+		if (nodeCount == nodeRow.length) {
+			growNodes(nodeCount * 2);
+		}
+		int node = nodeCount++;
+		nodeRow[node] = row;
+		nodeColumn[node] = column;
+		nodeTag[node] = tagProb;
+		nodeNext[node] = next;
+		double score = tagProb.prob();
+		if (next != NONE) {
+			score += nodeScore[next];
+		}
+		nodeScore[node] = score;
+		return node;
+	}
+
+	private int nodeEntryCount(int node) {
+		int count = 0;
+		while (node != NONE) {
+			count++;
+			node = nodeNext[node];
+		}
+		return count;
+	}
+
+	private int lastNode(int node) {
+		while (nodeNext[node] != NONE) {
+			node = nodeNext[node];
+		}
+		return node;
+	}
+
 	private void makeResult() {
 		int headRow = -1;
 		for (int row = length - 1; row >= 0; row--) {
@@ -235,31 +363,27 @@ public class KoreanWordExtractor {
 		try {
 			if (headRow == -1) {
 				// 통째 미등록어.
-				addResult(new ExtractedEntry(length - 1, length, TagProb.UNK, offset));
+				addResult(newNode(length - 1, length, TagProb.UNK, NONE));
 				return;
 			}
 			// 최초 char부터의 단어매칭이 없다면.
 			// 예를들어 "대한민국"분석시 "대한"만 사전에 있어서 "민국"은 결과가 없을경우.
 			if (headRow < length - 1) {
 				// 뒷부분을 미등록어로 처리한다. "대한(N)+민국(UNK)" 이 된다.
-				ExtractedEntry tail = new ExtractedEntry(length - 1, length - 1 - headRow, TagProb.UNK, offset);
+				int tail = newNode(length - 1, length - 1 - headRow, TagProb.UNK, NONE);
 				connectAllTo(headRow, tail);
 			} else {
-				connectAllTo(headRow, null);
+				connectAllTo(headRow, NONE);
 			}
-			ExtractedEntry tail = null;
-			// logger.trace("Q:{}", queue);
-			while ((tail = queue.poll()) != null) {
-				// logger.trace("T:{}", tail);
-				int connectRow = tail.row() - tail.column();
+			while (queueSize > 0) {
+				int tail = poll();
+				int connectRow = nodeRow[tail] - nodeColumn[tail];
 				if (status[connectRow] > 0) {
 					connectAllTo(connectRow, tail);
-				} else {
-					//
-					// TODO 앞에 붙을 단어가 없으면 row를 줄여가면서 존재하는 단어를 찾은후 connectAllTo를 붙인다.
-					//
-					connectTo(null, connectRow, -1, tail);
 				}
+				//
+				// TODO 앞에 붙을 단어가 없으면 row를 줄여가면서 존재하는 단어를 찾은후 connectAllTo를 붙인다.
+				//
 			}
 		} catch (AnalyzeExceedException e) {
 			// 분석을 중단하고 탈출한다.
@@ -267,17 +391,15 @@ public class KoreanWordExtractor {
 		}
 	}
 
-	private int connectAllTo(int headRow, ExtractedEntry tail) throws AnalyzeExceedException {
-		PosTagProbEntry[] rowData = tabular[headRow];
+	private int connectAllTo(int headRow, int tail) throws AnalyzeExceedException {
 		int found = 0;
 		// 최장길이부터 찾는다.
 		for (int headColumn = headRow + 1; headColumn > 0; headColumn--) {
-			if (rowData[headColumn] != null) {
-				PosTagProbEntry tagEntry = rowData[headColumn];
-				entryStringer.set(tagEntry, source, headRow, headColumn, offset);
+			int candidate = cellHead[cell(headRow, headColumn)];
+			if (candidate != NONE) {
 				/* 2019.3.28 @swsong 알파벳은 무조건 성공분석으로 잡혀서 사전에 없는 단어들도 후보가 되어 ALPHA를 건너뛰게 한다. */
-				if (tagEntry.tagProb.posTag() != PosTag.ALPHA) {
-					connectTo(tagEntry, headRow, headColumn, tail);
+				if (candidateTag[candidate].posTag() != PosTag.ALPHA) {
+					connectTo(candidate, headRow, headColumn, tail);
 					found++;
 				}
 			}
@@ -289,61 +411,45 @@ public class KoreanWordExtractor {
 
 		}
 		// 추가 20190725 (영문인경우 모두 분석되어야 분석성공으로 만들도록)
-		// logger.trace("CHECK:{} / {}", isUnicode, result);
 		if (!isUnicode) {
-			for (int inx = 0; inx < result.size(); inx++) {
-				if (result.get(inx).last().posTag() == PosTag.UNK) {
-					result.remove(inx);
-					inx--;
+			int size = 0;
+			for (int inx = 0; inx < resultSize; inx++) {
+				if (nodeTag[lastNode(result[inx])].posTag() != PosTag.UNK) {
+					result[size++] = result[inx];
 				}
 			}
+			resultSize = size;
 		}
 		return found;
 	}
 
-	private int connectTo(PosTagProbEntry headTagEntry, int headRow, int headColumn, ExtractedEntry tail) throws AnalyzeExceedException {
-		// entryStringer.set(headTagEntry, source, headRow, headColumn, offset);
-		// logger.trace("CONNECTTO:{}/{}", entryStringer, tail);
+	private int connectTo(int candidate, int headRow, int headColumn, int tail) throws AnalyzeExceedException {
 		// headColumn = -1 이면 앞쪽에 연결될 단어가 없는것이다.
-		if (tail == null) {
+		int found = 0;
+		if (tail == NONE) {
 			// 처음
-			int found = 0;
-			while (headTagEntry != null) {
-				ExtractedEntry headEntry = new ExtractedEntry(headRow, headColumn, headTagEntry.get(), offset);
-				if (headEntry.row() - headEntry.column() < 0) {
+			while (candidate != NONE) {
+				int headEntry = newNode(headRow, headColumn, candidateTag[candidate], NONE);
+				if (headRow - headColumn < 0) {
 					addResult(headEntry);
 				} else {
 					addQueue(headEntry);
 				}
-				headTagEntry = headTagEntry.next;
+				candidate = candidateNext[candidate];
 				found++;
 			}
 			// 바로리턴.
 			return found;
 		}
 
-		if (headTagEntry == null) {
-			// 해당 row의 모든 column을 확인해본다.
-			for (int column = 1; column <= headRow + 1; column++) {
-				int row2 = headRow - column;
-				// head앞에 결합가능한 것이 있다면 현재 head를 미등록처 처리하고 링크로 이어준다.
-				// 앞쪽에 결합가능한것이 없으면 현재 head는 버린다.
-				// row2 < 0 는 어절의 처음에 도달한것임.
-				if (row2 < 0 || status[row2] > 0) {
-					// 2014-1-27처리..
-				}
-			}
-			return 1;
-		}
-		
-		int found = 0;
-		while (headTagEntry != null) {
-			if (isConnectableByRule(headTagEntry.get(), headRow, headColumn, tail)) {
-				ExtractedEntry newTail = modifyAndConnect(headTagEntry.get(), headRow, headColumn, tail);
-				if (newTail == null) {
-					// null이면 버리는것이므로 다음으로..
+		while (candidate != NONE) {
+			TagProb tagProb = candidateTag[candidate];
+			if (isConnectableByRule(tagProb, headRow, headColumn, tail)) {
+				int newTail = modifyAndConnect(tagProb, headRow, headColumn, tail);
+				if (newTail == NONE) {
+					// NONE 이면 버리는것이므로 다음으로..
 				} else {
-					if (newTail.row() - newTail.column() < 0) {
+					if (nodeRow[newTail] - nodeColumn[newTail] < 0) {
 						addResult(newTail);
 					} else {
 						addQueue(newTail);
@@ -351,47 +457,87 @@ public class KoreanWordExtractor {
 					found++;
 				}
 			}
-			headTagEntry = headTagEntry.next;
+			candidate = candidateNext[candidate];
 		}
 		return found;
 	}
-	
-	protected void addQueue(ExtractedEntry entry) throws AnalyzeExceedException {
+
+	protected void addQueue(int node) throws AnalyzeExceedException {
 		if (fastResultFound) {
 			return;
 		}
 		// 결과로 넣음.
-		// logger.trace("ADD-QUEUE:{}", entry);
-		queue.add(entry);
-		if (queue.size() >= QUEUE_MAX) {
-			throw new AnalyzeExceedException("Queue size exceed " + queue.size() + " : " + new String(source));
+		offer(node);
+		if (queueSize >= QUEUE_MAX) {
+			throw new AnalyzeExceedException("Queue size exceed " + queueSize + " : " + new String(source));
 		}
 	}
 
-	protected void addResult(ExtractedEntry entry) throws AnalyzeExceedException {
-		// logger.trace("ADD-RESULT:{}", entry);
-		ExtractedEntry e = finalCheck(entry);
-		if (e == null) {
+	protected void addResult(int node) throws AnalyzeExceedException {
+		if (finalCheck(node) == NONE) {
 			return;
 		}
 		// 결과로 넣음.
-		result.add(entry);
+		result[resultSize++] = node;
 
 		// 짧은 문장에서는 사용하지 않음.
 		if (fastResultOption && length > 6) {
 			fastResultFound = true;
-			queue.clear();
+			queueSize = 0;
 		}
 
-		if (result.size() >= RESULT_MAX) {
-			ExtractedEntry tmpResult = getHighResult();
-			result.clear();
-			if (tmpResult != null) {
-				result.add(tmpResult);
+		if (resultSize >= RESULT_MAX) {
+			int highResult = getHighResult();
+			resultSize = 0;
+			if (highResult != NONE) {
+				result[resultSize++] = highResult;
 			}
 		}
 	}
-	
+
+	/*
+	 * 점수가 높은 노드가 위로 오는 이진 힙.
+	 * 기존 PriorityQueue 비교기와 같이 점수차이를 정수로 잘라서 비교하므로 1점 미만의 차이는 같은 점수로 본다.
+	 * fastResultOption 에서는 먼저 꺼낸 경로가 결과가 되므로, 분석결과를 유지하기 위해 꺼내는 순서도 그대로 둔다.
+	 */
+	private void offer(int node) {
+		int k = queueSize++;
+		double score = nodeScore[node];
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			if ((int) (nodeScore[queue[parent]] - score) >= 0) {
+				break;
+			}
+			queue[k] = queue[parent];
+			k = parent;
+		}
+		queue[k] = node;
+	}
+
+	private int poll() {
+		int top = queue[0];
+		int node = queue[--queueSize];
+		double score = nodeScore[node];
+		int k = 0;
+		int half = queueSize >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int right = child + 1;
+			if (right < queueSize && (int) (nodeScore[queue[right]] - nodeScore[queue[child]]) > 0) {
+				child = right;
+			}
+			if ((int) (nodeScore[queue[child]] - score) <= 0) {
+				break;
+			}
+			queue[k] = queue[child];
+			k = child;
+		}
+		if (queueSize > 0) {
+			queue[k] = node;
+		}
+		return top;
+	}
+
 	public int setInput(char[] buffer, int length) {
 		return setInput(buffer, 0, length);
 	}
@@ -401,18 +547,14 @@ public class KoreanWordExtractor {
 		remnantLength = 0;
 		isUnicode = isUnicode(buffer, offset, length);
 		Arrays.fill(status, 0);
-		for (int row = 0; row < tabular.length; row++) {
-			for (int col = 0; col < tabular[row].length; col++) {
-				tabular[row][col] = null;
-			}
-		}
-		result.clear();
+		// 이전 결과로 반환한 ExtractedEntry 를 처음부터 다시 사용한다.
+		entryCount = 0;
 		
 		String type = null;
 		String ptype = null;
 		String pptype = null;
-		if (length > tabular.length) {
-			logger.trace("LENGTH IS OVER THAN {} / {} / {}", length, tabular.length, offset);
+		if (length > tabularSize) {
+			logger.trace("LENGTH IS OVER THAN {} / {} / {}", length, tabularSize, offset);
 			// 내부적으로 자를 수 있는 기준을 살펴 본다.
 			// 자를수 있는 기준은 다음과 같다.
 			// 한글 사이의 특수 문자. ( & 제외 : 존슨&존스 등 )
@@ -434,9 +576,9 @@ public class KoreanWordExtractor {
 						&& (type != null))
 						|| ((pptype != null) && (inx < buffer.length && ptype == SYMBOL && buffer[inx] != '&')
 							&& (type != null && (type != ALPHA && type != NUMBER)))) {
-					logger.trace("LENGTH:{} / {}", length - offset, tabular.length);
+					logger.trace("LENGTH:{} / {}", length - offset, tabularSize);
 					length = inx - offset;
-					if (length <= tabular.length) {
+					if (length <= tabularSize) {
 						logger.trace("BREAK INTO {}", length);
 						break;
 					}
@@ -444,7 +586,7 @@ public class KoreanWordExtractor {
 			}
 			//여기까지 와서 찾지 못했다면, 앞에서부터 최초 타입이 달라지는 순간 끊어준다.
 			//영숫자+기호 : 한글
-			if (length > tabular.length) {
+			if (length > tabularSize) {
 				type = null;
 				for (int inx = offset; inx < (offset + length); inx++) {
 					ptype = type;
@@ -459,23 +601,24 @@ public class KoreanWordExtractor {
 				}
 			}
 			
-			if (length > tabular.length) {
+			if (length > tabularSize) {
 				if (logger.isTraceEnabled()) {
-					logger.trace("CUT TABULAR SIZE : {}/ {} -> {}", length, new String(buffer, offset, length), new String(buffer, offset, tabular.length));
+					logger.trace("CUT TABULAR SIZE : {}/ {} -> {}", length, new String(buffer, offset, length), new String(buffer, offset, tabularSize));
 				}
-				remnantOffset = tabular.length;
-				remnantLength = length - tabular.length;
-				length = tabular.length;
+				remnantOffset = tabularSize;
+				remnantLength = length - tabularSize;
+				length = tabularSize;
 			}
 		}
 		length = setInput0(buffer, offset, length);
 		return length;
 	}
-	
+
 	private int setInput0(char[] buffer, int offset, int length) {
 		this.source = buffer;
-		queue.clear();
-		result.clear();
+		queueSize = 0;
+		resultSize = 0;
+		nodeCount = 0;
 		// tabluar초기화.
 		this.offset = offset;
 		this.length = length;
@@ -485,12 +628,25 @@ public class KoreanWordExtractor {
 	}
 
 	public ExtractedEntry extract() {
-		tabularStringer.set(tabular, source, status, length, offset);
+		tabularStringer.set(source, length, offset);
 		ExtractedEntry.source = source;
+		// 잘리지 않은 어절은 사전의 분해결과 캐시를 먼저 찾아본다.
+		if (remnantLength == 0 && koreanDict != null) {
+			WordExtractionCache cache = koreanDict.getWordCache();
+			long version = koreanDict.getSnapshotVersion();
+			cacheKey.set(source, offset, length, (tabularSize << 1) | (fastResultOption ? 1 : 0));
+			ExtractedWord word = cache.get(cacheKey, version);
+			if (word != null) {
+				return fromCache(word);
+			}
+			ExtractedEntry e = extract0();
+			cache.put(cacheKey, toCache(e), version);
+			return e;
+		}
 		ExtractedEntry e = extract0();
 		ExtractedEntry last = e.last();
 		while (remnantLength > 0) {
-			int len = Math.min(tabular.length, remnantLength);
+			int len = Math.min(tabularSize, remnantLength);
 			// 자른다.
 			setInput0(source, remnantOffset, len);
 			ExtractedEntry r = extract0();
@@ -518,25 +674,24 @@ public class KoreanWordExtractor {
 	}
 
 	public List<ExtractedEntry> getAllResult() {
-		return result;
+		List<ExtractedEntry> ret = new ArrayList<>(resultSize);
+		for (int inx = 0; inx < resultSize; inx++) {
+			ret.add(toEntry(result[inx]));
+		}
+		return ret;
 	}
 	
-	private ExtractedEntry getHighResult() {
-		ExtractedEntry highEntry = null;
-		// logger.trace("RESULT:{}", result);
-		for (int k = 0; k < result.size(); k++) {
-			ExtractedEntry entry = result.get(k);
-			entry = finalCheck(entry);
-			if (entry == null) {
+	private int getHighResult() {
+		int highEntry = NONE;
+		for (int k = 0; k < resultSize; k++) {
+			int entry = finalCheck(result[k]);
+			if (entry == NONE) {
 				continue;
 			}
-			charVector.init(source, entry.offset(), entry.column());
-
-			if (highEntry == null) {
+			if (highEntry == NONE) {
 				highEntry = entry;
 			} else {
 				if (isBetterThan(entry, highEntry)) {
-					// logger.trace("HIGHER:{} / {}", entry, highEntry);
 					highEntry = entry;
 				}
 			}
@@ -545,39 +700,40 @@ public class KoreanWordExtractor {
 	}
 
 	public ExtractedEntry getBestResult() {
-		ExtractedEntry bestEntry = getHighResult();
-		if (bestEntry == null) {
+		int bestEntry = getHighResult();
+		if (bestEntry == NONE) {
 			// 통째 미등록어.
-			bestEntry = new ExtractedEntry(length - 1, length, TagProb.UNK, offset);
-			// logger.trace("UNKNOWN:{}", bestEntry);
-			return bestEntry;
+			return newEntry(length - 1, length, TagProb.UNK);
 		}
-		return bestEntry;
+		return toEntry(bestEntry);
 	}
 	
 	public int getTabularSize() {
-		return tabular.length;
+		return tabularSize;
 	}
 
 	/*
 	 * 두 PosTag간의 룰기반 접속문법검사
 	 */
-	protected boolean isConnectableByRule(TagProb headTagProb, int headRow, int headColumn, ExtractedEntry tail) {
+	protected boolean isConnectableByRule(TagProb headTagProb, int headRow, int headColumn, int tail) {
+		PosTag tailTag = nodeTag[tail].posTag();
+		int tailRow = nodeRow[tail];
+		int tailColumn = nodeColumn[tail];
 		//숫자끼리는 과분석된것이므로 연결해주지 않는다. 제일 긴 숫자가 사용하도록함.
-		if (headTagProb.posTag() == PosTag.DIGIT && tail.tagProb().posTag() == PosTag.DIGIT) {
+		if (headTagProb.posTag() == PosTag.DIGIT && tailTag == PosTag.DIGIT) {
 			return false;
 		}
-		if (headTagProb.posTag() == PosTag.ALPHA && tail.tagProb().posTag() == PosTag.ALPHA) {
+		if (headTagProb.posTag() == PosTag.ALPHA && tailTag == PosTag.ALPHA) {
 			return false;
 		}
-		if (headTagProb.posTag() == PosTag.SYMBOL && tail.tagProb().posTag() == PosTag.SYMBOL) {
+		if (headTagProb.posTag() == PosTag.SYMBOL && tailTag == PosTag.SYMBOL) {
 			return false;
 		}
 		if (headTagProb.posTag() != PosTag.ALPHA && headTagProb.posTag() != PosTag.DIGIT && headTagProb.posTag() != PosTag.SYMBOL) {
 			// //은,이 와 는,가 일때 앞의 단어에 받침이 있는 지 확인.
-			if (tail.tagProb().posTag() == PosTag.J && tail.column() == 1) {
+			if (tailTag == PosTag.J && tailColumn == 1) {
 				// "은 는 이 가 을 를 에 과 와 의 께";
-				char ch = source[offset + tail.row() - tail.column() + 1];
+				char ch = source[offset + tailRow - tailColumn + 1];
 				if (ch == '은' || ch == '이' || ch == '을' || ch == '과') {
 					if (!MorphUtil.hasLastElement(source[offset + headRow])) {
 						return false;
@@ -591,8 +747,8 @@ public class KoreanWordExtractor {
 		}
 
 		// 두개 모두 한글자분석이면서 점수가 -12이하인것이 하나라도 있으면 통짜로 미등록어처리.
-		if (headColumn == 1 && tail.column() == 1 && headTagProb.posTag() != PosTag.J && tail.posTag() != PosTag.J) {
-			if (tabular[tail.row()][tail.column() + headColumn] != null) {
+		if (headColumn == 1 && tailColumn == 1 && headTagProb.posTag() != PosTag.J && tailTag != PosTag.J) {
+			if (cellHead[cell(tailRow, tailColumn + headColumn)] != NONE) {
 				// 단어가 존재하므로 버린다.
 				return false;
 			}
@@ -602,37 +758,37 @@ public class KoreanWordExtractor {
 	}
 
 	/*
-	 * 두 엔트리를 접속시 합치거나 이어붙이는 로직을 구현한다.
+	 * 두 엔트리를 접속시 합치거나 이어붙이는 로직을 구현한다. 버릴 경우 NONE 을 반환한다.
 	 */
-	protected ExtractedEntry modifyAndConnect(TagProb tagProb, int row, int column, ExtractedEntry tail) {
-		ExtractedEntry newEntry = new ExtractedEntry(row, column, tagProb, offset);
-		return newEntry.next(tail);
+	protected int modifyAndConnect(TagProb tagProb, int row, int column, int tail) {
+		return newNode(row, column, tagProb, tail);
 	}
 
-	private ExtractedEntry finalCheck(ExtractedEntry headEntry) {
+	private int finalCheck(int headEntry) {
 		// 첫글자 조사버림.
-		if (headEntry.posTag() == PosTag.J) {
-			return null;
+		if (nodeTag[headEntry].posTag() == PosTag.J) {
+			return NONE;
 		}
 
 		int count = 0;
-		if (headEntry.entryCount() >= 2) {
-			ExtractedEntry current = headEntry;
-			while (current != null) {
-				if (current.column() > 1) {
+		int entryCount = nodeEntryCount(headEntry);
+		if (entryCount >= 2) {
+			int current = headEntry;
+			while (current != NONE) {
+				if (nodeColumn[current] > 1) {
 					break;
 				} else {
 					count++;
 				}
-				current = current.next();
+				current = nodeNext[current];
 			}
 		}
 
-		if (count == headEntry.entryCount()) {
-			if (headEntry.last().posTag() == PosTag.J) {
+		if (count == entryCount) {
+			if (nodeTag[lastNode(headEntry)].posTag() == PosTag.J) {
 				return headEntry;
 			}
-			return null;
+			return NONE;
 		}
 		/*
 		 * 한글자 + GUESS(or -15미만) 결합은 합친다.
@@ -643,17 +799,74 @@ public class KoreanWordExtractor {
 	/*
 	 * Best 결과를 뽑을때 사용하는 비교로직.
 	 */
-	protected boolean isBetterThan(ExtractedEntry entry, ExtractedEntry bestEntry) {
+	protected boolean isBetterThan(int entry, int bestEntry) {
 		// 적게 잘린쪽이 우선.
 		// 2014-1-27 처리.. 이렇게 하면 무조건 항상 통 UNK가 나오게 된다.
 
 		// 점수가 큰쪽이 우선.
-		if (entry.totalScore() > bestEntry.totalScore()) {
+		if (nodeScore[entry] > nodeScore[bestEntry]) {
 			return true;
 		}
 		return false;
 	}
 
+	private ExtractedEntry newEntry(int row, int column, TagProb tagProb) {
+		return newEntry(row, column, tagProb, tagProb.prob(), null);
+	}
+
+	private ExtractedEntry newEntry(int row, int column, TagProb tagProb, double score, ExtractedEntry next) {
+		if (entryCount == entries.length) {
+			entries = Arrays.copyOf(entries, entryCount * 2);
+		}
+		ExtractedEntry entry = entries[entryCount];
+		if (entry == null) {
+			entry = entries[entryCount] = new ExtractedEntry(row, column, tagProb, offset);
+		}
+		entryCount++;
+		return entry.init(row, column, tagProb, offset, score, next);
+	}
+
+	/*
+	 * 후보경로 노드를 반환용 ExtractedEntry 로 옮긴다.
+	 */
+	private ExtractedEntry toEntry(int node) {
+		if (node == NONE) {
+			return null;
+		}
+		ExtractedEntry next = toEntry(nodeNext[node]);
+		return newEntry(nodeRow[node], nodeColumn[node], nodeTag[node], nodeScore[node], next);
+	}
+
+	/*
+	 * 분해결과를 캐시에 저장할 수 있도록 배열로 옮긴다.
+	 */
+	private ExtractedWord toCache(ExtractedEntry head) {
+		int size = head.entryCount();
+		int[] rows = new int[size];
+		int[] columns = new int[size];
+		TagProb[] tagProbs = new TagProb[size];
+		double[] scores = new double[size];
+		int inx = 0;
+		for (ExtractedEntry entry = head; entry != null; entry = entry.next(), inx++) {
+			rows[inx] = entry.row();
+			columns[inx] = entry.column();
+			tagProbs[inx] = entry.tagProb();
+			scores[inx] = entry.totalScore();
+		}
+		return new ExtractedWord(rows, columns, tagProbs, scores, length);
+	}
+
+	/*
+	 * 캐시된 분해결과를 반환용 ExtractedEntry 로 옮긴다.
+	 */
+	private ExtractedEntry fromCache(ExtractedWord word) {
+		ExtractedEntry next = null;
+		for (int inx = word.size() - 1; inx >= 0; inx--) {
+			next = newEntry(word.rows[inx], word.columns[inx], word.tagProbs[inx], word.scores[inx], next);
+		}
+		return next;
+	}
+
 	public static class ExtractedEntry implements Cloneable {
 		private static char[] source;
 		private int row;
@@ -685,6 +898,17 @@ public class KoreanWordExtractor {
 			// logger.trace("NEWENTRY:{}", this);
 		}
 
+		ExtractedEntry init(int row, int column, TagProb tagProb, int offset, double score, ExtractedEntry next) {
+			this.row = row;
+			this.column = column;
+			this.tagProb = tagProb;
+			this.offset = offset;
+			this.score = score;
+			this.next = next;
+			this.extracted = false;
+			return this;
+		}
+
 		public TagProb tagProb() {
 			return tagProb;
 		}
@@ -837,69 +1061,35 @@ public class KoreanWordExtractor {
 		}
 	}
 
-	public static class EntryStringer {
-		private static char[] source;
-		private PosTagProbEntry entry;
-		private int row;
-		private int column;
-		private static int offset;
-
-		public void set (PosTagProbEntry entry, char[] source, int row, int column, int offset) {
-			this.entry = entry;
-			this.row = row;
-			this.column = column;
-			EntryStringer.source = source;
-			EntryStringer.offset = offset;
-		}
-
-		@Override public String toString() {
-			StringBuilder sb = new StringBuilder();
-			sb.append(new String(source, row - column + 1 + offset, column))
-				.append("[");
-			while (entry != null) {
-				sb.append(entry.get());
-				entry = entry.next();
-			}
-			sb.append("]");
-			return String.valueOf(sb);
-		}
-	}
-
-	public static class TabularStringer {
-		private static char[] source;
-		private static PosTagProbEntry[][] tabular;
-		private static int[] status;
-		private static int length;
-		private static int offset;
+	public class TabularStringer {
+		private char[] source;
+		private int length;
+		private int offset;
 
-		public void set (PosTagProbEntry[][] tabular, char[] source, int[] status, int length, int offset) {
-			TabularStringer.tabular = tabular;
-			TabularStringer.source = source;
-			TabularStringer.status = status;
-			TabularStringer.length = length;
-			TabularStringer.offset = offset;
+		public void set (char[] source, int length, int offset) {
+			this.source = source;
+			this.length = length;
+			this.offset = offset;
 		}
 
 		@Override public String toString() {
 			StringBuilder ret = new StringBuilder();
 			for (int row = 0; row < length; row++) {
-				PosTagProbEntry[] el = tabular[row];
 				int count = status[row];
 				StringBuilder sb = new StringBuilder();
 				sb.append("").append(row).append(" ")
 					.append("{ ").append(count).append(" }").append(" | ");
 				for (int column = 1; column <= row + 1; column++) {
-					PosTagProbEntry e = el[column];
+					int candidate = cellHead[cell(row, column)];
 					sb.append(new String(source, row - column + 1 + offset, column))
 						.append("[");
-					while (e != null) {
-						sb.append(e.get());
-						e = e.next();
+					while (candidate != NONE) {
+						sb.append(candidateTag[candidate]);
+						candidate = candidateNext[candidate];
 					}
 					sb.append("]").append(" | ");
 				}
 				ret.append("\r\n").append(sb);
-				// logger.debug("{}", sb);
 			}
 			return String.valueOf(ret);
 		}
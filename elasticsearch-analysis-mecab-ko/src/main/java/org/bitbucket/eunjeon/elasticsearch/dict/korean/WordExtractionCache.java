@@ -0,0 +1,281 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.korean;
+
+import org.apache.logging.log4j.Logger;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 어절 분해결과 캐시.
+ * 상품명에는 같은 브랜드명, 카테고리명 복합어가 반복되므로 KoreanWordExtractor 의 분해결과를
+ * 입력 어절별로 저장해 두었다가 다시 분해하지 않고 사용한다.
+ * 모든 스레드의 분해기가 공유하며, 잠금 경합을 줄이기 위해 해시값으로 나눈 구역마다 LRU 맵을 둔다.
+ * 사전 버전이 바뀌면 전체를 비우며, 추정 메모리 사용량이 maxBytes 를 넘으면 오래 사용하지 않은 항목부터 제거한다.
+ */
+public class WordExtractionCache {
+
+	private static final Logger logger = Loggers.getLogger(WordExtractionCache.class, "");
+
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+	public static final int DEFAULT_MAX_WORD_LENGTH = 64;
+	private static final int SEGMENTS = 16;
+
+	private final long maxBytes;
+	private final int maxWordLength;
+	private final Segment[] segments;
+	private volatile long version;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private final LongAdder invalidationCount = new LongAdder();
+
+	public WordExtractionCache() {
+		this(DEFAULT_MAX_BYTES, DEFAULT_MAX_WORD_LENGTH);
+	}
+
+	public WordExtractionCache(long maxBytes, int maxWordLength) {
+		this.maxBytes = maxBytes;
+		this.maxWordLength = maxWordLength;
+		segments = new Segment[SEGMENTS];
+		for (int inx = 0; inx < SEGMENTS; inx++) {
+			segments[inx] = new Segment(maxBytes / SEGMENTS);
+		}
+	}
+
+	/**
+	 * 저장된 분해결과를 반환한다. 없거나 캐시하지 않는 어절이면 null
+	 */
+	public ExtractedWord get(WordKey key, long version) {
+		if (!isCacheable(key)) {
+			return null;
+		}
+		checkVersion(version);
+		ExtractedWord word = segment(key).get(key);
+		if (word != null) {
+			hitCount.increment();
+		} else {
+			missCount.increment();
+		}
+		return word;
+	}
+
+	/**
+	 * 분해결과를 저장한다. key 는 복사해서 저장하므로 호출자가 재사용해도 된다.
+	 */
+	public void put(WordKey key, ExtractedWord word, long version) {
+		if (!isCacheable(key) || this.version != version) {
+			return;
+		}
+		Segment segment = segment(key);
+		evictionCount.add(segment.put(key.copy(), word));
+	}
+
+	private boolean isCacheable(WordKey key) {
+		return maxBytes > 0 && key.length <= maxWordLength;
+	}
+
+	private void checkVersion(long version) {
+		if (this.version != version) {
+			synchronized (this) {
+				if (this.version != version) {
+					logger.debug("WORD EXTRACTION CACHE INVALIDATED : dictionary {} -> {}", this.version, version);
+					if (size() > 0) {
+						invalidationCount.increment();
+					}
+					clear();
+					this.version = version;
+				}
+			}
+		}
+	}
+
+	private Segment segment(WordKey key) {
+		int hash = key.hash;
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * 저장된 분해결과의 메모리 사용량 추정치(byte)
+	 */
+	public long getEstimatedBytes() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			bytes += segment.bytes();
+		}
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	public long getInvalidationCount() {
+		return invalidationCount.sum();
+	}
+
+	public double getHitRatio() {
+		long hit = hitCount.sum();
+		long total = hit + missCount.sum();
+		return total == 0 ? 0 : (double) hit / total;
+	}
+
+	@Override public String toString() {
+		return "WordExtractionCache[size=" + size() + ", bytes=" + getEstimatedBytes() + "/" + maxBytes +
+			", hitRatio=" + String.format("%.3f", getHitRatio()) + ", evictions=" + getEvictionCount() +
+			", invalidations=" + getInvalidationCount() + "]";
+	}
+
+	private static final class Segment {
+		private final long maxBytes;
+		private final LinkedHashMap<WordKey, ExtractedWord> map = new LinkedHashMap<>(64, 0.75f, true);
+		private long bytes;
+
+		Segment(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized ExtractedWord get(WordKey key) {
+			return map.get(key);
+		}
+
+		synchronized int put(WordKey key, ExtractedWord word) {
+			ExtractedWord prev = map.put(key, word);
+			if (prev != null) {
+				bytes -= prev.bytes;
+			}
+			bytes += word.bytes;
+			int evicted = 0;
+			Iterator<Map.Entry<WordKey, ExtractedWord>> iter = map.entrySet().iterator();
+			while (bytes > maxBytes && iter.hasNext()) {
+				bytes -= iter.next().getValue().bytes;
+				iter.remove();
+				evicted++;
+			}
+			return evicted;
+		}
+
+		synchronized void clear() {
+			map.clear();
+			bytes = 0;
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+
+		synchronized long bytes() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * 캐시 키. 입력 어절의 글자와 분해기 설정값(flags)으로 구성된다.
+	 * 조회할 때는 입력 버퍼를 그대로 가리키며, 저장할 때만 글자를 복사한다.
+	 */
+	public static final class WordKey {
+		private char[] array;
+		private int offset;
+		private int length;
+		private int flags;
+		private int hash;
+
+		public WordKey set(char[] array, int offset, int length, int flags) {
+			this.array = array;
+			this.offset = offset;
+			this.length = length;
+			this.flags = flags;
+			int h = flags;
+			for (int inx = 0; inx < length; inx++) {
+				h = 31 * h + array[offset + inx];
+			}
+			this.hash = h;
+			return this;
+		}
+
+		WordKey copy() {
+			WordKey key = new WordKey();
+			key.array = Arrays.copyOfRange(array, offset, offset + length);
+			key.offset = 0;
+			key.length = length;
+			key.flags = flags;
+			key.hash = hash;
+			return key;
+		}
+
+		@Override public int hashCode() {
+			return hash;
+		}
+
+		@Override public boolean equals(Object o) {
+			if (!(o instanceof WordKey)) {
+				return false;
+			}
+			WordKey other = (WordKey) o;
+			if (hash != other.hash || length != other.length || flags != other.flags) {
+				return false;
+			}
+			for (int inx = 0; inx < length; inx++) {
+				if (array[offset + inx] != other.array[other.offset + inx]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * 불변의 분해결과. 단어마다 어절내 끝위치(row), 길이(column), 품사, 점수를 가진다.
+	 */
+	public static final class ExtractedWord {
+		final int[] rows;
+		final int[] columns;
+		final TagProb[] tagProbs;
+		final double[] scores;
+		final long bytes;
+
+		public ExtractedWord(int[] rows, int[] columns, TagProb[] tagProbs, double[] scores, int keyLength) {
+			this.rows = rows;
+			this.columns = columns;
+			this.tagProbs = tagProbs;
+			this.scores = scores;
+			// 맵 엔트리, 키, 키 글자배열, 결과배열 4개
+			this.bytes = 32 + 40 + 16 + 2L * keyLength + 32 + 4 * 16 + rows.length * (4 + 4 + 4 + 8L);
+		}
+
+		public int size() {
+			return rows.length;
+		}
+	}
+}
@@ -0,0 +1,367 @@
+package org.bitbucket.eunjeon.elasticsearch.highlight;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.search.highlight.Encoder;
+import org.apache.lucene.search.highlight.Formatter;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.Scorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.util.BytesRef;
+import org.bitbucket.eunjeon.elasticsearch.product.analysis.ProductNameAnalyzerProvider;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 검색결과 하이라이팅.
+ * 요청마다 하이라이팅 단어들로 Aho-Corasick 오토마타를 한번 만들고, 검색결과 텍스트를 한번 훑어서
+ * 찾은 위치에 바로 태그를 붙인다. 텍스트를 분석하지 않으므로 분석기 비용이 검색결과 수만큼 늘어나지 않는다.
+ *
+ * 찾은 단어의 앞뒤가 글자나 숫자가 아니면(문자열 끝, 공백, 기호) 토큰 경계가 분명하므로 하이라이팅 한다.
+ * 영문/숫자가 이어지는 곳에서 찾은 단어는 모델명(NT950XDB)의 일부이므로 토큰이 아니다.
+ * 한글이 이어지는 곳(복합명사 안의 한글, 한글과 영문/숫자 사이)은 형태소 분석을 해야 토큰 경계를
+ * 알 수 있으므로, 그런 단어가 있는 텍스트만 분석하여 하이라이팅 한다.
+ */
+public class TermHighlighter {
+
+	private static final Logger logger = Loggers.getLogger(TermHighlighter.class, "");
+
+	// 토큰 경계가 분명함
+	private static final int BOUNDARY_CLEAR = 0;
+	// 영문/숫자가 이어지는 모델명 내부. 토큰 경계가 아니다.
+	private static final int BOUNDARY_NONE = 1;
+	// 한글이 이어지는 곳. 형태소 분석을 해야 알 수 있다.
+	private static final int BOUNDARY_HANGUL = 2;
+
+	private static final int[] EMPTY = new int[0];
+
+	private final List<String> terms;
+	private final String preTag;
+	private final String postTag;
+	// 태그가 빈 문자열이면 SimpleHTMLFormatter 와 같이 기본 태그를 사용한다.
+	private final String openTag;
+	private final String closeTag;
+
+	// 오토마타. 상태 0 이 루트이며, 전이는 (상태, 문자) 를 키로 하는 해시테이블에 저장한다.
+	private long[] transitionKeys;
+	private int[] transitionValues;
+	private int transitionMask;
+	private int[] failure;
+	// 상태에서 끝나는 단어들의 길이 (실패링크로 이어지는 단어 포함)
+	private int[][] outputs;
+	private int stateCount;
+
+	private long directCount;
+	private long analyzedCount;
+
+	/**
+	 * @param wordSet 하이라이팅 단어. 대소문자를 가리지 않는다.
+	 * @param tags 시작태그, 종료태그
+	 */
+	public TermHighlighter(List<String> wordSet, List<String> tags) {
+		Set<String> words = new LinkedHashSet<>();
+		for (String word : wordSet) {
+			if (word != null && word.length() > 0) {
+				words.add(word.toUpperCase());
+			}
+		}
+		this.terms = new ArrayList<>(words);
+		if (tags.size() > 1) {
+			preTag = tags.get(0);
+			postTag = tags.get(1);
+		} else {
+			preTag = null;
+			postTag = null;
+		}
+		if (preTag != null && postTag != null && !"".equals(preTag) && !"".equals(postTag)) {
+			openTag = preTag;
+			closeTag = postTag;
+		} else {
+			openTag = "<B>";
+			closeTag = "</B>";
+		}
+		build();
+	}
+
+	private void build() {
+		int maxStates = 1;
+		for (String term : terms) {
+			maxStates += term.length();
+		}
+		int tableSize = Integer.highestOneBit(Math.max(maxStates, 2) * 2 - 1) << 1;
+		transitionKeys = new long[tableSize];
+		Arrays.fill(transitionKeys, -1);
+		transitionValues = new int[tableSize];
+		transitionMask = tableSize - 1;
+		failure = new int[maxStates];
+		outputs = new int[maxStates][];
+		Arrays.fill(outputs, EMPTY);
+		stateCount = 1;
+
+		// 1. trie
+		for (String term : terms) {
+			int state = 0;
+			for (int inx = 0; inx < term.length(); inx++) {
+				char ch = term.charAt(inx);
+				int next = transition(state, ch);
+				if (next < 0) {
+					next = stateCount++;
+					putTransition(state, ch, next);
+				}
+				state = next;
+			}
+			outputs[state] = append(outputs[state], term.length());
+		}
+
+		// 2. 실패링크 (BFS)
+		int[] queue = new int[stateCount];
+		char[] chars = new char[stateCount];
+		int head = 0;
+		int tail = 0;
+		// 루트의 자식
+		for (int inx = 0; inx < transitionKeys.length; inx++) {
+			long key = transitionKeys[inx];
+			if (key >= 0 && (key >>> 16) == 0) {
+				int child = transitionValues[inx];
+				failure[child] = 0;
+				queue[tail++] = child;
+			}
+		}
+		// 자식을 찾기 위해 상태별 (문자, 자식) 목록을 만든다.
+		int[][] children = new int[stateCount][];
+		for (int inx = 0; inx < transitionKeys.length; inx++) {
+			long key = transitionKeys[inx];
+			if (key >= 0) {
+				int parent = (int) (key >>> 16);
+				int child = transitionValues[inx];
+				chars[child] = (char) (key & 0xffff);
+				children[parent] = append(children[parent] == null ? EMPTY : children[parent], child);
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int[] list = children[state];
+			if (list == null) {
+				continue;
+			}
+			for (int child : list) {
+				char ch = chars[child];
+				int fail = failure[state];
+				int next;
+				while ((next = transition(fail, ch)) < 0 && fail != 0) {
+					fail = failure[fail];
+				}
+				if (next < 0 || next == child) {
+					next = 0;
+				}
+				failure[child] = next;
+				for (int length : outputs[next]) {
+					outputs[child] = append(outputs[child], length);
+				}
+				queue[tail++] = child;
+			}
+		}
+	}
+
+	private int transition(int state, char ch) {
+		long key = ((long) state << 16) | ch;
+		int slot = hash(key) & transitionMask;
+		while (true) {
+			long found = transitionKeys[slot];
+			if (found == key) {
+				return transitionValues[slot];
+			}
+			if (found < 0) {
+				return -1;
+			}
+			slot = (slot + 1) & transitionMask;
+		}
+	}
+
+	private void putTransition(int state, char ch, int next) {
+		long key = ((long) state << 16) | ch;
+		int slot = hash(key) & transitionMask;
+		while (transitionKeys[slot] >= 0) {
+			slot = (slot + 1) & transitionMask;
+		}
+		transitionKeys[slot] = key;
+		transitionValues[slot] = next;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static int[] append(int[] array, int value) {
+		int[] ret = Arrays.copyOf(array, array.length + 1);
+		ret[array.length] = value;
+		return ret;
+	}
+
+	/**
+	 * 텍스트에서 하이라이팅 단어를 찾아 태그로 감싼다.
+	 * 태그가 없으면 null, 찾은 단어가 없으면 원래 텍스트를 반환한다.
+	 */
+	public String highlight(String str) {
+		if (str == null || (str = str.trim()).length() == 0) {
+			return null;
+		}
+		if (preTag == null || postTag == null) {
+			return null;
+		}
+		if (terms.size() == 0) {
+			return str;
+		}
+		String ret = highlightDirectly(str);
+		if (ret == null) {
+			analyzedCount++;
+			return highlightByAnalysis(str, terms, preTag, postTag);
+		}
+		directCount++;
+		return ret;
+	}
+
+	/**
+	 * 분석없이 하이라이팅 한다. 형태소 분석으로만 토큰 경계를 알 수 있는 단어를 찾으면 null 을 반환한다.
+	 */
+	String highlightDirectly(String str) {
+		int length = str.length();
+		// 찾은 구간. [start, end) 쌍으로 저장한다.
+		int[] spans = null;
+		int spanCount = 0;
+		int state = 0;
+		for (int inx = 0; inx < length; inx++) {
+			char ch = Character.toUpperCase(str.charAt(inx));
+			int next;
+			while ((next = transition(state, ch)) < 0 && state != 0) {
+				state = failure[state];
+			}
+			state = next < 0 ? 0 : next;
+			for (int termLength : outputs[state]) {
+				int start = inx - termLength + 1;
+				int end = inx + 1;
+				int startBoundary = boundary(str, start);
+				int endBoundary = boundary(str, end);
+				if (startBoundary == BOUNDARY_HANGUL || endBoundary == BOUNDARY_HANGUL) {
+					return null;
+				}
+				if (startBoundary == BOUNDARY_CLEAR && endBoundary == BOUNDARY_CLEAR) {
+					if (spans == null) {
+						spans = new int[8];
+					} else if (spanCount * 2 == spans.length) {
+						spans = Arrays.copyOf(spans, spans.length * 2);
+					}
+					spans[spanCount * 2] = start;
+					spans[spanCount * 2 + 1] = end;
+					spanCount++;
+				}
+			}
+		}
+		if (spanCount == 0) {
+			return str;
+		}
+		return format(str, spans, spanCount);
+	}
+
+	private String format(String str, int[] spans, int spanCount) {
+		// 끝위치 순서로 찾았으므로 시작위치 순서로 정렬한뒤 겹치는 구간을 합친다.
+		long[] sorted = new long[spanCount];
+		for (int inx = 0; inx < spanCount; inx++) {
+			sorted[inx] = ((long) spans[inx * 2] << 32) | spans[inx * 2 + 1];
+		}
+		Arrays.sort(sorted);
+		StringBuilder sb = new StringBuilder(str.length() + spanCount * (openTag.length() + closeTag.length()) + 16);
+		int position = 0;
+		int inx = 0;
+		while (inx < spanCount) {
+			int start = (int) (sorted[inx] >>> 32);
+			int end = (int) sorted[inx];
+			for (inx++; inx < spanCount && (int) (sorted[inx] >>> 32) < end; inx++) {
+				end = Math.max(end, (int) sorted[inx]);
+			}
+			sb.append(SimpleHTMLEncoder.htmlEncode(str.substring(position, start)));
+			sb.append(openTag).append(SimpleHTMLEncoder.htmlEncode(str.substring(start, end))).append(closeTag);
+			position = end;
+		}
+		sb.append(SimpleHTMLEncoder.htmlEncode(str.substring(position)));
+		return sb.toString();
+	}
+
+	/**
+	 * position 의 앞 문자와 뒷 문자 사이의 토큰 경계 종류.
+	 */
+	private static int boundary(String str, int position) {
+		if (position == 0 || position == str.length()) {
+			return BOUNDARY_CLEAR;
+		}
+		char prev = str.charAt(position - 1);
+		char next = str.charAt(position);
+		if (!Character.isLetterOrDigit(prev) || !Character.isLetterOrDigit(next)) {
+			return BOUNDARY_CLEAR;
+		}
+		if (isHangul(prev) || isHangul(next)) {
+			return BOUNDARY_HANGUL;
+		}
+		return BOUNDARY_NONE;
+	}
+
+	private static boolean isHangul(char ch) {
+		return (ch >= 0xAC00 && ch <= 0xD7A3) || (ch >= 0x3131 && ch <= 0x318E);
+	}
+
+	/**
+	 * 분석결과를 이용한 하이라이팅. 텍스트를 상품명 분석기로 분석하여 하이라이팅 단어와 일치하는 토큰을 태그로 감싼다.
+	 */
+	public static String highlightByAnalysis(String str, List<String> wordSet, String preTag, String postTag) {
+		String ret = null;
+		TokenStream tstream = ProductNameAnalyzerProvider.getAnalyzer(str, false, false, true, false, true);
+		List<BytesRef> terms = new ArrayList<>();
+		for (String word : wordSet) {
+			terms.add(new BytesRef(word.toUpperCase()));
+		}
+		TermHighlightingQuery query = new TermHighlightingQuery("", terms);
+		Formatter formatter = null;
+		if (!"".equals(preTag) && !"".equals(postTag)) {
+			formatter = new SimpleHTMLFormatter(preTag, postTag);
+		} else {
+			formatter = new SimpleHTMLFormatter();
+		}
+		Encoder encoder = new SimpleHTMLEncoder();
+		Scorer scorer = new QueryScorer(query);
+		Highlighter highlighter = new Highlighter(formatter, encoder, scorer);
+		try {
+			ret = highlighter.getBestFragment(tstream, str);
+		} catch (Exception e) {
+			logger.debug("highlight error {} / {} / {}", str, wordSet, e.getMessage());
+			logger.error("", e);
+		} finally {
+			try { tstream.close(); } catch (Exception ignore) { }
+		}
+		if (ret == null) {
+			ret = str;
+		}
+		return ret;
+	}
+
+	/**
+	 * 분석없이 하이라이팅 한 텍스트 수
+	 */
+	public long getDirectCount() {
+		return directCount;
+	}
+
+	/**
+	 * 분석하여 하이라이팅 한 텍스트 수
+	 */
+	public long getAnalyzedCount() {
+		return analyzedCount;
+	}
+}
@@ -26,6 +26,8 @@ import org.elasticsearch.index.IndexSettings;
  *     mecab 실행 옵션은 다음의 URL을 참조. http://mecab.googlecode.com/svn/trunk/mecab/doc/mecab.html
  *   - compound_noun_min_length: 분해를 해야하는 복합명사의 최소 길이. 디폴트 값은 3이다.
  *   - use_adjective_and_verb_original_form: 동사와 형용사 원형을 사용하여 검색할지 여부. 디폴트 값은 true이다.
+ *   - use_streaming_input: 입력을 조각으로 나누어 분석할지 여부. 디폴트 값은 false이다.
+ *   - streaming_chunk_length: use_streaming_input 사용시 한번에 분석하는 최대 글자 수. 디폴트 값은 4096이다.
  *
  * @author bibreen <bibreen@gmail.com>
  */
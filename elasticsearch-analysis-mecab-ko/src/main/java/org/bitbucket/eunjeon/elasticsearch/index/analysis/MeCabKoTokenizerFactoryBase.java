@@ -46,6 +46,9 @@ public abstract class MeCabKoTokenizerFactoryBase extends AbstractTokenizerFacto
     setMeCabArgs(settings);
     setCompoundNounMinLength(settings);
     setUseAdjectiveAndVerbOriginalForm(settings);
+    setStreamingInput(settings);
+    setUseJavaTagger(settings);
+    setParallelParsing(settings);
     setPosAppender();
   }
 
@@ -70,10 +73,38 @@ public abstract class MeCabKoTokenizerFactoryBase extends AbstractTokenizerFacto
         option.useAdjectiveAndVerbOriginalForm);
   }
 
+  protected void setStreamingInput(Settings settings) {
+    option.useStreamingInput = settings.getAsBoolean(
+        "use_streaming_input", option.useStreamingInput);
+    option.streamingChunkLength = settings.getAsInt(
+        "streaming_chunk_length", option.streamingChunkLength);
+  }
+
+  protected void setUseJavaTagger(Settings settings) {
+    option.useJavaTagger = settings.getAsBoolean(
+        "use_java_tagger", option.useJavaTagger);
+  }
+
+  protected void setParallelParsing(Settings settings) {
+    option.useParallelParsing = settings.getAsBoolean(
+        "use_parallel_parsing", option.useParallelParsing);
+    option.parallelParsingThreshold = settings.getAsInt(
+        "parallel_parsing_threshold", option.parallelParsingThreshold);
+    option.parallelChunkLength = settings.getAsInt(
+        "parallel_chunk_length", option.parallelChunkLength);
+  }
+
   @Override
   public Tokenizer create() {
+    if (option.useJavaTagger) {
+      // native library를 읽어들이지 않도록 MeCabLoader를 사용하지 않는다.
+      return new MeCabKoTokenizer(option, posAppender);
+    }
     logger.debug("already allocated model's count is #" + MeCabLoader.getModelCount());
     logger.debug("creating tokenizer from model " + option.mecabArgs);
+    logger.debug("tagger pool of model is " + MeCabLoader.getTaggerPool(option.mecabArgs));
+    logger.debug("live native objects #" + MeCabLoader.getLiveNativeObjects() +
+        ", estimated bytes " + MeCabLoader.getEstimatedBytes());
     return new MeCabKoTokenizer(
         option,
         posAppender);
@@ -0,0 +1,202 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.TokenStream;
+import org.bitbucket.eunjeon.elasticsearch.product.analysis.CachedTokenStream.Token;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 질의어 분석결과 캐시.
+ * 같은 질의어(브랜드명, 인기 모델명 등)가 검색, 질의생성, 하이라이팅 등에서 반복 분석되므로
+ * 분석결과 토큰을 저장해 두었다가 CachedTokenStream 으로 다시 출력한다.
+ * 키는 입력 텍스트와 AnalyzerOption 이며, 사전 버전이나 mecab 모델 버전이 바뀌면 전체를 비운다.
+ * 추정 메모리 사용량이 maxBytes 를 넘으면 가장 오래 사용하지 않은 항목부터 제거한다. (LRU)
+ */
+public class AnalysisResultCache {
+
+    private static final Logger logger = Loggers.getLogger(AnalysisResultCache.class, "");
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    public static final int DEFAULT_MAX_TEXT_LENGTH = 256;
+
+    private final long maxBytes;
+    private final int maxTextLength;
+    private final LinkedHashMap<Key, Entry> map = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+    private long dictionaryVersion;
+    private long modelVersion;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    public AnalysisResultCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MAX_TEXT_LENGTH);
+    }
+
+    public AnalysisResultCache(long maxBytes, int maxTextLength) {
+        this.maxBytes = maxBytes;
+        this.maxTextLength = maxTextLength;
+    }
+
+    /**
+     * 캐시된 분석결과를 CachedTokenStream 으로 반환한다.
+     * 캐시에 없으면 analyzer 로 분석한 결과를 저장한뒤 반환하며, 캐시하지 않는 긴 텍스트는 analyzer 의 스트림을 그대로 반환한다.
+     * 버전이 바뀐 경우 기존 항목은 모두 버려진다.
+     *
+     * @throws UncheckedIOException 분석중 오류가 발생한 경우. 같은 텍스트를 다시 분석하지 않는다.
+     */
+    public TokenStream get(String text, AnalyzerOption option, long dictionaryVersion, long modelVersion,
+                           Supplier<TokenStream> analyzer) {
+        if (maxBytes <= 0 || text.length() > maxTextLength) {
+            return analyzer.get();
+        }
+        Key key = new Key(text, option);
+        Entry entry;
+        synchronized (this) {
+            if (this.dictionaryVersion != dictionaryVersion || this.modelVersion != modelVersion) {
+                if (map.size() > 0) {
+                    logger.debug("ANALYSIS CACHE INVALIDATED : dictionary {} -> {}, model {} -> {}",
+                            this.dictionaryVersion, dictionaryVersion, this.modelVersion, modelVersion);
+                    invalidationCount.increment();
+                }
+                map.clear();
+                bytes = 0;
+                this.dictionaryVersion = dictionaryVersion;
+                this.modelVersion = modelVersion;
+            }
+            entry = map.get(key);
+        }
+        if (entry != null) {
+            hitCount.increment();
+            return new CachedTokenStream(entry.tokens, entry.finalOffset);
+        }
+        missCount.increment();
+        TokenStream stream = analyzer.get();
+        Token[] tokens;
+        try {
+            tokens = CachedTokenStream.record(stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot analyze : " + text, e);
+        } finally {
+            try { stream.close(); } catch (Exception ignore) { }
+        }
+        entry = new Entry(key, tokens, text.length());
+        synchronized (this) {
+            // 분석하는 동안 버전이 바뀌었다면 저장하지 않는다.
+            if (this.dictionaryVersion == dictionaryVersion && this.modelVersion == modelVersion) {
+                Entry prev = map.put(key, entry);
+                if (prev != null) {
+                    bytes -= prev.bytes;
+                }
+                bytes += entry.bytes;
+                evict();
+            }
+        }
+        return new CachedTokenStream(entry.tokens, entry.finalOffset);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iter = map.entrySet().iterator();
+        while (bytes > maxBytes && iter.hasNext()) {
+            bytes -= iter.next().getValue().bytes;
+            iter.remove();
+            evictionCount.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * 저장된 분석결과의 메모리 사용량 추정치(byte)
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    public double getHitRatio() {
+        long hit = hitCount.sum();
+        long total = hit + missCount.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override public String toString() {
+        return "AnalysisResultCache[size=" + size() + ", bytes=" + getEstimatedBytes() + "/" + maxBytes +
+                ", hitRatio=" + String.format("%.3f", getHitRatio()) + ", evictions=" + getEvictionCount() +
+                ", invalidations=" + getInvalidationCount() + "]";
+    }
+
+    private static final class Key {
+        private final String text;
+        private final int flags;
+
+        Key(String text, AnalyzerOption option) {
+            this.text = text;
+            this.flags = option.flags();
+        }
+
+        @Override public int hashCode() {
+            return text.hashCode() * 31 + flags;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return flags == other.flags && text.equals(other.text);
+        }
+    }
+
+    private static final class Entry {
+        private final Token[] tokens;
+        private final int finalOffset;
+        private final long bytes;
+
+        Entry(Key key, Token[] tokens, int finalOffset) {
+            this.tokens = tokens;
+            this.finalOffset = finalOffset;
+            long bytes = 96 + CachedTokenStream.stringBytes(key.text) + 16 + 8L * tokens.length;
+            for (Token token : tokens) {
+                bytes += token.estimatedBytes();
+            }
+            this.bytes = bytes;
+        }
+    }
+}
@@ -78,6 +78,19 @@ public class AnalyzerOption {
         this.toUppercase = toUppercase;
     }
 
+    /**
+     * 옵션 조합을 비트값으로 반환한다. 옵션 조합별로 분석기 구성요소나 분석결과를 구분할 때 사용한다.
+     */
+    int flags() {
+        return (useForQuery ? 1 : 0) | (useSynonym ? 2 : 0) | (useStopword ? 4 : 0) |
+                (useFullString ? 8 : 0) | (toUppercase ? 16 : 0);
+    }
+
+    static AnalyzerOption fromFlags(int flags) {
+        return new AnalyzerOption((flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0,
+                (flags & 8) != 0, (flags & 16) != 0);
+    }
+
     @Override public String toString() {
         return "[" + useForQuery + "," + useSynonym + "," + useStopword + "," + useFullString + "," + toUppercase + "]";
     }
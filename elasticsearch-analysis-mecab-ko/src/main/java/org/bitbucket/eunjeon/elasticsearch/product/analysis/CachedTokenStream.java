@@ -0,0 +1,176 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import tokenattributes.ExtraTermAttribute;
+import tokenattributes.SynonymAttribute;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * AnalysisResultCache 에 저장된 분석결과를 다시 출력하는 TokenStream.
+ * ProductNameAnalysisFilter 가 출력하는 속성(텀, 오프셋, 타입, 위치증가, 동의어, 추가어)을 그대로 재현한다.
+ */
+public final class CachedTokenStream extends TokenStream {
+
+    private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAttribute = addAttribute(OffsetAttribute.class);
+    private final TypeAttribute typeAttribute = addAttribute(TypeAttribute.class);
+    private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+    private final SynonymAttribute synonymAttribute = addAttribute(SynonymAttribute.class);
+    private final ExtraTermAttribute extraTermAttribute = addAttribute(ExtraTermAttribute.class);
+
+    private final Token[] tokens;
+    private final int finalOffset;
+    private int position;
+
+    CachedTokenStream(Token[] tokens, int finalOffset) {
+        this.tokens = tokens;
+        this.finalOffset = finalOffset;
+        extraTermAttribute.init(this);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (position >= tokens.length) {
+            return false;
+        }
+        clearAttributes();
+        Token token = tokens[position++];
+        termAttribute.setEmpty().append(token.term);
+        offsetAttribute.setOffset(token.startOffset, token.endOffset);
+        typeAttribute.setType(token.type);
+        posIncrAtt.setPositionIncrement(token.positionIncrement);
+        synonymAttribute.setSynonyms(token.synonyms);
+        extraTermAttribute.init(this);
+        for (ExtraTerm extraTerm : token.extraTerms) {
+            extraTermAttribute.addExtraTerm(extraTerm.term, extraTerm.type, extraTerm.synonyms);
+        }
+        return true;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        offsetAttribute.setOffset(finalOffset, finalOffset);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        position = 0;
+    }
+
+    /**
+     * 분석이 끝난 스트림의 속성들을 Token 배열로 읽어들인다.
+     * 추가어 속성은 읽는 동안 소진되므로 읽어들인 스트림은 다시 사용할 수 없다.
+     */
+    static Token[] record(TokenStream stream) throws IOException {
+        CharTermAttribute termAttr = stream.addAttribute(CharTermAttribute.class);
+        OffsetAttribute offAttr = stream.addAttribute(OffsetAttribute.class);
+        TypeAttribute typeAttr = stream.addAttribute(TypeAttribute.class);
+        PositionIncrementAttribute posIncrAttr = stream.addAttribute(PositionIncrementAttribute.class);
+        SynonymAttribute synAttr = stream.addAttribute(SynonymAttribute.class);
+        ExtraTermAttribute extAttr = stream.addAttribute(ExtraTermAttribute.class);
+        List<Token> tokens = new ArrayList<>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            String term = termAttr.toString();
+            String type = typeAttr.type();
+            List<CharSequence> synonyms = copyOf(synAttr.getSynonyms());
+            List<ExtraTerm> extraTerms = Collections.emptyList();
+            if (extAttr.size() > 0) {
+                // 추가어를 꺼낼때마다 타입과 동의어 속성이 추가어의 것으로 바뀐다.
+                extraTerms = new ArrayList<>(extAttr.size());
+                for (Iterator<String> iter = extAttr.iterator(); iter.hasNext(); ) {
+                    String extraTerm = iter.next();
+                    extraTerms.add(new ExtraTerm(extraTerm, typeAttr.type(), copyOf(synAttr.getSynonyms())));
+                }
+            }
+            tokens.add(new Token(term, offAttr.startOffset(), offAttr.endOffset(), type,
+                    posIncrAttr.getPositionIncrement(), synonyms, extraTerms));
+        }
+        stream.end();
+        return tokens.toArray(new Token[0]);
+    }
+
+    private static List<CharSequence> copyOf(List<CharSequence> list) {
+        if (list == null || list.size() == 0) {
+            return null;
+        }
+        List<CharSequence> ret = new ArrayList<>(list.size());
+        for (CharSequence cs : list) {
+            ret.add(String.valueOf(cs));
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * 캐시에 저장되는 토큰 하나의 속성. 여러 스트림이 공유하므로 변경할 수 없다.
+     */
+    static final class Token {
+        final String term;
+        final int startOffset;
+        final int endOffset;
+        final String type;
+        final int positionIncrement;
+        final List<CharSequence> synonyms;
+        final List<ExtraTerm> extraTerms;
+
+        Token(String term, int startOffset, int endOffset, String type, int positionIncrement,
+              List<CharSequence> synonyms, List<ExtraTerm> extraTerms) {
+            this.term = term;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.type = type;
+            this.positionIncrement = positionIncrement;
+            this.synonyms = synonyms;
+            this.extraTerms = extraTerms;
+        }
+
+        /**
+         * 메모리 사용량 추정치(byte). 타입 문자열은 상수이므로 제외한다.
+         */
+        long estimatedBytes() {
+            long bytes = 48 + stringBytes(term) + listBytes(synonyms);
+            for (ExtraTerm extraTerm : extraTerms) {
+                bytes += 24 + stringBytes(extraTerm.term) + listBytes(extraTerm.synonyms);
+            }
+            return bytes;
+        }
+    }
+
+    static final class ExtraTerm {
+        final String term;
+        final String type;
+        final List<CharSequence> synonyms;
+
+        ExtraTerm(String term, String type, List<CharSequence> synonyms) {
+            this.term = term;
+            this.type = type;
+            this.synonyms = synonyms;
+        }
+    }
+
+    static long stringBytes(CharSequence cs) {
+        return cs == null ? 0 : 40 + 2L * cs.length();
+    }
+
+    private static long listBytes(List<CharSequence> list) {
+        if (list == null) {
+            return 0;
+        }
+        long bytes = 40 + 8L * list.size();
+        for (CharSequence cs : list) {
+            bytes += stringBytes(cs);
+        }
+        return bytes;
+    }
+}
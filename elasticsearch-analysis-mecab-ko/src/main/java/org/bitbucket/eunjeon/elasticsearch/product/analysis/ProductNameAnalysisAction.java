@@ -9,8 +9,9 @@ import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
 import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary.DictionaryRepository;
 import org.bitbucket.eunjeon.elasticsearch.dict.analysis.SourceDictionary;
 import org.bitbucket.eunjeon.elasticsearch.dict.analysis.SynonymDictionary;
-import org.bitbucket.eunjeon.elasticsearch.dict.analysis.TagProbDictionary;
 import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.WordExtractionCache;
+import org.bitbucket.eunjeon.elasticsearch.highlight.TermHighlighter;
 import org.bitbucket.eunjeon.elasticsearch.index.DanawaBulkTextIndexer;
 import org.bitbucket.eunjeon.elasticsearch.index.DanawaSearchQueryBuilder;
 import org.bitbucket.eunjeon.elasticsearch.index.FastcatMigrateIndexer;
@@ -31,6 +32,11 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.http.HttpInfo;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -41,9 +47,11 @@ import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder.Field;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.json.JSONWriter;
@@ -79,6 +87,7 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 	private static final String ACTION_RELOAD_DICT = "reload-dict";
 	private static final String ACTION_RESTORE_DICT = "restore-dict";
 	private static final String ACTION_COMPILE_DICT = "compile-dict";
+	private static final String ACTION_UPDATE_DICT = "update-dict";
 	private static final String ACTION_FULL_INDEX = "full-index";
 	private static final String ACTION_FASTCAT_INDEX = "fastcat-index";
 	private static final String ACTION_ANALYZE_TEXT = "analyze";
@@ -182,6 +191,10 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 		} else if (ACTION_COMPILE_DICT.equals(action)) {
 			compileDictionary(request, client);
 			builder.object().key("action").value(action).endObject();
+		} else if (ACTION_UPDATE_DICT.equals(action)) {
+			builder.object().key("action").value(action);
+			updateDictionary(request, client, builder);
+			builder.endObject();
 		} else if (ACTION_FULL_INDEX.equals(action)) {
 			int count = bulkIndex(request, client);
 			builder.object().key("action").value(action);
@@ -415,8 +428,10 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 					writer.endArray();
 				}
 				stream.close();
+				stream = null;
 			}
 		} catch (Exception ignore){
+			try { stream.close(); } catch (Exception ignore2) { }
 			writer.endObject();
 			writer.key("success").value(false);
 			logger.debug("exception >>> {}", ignore);
@@ -449,7 +464,7 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			// 메모리 사전을 이용하는 경우
 			ProductNameDictionary dictionary = getDictionary();
 			SynonymDictionary synonyms = dictionary.getDictionary(ProductNameDictionary.DICT_SYNONYM, SynonymDictionary.class);
-			ret = ProductNameDictionary.isOneWaySynonym(CharVector.valueOf(word), synonyms.map());
+			ret = ProductNameDictionary.isOneWaySynonym(CharVector.valueOf(word), synonyms);
 		}
 		return ret;
 	}
@@ -635,7 +650,7 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 
 	// 랭킹뷰어, 관리도구에서 사용되는 동의어 확장용 메소드
 	private static List<CharSequence> getAnalyzeSynonym(String combineTerm) {
-		TokenStream analyzerStream;
+		TokenStream analyzerStream = null;
 		List<CharSequence> synonyms;
 		List<CharSequence> result = new ArrayList<>();
 
@@ -659,6 +674,8 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			}
 		} catch (Exception e){
 			logger.error("", e);
+		} finally {
+			try { analyzerStream.close(); } catch (Exception ignore) { }
 		}
 
 		return result;
@@ -1039,6 +1056,8 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 				result.add(subResult);
 			} catch (Exception e){
 				logger.error("", e);
+			} finally {
+				try { analyzerStream.close(); } catch (Exception ignore) { }
 			}
 		}
 
@@ -1063,6 +1082,8 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			}
 		} catch (Exception e){
 			logger.error("", e);
+		} finally {
+			try { analyzerStream.close(); } catch (Exception ignore) { }
 		}
 
 		return result;
@@ -1127,7 +1148,9 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 	private void reloadDictionary() {
 		if (contextStore.containsKey(ProductNameDictionary.PRODUCT_NAME_DICTIONARY)) {
 			ProductNameDictionary.reloadDictionary();
+			logger.info("{}", getDictionary().getWordCache());
 		}
+		logger.info("{}", ProductNameAnalyzerProvider.getAnalysisCache());
 	}
 
 	/**
@@ -1194,6 +1217,60 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 
 	}
 
+	/**
+	 * 요청받은 상품명사전의 변경된 데이터만 반영한다. (사전 전체를 다시 컴파일하지 않는다)
+	 * changes 는 사전 색인에 이미 반영된 추가, 수정, 삭제 데이터 목록이다. [{"id":"", "keyword":"", "value":""}, ...]
+	 * 수정인 경우 변경전, 변경후 데이터를 모두 보내야 한다.
+	 */
+	private void updateDictionary(RestRequest request, NodeClient client, JSONWriter builder) {
+		JSONObject jparam = parseRequestBody(request);
+		String index = jparam.optString("index", ES_DICTIONARY_INDEX);
+		String type = jparam.optString("type", null);
+		boolean exportFile = jparam.optBoolean("exportFile", false);
+		boolean distribute = jparam.optBoolean("distribute", false);
+		String host = jparam.optString("host", null);
+		int port = jparam.optInt("port", 9200);
+		String username = jparam.optString("username", null);
+		String password = jparam.optString("password", null);
+		JSONArray jchanges = jparam.optJSONArray("changes");
+
+		List<CharSequence[]> changes = new ArrayList<>();
+		if (jchanges != null) {
+			for (int inx = 0; inx < jchanges.length(); inx++) {
+				JSONObject row = jchanges.optJSONObject(inx);
+				if (row != null) {
+					changes.add(new CharSequence[] {
+						row.optString(ES_DICT_FIELD_ID, null),
+						row.optString(ES_DICT_FIELD_KEYWORD, null),
+						row.optString(ES_DICT_FIELD_VALUE, null) });
+				}
+			}
+		}
+		if (type == null || changes.size() == 0) {
+			return;
+		}
+
+		DictionarySource repo = null;
+		if (host != null && !"".equals(host)) {
+			RemoteNodeClient remoteNodeClient = new RemoteNodeClient(client.settings(), client.threadPool(), ES_DICTIONARY_INDEX, host, port, username, password);
+			repo = new DictionarySource(remoteNodeClient, index);
+		} else {
+			repo = new DictionarySource(client, index);
+		}
+
+		Map<String, Object> result = ProductNameDictionary.updateDictionary(client, repo, type, changes, exportFile);
+		for (Map.Entry<String, Object> entry : result.entrySet()) {
+			builder.key(entry.getKey()).value(entry.getValue());
+		}
+		logger.info("{}", getDictionary().getWordCache());
+
+		if (distribute) {
+			//받는 노드에서 재전파 요청을 하면 안되므로, distribute 를 false 로 보낸다.
+			jparam.put("distribute", false);
+			distribute(client, ACTION_UPDATE_DICT, jparam, false);
+		}
+	}
+
 	/**
 	 * 사전정보 추출
 	 */
@@ -1225,8 +1302,9 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			.key("dictionary").array()
 				.object()
 				.key(ES_DICT_FIELD_TYPE).value("SYSTEM")
-				.key("class").value(TagProbDictionary.class.getSimpleName())
+				.key("class").value(productNameDictionary.getSystemDictionary().getClass().getSimpleName())
 				.key("count").value(productNameDictionary.size())
+				.key("ramBytesUsed").value(productNameDictionary.systemDictionaryRamBytesUsed())
 				.key("label").value(productNameDictionary.label())
 				.key("seq").value(productNameDictionary.seq())
 				.key("ignoreCase").value(productNameDictionary.ignoreCase())
@@ -1285,6 +1363,41 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			builder.endObject();
 		}
 		builder.endArray();
+
+		// 질의어 분석결과 캐시 현황
+		AnalysisResultCache analysisCache = ProductNameAnalyzerProvider.getAnalysisCache();
+		builder
+			.key("analysisCache").object()
+				.key("size").value(analysisCache.size())
+				.key("estimatedBytes").value(analysisCache.getEstimatedBytes())
+				.key("maxBytes").value(analysisCache.getMaxBytes())
+				.key("hitCount").value(analysisCache.getHitCount())
+				.key("missCount").value(analysisCache.getMissCount())
+				.key("hitRatio").value(analysisCache.getHitRatio())
+				.key("evictionCount").value(analysisCache.getEvictionCount())
+				.key("invalidationCount").value(analysisCache.getInvalidationCount())
+			.endObject();
+
+		// 어절 분해결과 캐시 현황
+		WordExtractionCache wordCache = productNameDictionary.getWordCache();
+		builder
+			.key("extractionCache").object()
+				.key("size").value(wordCache.size())
+				.key("estimatedBytes").value(wordCache.getEstimatedBytes())
+				.key("maxBytes").value(wordCache.getMaxBytes())
+				.key("hitCount").value(wordCache.getHitCount())
+				.key("missCount").value(wordCache.getMissCount())
+				.key("hitRatio").value(wordCache.getHitRatio())
+				.key("evictionCount").value(wordCache.getEvictionCount())
+				.key("invalidationCount").value(wordCache.getInvalidationCount())
+			.endObject();
+
+		// 사전별 적재시간(ms)
+		builder.key("loadTimes").object();
+		for (Map.Entry<String, Long> entry : productNameDictionary.getLoadTimes().entrySet()) {
+			builder.key(entry.getKey()).value(entry.getValue());
+		}
+		builder.endObject();
 	}
 
 	/**
@@ -1557,13 +1670,15 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			}
 			builder.key("result").array();
 
+			// 하이라이팅 단어 오토마타는 요청당 한번만 만든다.
+			final TermHighlighter highlighter = views.size() > 0 ? new TermHighlighter(highlightTerms, highlightTags) : null;
 			DataModifier dataModifier = new DataModifier() {
 				@Override public void modify(Map<String, Object> map) {
 					for (String field : views) {
 						if (map.containsKey(field)) {
 							Object obj = map.get(field);
 							if (obj instanceof String) {
-								map.put(field, SearchUtil.highlightString(String.valueOf(obj), highlightTerms, highlightTags));
+								map.put(field, highlighter.highlight(String.valueOf(obj)));
 							}
 						}
 					}
@@ -1653,10 +1768,11 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 	 * ES 사전 색인 조회용 클래스
 	 * 사전 컴파일 등에 사용한다.
 	 */
-	public static class DictionarySource extends DictionaryRepository implements Iterator<CharSequence[]> {
+	public static class DictionarySource extends DictionaryRepository {
+		private static final int MAX_SOURCE_QUERY_WORDS = 500;
+		private static final String[] SOURCE_FIELDS = { ES_DICT_FIELD_ID, ES_DICT_FIELD_KEYWORD, ES_DICT_FIELD_VALUE };
 		private Client client;
 		private String index;
-		private Iterator<Map<String, Object>> iterator;
 
 		public DictionarySource(Client client, String index) {
 			this.client = client;
@@ -1664,17 +1780,78 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 		}
 
 		@Override public Iterator<CharSequence[]> getSource(String type) {
-			try {
-				QueryBuilder query = null;
+			return getSource(type, 1);
+		}
 
-				query = QueryBuilders.matchQuery(ES_DICT_FIELD_TYPE, type.toUpperCase());
+		/**
+		 * 슬라이스 스크롤로 나누어 동시에 조회한다.
+		 */
+		@Override public Iterator<CharSequence[]> getSource(String type, int slices) {
+			return read(type, QueryBuilders.matchQuery(ES_DICT_FIELD_TYPE, type.toUpperCase()), slices);
+		}
 
-				logger.trace("QUERY:{}", query);
-				iterator = SearchUtil.search(client, index, query, null, null, 0, -1, true, null);
+		/**
+		 * 검색결과의 _source 를 Map 으로 바꾸지 않고 바로 (id, keyword, value) 로 읽으며,
+		 * 슬라이스별로 모은 뒤 슬라이스 순서대로 이어서 반환하므로 조회할 때마다 순서가 같다.
+		 * 일부만 읽힌 사전이 만들어지지 않도록 조회에 실패하면 예외를 던진다.
+		 */
+		private Iterator<CharSequence[]> read(String type, QueryBuilder query, int slices) {
+			final List<List<CharSequence[]>> sliceRows = new ArrayList<>();
+			for (int inx = 0; inx < Math.max(1, slices); inx++) {
+				sliceRows.add(new ArrayList<>());
+			}
+			logger.trace("QUERY:{} / {} slices", query, slices);
+			try {
+				long count = SearchUtil.scrollSlices(client, index, query, SOURCE_FIELDS, slices,
+					(slice, hit) -> sliceRows.get(slice).add(readRow(hit)));
+				List<CharSequence[]> rows = new ArrayList<>((int) count);
+				for (List<CharSequence[]> list : sliceRows) {
+					rows.addAll(list);
+				}
+				return rows.iterator();
 			} catch (Exception e) {
-				logger.error("", e);
+				throw new IllegalStateException("Dictionary source read failed : " + type, e);
+			}
+		}
+
+		static CharSequence[] readRow(SearchHit hit) throws IOException {
+			CharSequence[] row = new CharSequence[SOURCE_FIELDS.length];
+			try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+				DeprecationHandler.THROW_UNSUPPORTED_OPERATION, hit.getSourceRef(), XContentType.JSON)) {
+				parser.nextToken();
+				while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+					String field = parser.currentName();
+					XContentParser.Token token = parser.nextToken();
+					if (!token.isValue()) {
+						parser.skipChildren();
+						continue;
+					}
+					for (int inx = 0; inx < SOURCE_FIELDS.length; inx++) {
+						if (SOURCE_FIELDS[inx].equals(field)) {
+							row[inx] = new CharVector(parser.text());
+						}
+					}
+				}
 			}
-			return this;
+			return row;
+		}
+
+		/**
+		 * words 중 하나라도 키워드나 값에 포함하는 데이터만 조회한다.
+		 * 단어가 너무 많으면 전체 데이터를 조회하는 편이 빠르다. 조회에 실패하면 예외를 던진다.
+		 */
+		@Override public Iterator<CharSequence[]> getSource(String type, Collection<CharSequence> words) {
+			if (words.size() > MAX_SOURCE_QUERY_WORDS) {
+				return getSource(type);
+			}
+			BoolQueryBuilder query = QueryBuilders.boolQuery()
+				.must(QueryBuilders.matchQuery(ES_DICT_FIELD_TYPE, type.toUpperCase()))
+				.minimumShouldMatch(1);
+			for (CharSequence word : words) {
+				query.should(QueryBuilders.matchQuery(ES_DICT_FIELD_KEYWORD, String.valueOf(word)));
+				query.should(QueryBuilders.matchQuery(ES_DICT_FIELD_VALUE, String.valueOf(word)));
+			}
+			return read(type, query, 1);
 		}
 
 		@Override public void restore(String type, boolean ignoreCase, Set<CharSequence> wordSet) {
@@ -1714,18 +1891,6 @@ public class ProductNameAnalysisAction extends BaseRestHandler {
 			}
 		}
 
-		@Override public boolean hasNext() {
-			return iterator.hasNext();
-		}
-
-		@Override public CharSequence[] next() {
-			Map<String, Object> data = iterator.next();
-			CharSequence id = CharVector.valueOf(data.get(ES_DICT_FIELD_ID));
-			CharSequence keyword = CharVector.valueOf(data.get(ES_DICT_FIELD_KEYWORD));
-			CharSequence value = CharVector.valueOf(data.get(ES_DICT_FIELD_VALUE));
-			return new CharSequence[] { id, keyword, value };
-		}
-
 		@Override public void close() { }
 	}
 
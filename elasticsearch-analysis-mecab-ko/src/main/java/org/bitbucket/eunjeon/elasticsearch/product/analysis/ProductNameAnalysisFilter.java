@@ -61,6 +61,15 @@ public class ProductNameAnalysisFilter extends TokenFilter {
 
     public ProductNameAnalysisFilter(TokenStream input, ProductNameDictionary dictionary, AnalyzerOption option) {
         super(input);
+        setDictionary(dictionary);
+        this.option = option;
+        extraTermAttribute.init(this);
+        termList = new ArrayList<>();
+        super.clearAttributes();
+        logger.trace("init");
+    }
+
+    private void setDictionary(ProductNameDictionary dictionary) {
         if (dictionary != null) {
             this.dictionary = dictionary;
             this.synonymDictionary = dictionary.getDictionary(ProductNameDictionary.DICT_SYNONYM, SynonymDictionary.class);
@@ -68,11 +77,6 @@ public class ProductNameAnalysisFilter extends TokenFilter {
             this.stopDictionary = dictionary.getDictionary(ProductNameDictionary.DICT_STOP, SetDictionary.class);
         }
         this.extractor = new KoreanWordExtractor(dictionary);
-        this.option = option;
-        extraTermAttribute.init(this);
-        termList = new ArrayList<>();
-        super.clearAttributes();
-        logger.trace("init");
     }
 
     public final boolean incrementToken() throws IOException {
@@ -333,6 +337,16 @@ public class ProductNameAnalysisFilter extends TokenFilter {
 
     public void reset() throws IOException {
         super.reset();
+        // 토크나이저가 reset 에서 잡은 사전 스냅샷을 같이 사용한다. (없으면 게시된 최신 사전)
+        if (dictionary != null) {
+            ProductNameDictionary latest = tokenAttribute.dictionary();
+            if (latest == null) {
+                latest = dictionary.latest();
+            }
+            if (latest != dictionary) {
+                setDictionary(latest);
+            }
+        }
         extraTermAttribute.init(this);
         parsingRule = null;
         token = null;
@@ -3,6 +3,7 @@ package org.bitbucket.eunjeon.elasticsearch.product.analysis;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
 import org.bitbucket.eunjeon.elasticsearch.index.analysis.MeCabKoKeywordSearchTokenizerFactory;
 import org.bitbucket.eunjeon.elasticsearch.index.analysis.MeCabKoSimilarityMeasureTokenizerFactory;
@@ -12,6 +13,7 @@ import org.bitbucket.eunjeon.elasticsearch.util.ContextStore;
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.MeCabKoTokenizer;
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.StandardPosAppender;
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.TokenizerOption;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
@@ -29,6 +31,8 @@ import static org.apache.zookeeper.ZooDefs.OpCode.create;
 public class ProductNameAnalyzerProvider extends AbstractIndexAnalyzerProvider<Analyzer> {
     private static final ContextStore contextStore = ContextStore.getStore(AnalysisMeCabKoStandardPlugin.class);
     private static ProductNameDictionary dictionary;
+    private static final AnalysisResultCache analysisCache = new AnalysisResultCache();
+    private static volatile ReusableProductNameAnalyzer reusableAnalyzer;
     private Analyzer analyzer;
 
     public ProductNameAnalyzerProvider(IndexSettings indexSettings, Environment env, String name, Settings settings) {
@@ -38,7 +42,7 @@ public class ProductNameAnalyzerProvider extends AbstractIndexAnalyzerProvider<A
             dictionary = contextStore.getAs(ProductNameDictionary.PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
         } else {
             dictionary = ProductNameDictionary.loadDictionary(env);
-            contextStore.put(ProductNameDictionary.PRODUCT_NAME_DICTIONARY, dictionary);
+            ProductNameDictionary.publish(dictionary);
         }
         analyzer = new ProductNameAnalyzer(dictionary);
     }
@@ -49,20 +53,64 @@ public class ProductNameAnalyzerProvider extends AbstractIndexAnalyzerProvider<A
         return analyzer;
     }
 
+    /**
+     * 상품명 분석 스트림을 반환한다.
+     * 짧은 질의어의 분석결과는 AnalysisResultCache 에 저장되며, 같은 질의어와 옵션으로 다시 요청하면
+     * 분석하지 않고 저장된 결과를 출력한다. 사전이나 mecab 모델이 교체되면 캐시는 무효화된다.
+     * 캐시하지 않는 텍스트는 ReusableProductNameAnalyzer 의 재사용 스트림으로 분석하므로,
+     * 반환된 스트림은 다음 호출 전에 반드시 close() 해야 한다.
+     */
     public static TokenStream getAnalyzer(String str, boolean useForQuery, boolean useSynonym, boolean useStopword, boolean useFullString, boolean toUppercase) {
-        TokenStream tstream = null;
-        Reader reader = null;
-        Tokenizer tokenizer = null;
-        AnalyzerOption option = null;
-        TokenizerOption tokenizerOption = new TokenizerOption();
-        option = new AnalyzerOption(useForQuery, useSynonym, useStopword, useFullString, toUppercase);
-        reader = new StringReader(str);
+        AnalyzerOption option = new AnalyzerOption(useForQuery, useSynonym, useStopword, useFullString, toUppercase);
+        while (true) {
+            ReusableProductNameAnalyzer analyzer = getReusableAnalyzer(latestDictionary());
+            try {
+                return analysisCache.get(str, option, ProductNameDictionary.getVersion(),
+                        MeCabLoader.getModelVersion(analyzer.getTokenizerOption().mecabArgs),
+                        () -> analyzer.tokenStream(str, option));
+            } catch (AlreadyClosedException ignore) {
+                // 분석기를 얻은 뒤 사전이 바뀌어 닫혔다. 최신 분석기로 다시 분석한다.
+            }
+        }
+    }
+
+    /**
+     * 최신 공용사전. 아직 분석기 제공자가 만들어지지 않았으면 게시된 사전을 사용한다.
+     */
+    private static ProductNameDictionary latestDictionary() {
+        ProductNameDictionary current = dictionary;
+        if (current == null) {
+            current = contextStore.getAs(ProductNameDictionary.PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
+        }
+        return current.latest();
+    }
 
-        // Mecab 토크나이저 사용.. tokenizer = new ProductNameTokenizer(dictionary, false);
-        tokenizer = new MeCabKoTokenizer(tokenizerOption, new StandardPosAppender(tokenizerOption));
-        tokenizer.setReader(reader);
+    /**
+     * REST 액션에서 공통으로 사용하는 분석기. 사전이 바뀐 경우에만 새로 생성하며,
+     * 이전 분석기는 닫아서 스레드마다 재사용하던 구성요소(토크나이저, 필터)를 버린다.
+     * 이미 얻은 스트림은 close() 할 때까지 그대로 사용할 수 있다.
+     */
+    static ReusableProductNameAnalyzer getReusableAnalyzer(ProductNameDictionary latest) {
+        ReusableProductNameAnalyzer analyzer = reusableAnalyzer;
+        if (analyzer == null || analyzer.getDictionary() != latest) {
+            synchronized (ProductNameAnalyzerProvider.class) {
+                analyzer = reusableAnalyzer;
+                if (analyzer == null || analyzer.getDictionary() != latest) {
+                    ReusableProductNameAnalyzer previous = analyzer;
+                    reusableAnalyzer = analyzer = new ReusableProductNameAnalyzer(latest);
+                    if (previous != null) {
+                        previous.close();
+                    }
+                }
+            }
+        }
+        return analyzer;
+    }
 
-        tstream = new ProductNameAnalysisFilter(tokenizer, dictionary, option);
-        return tstream;
+    /**
+     * 질의어 분석결과 캐시. 적중률과 메모리 사용량 확인에 사용한다.
+     */
+    public static AnalysisResultCache getAnalysisCache() {
+        return analysisCache;
     }
 }
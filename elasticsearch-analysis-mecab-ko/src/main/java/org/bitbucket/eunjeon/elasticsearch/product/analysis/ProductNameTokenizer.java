@@ -111,6 +111,7 @@ public final class ProductNameTokenizer extends Tokenizer {
     private char[] buffer;
     private char[][] backBuffer = new char[2][IO_BUFFER_SIZE];
     private ExtractedEntry entry;
+    private ProductNameDictionary dictionary;
     private KoreanWordExtractor extractor;
     private char chrCurrent;
     private String typeCurrent;
@@ -118,11 +119,16 @@ public final class ProductNameTokenizer extends Tokenizer {
     private boolean tabularFull;
 
     public ProductNameTokenizer(ProductNameDictionary dictionary, boolean exportTerm) {
+        setDictionary(dictionary);
+        this.exportTerm = exportTerm;
+    }
+
+    private void setDictionary(ProductNameDictionary dictionary) {
+        this.dictionary = dictionary;
         if (dictionary != null) {
             extractor = new KoreanWordExtractor(dictionary);
             tokenAtt.dictionary(dictionary);
         }
-        this.exportTerm = exportTerm;
     }
 
     public ProductNameTokenizer(AttributeFactory factory) {
@@ -372,6 +378,14 @@ public final class ProductNameTokenizer extends Tokenizer {
     public void reset() throws IOException {
         logger.trace("TOKENIZER-RESET");
         super.reset();
+        // 스트림을 시작할 때 게시된 최신 사전으로 바꾼다. 분석하는 동안에는 사전이 바뀌지 않는다.
+        if (dictionary != null) {
+            ProductNameDictionary latest = dictionary.latest();
+            if (latest != dictionary) {
+                setDictionary(latest);
+            }
+            tokenAtt.dictionary(dictionary);
+        }
         position = 0;
         extLength = 0;
         baseOffset = 0;
@@ -30,7 +30,7 @@ public class ProductNameTokenizerFactory extends AbstractTokenizerFactory {
             commonDictionary = contextStore.getAs(ProductNameDictionary.PRODUCT_NAME_DICTIONARY, ProductNameDictionary.class);
         } else {
             commonDictionary = ProductNameDictionary.loadDictionary(env);
-            contextStore.put(ProductNameDictionary.PRODUCT_NAME_DICTIONARY, commonDictionary);
+            ProductNameDictionary.publish(commonDictionary);
         }
     }
 
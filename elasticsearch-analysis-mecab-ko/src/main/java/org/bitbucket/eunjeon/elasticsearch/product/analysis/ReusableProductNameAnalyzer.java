@@ -0,0 +1,64 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.MeCabKoTokenizer;
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.StandardPosAppender;
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.TokenizerOption;
+
+/**
+ * MeCab 토크나이저와 ProductNameAnalysisFilter 로 구성된 상품명 분석기.
+ * REST 액션에서 질의어 분석, 하이라이팅 등에 사용한다.
+ * AnalyzerOption 조합을 필드명으로 사용하여 PER_FIELD_REUSE_STRATEGY 로 스레드마다, 옵션 조합마다
+ * 한벌의 구성요소(토크나이저, 필터)를 재사용한다.
+ * 재사용되는 스트림이므로 다음 스트림을 얻기 전에 반드시 close() 해야 한다.
+ */
+public class ReusableProductNameAnalyzer extends Analyzer {
+    private static final int OPTION_COMBINATIONS = 32;
+    private static final String FIELD_PREFIX = "product_name_";
+    private static final String[] FIELD_NAMES = new String[OPTION_COMBINATIONS];
+    static {
+        for (int inx = 0; inx < OPTION_COMBINATIONS; inx++) {
+            FIELD_NAMES[inx] = FIELD_PREFIX + inx;
+        }
+    }
+
+    private final ProductNameDictionary dictionary;
+    private final TokenizerOption tokenizerOption;
+
+    public ReusableProductNameAnalyzer(ProductNameDictionary dictionary) {
+        this(dictionary, new TokenizerOption());
+    }
+
+    public ReusableProductNameAnalyzer(ProductNameDictionary dictionary, TokenizerOption tokenizerOption) {
+        super(PER_FIELD_REUSE_STRATEGY);
+        this.dictionary = dictionary;
+        this.tokenizerOption = tokenizerOption;
+    }
+
+    /**
+     * 옵션 조합에 해당하는 스레드의 재사용 스트림에 텍스트를 입력하여 반환한다.
+     */
+    public TokenStream tokenStream(String text, AnalyzerOption option) {
+        return tokenStream(FIELD_NAMES[option.flags()], text);
+    }
+
+    public TokenizerOption getTokenizerOption() {
+        return tokenizerOption;
+    }
+
+    public ProductNameDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        AnalyzerOption option = AnalyzerOption.fromFlags(
+                Integer.parseInt(fieldName.substring(FIELD_PREFIX.length())));
+        Tokenizer tokenizer = new MeCabKoTokenizer(tokenizerOption, new StandardPosAppender(tokenizerOption));
+        TokenStream stream = new ProductNameAnalysisFilter(tokenizer, dictionary, option);
+        return new TokenStreamComponents(tokenizer, stream);
+    }
+}
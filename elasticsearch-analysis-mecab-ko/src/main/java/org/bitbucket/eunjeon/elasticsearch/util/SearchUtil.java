@@ -1,12 +1,7 @@
 package org.bitbucket.eunjeon.elasticsearch.util;
 
 import org.apache.logging.log4j.Logger;
-import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.search.highlight.Formatter;
-import org.apache.lucene.search.highlight.*;
-import org.apache.lucene.util.BytesRef;
-import org.bitbucket.eunjeon.elasticsearch.highlight.TermHighlightingQuery;
-import org.bitbucket.eunjeon.elasticsearch.product.analysis.ProductNameAnalyzerProvider;
+import org.bitbucket.eunjeon.elasticsearch.highlight.TermHighlighter;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.search.ClearScrollRequest;
@@ -26,17 +21,29 @@ import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SearchUtil {
 
 	private static final TimeValue DEFAULT_SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1L);
 	private static final TimeValue DEFAULT_SEARCH_TIME_OUT = new TimeValue(60, TimeUnit.SECONDS);
 	private static final int DEFAULT_SCROLL_SIZE = 10000;
+	private static final AtomicInteger SLICE_THREAD_COUNT = new AtomicInteger();
+	// 모든 슬라이스 스크롤이 함께 쓰는 쓰레드. 쉬는 쓰레드는 종료된다.
+	private static final int SLICE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	private static final ExecutorService SLICE_EXECUTOR = newSliceExecutor();
 
 	private static Logger logger = Loggers.getLogger(SearchUtil.class, "");
 
@@ -157,43 +164,106 @@ public class SearchUtil {
 		return ret;
 	}
 
-	public static String highlightString(String str, List<String> wordSet, List<String> tags) {
-		String ret = null;
-		if (str != null && (str = str.trim()).length() > 0) {
-			TokenStream tstream = ProductNameAnalyzerProvider.getAnalyzer(str, false, false, true, false, true);
-			List<BytesRef> terms = new ArrayList<>();
-			for (String word : wordSet) {
-				terms.add(new BytesRef(word.toUpperCase()));
-			}
-			String preTag = null;
-			String postTag = null;
-			if (tags.size() > 1) {
-				preTag = tags.get(0);
-				postTag = tags.get(1);
+	/**
+	 * 검색결과를 slices 개의 슬라이스 스크롤로 나누어 동시에 읽는다.
+	 * 검색결과를 Map 으로 바꾸지 않고 hit 그대로 handler 에 넘기며, handler 는 슬라이스마다 다른 쓰레드에서 호출된다.
+	 * 슬라이스 안에서는 _doc 순서로 넘어온다. 슬라이스 하나라도 실패하면 예외를 던진다.
+	 * fields 가 주어지면 _source 에서 해당 필드만 받는다.
+	 * 나머지 슬라이스는 공유 쓰레드풀에서 읽고 첫 슬라이스는 호출한 쓰레드가 직접 읽으므로,
+	 * 여러 사전을 동시에 읽어서 풀이 가득 차더라도 쓰레드가 늘어나지 않고 진행된다.
+	 */
+	public static long scrollSlices(Client client, String index, QueryBuilder query, String[] fields, int slices, SliceHitHandler handler) throws Exception {
+		final int max = Math.max(1, slices);
+		List<Future<Long>> futures = new ArrayList<>();
+		try {
+			for (int inx = 1; inx < max; inx++) {
+				final int slice = inx;
+				futures.add(SLICE_EXECUTOR.submit(() -> scrollSlice(client, index, query, fields, slice, max, handler)));
 			}
-			if (preTag != null && postTag != null) {
-				TermHighlightingQuery query = new TermHighlightingQuery("", terms);
-				Formatter formatter = null;
-				if (preTag != null && !"".equals(preTag) && postTag != null && !"".equals(postTag)) {
-					formatter = new SimpleHTMLFormatter(preTag, postTag);
-				} else {
-					formatter = new SimpleHTMLFormatter();
-				}
-				Encoder encoder = new SimpleHTMLEncoder();
-				Scorer scorer = new QueryScorer(query);
-				Highlighter highlighter = new Highlighter(formatter, encoder, scorer);
+			long count = scrollSlice(client, index, query, fields, 0, max, handler);
+			for (Future<Long> future : futures) {
 				try {
-					ret = highlighter.getBestFragment(tstream, str);
-				} catch (Exception e) {
-					logger.debug("highlight error {} / {} / {}", str, wordSet, e.getMessage());
-					logger.error("", e);
+					count += future.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
 				}
-				if (ret == null) {
-					ret = str;
+			}
+			return count;
+		} finally {
+			// 실패한 경우 아직 읽고 있는 슬라이스를 멈춘다.
+			for (Future<Long> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private static ExecutorService newSliceExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(SLICE_THREADS, SLICE_THREADS, 60, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "search-slice-" + SLICE_THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static long scrollSlice(Client client, String index, QueryBuilder query, String[] fields, int slice, int max, SliceHitHandler handler) throws Exception {
+		// 페이지마다 바뀔 수 있는 스크롤 아이디 중 마지막 것만 지우면 된다.
+		String scrollId = null;
+		Scroll scroll = new Scroll(DEFAULT_SCROLL_KEEP_ALIVE);
+		long count = 0;
+		try {
+			SearchSourceBuilder source = new SearchSourceBuilder();
+			source.query(query);
+			source.sort(SortBuilders.fieldSort("_doc"));
+			if (fields != null) {
+				source.fetchSource(fields, null);
+			}
+			if (max > 1) {
+				source.slice(new SliceBuilder(slice, max));
+			}
+			source.size(DEFAULT_SCROLL_SIZE);
+			source.timeout(DEFAULT_SEARCH_TIME_OUT);
+			SearchRequest search = new SearchRequest(index.split("[,]"));
+			search.source(source);
+			search.scroll(scroll);
+			SearchResponse response = client.search(search).get();
+			scrollId = response.getScrollId();
+			for (SearchHit[] hits = response.getHits().getHits(); hits != null && hits.length > 0; hits = response.getHits().getHits()) {
+				for (SearchHit hit : hits) {
+					handler.handle(slice, hit);
+					count++;
 				}
+				SearchScrollRequest scrollRequest = new SearchScrollRequest(response.getScrollId());
+				scrollRequest.scroll(scroll);
+				response = client.searchScroll(scrollRequest).get();
+				scrollId = response.getScrollId();
+			}
+		} finally {
+			if (scrollId != null) {
+				ClearScrollRequest clearScroll = new ClearScrollRequest();
+				clearScroll.addScrollId(scrollId);
+				try {
+					client.clearScroll(clearScroll).get();
+				} catch (Exception ignore) { }
 			}
 		}
-		return ret;
+		return count;
+	}
+
+	/**
+	 * 슬라이스 스크롤의 검색결과를 한건씩 받는다.
+	 */
+	public interface SliceHitHandler {
+		void handle(int slice, SearchHit hit) throws Exception;
+	}
+
+	public static String highlightString(String str, List<String> wordSet, List<String> tags) {
+		return new TermHighlighter(wordSet, tags).highlight(str);
 	}
 
 	public static abstract class DataModifier {
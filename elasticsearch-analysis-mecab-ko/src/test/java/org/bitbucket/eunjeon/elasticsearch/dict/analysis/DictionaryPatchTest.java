@@ -0,0 +1,236 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary.DictionaryRepository;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary.Type;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * 변경분만 반영한 사전이 전체를 다시 컴파일한 사전과 같은지 확인한다.
+ */
+public class DictionaryPatchTest {
+
+	/**
+	 * 사전 색인을 흉내낸다. 단어가 주어지면 그 단어를 키워드나 값에 포함하는 데이터만 반환한다.
+	 */
+	private static class ListRepository extends DictionaryRepository {
+		private final List<String[]> rows = new ArrayList<>();
+		private int queried;
+
+		private void add(String keyword, String value) {
+			rows.add(new String[] { "", keyword, value });
+		}
+
+		private void remove(String keyword, String value) {
+			for (Iterator<String[]> iterator = rows.iterator(); iterator.hasNext(); ) {
+				String[] row = iterator.next();
+				if (row[1].equals(keyword) && row[2].equals(value)) {
+					iterator.remove();
+				}
+			}
+		}
+
+		@Override public Iterator<CharSequence[]> getSource(String type) {
+			queried = rows.size();
+			return new ArrayList<CharSequence[]>(rows).iterator();
+		}
+
+		@Override public Iterator<CharSequence[]> getSource(String type, Collection<CharSequence> words) {
+			Set<String> wordSet = new HashSet<>();
+			for (CharSequence word : words) {
+				wordSet.add(String.valueOf(word));
+			}
+			List<CharSequence[]> ret = new ArrayList<>();
+			for (String[] row : rows) {
+				Set<String> rowWords = new HashSet<>(Arrays.asList(row[2].split(",")));
+				rowWords.add(row[1]);
+				rowWords.retainAll(wordSet);
+				if (!rowWords.isEmpty()) {
+					ret.add(row);
+				}
+			}
+			queried = ret.size();
+			return ret.iterator();
+		}
+
+		@Override public void restore(String type, boolean ignoreCase, Set<CharSequence> wordSet) { }
+
+		@Override public void close() { }
+	}
+
+	private static SynonymDictionary compile(ListRepository repo, File file) throws IOException {
+		SynonymDictionary dictionary = new SynonymDictionary(true);
+		for (Iterator<CharSequence[]> source = repo.getSource(ProductNameDictionary.DICT_SYNONYM); source.hasNext(); ) {
+			CharSequence[] data = source.next();
+			dictionary.addSourceLineEntry(data[1].length() > 0 ? data[1] + "\t" + data[2] : data[2]);
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			dictionary.writeTo(out);
+		}
+		return new SynonymDictionary(file, true, ProductNameDictionary.DICT_SYNONYM, 0, null, Type.SYNONYM);
+	}
+
+	private static Map<String, Set<String>> toSorted(Map<CharSequence, CharSequence[]> map) {
+		Map<String, Set<String>> ret = new TreeMap<>();
+		for (Map.Entry<CharSequence, CharSequence[]> entry : map.entrySet()) {
+			Set<String> values = new TreeSet<>();
+			for (CharSequence value : entry.getValue()) {
+				values.add(String.valueOf(value));
+			}
+			ret.put(String.valueOf(entry.getKey()), values);
+		}
+		return ret;
+	}
+
+	private static Set<String> toSorted(Set<CharSequence> set) {
+		Set<String> ret = new TreeSet<>();
+		for (CharSequence word : set) {
+			ret.add(String.valueOf(word));
+		}
+		return ret;
+	}
+
+	private static void assertSameDictionary(SynonymDictionary expected, SynonymDictionary actual) {
+		assertEquals(toSorted(expected.map()), toSorted(actual.map()));
+		assertEquals(expected.map().size(), actual.map().size());
+		assertEquals(toSorted(expected.getWordSet()), toSorted(actual.getWordSet()));
+		assertEquals(expected.getWordSet().size(), actual.getWordSet().size());
+		for (CharSequence key : expected.map().keySet()) {
+			assertTrue(actual.map().containsKey(new CharVector(String.valueOf(key), true)));
+		}
+	}
+
+	private static ProductNameDictionary publish(SynonymDictionary synonym) {
+		ProductNameDictionary dictionary = new ProductNameDictionary(new TagProbDictionary(true));
+		dictionary.addDictionary(ProductNameDictionary.DICT_SYNONYM, synonym);
+		return ProductNameDictionary.publish(dictionary);
+	}
+
+	@Test
+	public void testUpdateMatchesFullCompile() throws IOException {
+		File dir = Files.createTempDirectory("dictionary-patch").toFile();
+		dir.deleteOnExit();
+		ListRepository repo = new ListRepository();
+		repo.add("", "노트북,랩탑");
+		repo.add("", "모니터,디스플레이");
+		repo.add("삼성", "samsung,쌤숭");
+		repo.add("tv", "티비");
+		for (int inx = 0; inx < 100; inx++) {
+			repo.add("", "단어" + inx + ",유사어" + inx);
+		}
+		File file = new File(dir, "synonym.dict");
+		ProductNameDictionary base = publish(compile(repo, file));
+
+		// 양방향 그룹을 고치고, 단방향을 지우고, 새 단방향을 추가한다.
+		List<CharSequence[]> changes = new ArrayList<>();
+		repo.remove("", "노트북,랩탑");
+		repo.add("", "노트북,랩탑,노트pc");
+		changes.add(new CharSequence[] { "", "", "노트북,랩탑" });
+		changes.add(new CharSequence[] { "", "", "노트북,랩탑,노트pc" });
+		repo.remove("tv", "티비");
+		changes.add(new CharSequence[] { "", "tv", "티비" });
+		repo.add("냉장고", "refrigerator");
+		changes.add(new CharSequence[] { "", "냉장고", "refrigerator" });
+
+		Map<String, Object> result = ProductNameDictionary.updateDictionary(null, repo,
+			ProductNameDictionary.DICT_SYNONYM, changes, false);
+		assertTrue(String.valueOf(result.get("patch")), (Integer) result.get("patch") > 0);
+		// 변경된 단어를 포함하는 데이터만 다시 읽었다.
+		assertEquals(2, repo.queried);
+
+		ProductNameDictionary published = base.latest();
+		assertNotSame(base, published);
+		assertSame(base.getSystemDictionary(), published.getSystemDictionary());
+		SynonymDictionary updated = published.getDictionary(ProductNameDictionary.DICT_SYNONYM, SynonymDictionary.class);
+		SynonymDictionary expected = compile(repo, new File(dir, "expected.dict"));
+		assertSameDictionary(expected, updated);
+		assertEquals(toSorted(new HashSet<CharSequence>(Arrays.asList("랩탑", "노트pc"))),
+			toSorted(new HashSet<>(Arrays.asList(updated.map().get(new CharVector("노트북", true))))));
+		assertNull(updated.map().get(new CharVector("tv", true)));
+	}
+
+	@Test
+	public void testPatchFile() throws IOException {
+		File dir = Files.createTempDirectory("dictionary-patch").toFile();
+		dir.deleteOnExit();
+		ListRepository repo = new ListRepository();
+		repo.add("", "노트북,랩탑");
+		repo.add("삼성", "samsung");
+		SynonymDictionary current = compile(repo, new File(dir, "synonym.dict"));
+
+		SynonymDictionary changed = new SynonymDictionary(true);
+		changed.addSourceLineEntry("삼성\tsamsung,쌤숭");
+		changed.addSourceLineEntry("노트북,랩탑");
+		Set<CharSequence> words = DictionaryPatch.words(changed);
+		SynonymDictionary rebuilt = new SynonymDictionary(true);
+		rebuilt.addSourceLineEntry("삼성\tsamsung,쌤숭");
+		DictionaryPatch first = DictionaryPatch.diff(current, rebuilt, words);
+
+		SourceDictionary<?> patched = first.applyTo(current);
+		changed = new SynonymDictionary(true);
+		changed.addSourceLineEntry("모니터,디스플레이");
+		rebuilt = new SynonymDictionary(true);
+		rebuilt.addSourceLineEntry("모니터,디스플레이");
+		DictionaryPatch second = DictionaryPatch.diff(patched, rebuilt, DictionaryPatch.words(changed));
+		patched = second.applyTo(patched);
+
+		File patchFile = DictionaryPatch.getPatchFile(new File(dir, "synonym.dict"));
+		first.appendTo(patchFile);
+		second.appendTo(patchFile);
+		DictionaryPatch read = DictionaryPatch.read(patchFile, true);
+		assertEquals(first.size() + second.size(), read.size());
+		assertSameDictionary((SynonymDictionary) patched, (SynonymDictionary) read.applyTo(current));
+
+		repo.remove("", "노트북,랩탑");
+		repo.remove("삼성", "samsung");
+		repo.add("삼성", "samsung,쌤숭");
+		repo.add("", "모니터,디스플레이");
+		assertSameDictionary(compile(repo, new File(dir, "expected.dict")), (SynonymDictionary) patched);
+
+		// 기록중에 잘린 마지막 항목은 버린다.
+		try (RandomAccessFile raf = new RandomAccessFile(patchFile, "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+		assertEquals(read.size() - 1, DictionaryPatch.read(patchFile, true).size());
+	}
+
+	@Test
+	public void testSetPatch() {
+		SetDictionary current = new SetDictionary(true);
+		current.addSourceLineEntry("갤럭시");
+		current.addSourceLineEntry("아이폰");
+		SetDictionary changed = new SetDictionary(true);
+		changed.addSourceLineEntry("아이폰");
+		changed.addSourceLineEntry("픽셀");
+		SetDictionary rebuilt = new SetDictionary(true);
+		rebuilt.addSourceLineEntry("픽셀");
+		DictionaryPatch patch = DictionaryPatch.diff(current, rebuilt, DictionaryPatch.words(changed));
+		assertEquals(2, patch.size());
+		SetDictionary patched = (SetDictionary) patch.applyTo(current);
+		assertEquals(new TreeSet<>(Arrays.asList("갤럭시", "픽셀")), toSorted(patched.set()));
+		assertEquals(2, patched.set().size());
+		assertTrue(patched.set().contains(new CharVector("픽셀", true)));
+		assertFalse(patched.set().contains(new CharVector("아이폰", true)));
+		// 원래 사전은 바뀌지 않는다.
+		assertTrue(current.set().contains(new CharVector("아이폰", true)));
+	}
+}
@@ -0,0 +1,110 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 더블어레이 사전이 HashMap 사전(TagProbDictionary)과 같은 결과를 찾는지 확인한다.
+ * 변환한 뒤에 등록한 추가 명사도 같은 결과여야 한다.
+ */
+public class DoubleArrayTagProbDictionaryTest {
+
+	private static final String[] DICTIONARY = {
+		"삼성\tNNP\t-9.5",
+		"삼성전자\tNNP\t-8.2",
+		"전자\tNNG\t-9.1",
+		"노트북\tNNG\t-8.7",
+		"노트\tNNG\t-10.3",
+		"갤럭시\tNNP\t-9.8",
+		"에서\tJKB\t-6.1",
+		"GALAXY\tNNP\t-11.2",
+		"가방\tNNG\t-9.9",
+	};
+
+	private static final String[] QUERIES = {
+		"삼성전자노트북가방", "삼성", "삼성전", "노트북", "노트북에서", "갤럭시북", "galaxy", "GalaxyBook",
+		"전자레인지", "충전", "무선충전기", "가", "", "없는단어",
+	};
+
+	private static TagProbDictionary buildHashDictionary() {
+		TagProbDictionary dictionary = new TagProbDictionary(true);
+		for (String line : DICTIONARY) {
+			dictionary.addSourceEntry(line);
+		}
+		return dictionary;
+	}
+
+	private static Set<CharSequence> nouns(String... words) {
+		Set<CharSequence> set = new LinkedHashSet<>();
+		for (String word : words) {
+			set.add(new CharVector(word));
+		}
+		return set;
+	}
+
+	private static String toString(List<TagProb> list) {
+		return list == null ? null : String.valueOf(list);
+	}
+
+	private static List<String> prefixSearch(ProductNameDictionary dictionary, String text) {
+		@SuppressWarnings("unchecked")
+		List<TagProb>[] tagLists = (List<TagProb>[]) new List<?>[text.length()];
+		int[] lengths = new int[text.length()];
+		int found = dictionary.commonPrefixSearch(new CharVector(text.toCharArray()), lengths, tagLists);
+		List<String> ret = new ArrayList<>();
+		for (int inx = 0; inx < found; inx++) {
+			ret.add(text.substring(0, lengths[inx]) + ":" + toString(tagLists[inx]));
+		}
+		return ret;
+	}
+
+	private static void assertSameResult(TagProbDictionary hashDictionary, DoubleArrayTagProbDictionary arrayDictionary) {
+		ProductNameDictionary hash = new ProductNameDictionary(hashDictionary);
+		ProductNameDictionary array = new ProductNameDictionary(arrayDictionary);
+		for (String query : QUERIES) {
+			for (int start = 0; start < query.length(); start++) {
+				String text = query.substring(start);
+				assertEquals(text, toString(hashDictionary.find(new CharVector(text))),
+					toString(arrayDictionary.find(new CharVector(text))));
+				assertEquals(text, prefixSearch(hash, text), prefixSearch(array, text));
+			}
+		}
+		assertEquals(hashDictionary.size(), arrayDictionary.size());
+	}
+
+	@Test
+	public void testSameAsHashDictionary() {
+		TagProbDictionary hashDictionary = buildHashDictionary();
+		assertSameResult(hashDictionary, DoubleArrayTagProbDictionary.build(hashDictionary));
+	}
+
+	@Test
+	public void testAppendAdditionalNounEntry() {
+		TagProbDictionary hashDictionary = buildHashDictionary();
+		DoubleArrayTagProbDictionary arrayDictionary = DoubleArrayTagProbDictionary.build(hashDictionary);
+		long bytes = arrayDictionary.ramBytesUsed();
+
+		// 기존 명사(확률 변경), 품사가 다른 단어, 새 단어, 트라이의 단어 사이에 끼는 단어, 대소문자
+		Set<CharSequence> first = nouns("노트북", "에서", "충전", "충전기", "삼성전", "무선", "GalaxyBook");
+		hashDictionary.appendAdditionalNounEntry(first, "max");
+		arrayDictionary.appendAdditionalNounEntry(first, "max");
+		assertSameResult(hashDictionary, arrayDictionary);
+		assertTrue(arrayDictionary.ramBytesUsed() > bytes);
+
+		// 이미 추가한 단어를 다시 추가하고, 입력하지 않은 확률은 무시한다.
+		Set<CharSequence> second = nouns("충전", "전자레인지", "가");
+		hashDictionary.appendAdditionalNounEntry(second, "min");
+		arrayDictionary.appendAdditionalNounEntry(second, "min");
+		hashDictionary.appendAdditionalNounEntry(nouns("레인지"), null);
+		arrayDictionary.appendAdditionalNounEntry(nouns("레인지"), null);
+		assertSameResult(hashDictionary, arrayDictionary);
+	}
+}
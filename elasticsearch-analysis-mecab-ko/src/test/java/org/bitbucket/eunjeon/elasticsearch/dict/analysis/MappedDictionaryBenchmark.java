@@ -0,0 +1,101 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import com.danawa.io.DataOutput;
+import com.danawa.io.OutputStreamDataOutput;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 이전 형식(.dict 전체 파싱)과 컴파일된 사전파일 형식(메모리 매핑)의 MapDictionary 적재시간과 조회 속도를 비교한다.
+ *
+ * 사용법: MappedDictionaryBenchmark [단어 갯수]
+ */
+public class MappedDictionaryBenchmark {
+	private static final String SYLLABLES = "가나다라마바사아자차카타파하삼성전자갤럭시노트북모니터냉장고세탁기청소기무선이어폰";
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		MapDictionary source = new MapDictionary(true);
+		Random random = new Random(0);
+		while (source.map().size() < size) {
+			source.addSourceLineEntry(randomWord(random) + "\t" + randomWord(random));
+		}
+
+		File legacyFile = File.createTempFile("legacy", ".dict");
+		File mappedFile = File.createTempFile("mapped", ".dict");
+		legacyFile.deleteOnExit();
+		mappedFile.deleteOnExit();
+		writeLegacy(source.map(), legacyFile);
+		try (OutputStream out = new FileOutputStream(mappedFile)) {
+			source.writeTo(out);
+		}
+		System.out.println(String.format("entries: %d, legacy file: %,d bytes, mapped file: %,d bytes",
+			size, legacyFile.length(), mappedFile.length()));
+
+		List<CharVector> queries = new ArrayList<>();
+		for (CharSequence key : source.map().keySet()) {
+			queries.add(new CharVector(key.toString(), true));
+			queries.add(new CharVector(key.toString() + "가", true));
+			if (queries.size() >= 200000) {
+				break;
+			}
+		}
+
+		for (int round = 0; round < 3; round++) {
+			long st = System.nanoTime();
+			MapDictionary legacy = new MapDictionary(legacyFile, true, "MAP", 0, null, ProductNameDictionary.Type.MAP);
+			long legacyTime = System.nanoTime() - st;
+			st = System.nanoTime();
+			MapDictionary mapped = new MapDictionary(mappedFile, true, "MAP", 0, null, ProductNameDictionary.Type.MAP);
+			long mappedTime = System.nanoTime() - st;
+			System.out.println(String.format("load legacy: %.1f ms, mapped: %.1f ms", legacyTime / 1e6, mappedTime / 1e6));
+			report("legacy", legacy, queries);
+			report("mapped", mapped, queries);
+		}
+	}
+
+	private static void report(String name, MapDictionary dictionary, List<CharVector> queries) {
+		int found = 0;
+		long st = System.nanoTime();
+		for (CharVector query : queries) {
+			if (dictionary.containsKey(query)) {
+				found++;
+			}
+		}
+		long elapsed = System.nanoTime() - st;
+		System.out.println(String.format("  %s containsKey found: %d, %.1f ns/lookup", name, found, (double) elapsed / queries.size()));
+	}
+
+	private static String randomWord(Random random) {
+		StringBuilder word = new StringBuilder();
+		int length = 2 + random.nextInt(6);
+		for (int inx = 0; inx < length; inx++) {
+			word.append(SYLLABLES.charAt(random.nextInt(SYLLABLES.length())));
+		}
+		return word.toString();
+	}
+
+	private static void writeLegacy(Map<CharSequence, CharSequence[]> map, File file) throws Exception {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			DataOutput output = new OutputStreamDataOutput(out);
+			output.writeVInt(map.size());
+			for (Map.Entry<CharSequence, CharSequence[]> entry : map.entrySet()) {
+				CharVector key = CharVector.valueOf(entry.getKey());
+				output.writeUString(key.array(), key.offset(), key.length());
+				output.writeVInt(entry.getValue().length);
+				for (CharSequence v : entry.getValue()) {
+					CharVector value = CharVector.valueOf(v);
+					output.writeUString(value.array(), value.offset(), value.length());
+				}
+			}
+		}
+	}
+}
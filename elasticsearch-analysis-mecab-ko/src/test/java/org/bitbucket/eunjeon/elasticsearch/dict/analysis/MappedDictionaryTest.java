@@ -0,0 +1,174 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import com.danawa.io.DataOutput;
+import com.danawa.io.OutputStreamDataOutput;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 컴파일된 사전파일을 매핑해서 읽은 사전이 원래 사전과 같은 결과를 주는지 확인한다.
+ */
+public class MappedDictionaryTest {
+
+	private static File write(SourceDictionary<?> dictionary) throws IOException {
+		File file = File.createTempFile("mapped", ".dict");
+		file.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(file)) {
+			dictionary.writeTo(out);
+		}
+		assertTrue(MappedDictionary.isMappedFile(file));
+		return file;
+	}
+
+	private static void assertSameSet(Set<CharSequence> expected, Set<CharSequence> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (CharSequence word : expected) {
+			assertTrue(String.valueOf(word), actual.contains(word));
+		}
+		for (CharSequence word : actual) {
+			assertTrue(String.valueOf(word), expected.contains(word));
+		}
+	}
+
+	private static void assertSameMap(Map<CharSequence, CharSequence[]> expected, Map<CharSequence, CharSequence[]> actual) {
+		assertSameSet(expected.keySet(), actual.keySet());
+		for (Map.Entry<CharSequence, CharSequence[]> entry : expected.entrySet()) {
+			assertEquals(Arrays.toString(entry.getValue()), Arrays.toString(actual.get(entry.getKey())));
+		}
+		int count = 0;
+		for (Map.Entry<CharSequence, CharSequence[]> entry : actual.entrySet()) {
+			assertEquals(Arrays.toString(expected.get(entry.getKey())), Arrays.toString(entry.getValue()));
+			count++;
+		}
+		assertEquals(expected.size(), count);
+	}
+
+	@Test
+	public void testSetDictionary() throws IOException {
+		SetDictionary source = new SetDictionary(true);
+		for (String word : new String[] { "삼성", "Galaxy", "노트북", "a", "AB", "갤럭시 북" }) {
+			source.addSourceLineEntry(word);
+		}
+		SetDictionary dictionary = new SetDictionary(write(source), true, "SET", 0, null, ProductNameDictionary.Type.SET);
+		assertSameSet(source.set(), dictionary.set());
+		assertTrue(dictionary.contains(new CharVector("GALAXY")));
+		assertTrue(dictionary.contains(new CharVector("ab")));
+		assertTrue(dictionary.contains(new CharVector("갤럭시북")));
+		assertFalse(dictionary.contains(new CharVector("갤럭시")));
+		assertFalse(dictionary.contains(new CharVector("")));
+		assertTrue(dictionary.set().contains("galaxy"));
+		assertTrue(dictionary.set().contains(new StringBuilder("노트북")));
+	}
+
+	@Test
+	public void testCaseSensitiveSet() throws IOException {
+		SetDictionary source = new SetDictionary(false);
+		for (String word : new String[] { "abc", "ABC", "Abd", "b" }) {
+			source.addSourceLineEntry(word);
+		}
+		SetDictionary dictionary = new SetDictionary(write(source), false, "SET", 0, null, ProductNameDictionary.Type.SET);
+		assertSameSet(source.set(), dictionary.set());
+		assertTrue(dictionary.contains(new CharVector("ABC")));
+		assertFalse(dictionary.contains(new CharVector("aBC")));
+		assertFalse(dictionary.contains(new CharVector("abd")));
+		// 찾는 단어가 ignoreCase 이면 대소문자를 구분하지 않는다. (CharVector.equals 와 같다)
+		assertTrue(dictionary.contains(new CharVector("abd", true)));
+		assertTrue(dictionary.set().contains("Abd"));
+		assertFalse(dictionary.set().contains("abd"));
+	}
+
+	@Test
+	public void testMapDictionaries() throws IOException {
+		SynonymDictionary synonym = new SynonymDictionary(true);
+		synonym.addSourceLineEntry("노트북\t랩탑,notebook");
+		synonym.addSourceLineEntry("핸드폰,휴대폰,휴대 전화");
+		File file = write(synonym);
+		SynonymDictionary mappedSynonym = new SynonymDictionary(file, true, "SYN", 0, null, ProductNameDictionary.Type.SYNONYM);
+		assertSameMap(synonym.map(), mappedSynonym.map());
+		assertSameSet(synonym.getWordSet(), mappedSynonym.getWordSet());
+		assertEquals("[랩탑, notebook]", Arrays.toString(mappedSynonym.get(new CharVector("노트북"))));
+		// CharVector 가 아닌 단어나 배열의 일부를 가리키는 단어도 복사하지 않고 찾는다.
+		assertEquals("[랩탑, notebook]", Arrays.toString(mappedSynonym.map().get("노트북")));
+		assertEquals("[랩탑, notebook]", Arrays.toString(mappedSynonym.map().get(new StringBuilder("노트북"))));
+		char[] buffer = "새노트북가방".toCharArray();
+		assertEquals("[랩탑, notebook]", Arrays.toString(mappedSynonym.get(new CharVector(buffer, 1, 3))));
+		assertNull(mappedSynonym.map().get("노트"));
+		assertNull(mappedSynonym.map().get(1));
+
+		CompoundDictionary compound = new CompoundDictionary(true);
+		compound.addSourceLineEntry("무선이어폰\t무선,이어폰");
+		compound.addSourceLineEntry("노트북가방\t노트북,가방");
+		CompoundDictionary mappedCompound = new CompoundDictionary(write(compound), true, "COMPOUND", 0, null,
+			ProductNameDictionary.Type.COMPOUND);
+		assertSameMap(compound.map(), mappedCompound.map());
+		assertSameSet(compound.getMainWordSet(), mappedCompound.getMainWordSet());
+		assertSameSet(compound.getWordSet(), mappedCompound.getWordSet());
+
+		SpaceDictionary space = new SpaceDictionary(true);
+		space.addSourceLineEntry("갤럭시 노트");
+		SpaceDictionary mappedSpace = new SpaceDictionary(write(space), true, "SPACE", 0, null, ProductNameDictionary.Type.SPACE);
+		assertSameMap(space.map(), mappedSpace.map());
+		assertSameSet(space.getWordSet(), mappedSpace.getWordSet());
+
+		// 스트림으로 읽어도 같다.
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		synonym.writeTo(out);
+		SynonymDictionary streamSynonym = new SynonymDictionary(new ByteArrayInputStream(out.toByteArray()), true,
+			"SYN", 0, null, ProductNameDictionary.Type.SYNONYM);
+		assertSameMap(synonym.map(), streamSynonym.map());
+		assertSameSet(synonym.getWordSet(), streamSynonym.getWordSet());
+	}
+
+	@Test
+	public void testLegacyFormat() throws IOException {
+		// 이전 형식의 MapDictionary 파일도 그대로 읽는다.
+		File file = File.createTempFile("legacy", ".dict");
+		file.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(file)) {
+			DataOutput output = new OutputStreamDataOutput(out);
+			output.writeVInt(1);
+			char[] key = "용량".toCharArray();
+			output.writeUString(key, 0, key.length);
+			output.writeVInt(1);
+			char[] value = "GB".toCharArray();
+			output.writeUString(value, 0, value.length);
+		}
+		assertFalse(MappedDictionary.isMappedFile(file));
+		MapDictionary dictionary = new MapDictionary(file, true, "MAP", 0, null, ProductNameDictionary.Type.MAP);
+		assertTrue(dictionary.map() instanceof HashMap);
+		assertEquals("[GB]", Arrays.toString(dictionary.get(new CharVector("용량"))));
+	}
+
+	@Test
+	public void testChecksum() throws IOException {
+		SetDictionary source = new SetDictionary(true);
+		source.addSourceLineEntry("삼성");
+		File file = write(source);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(raf.length() - 1);
+			int b = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(b ^ 0xff);
+		}
+		try {
+			MappedDictionary.open(file, true);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("checksum"));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 사전파일을 동시에 읽어도 설정파일 순서대로 적재한 것과 같은 사전이 되는지 확인한다.
+ */
+public class ProductNameDictionaryLoadTest {
+
+	private static void write(WritableDictionary dictionary, File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			dictionary.writeTo(out);
+		}
+	}
+
+	private static JSONObject row(String name, String type, String tokenType) {
+		JSONObject row = new JSONObject();
+		row.put("name", name);
+		row.put("type", type);
+		row.put("filePath", name + ".dict");
+		if (tokenType != null) {
+			row.put("tokenType", tokenType);
+		}
+		return row;
+	}
+
+	@Test
+	public void testParallelLoad() throws IOException {
+		File base = Files.createTempDirectory("product-dict").toFile();
+		base.deleteOnExit();
+
+		TagProbDictionary system = new TagProbDictionary(true);
+		system.addSourceEntry("삼성\tNNP\t-6");
+		write(system, new File(base, "system.dict"));
+
+		SetDictionary brand = new SetDictionary(true);
+		brand.addSourceLineEntry("갤럭시북");
+		brand.addSourceLineEntry("삼성");
+		write(brand, new File(base, "brand.dict"));
+
+		SetDictionary maker = new SetDictionary(true);
+		// 같은 단어가 여러 사전에 있으면 가장 높은 확률이 남는다.
+		maker.addSourceLineEntry("갤럭시북");
+		write(maker, new File(base, "maker.dict"));
+
+		SynonymDictionary synonym = new SynonymDictionary(true);
+		synonym.addSourceLineEntry("노트북\t랩탑");
+		write(synonym, new File(base, "synonym.dict"));
+
+		JSONArray list = new JSONArray();
+		list.put(row("system", "system", null));
+		list.put(row("brand", "set", "max"));
+		list.put(row("maker", "set", "min"));
+		list.put(row("synonym", "synonym", "mid"));
+		JSONObject config = new JSONObject();
+		config.put("dictionary", list);
+		config.put("loadThreads", 4);
+
+		for (int tries = 0; tries < 5; tries++) {
+			ProductNameDictionary dictionary = ProductNameDictionary.loadDictionary(base, config);
+			assertEquals(Arrays.asList("system", "brand", "maker", "synonym"),
+				new ArrayList<>(dictionary.getLoadTimes().keySet()));
+			assertEquals(new HashSet<>(Arrays.asList("brand", "maker", "synonym")), dictionary.getDictionaryMap().keySet());
+			assertTrue(dictionary.getDictionary("brand", SetDictionary.class).set().contains(new CharVector("갤럭시북")));
+
+			List<TagProb> tagProbs = dictionary.getSystemDictionary().find(new CharVector("갤럭시북"));
+			assertNotNull(tagProbs);
+			assertEquals(1, tagProbs.size());
+			assertEquals(TagProb.getProb("max"), tagProbs.get(0).prob(), 0);
+			assertNotNull(dictionary.getSystemDictionary().find(new CharVector("랩탑")));
+		}
+	}
+}
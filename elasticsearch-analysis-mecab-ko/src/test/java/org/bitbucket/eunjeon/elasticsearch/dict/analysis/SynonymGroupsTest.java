@@ -0,0 +1,126 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * 양방향 유사어 그룹이 모두 서로 유사어인 단어들만 묶고, 그룹으로 복원한 사전이 원래 사전과 같은지 확인한다.
+ */
+public class SynonymGroupsTest {
+
+	private static CharVector word(String word) {
+		return new CharVector(word, true);
+	}
+
+	private static List<String> toStrings(List<CharSequence> words) {
+		List<String> ret = new ArrayList<>();
+		for (CharSequence word : words) {
+			ret.add(String.valueOf(word));
+		}
+		return ret;
+	}
+
+	private static Map<String, Set<String>> toSorted(Map<CharSequence, CharSequence[]> map) {
+		Map<String, Set<String>> ret = new TreeMap<>();
+		for (Map.Entry<CharSequence, CharSequence[]> entry : map.entrySet()) {
+			Set<String> values = new TreeSet<>();
+			for (CharSequence value : entry.getValue()) {
+				values.add(String.valueOf(value));
+			}
+			ret.put(String.valueOf(entry.getKey()), values);
+		}
+		return ret;
+	}
+
+	/**
+	 * 복원한 데이터를 사전 색인에서 읽어 컴파일하는 것처럼 다시 적재한다.
+	 */
+	private static SynonymDictionary restore(SynonymDictionary dictionary) {
+		SynonymDictionary restored = new SynonymDictionary(true);
+		for (CharSequence line : ProductNameDictionary.getSynonymSourceLines(dictionary)) {
+			String[] kv = String.valueOf(line).split("\t");
+			restored.addSourceLineEntry(kv[0].length() > 0 ? line : kv[1]);
+		}
+		return restored;
+	}
+
+	private static void assertRestored(SynonymDictionary dictionary) {
+		assertEquals(toSorted(dictionary.map()), toSorted(restore(dictionary).map()));
+	}
+
+	@Test
+	public void testGroups() {
+		SynonymDictionary dictionary = new SynonymDictionary(true);
+		dictionary.addSourceLineEntry("노트북,랩탑,노트pc");
+		dictionary.addSourceLineEntry("모니터,디스플레이");
+		dictionary.addSourceLineEntry("tv\t티비");
+
+		SynonymGroups groups = dictionary.getSynonymGroups();
+		assertEquals(2, groups.size());
+		assertEquals(Arrays.asList("노트pc", "노트북", "랩탑"), toStrings(groups.group(word("노트북"))));
+		assertEquals(groups.group(word("노트북")), groups.group(word("랩탑")));
+		assertTrue(groups.inGroup(word("노트pc"), word("랩탑")));
+		assertFalse(groups.inGroup(word("노트북"), word("모니터")));
+		assertNull(groups.group(word("tv")));
+		assertEquals(-1, groups.groupId(word("티비")));
+		assertSame(groups, dictionary.getSynonymGroups());
+
+		assertTrue(ProductNameDictionary.isOneWaySynonym(word("tv"), dictionary));
+		assertFalse(ProductNameDictionary.isOneWaySynonym(word("노트북"), dictionary));
+		assertFalse(ProductNameDictionary.isOneWaySynonym(word("티비"), dictionary));
+
+		// 사전이 바뀌면 그룹을 다시 만든다.
+		dictionary.addSourceLineEntry("노트북\t넷북");
+		assertNotSame(groups, dictionary.getSynonymGroups());
+		assertTrue(ProductNameDictionary.isOneWaySynonym(word("노트북"), dictionary));
+		assertRestored(dictionary);
+	}
+
+	/**
+	 * A,B 와 B,C 는 A 와 C 가 유사어가 아니므로 하나의 그룹으로 묶지 않는다.
+	 */
+	@Test
+	public void testSharedWord() {
+		SynonymDictionary dictionary = new SynonymDictionary(true);
+		dictionary.addSourceLineEntry("a,b");
+		dictionary.addSourceLineEntry("b,c");
+
+		SynonymGroups groups = dictionary.getSynonymGroups();
+		assertEquals(Arrays.asList("a", "b"), toStrings(groups.group(word("a"))));
+		assertEquals(Arrays.asList("b", "c"), toStrings(groups.group(word("c"))));
+		assertNull(groups.group(word("b")));
+		assertFalse(groups.inGroup(word("a"), word("c")));
+		assertTrue(ProductNameDictionary.isOneWaySynonym(word("b"), dictionary));
+		assertFalse(ProductNameDictionary.isOneWaySynonym(word("a"), dictionary));
+
+		Set<CharSequence> lines = ProductNameDictionary.getSynonymSourceLines(dictionary);
+		assertFalse(lines.contains("\ta,b,c"));
+		SynonymDictionary restored = restore(dictionary);
+		assertEquals(toSorted(dictionary.map()), toSorted(restored.map()));
+		assertEquals(1, restored.map().get(word("a")).length);
+	}
+
+	@Test
+	public void testLongChain() {
+		SynonymDictionary dictionary = new SynonymDictionary(true);
+		int size = 50000;
+		for (int inx = 1; inx < size; inx++) {
+			dictionary.addSourceLineEntry("단어" + (inx - 1) + ",단어" + inx);
+		}
+		SynonymGroups groups = dictionary.getSynonymGroups();
+		assertEquals(Arrays.asList("단어0", "단어1"), toStrings(groups.group(word("단어0"))));
+		assertNull(groups.group(word("단어1")));
+		assertFalse(groups.inGroup(word("단어0"), word("단어" + (size - 1))));
+		assertRestored(dictionary);
+	}
+}
@@ -0,0 +1,111 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.PosTag;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.PosTagProbEntry.TagProb;
+import org.bitbucket.eunjeon.elasticsearch.util.CharVector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * HashMap 기반 TagProbDictionary 와 DoubleArrayTagProbDictionary 의 힙 사용량과 조회 속도를 비교한다.
+ *
+ * 사용법: TagProbDictionaryBenchmark [컴파일된 시스템사전 파일] [조회 반복 횟수]
+ * 파일을 지정하지 않으면 임의의 한글/영문 단어 30만개로 사전을 만든다.
+ */
+public class TagProbDictionaryBenchmark {
+	private static final String SYLLABLES = "가나다라마바사아자차카타파하삼성전자갤럭시노트북모니터냉장고세탁기청소기무선이어폰";
+	private static final PosTag[] TAGS = { PosTag.N, PosTag.N, PosTag.N, PosTag.V, PosTag.M, PosTag.J };
+
+	public static void main(String[] args) throws Exception {
+		File file = args.length > 0 && !"-".equals(args[0]) ? new File(args[0]) : null;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		long before = usedMemory();
+		TagProbDictionary hashDictionary = file != null ? new TagProbDictionary(file, true) : buildRandom(300000);
+		long hashBytes = usedMemory() - before;
+
+		before = usedMemory();
+		DoubleArrayTagProbDictionary arrayDictionary = DoubleArrayTagProbDictionary.build(hashDictionary);
+		long arrayBytes = usedMemory() - before;
+
+		System.out.println(String.format("entries: %d / %d", hashDictionary.size(), arrayDictionary.size()));
+		System.out.println(String.format("heap TagProbDictionary: %,d bytes", hashBytes));
+		System.out.println(String.format("heap DoubleArrayTagProbDictionary: %,d bytes (ramBytesUsed %,d), %.1fx",
+			arrayBytes, arrayDictionary.ramBytesUsed(), (double) hashBytes / Math.max(1, arrayBytes)));
+
+		// 사전에 있는 단어와 없는 단어를 절반씩 조회한다.
+		List<CharVector> queries = new ArrayList<>();
+		Random random = new Random(1);
+		for (CharSequence key : hashDictionary.getUnmodifiableDictionary().keySet()) {
+			queries.add(new CharVector(key.toString(), true));
+			queries.add(new CharVector(key.toString() + SYLLABLES.charAt(random.nextInt(SYLLABLES.length())), true));
+			if (queries.size() >= 200000) {
+				break;
+			}
+		}
+		verify(hashDictionary, arrayDictionary, queries);
+
+		for (int round = 0; round < 2; round++) {
+			report("TagProbDictionary", hashDictionary, queries, iterations);
+			report("DoubleArrayTagProbDictionary", arrayDictionary, queries, iterations);
+		}
+	}
+
+	private static TagProbDictionary buildRandom(int size) {
+		TagProbDictionary dictionary = new TagProbDictionary(true);
+		Random random = new Random(0);
+		StringBuilder line = new StringBuilder();
+		while (dictionary.size() < size) {
+			line.setLength(0);
+			int length = 2 + random.nextInt(5);
+			for (int inx = 0; inx < length; inx++) {
+				if (random.nextInt(8) == 0) {
+					line.append((char) ('A' + random.nextInt(26)));
+				} else {
+					line.append(SYLLABLES.charAt(random.nextInt(SYLLABLES.length())));
+				}
+			}
+			PosTag tag = TAGS[random.nextInt(TAGS.length)];
+			line.append('\t').append(tag.name()).append('\t').append(-5 - random.nextInt(10));
+			dictionary.addSourceEntry(line.toString());
+		}
+		return dictionary;
+	}
+
+	private static void verify(Dictionary<TagProb, ?> expected, Dictionary<TagProb, ?> actual, List<CharVector> queries) {
+		for (CharVector query : queries) {
+			List<TagProb> a = expected.find(query);
+			List<TagProb> b = actual.find(query);
+			if (a == null ? b != null : b == null || !a.toString().equals(b.toString())) {
+				throw new IllegalStateException("mismatch " + query + " : " + a + " / " + b);
+			}
+		}
+	}
+
+	private static void report(String name, Dictionary<TagProb, ?> dictionary, List<CharVector> queries, int iterations) {
+		long found = 0;
+		long st = System.nanoTime();
+		for (int iter = 0; iter < iterations; iter++) {
+			for (int inx = 0; inx < queries.size(); inx++) {
+				if (dictionary.find(queries.get(inx)) != null) {
+					found++;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - st;
+		System.out.println(String.format("%s found: %d, %.1f ns/lookup", name, found,
+			(double) elapsed / ((long) iterations * queries.size())));
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int inx = 0; inx < 3; inx++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,106 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.korean;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.DoubleArrayTagProbDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.TagProbDictionary;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 10~20 글자 상품명 어절의 분해 처리량(words/s)과 어절당 할당량(bytes/word)을 시스템사전 구현별로 비교한다.
+ * HashMap 사전은 길이별로 사전을 조회하고, 더블어레이 사전은 시작위치마다 트라이를 한번 따라간다.
+ * 어절 분해결과 캐시를 사용하는 경우(cached)와 반복마다 캐시를 비우는 경우를 함께 측정한다.
+ *
+ * 사용법: KoreanWordExtractorBenchmark [반복 횟수] [컴파일된 시스템사전 파일]
+ * 파일을 지정하지 않으면 KoreanWordExtractorTest 의 사전에 임의의 단어 20만개를 더해서 사용한다.
+ */
+public class KoreanWordExtractorBenchmark {
+	private static final String SYLLABLES = "가나다라마바사아자차카타파하삼성전자갤럭시노트북모니터냉장고세탁기청소기무선이어폰";
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		TagProbDictionary dictionary = args.length > 1 ? new TagProbDictionary(new File(args[1]), true) : buildDictionary();
+
+		// 사전 단어를 이어붙여서 10~20 글자 어절을 만든다.
+		Random random = new Random(1);
+		List<String> words = new ArrayList<>();
+		for (String line : KoreanWordExtractorTest.DICTIONARY) {
+			String word = line.split("\t")[0];
+			if (word.length() > 1) {
+				words.add(word);
+			}
+		}
+		List<char[]> inputs = new ArrayList<>();
+		StringBuilder buffer = new StringBuilder();
+		while (inputs.size() < 1000) {
+			buffer.setLength(0);
+			int target = 10 + random.nextInt(11);
+			while (buffer.length() < target) {
+				buffer.append(words.get(random.nextInt(words.size())));
+			}
+			buffer.setLength(Math.min(buffer.length(), 20));
+			inputs.add(buffer.toString().toCharArray());
+		}
+
+		ProductNameDictionary hashDictionary = new ProductNameDictionary(dictionary);
+		ProductNameDictionary doubleArrayDictionary = new ProductNameDictionary(DoubleArrayTagProbDictionary.build(dictionary));
+		for (int round = 0; round < 2; round++) {
+			for (boolean cached : new boolean[] { false, true }) {
+				run("TagProbDictionary", hashDictionary, inputs, iterations, cached);
+				run("DoubleArrayTagProbDictionary", doubleArrayDictionary, inputs, iterations, cached);
+			}
+		}
+	}
+
+	private static TagProbDictionary buildDictionary() {
+		TagProbDictionary dictionary = new TagProbDictionary(true);
+		for (String line : KoreanWordExtractorTest.DICTIONARY) {
+			dictionary.addSourceEntry(line);
+		}
+		Random random = new Random(0);
+		StringBuilder line = new StringBuilder();
+		for (int count = 0; count < 200000; count++) {
+			line.setLength(0);
+			int length = 2 + random.nextInt(5);
+			for (int inx = 0; inx < length; inx++) {
+				line.append(SYLLABLES.charAt(random.nextInt(SYLLABLES.length())));
+			}
+			line.append("\tNNG\t").append(-8 - random.nextInt(6));
+			dictionary.addSourceEntry(line.toString());
+		}
+		return dictionary;
+	}
+
+	private static void run(String name, ProductNameDictionary dictionary, List<char[]> inputs, int iterations,
+		boolean cached) {
+		KoreanWordExtractor extractor = new KoreanWordExtractor(dictionary);
+		WordExtractionCache cache = dictionary.getWordCache();
+		cache.clear();
+		long entries = 0;
+		long allocated = allocatedBytes();
+		long st = System.nanoTime();
+		for (int iter = 0; iter < iterations; iter++) {
+			if (!cached) {
+				cache.clear();
+			}
+			for (char[] input : inputs) {
+				extractor.setInput(input, input.length);
+				entries += extractor.extract().entryCount();
+			}
+		}
+		long elapsed = System.nanoTime() - st;
+		allocated = allocatedBytes() - allocated;
+		long words = (long) iterations * inputs.size();
+		System.out.println(String.format("%s%s entries: %d, time: %d ms, %.1f words/s, %.1f bytes/word", name,
+			cached ? "(cached)" : "", entries, elapsed / 1000000, words * 1e9 / elapsed, (double) allocated / words));
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+			.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,131 @@
+package org.bitbucket.eunjeon.elasticsearch.dict.korean;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.DoubleArrayTagProbDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.TagProbDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.korean.KoreanWordExtractor.ExtractedEntry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 상품명 어절의 분해 결과가 시스템사전 구현(HashMap, 더블어레이)과 관계없이 같은지 확인한다.
+ * 기대값은 사전을 음절 조합마다 조회하던 기존 분해기의 결과이다.
+ */
+public class KoreanWordExtractorTest {
+
+	static final String[] DICTIONARY = {
+		"삼성\tNNP\t-6", "전자\tNNG\t-7", "삼성전자\tNNP\t-5", "갤럭시\tNNP\t-6", "노트북\tNNG\t-6", "노트\tNNG\t-7",
+		"북\tNNG\t-9", "무선\tNNG\t-7", "이어폰\tNNG\t-6", "이어\tNNG\t-9", "폰\tNNG\t-8", "냉장고\tNNG\t-6",
+		"냉장\tNNG\t-9", "세탁기\tNNG\t-6", "세탁\tNNG\t-8", "청소기\tNNG\t-6", "청소\tNNG\t-7", "국내산\tNNG\t-7",
+		"국내\tNNG\t-7", "햇사과\tNNG\t-8", "사과\tNNG\t-7", "가정용\tNNG\t-7", "가정\tNNG\t-7", "대한\tNNG\t-8",
+		"민국\tNNG\t-10", "대한민국\tNNP\t-6", "블루투스\tNNG\t-6", "노이즈\tNNG\t-7", "캔슬링\tNNG\t-8", "충전\tNNG\t-7",
+		"케이스\tNNG\t-6", "고속\tNNG\t-7", "아동용\tNNG\t-7", "아동\tNNG\t-7", "겨울\tNNG\t-7", "패딩\tNNG\t-7",
+		"점퍼\tNNG\t-7", "오리털\tNNG\t-7", "오리\tNNG\t-8", "충전재\tNNG\t-8", "모니터\tNNG\t-6", "게이밍\tNNG\t-7",
+		"초경량\tNNG\t-8", "경량\tNNG\t-8", "알루미늄\tNNG\t-7", "바디\tNNG\t-7", "가볍\tVA\t-9", "얇\tVA\t-9",
+		"에서\tJKB\t-6", "으로\tJKB\t-6", "까지\tJX\t-7", "용\tXSN\t-8", "LG\tNNP\t-6", "그램\tNNG\t-7",
+		"GALAXY\tNNP\t-7", "BOOK\tNNG\t-8", "PRO\tNNG\t-8", "인치\tNNG\t-7"
+	};
+
+	static final String[] CORPUS = {
+		"삼성전자갤럭시노트북", "무선블루투스이어폰", "냉장고에서", "대한민국", "대한민국에서", "국내산햇사과",
+		"가정용세탁기", "노이즈캔슬링무선이어폰", "고속충전케이스", "아동용겨울패딩점퍼", "오리털충전재점퍼까지",
+		"게이밍모니터", "초경량알루미늄바디", "LG그램", "GALAXYBOOKPRO", "삼성세탁기청소기냉장고", "무선청소기",
+		"갤럭시노트", "햇사과가정용", "블루투스", "삼성", "폰", "에서", "청소기로", "전자레인지", "노트북케이스충전",
+		"대한민국삼성전자노트북", "겨울점퍼아동용으로", "세탁기세탁기세탁기세탁기", "오리털패딩",
+		"갤럭시S21", "55인치모니터", "LG그램17인치", "USB-C충전케이스"
+	};
+
+	static final String[] EXPECTED = {
+		"삼성전자:N + 갤럭시:N + 노트북:N",
+		"무선:N + 블루투스:N + 이어폰:N",
+		"냉장고:N + 에서:J",
+		"대한민국:N",
+		"대한민국:N + 에서:J",
+		"국내산:N + 햇사과:N",
+		"가정용:N + 세탁기:N",
+		"노이즈:N + 캔슬링:N + 무선:N + 이어폰:N",
+		"고속:N + 충전:N + 케이스:N",
+		"아동용:N + 겨울:N + 패딩:N + 점퍼:N",
+		"오리털:N + 충전재:N + 점퍼:N + 까지:J",
+		"게이밍:N + 모니터:N",
+		"초경량:N + 알루미늄:N + 바디:N",
+		"LG:N + 그램:N",
+		"GALAXY:N + BOOK:N + PRO:N",
+		"삼성:N + 세탁기:N + 청소기:N + 냉장고:N",
+		"무선:N + 청소기:N",
+		"갤럭시:N + 노트:N",
+		"햇사과:N + 가정용:N",
+		"블루투스:N",
+		"삼성:N",
+		"폰:N",
+		"에서:J",
+		"청소기:N + 로:J",
+		"전자:N + 레인지:UNK",
+		"노트북:N + 케이스:N + 충전:N",
+		"대한민국:N + 삼성전자:N + 노트북:N",
+		"겨울:N + 점퍼:N + 아동용:N + 으로:J",
+		"세탁기:N + 세탁기:N + 세탁기:N + 세탁기:N",
+		"오리털:N + 패딩:N",
+		"갤럭시S21:UNK",
+		"55:DIGIT + 인치:N + 모니터:N",
+		"LG:N + 그램:N + 17:DIGIT + 인치:N",
+		"USB-C충전케이스:UNK"
+	};
+
+	static ProductNameDictionary buildDictionary(boolean doubleArray) {
+		TagProbDictionary dictionary = new TagProbDictionary(true);
+		for (String line : DICTIONARY) {
+			dictionary.addSourceEntry(line);
+		}
+		if (doubleArray) {
+			return new ProductNameDictionary(DoubleArrayTagProbDictionary.build(dictionary));
+		}
+		return new ProductNameDictionary(dictionary);
+	}
+
+	static String extract(KoreanWordExtractor extractor, String word) {
+		char[] buffer = word.toCharArray();
+		extractor.setInput(buffer, buffer.length);
+		ExtractedEntry entry = extractor.extract();
+		return entry.getChainedShortString(buffer);
+	}
+
+	@Test
+	public void testHashDictionary() {
+		assertExtracted(new KoreanWordExtractor(buildDictionary(false)));
+	}
+
+	@Test
+	public void testDoubleArrayDictionary() {
+		assertExtracted(new KoreanWordExtractor(buildDictionary(true)));
+	}
+
+	@Test
+	public void testWordCache() {
+		ProductNameDictionary dictionary = buildDictionary(true);
+		KoreanWordExtractor extractor = new KoreanWordExtractor(dictionary);
+		WordExtractionCache cache = dictionary.getWordCache();
+		assertExtracted(extractor);
+		assertEquals(0, cache.getHitCount());
+		// 두번째부터는 캐시된 결과를 사용하며, 결과는 같아야 한다.
+		assertExtracted(extractor);
+		assertExtracted(new KoreanWordExtractor(dictionary));
+		assertEquals(CORPUS.length * 2, cache.getHitCount());
+		assertEquals(CORPUS.length, cache.size());
+		// 분해기 설정이 다르면 따로 저장한다.
+		KoreanWordExtractor slowExtractor = new KoreanWordExtractor(dictionary);
+		slowExtractor.setFastResultOption(false);
+		extract(slowExtractor, CORPUS[0]);
+		assertEquals(CORPUS.length + 1, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEstimatedBytes());
+	}
+
+	private void assertExtracted(KoreanWordExtractor extractor) {
+		for (int inx = 0; inx < CORPUS.length; inx++) {
+			assertEquals(CORPUS[inx], EXPECTED[inx], extract(extractor, CORPUS[inx]));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package org.bitbucket.eunjeon.elasticsearch.highlight;
+
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.TagProbDictionary;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 분석없이 하이라이팅 한 결과와 분석하여 하이라이팅 한 결과가 같은지 확인한다.
+ * 분석 결과를 비교하는 테스트는 mecab 사전이 필요하다.
+ */
+public class TermHighlighterTest {
+
+	private static final List<String> TAGS = Arrays.asList("<em>", "</em>");
+
+	private static final String[] CORPUS = {
+		"삼성전자 갤럭시북 NT950XDB-KC51S",
+		"삼성 NT950XDB 노트북",
+		"삼성 NT 950XDB",
+		"LG 그램 15Z90Q-GA5PK",
+		"애플 맥북에어 M2 MLY33KH/A",
+		"로지텍 MX Master 3S 무선 마우스",
+		"HP 파빌리온 15-eg2053TU",
+		"다이슨 V15 디텍트 무선청소기",
+	};
+
+	private static final String[][] TERMS = {
+		{ "NT" },
+		{ "NT950XDB" },
+		{ "노트북", "그램" },
+		{ "MX", "3S" },
+		{ "15" },
+		{ "무선" },
+	};
+
+	@Test
+	public void testHighlightDirectly() {
+		TermHighlighter highlighter = new TermHighlighter(Arrays.asList("nt", "nt950xdb", "노트북", "15"), TAGS);
+		assertEquals("삼성 <em>NT950XDB</em>-KC51S <em>노트북</em>",
+				highlighter.highlightDirectly("삼성 NT950XDB-KC51S 노트북"));
+		// 모델명 안의 영문/숫자는 토큰이 아니다.
+		assertEquals("<em>NT950XDB</em>", highlighter.highlightDirectly("NT950XDB"));
+		assertEquals("LG 그램 15Z90Q", highlighter.highlightDirectly("LG 그램 15Z90Q"));
+		assertEquals("<em>15</em>.6인치 &amp; &lt;B&gt;", highlighter.highlightDirectly("15.6인치 & <B>"));
+		// 한글이 이어지면 분석해야 한다.
+		assertNull(highlighter.highlightDirectly("삼성 노트북가방"));
+		assertNull(highlighter.highlightDirectly("삼성노트북"));
+		assertNull(highlighter.highlightDirectly("15인치"));
+	}
+
+	@Test
+	public void testLongTextIsNotAnalyzed() {
+		TermHighlighter highlighter = new TermHighlighter(Arrays.asList("NT950XDB"), TAGS);
+		StringBuilder text = new StringBuilder();
+		for (int inx = 0; inx < 20; inx++) {
+			text.append("삼성 NT950XDB ");
+		}
+		String highlighted = highlighter.highlight(text.toString());
+		assertEquals(text.toString().trim().replace("NT950XDB", "<em>NT950XDB</em>"), highlighted);
+		assertEquals(1, highlighter.getDirectCount());
+		assertEquals(0, highlighter.getAnalyzedCount());
+	}
+
+	@Test
+	public void testNotAnalyzedWithoutTerm() {
+		TermHighlighter highlighter = new TermHighlighter(Arrays.asList("NT950XDB"), TAGS);
+		assertEquals("LG 그램 15Z90Q-GA5PK", highlighter.highlight(" LG 그램 15Z90Q-GA5PK "));
+		assertEquals(1, highlighter.getDirectCount());
+		assertEquals(0, highlighter.getAnalyzedCount());
+	}
+
+	@Test
+	public void testSameAsAnalysis() {
+		ProductNameDictionary.publish(new ProductNameDictionary(new TagProbDictionary(true)));
+		for (String[] terms : TERMS) {
+			List<String> wordSet = Arrays.asList(terms);
+			TermHighlighter highlighter = new TermHighlighter(wordSet, TAGS);
+			for (String text : CORPUS) {
+				assertEquals(wordSet + " / " + text,
+						TermHighlighter.highlightByAnalysis(text, wordSet, TAGS.get(0), TAGS.get(1)),
+						highlighter.highlight(text));
+			}
+		}
+	}
+}
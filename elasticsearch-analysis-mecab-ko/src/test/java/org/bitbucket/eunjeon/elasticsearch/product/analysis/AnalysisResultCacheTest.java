@@ -0,0 +1,229 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.Test;
+import tokenattributes.ExtraTermAttribute;
+import tokenattributes.SynonymAttribute;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * 질의어 분석결과 캐시의 적중, 무효화, 메모리 제한과 분석결과 재현을 확인한다.
+ */
+public class AnalysisResultCacheTest {
+
+    private static final AnalyzerOption OPTION = new AnalyzerOption(true, true, true, false, false);
+
+    /**
+     * 텍스트를 공백 단위로 나누어 출력하는 스트림. 단어마다 동의어를, 두번째 단어부터는 앞 단어와 붙인 추가어를 출력한다.
+     */
+    private static final class WordStream extends TokenStream {
+        private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+        private final OffsetAttribute offsetAttribute = addAttribute(OffsetAttribute.class);
+        private final TypeAttribute typeAttribute = addAttribute(TypeAttribute.class);
+        private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+        private final SynonymAttribute synonymAttribute = addAttribute(SynonymAttribute.class);
+        private final ExtraTermAttribute extraTermAttribute = addAttribute(ExtraTermAttribute.class);
+        private final String text;
+        private final boolean fail;
+        private String[] words;
+        private int position;
+        private int offset;
+
+        WordStream(String text, boolean fail) {
+            this.text = text;
+            this.fail = fail;
+            extraTermAttribute.init(this);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (fail) {
+                throw new IOException("analysis failed");
+            }
+            if (position >= words.length) {
+                return false;
+            }
+            clearAttributes();
+            extraTermAttribute.init(this);
+            String word = words[position];
+            int start = text.indexOf(word, offset);
+            offset = start + word.length();
+            termAttribute.setEmpty().append(word);
+            offsetAttribute.setOffset(start, offset);
+            typeAttribute.setType(position % 2 == 0 ? "MODEL_NAME" : "<ALPHANUM>");
+            posIncrAtt.setPositionIncrement(position == 0 ? 1 : 2);
+            synonymAttribute.setSynonyms(Arrays.<CharSequence>asList(word + "_syn"));
+            if (position > 0) {
+                extraTermAttribute.addExtraTerm(words[position - 1] + word, "COMPOUND",
+                        Arrays.<CharSequence>asList(word + "_extra"));
+            }
+            position++;
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            offsetAttribute.setOffset(text.length(), text.length());
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            words = text.trim().split("\\s+");
+            position = 0;
+            offset = 0;
+        }
+    }
+
+    private static Supplier<TokenStream> analyzer(String text, AtomicInteger counter) {
+        return () -> {
+            counter.incrementAndGet();
+            return new WordStream(text, false);
+        };
+    }
+
+    /**
+     * 스트림이 출력하는 모든 속성을 문자열로 만든다. 추가어는 그 타입과 동의어까지 포함한다.
+     */
+    private static List<String> dump(TokenStream stream) throws IOException {
+        CharTermAttribute termAttr = stream.addAttribute(CharTermAttribute.class);
+        OffsetAttribute offAttr = stream.addAttribute(OffsetAttribute.class);
+        TypeAttribute typeAttr = stream.addAttribute(TypeAttribute.class);
+        PositionIncrementAttribute posIncrAttr = stream.addAttribute(PositionIncrementAttribute.class);
+        SynonymAttribute synAttr = stream.addAttribute(SynonymAttribute.class);
+        ExtraTermAttribute extAttr = stream.addAttribute(ExtraTermAttribute.class);
+        List<String> ret = new ArrayList<>();
+        try {
+            stream.reset();
+            while (stream.incrementToken()) {
+                ret.add(termAttr + ":" + offAttr.startOffset() + "-" + offAttr.endOffset() + ":" + typeAttr.type() +
+                        ":" + posIncrAttr.getPositionIncrement() + ":" + synAttr.getSynonyms());
+                for (Iterator<String> iter = extAttr.iterator(); iter.hasNext(); ) {
+                    String extra = iter.next();
+                    ret.add("+" + extra + ":" + typeAttr.type() + ":" + synAttr.getSynonyms());
+                }
+            }
+            stream.end();
+            ret.add("end:" + offAttr.endOffset());
+        } finally {
+            stream.close();
+        }
+        return ret;
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException {
+        AnalysisResultCache cache = new AnalysisResultCache();
+        AtomicInteger analyzed = new AtomicInteger();
+        String text = "삼성 갤럭시";
+        List<String> first = dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed)));
+        List<String> second = dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed)));
+        assertEquals(first, second);
+        assertEquals(1, analyzed.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        // 옵션이 다르면 따로 저장한다.
+        AnalyzerOption other = new AnalyzerOption(false, true, true, false, false);
+        cache.get(text, other, 1, 1, analyzer(text, analyzed)).close();
+        assertEquals(2, analyzed.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testInvalidateOnVersionChange() throws IOException {
+        AnalysisResultCache cache = new AnalysisResultCache();
+        AtomicInteger analyzed = new AtomicInteger();
+        String text = "노트북";
+        dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed)));
+        dump(cache.get(text, OPTION, 2, 1, analyzer(text, analyzed)));
+        assertEquals(2, analyzed.get());
+        assertEquals(1, cache.getInvalidationCount());
+        dump(cache.get(text, OPTION, 2, 2, analyzer(text, analyzed)));
+        assertEquals(3, analyzed.get());
+        assertEquals(2, cache.getInvalidationCount());
+        dump(cache.get(text, OPTION, 2, 2, analyzer(text, analyzed)));
+        assertEquals(3, analyzed.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testByteBound() throws IOException {
+        AtomicInteger analyzed = new AtomicInteger();
+        AnalysisResultCache probe = new AnalysisResultCache();
+        dump(probe.get("단어0 단어", OPTION, 1, 1, analyzer("단어0 단어", analyzed)));
+        long entryBytes = probe.getEstimatedBytes();
+        assertTrue(entryBytes > 0);
+
+        AnalysisResultCache cache = new AnalysisResultCache(entryBytes * 10, AnalysisResultCache.DEFAULT_MAX_TEXT_LENGTH);
+        for (int inx = 0; inx < 100; inx++) {
+            String text = "단어" + (inx % 10) + " 단어";
+            dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed)));
+            // 처음 단어는 계속 사용하므로 제거되지 않는다.
+            dump(cache.get("단어0 단어", OPTION, 1, 1, analyzer("단어0 단어", analyzed)));
+            text = "단어" + (10 + inx) + " 단어";
+            dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed)));
+            assertTrue(cache.getEstimatedBytes() <= cache.getMaxBytes());
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        int before = analyzed.get();
+        dump(cache.get("단어0 단어", OPTION, 1, 1, analyzer("단어0 단어", analyzed)));
+        assertEquals(before, analyzed.get());
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        AnalysisResultCache cache = new AnalysisResultCache();
+        AtomicInteger analyzed = new AtomicInteger();
+        String text = " 삼성  갤럭시 북 NT950XDB ";
+        List<String> expected = dump(new WordStream(text, false));
+        assertEquals(expected, dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed))));
+        assertEquals(expected, dump(cache.get(text, OPTION, 1, 1, analyzer(text, analyzed))));
+        assertEquals(1, analyzed.get());
+    }
+
+    @Test
+    public void testLongTextIsNotCached() throws IOException {
+        AnalysisResultCache cache = new AnalysisResultCache(AnalysisResultCache.DEFAULT_MAX_BYTES, 4);
+        AtomicInteger analyzed = new AtomicInteger();
+        String text = "긴 질의어 입니다";
+        TokenStream stream = cache.get(text, OPTION, 1, 1, analyzer(text, analyzed));
+        assertTrue(stream instanceof WordStream);
+        dump(stream);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testAnalysisFailure() {
+        AnalysisResultCache cache = new AnalysisResultCache();
+        AtomicInteger analyzed = new AtomicInteger();
+        try {
+            cache.get("오류", OPTION, 1, 1, () -> {
+                analyzed.incrementAndGet();
+                return new WordStream("오류", true);
+            });
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("analysis failed", e.getCause().getMessage());
+        }
+        // 실패한 분석을 다시 하지 않고, 결과를 저장하지도 않는다.
+        assertEquals(1, analyzed.get());
+        assertEquals(0, cache.size());
+    }
+}
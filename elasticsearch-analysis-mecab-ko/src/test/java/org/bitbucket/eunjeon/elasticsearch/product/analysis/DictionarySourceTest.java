@@ -0,0 +1,61 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.bitbucket.eunjeon.elasticsearch.product.analysis.ProductNameAnalysisAction.DictionarySource;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.search.SearchHit;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 사전색인 검색결과의 _source 를 Map 을 거치지 않고 사전 데이터로 읽는지 확인한다.
+ * 조회에 실패하면 일부만 읽은 결과를 반환하지 않고 예외를 던지는지 확인한다.
+ */
+public class DictionarySourceTest {
+
+	private static SearchHit hit(String source) {
+		return new SearchHit(1).sourceRef(new BytesArray(source));
+	}
+
+	@Test
+	public void testReadRow() throws IOException {
+		CharSequence[] row = DictionarySource.readRow(hit(
+			"{\"type\":\"SYNONYM\",\"keyword\":\"tv\",\"etc\":{\"value\":\"x\"},\"value\":\"티비,텔레비전\",\"id\":3}"));
+		assertEquals(3, row.length);
+		assertEquals("3", String.valueOf(row[0]));
+		assertEquals("tv", String.valueOf(row[1]));
+		assertEquals("티비,텔레비전", String.valueOf(row[2]));
+
+		row = DictionarySource.readRow(hit("{\"type\":\"SYNONYM\",\"value\":\"노트북,랩탑\"}"));
+		assertNull(row[0]);
+		assertNull(row[1]);
+		assertEquals("노트북,랩탑", String.valueOf(row[2]));
+	}
+
+	@Test
+	public void testReadFailure() {
+		// 클라이언트가 없으면 조회에 실패한다.
+		DictionarySource source = new DictionarySource(null, ".dsearch_dict");
+		try {
+			source.getSource("SYNONYM");
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("SYNONYM"));
+		}
+		try {
+			source.getSource("SYNONYM", Arrays.<CharSequence>asList("노트북"));
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("SYNONYM"));
+		}
+		try {
+			source.getSource("SYNONYM", 2);
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("SYNONYM"));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.CompoundDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.SetDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.SpaceDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.SynonymDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.TagProbDictionary;
+import org.junit.Test;
+import tokenattributes.TokenInfoAttribute;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 사전이 재적재되어도 분석중인 스트림은 reset 할 때 잡은 사전 스냅샷을 끝까지 사용하는지 확인한다.
+ */
+public class ProductNameDictionarySnapshotTest {
+
+    private static ProductNameDictionary buildDictionary(String... words) {
+        TagProbDictionary dictionary = new TagProbDictionary(true);
+        for (String word : words) {
+            dictionary.addSourceEntry(word + "\tNNG\t-7");
+        }
+        ProductNameDictionary productNameDictionary = new ProductNameDictionary(dictionary);
+        for (String id : new String[] { ProductNameDictionary.DICT_UNIT, ProductNameDictionary.DICT_USER,
+                ProductNameDictionary.DICT_STOP }) {
+            productNameDictionary.addDictionary(id, new SetDictionary(true));
+        }
+        productNameDictionary.addDictionary(ProductNameDictionary.DICT_SYNONYM, new SynonymDictionary(true));
+        productNameDictionary.addDictionary(ProductNameDictionary.DICT_UNIT_SYNONYM, new SynonymDictionary(true));
+        productNameDictionary.addDictionary(ProductNameDictionary.DICT_SPACE, new SpaceDictionary(true));
+        productNameDictionary.addDictionary(ProductNameDictionary.DICT_COMPOUND, new CompoundDictionary(true));
+        return productNameDictionary;
+    }
+
+    @Test
+    public void testSnapshotSwitchesOnReset() throws IOException {
+        ProductNameDictionary oldDictionary = ProductNameDictionary.publish(buildDictionary("삼성", "전자"));
+        assertEquals(oldDictionary.getSnapshotVersion(), ProductNameDictionary.getVersion());
+
+        ProductNameTokenizer tokenizer = new ProductNameTokenizer(oldDictionary, false);
+        TokenStream stream = new ProductNameAnalysisFilter(tokenizer, oldDictionary, new AnalyzerOption());
+        TokenInfoAttribute tokenAttribute = stream.getAttribute(TokenInfoAttribute.class);
+        CharTermAttribute termAttribute = stream.getAttribute(CharTermAttribute.class);
+
+        tokenizer.setReader(new StringReader("삼성전자 노트북"));
+        stream.reset();
+        assertSame(oldDictionary, tokenAttribute.dictionary());
+        assertTrue(stream.incrementToken());
+        // 분석 도중에 새 사전이 게시되어도 이번 스트림은 이전 사전으로 끝까지 분석한다.
+        ProductNameDictionary newDictionary = ProductNameDictionary.publish(buildDictionary("노트북"));
+        assertNotEquals(oldDictionary.getSnapshotVersion(), ProductNameDictionary.getVersion());
+        while (stream.incrementToken()) {
+            assertSame(oldDictionary, tokenAttribute.dictionary());
+        }
+        stream.end();
+        stream.close();
+
+        // 다음 스트림부터 새 사전을 사용한다.
+        tokenizer.setReader(new StringReader("삼성전자 노트북"));
+        stream.reset();
+        assertSame(newDictionary, tokenAttribute.dictionary());
+        assertSame(newDictionary, oldDictionary.latest());
+        List<String> terms = new ArrayList<>();
+        while (stream.incrementToken()) {
+            terms.add(termAttribute.toString());
+        }
+        stream.end();
+        stream.close();
+        assertTrue(terms.toString(), terms.contains("노트북"));
+    }
+
+    @Test
+    public void testUnpublishedDictionary() {
+        ProductNameDictionary dictionary = buildDictionary("삼성");
+        assertSame(dictionary, dictionary.latest());
+    }
+}
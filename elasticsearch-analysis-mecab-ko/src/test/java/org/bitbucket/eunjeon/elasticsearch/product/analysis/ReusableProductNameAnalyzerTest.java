@@ -0,0 +1,68 @@
+package org.bitbucket.eunjeon.elasticsearch.product.analysis;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.ProductNameDictionary;
+import org.bitbucket.eunjeon.elasticsearch.dict.analysis.TagProbDictionary;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 재사용 분석기가 옵션(필드)마다 스트림을 따로 재사용하고, 사전이 바뀌면 이전 분석기를 닫는지 확인한다.
+ */
+public class ReusableProductNameAnalyzerTest {
+
+    private static final AnalyzerOption QUERY = new AnalyzerOption(true, true, true, false, false);
+    private static final AnalyzerOption INDEX = new AnalyzerOption(false, true, true, false, false);
+
+    private static ProductNameDictionary newDictionary() {
+        return new ProductNameDictionary(new TagProbDictionary(true));
+    }
+
+    @Test
+    public void testReuseAcrossFields() throws Exception {
+        ReusableProductNameAnalyzer analyzer = new ReusableProductNameAnalyzer(newDictionary());
+        try {
+            TokenStream query = analyzer.tokenStream("삼성 노트북", QUERY);
+            query.close();
+            TokenStream index = analyzer.tokenStream("삼성 노트북", INDEX);
+            index.close();
+            assertNotSame(query, index);
+            // 같은 옵션이면 닫힌 스트림을 다시 사용한다.
+            TokenStream stream = analyzer.tokenStream("엘지 그램", QUERY);
+            assertSame(query, stream);
+            stream.close();
+            stream = analyzer.tokenStream("엘지 그램", INDEX);
+            assertSame(index, stream);
+            stream.close();
+        } finally {
+            analyzer.close();
+        }
+    }
+
+    @Test
+    public void testResetAfterDictionarySwap() throws Exception {
+        ProductNameDictionary first = newDictionary();
+        ReusableProductNameAnalyzer analyzer = ProductNameAnalyzerProvider.getReusableAnalyzer(first);
+        assertSame(first, analyzer.getDictionary());
+        assertSame(analyzer, ProductNameAnalyzerProvider.getReusableAnalyzer(first));
+        TokenStream stream = analyzer.tokenStream("삼성 노트북", QUERY);
+        stream.close();
+
+        ProductNameDictionary second = newDictionary();
+        ReusableProductNameAnalyzer swapped = ProductNameAnalyzerProvider.getReusableAnalyzer(second);
+        assertNotSame(analyzer, swapped);
+        assertSame(second, swapped.getDictionary());
+        // 이전 분석기는 닫혀서 이전 사전의 구성요소를 더 이상 내주지 않는다.
+        try {
+            analyzer.tokenStream("삼성 노트북", QUERY);
+            fail();
+        } catch (AlreadyClosedException expected) {
+        }
+        TokenStream reset = swapped.tokenStream("삼성 노트북", QUERY);
+        assertNotSame(stream, reset);
+        reset.close();
+        assertSame(swapped, ProductNameAnalyzerProvider.getReusableAnalyzer(second));
+    }
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.util.Set;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+
+/**
+ * Appendable 집합을 PosId의 ordinal로 인덱싱하는 boolean 행렬로 변환한 클래스.
+ * 연접 여부를 객체 생성이나 hash 계산 없이 배열 조회만으로 판단한다.
+ * 행렬은 생성 시점의 Appendable 집합으로 만들어지며 이후의 변경은 반영되지 않는다.
+ */
+public final class AppendableMatrix {
+  private static final int NUM_POS_IDS = PosId.values().length;
+
+  private final boolean[] matrix = new boolean[NUM_POS_IDS * NUM_POS_IDS];
+
+  public AppendableMatrix(Set<Appendable> appendableSet) {
+    for (Appendable appendable: appendableSet) {
+      matrix[index(appendable.getLeft(), appendable.getRight())] = true;
+    }
+  }
+
+  public boolean isAppendable(PosId left, PosId right) {
+    return matrix[index(left, right)];
+  }
+
+  private static int index(PosId left, PosId right) {
+    return left.ordinal() * NUM_POS_IDS + right.ordinal();
+  }
+}
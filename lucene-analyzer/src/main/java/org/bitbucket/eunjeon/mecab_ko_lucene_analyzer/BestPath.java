@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+/**
+ * BOS, EOS를 제외한 best path의 node 정보를 index로 읽는 인터페이스.
+ * TokenGenerator는 node 목록을 만든 방식(mecab-java 또는 JavaTagger)과 관계없이
+ * 이 인터페이스로 Pos를 만든다.
+ */
+interface BestPath {
+  /**
+   * BOS, EOS를 제외한 node의 수.
+   */
+  int size();
+
+  int getPosid(int index);
+
+  int getLength(int index);
+
+  int getRlength(int index);
+
+  /**
+   * 같은 사전 안에서 사전 항목을 구분하는 ID. FeatureCache의 key로 사용한다.
+   */
+  long getFeatureId(int index);
+
+  String getSurface(int index);
+
+  String getFeature(int index);
+}
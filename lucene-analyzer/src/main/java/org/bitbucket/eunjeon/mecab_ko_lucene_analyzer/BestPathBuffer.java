@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.chasen.mecab.Lattice;
+
+/**
+ * Lattice의 best path를 한 번의 JNI 호출로 direct ByteBuffer에 복사해서 읽는 클래스.
+ * node마다 getNext(), getSurface(), getFeature() 등을 호출하는 JNI 비용을 없앤다.
+ *
+ * 저장소에 포함된 mecab-java-0.996.tar.gz에 추가된 Lattice.serializeBestPath()를 사용하며,
+ * 이 메소드가 없는 mecab-java에서는 isSupported()가 false를 반환한다.
+ * 버퍼의 구조는 MeCab_wrap.cxx의 serializeBestPath 설명을 참조한다.
+ */
+final class BestPathBuffer implements BestPath {
+  static final int HEADER_SIZE = 4;
+  static final int RECORD_SIZE = 40;
+  private static final int POSID = 0;
+  private static final int STAT = 4;
+  private static final int LENGTH = 8;
+  private static final int RLENGTH = 12;
+  private static final int FEATURE_ID = 16;
+  private static final int SURFACE_OFFSET = 24;
+  private static final int FEATURE_OFFSET = 28;
+  private static final int FEATURE_LENGTH = 32;
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  private static final MethodHandle SERIALIZE_BEST_PATH = findSerializeBestPath();
+
+  private ByteBuffer buffer = allocate(INITIAL_CAPACITY);
+  private byte[] bytes = new byte[256];
+  private char[] chars = new char[256];
+  private int size;
+
+  /**
+   * 사용중인 mecab-java가 serializeBestPath()를 지원하는지 여부를 반환한다.
+   */
+  static boolean isSupported() {
+    return SERIALIZE_BEST_PATH != null;
+  }
+
+  private static MethodHandle findSerializeBestPath() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(
+          Lattice.class, "serializeBestPath",
+          MethodType.methodType(int.class, ByteBuffer.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static ByteBuffer allocate(int capacity) {
+    return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * 분석이 끝난 lattice의 best path를 버퍼로 읽는다.
+   * 버퍼가 부족하면 필요한 크기로 늘려서 다시 읽는다.
+   */
+  void fill(Lattice lattice) {
+    int written = serialize(lattice);
+    if (written < 0) {
+      buffer = allocate(Math.max(-written, buffer.capacity() * 2));
+      written = serialize(lattice);
+    }
+    size = buffer.getInt(0);
+  }
+
+  private int serialize(Lattice lattice) {
+    try {
+      return (int) SERIALIZE_BEST_PATH.invokeExact(lattice, buffer);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int getPosid(int index) {
+    return buffer.getInt(record(index) + POSID);
+  }
+
+  int getStat(int index) {
+    return buffer.getInt(record(index) + STAT);
+  }
+
+  @Override
+  public int getLength(int index) {
+    return buffer.getInt(record(index) + LENGTH);
+  }
+
+  @Override
+  public int getRlength(int index) {
+    return buffer.getInt(record(index) + RLENGTH);
+  }
+
+  /**
+   * 사전 항목의 feature 주소. 같은 Model 안에서 사전 항목을 구분하는 ID로 사용한다.
+   */
+  @Override
+  public long getFeatureId(int index) {
+    return buffer.getLong(record(index) + FEATURE_ID);
+  }
+
+  @Override
+  public String getSurface(int index) {
+    int offset = record(index);
+    return decode(buffer.getInt(offset + SURFACE_OFFSET),
+        buffer.getInt(offset + LENGTH));
+  }
+
+  @Override
+  public String getFeature(int index) {
+    int offset = record(index);
+    return decode(buffer.getInt(offset + FEATURE_OFFSET),
+        buffer.getInt(offset + FEATURE_LENGTH));
+  }
+
+  private static int record(int index) {
+    return HEADER_SIZE + index * RECORD_SIZE;
+  }
+
+  /**
+   * Node.getSurface()(JNI의 NewStringUTF())와 같이 modified UTF-8로 해석한다.
+   * mecab-java는 문장을 modified UTF-8로 넘기므로, 보조 문자(surrogate pair)와 '\0'은
+   * 표준 UTF-8로 해석하면 다른 문자열이 된다.
+   */
+  private String decode(int offset, int length) {
+    if (bytes.length < length) {
+      bytes = new byte[Math.max(length, bytes.length * 2)];
+      chars = new char[bytes.length];
+    }
+    // JDK 9 이상에서 target 1.8로 컴파일해도 Java 8의 Buffer.position(int)를 호출하도록
+    // Buffer로 변환한다.
+    ((Buffer) buffer).position(offset);
+    buffer.get(bytes, 0, length);
+    int numChars = 0;
+    for (int i = 0; i < length; numChars++) {
+      int b = bytes[i] & 0xff;
+      if (b < 0x80) {
+        chars[numChars] = (char) b;
+        i += 1;
+      } else if ((b & 0xe0) == 0xc0 && i + 1 < length) {
+        chars[numChars] = (char) (((b & 0x1f) << 6) | (bytes[i + 1] & 0x3f));
+        i += 2;
+      } else if ((b & 0xf0) == 0xe0 && i + 2 < length) {
+        chars[numChars] = (char) (((b & 0x0f) << 12) |
+            ((bytes[i + 1] & 0x3f) << 6) | (bytes[i + 2] & 0x3f));
+        i += 3;
+      } else {
+        // 사전에 들어있는 4 byte 문자 등은 표준 UTF-8로 해석한다.
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+    }
+    return new String(chars, 0, numChars);
+  }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * mecab-dict-index로 컴파일된 문자 종류 정의(char.bin)를 memory map으로 읽는 클래스.
+ *
+ * 파일은 문자 종류의 수(uint32), 문자 종류 이름(32 byte씩), UCS2 문자별 CharInfo
+ * (uint32, 0xffff개)로 구성된다. CharInfo는 mecab의 char_property.h와 같이 다음의
+ * bit field를 int 하나에 담은 값이다.
+ *   - type(18 bit): 문자가 속하는 문자 종류들의 bit 집합
+ *   - defaultType(8 bit): 미등록어 처리에 사용하는 대표 문자 종류
+ *   - length(4 bit), group(1 bit), invoke(1 bit): char.def의 미등록어 처리 방식
+ */
+final class CharProperty {
+  private static final int NAME_SIZE = 32;
+  private static final int NUM_CHARS = 0xffff;
+
+  private final ByteBuffer buffer;
+  private final String[] names;
+  private final int mapOffset;
+
+  CharProperty(File file) throws IOException {
+    buffer = MappedDictionary.map(file);
+    int csize = buffer.getInt(0);
+    if (4 + NAME_SIZE * (long) csize + 4L * NUM_CHARS != buffer.capacity()) {
+      throw new IOException("invalid file size: " + file);
+    }
+    names = new String[csize];
+    for (int i = 0; i < csize; i++) {
+      names[i] = readName(4 + i * NAME_SIZE);
+    }
+    mapOffset = 4 + csize * NAME_SIZE;
+  }
+
+  private String readName(int offset) {
+    int length = 0;
+    while (length < NAME_SIZE && buffer.get(offset + length) != 0) {
+      length++;
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 문자 종류의 이름. index는 CharInfo의 defaultType 값이다.
+   */
+  String[] getNames() {
+    return names.clone();
+  }
+
+  /**
+   * UCS2 문자의 CharInfo를 반환한다.
+   */
+  int getCharInfo(int code) {
+    if (code >= NUM_CHARS) {
+      code = 0;
+    }
+    return buffer.getInt(mapOffset + code * 4);
+  }
+
+  static int type(int charInfo) {
+    return charInfo & 0x3ffff;
+  }
+
+  static int defaultType(int charInfo) {
+    return (charInfo >>> 18) & 0xff;
+  }
+
+  static int length(int charInfo) {
+    return (charInfo >>> 26) & 0xf;
+  }
+
+  static boolean isGroup(int charInfo) {
+    return ((charInfo >>> 30) & 1) != 0;
+  }
+
+  static boolean isInvoke(int charInfo) {
+    return (charInfo >>> 31) != 0;
+  }
+
+  /**
+   * 두 문자가 같은 문자 종류에 속하는지 여부.
+   */
+  static boolean isKindOf(int charInfo, int other) {
+    return (type(charInfo) & type(other)) != 0;
+  }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader에서 고정된 크기의 window만큼 읽어서, 형태소 분석 결과가 바뀌지 않는 경계에서 잘라
+ * 조각(chunk) 단위로 반환하는 클래스.
+ *
+ * 경계는 다음의 우선 순위로 window의 뒤쪽 절반에서 찾는다.
+ *   1. 문장 부호(. ! ?) 뒤의 공백, 줄바꿈
+ *   2. 양쪽이 모두 한글이 아닌 공백
+ *   3. window 전체에서 아무 공백
+ * 경계를 찾지 못하면 window 크기에서 자른다.
+ */
+class ChunkReader {
+  private final char[] buffer;
+  private Reader input;
+  private int length;
+  private boolean eof;
+  private int chunkOffset;
+  private int nextChunkOffset;
+
+  ChunkReader(int maxChunkLength) {
+    buffer = new char[Math.max(maxChunkLength, 2)];
+  }
+
+  void reset(Reader input) {
+    this.input = input;
+    length = 0;
+    eof = false;
+    chunkOffset = 0;
+    nextChunkOffset = 0;
+  }
+
+  /**
+   * 다음 조각을 반환한다. 더 이상 읽을 내용이 없으면 null을 반환한다.
+   */
+  String next() throws IOException {
+    fill();
+    if (length == 0) {
+      return null;
+    }
+    int cut = (eof) ? length : findBoundary();
+    String chunk = new String(buffer, 0, cut);
+    System.arraycopy(buffer, cut, buffer, 0, length - cut);
+    length -= cut;
+    chunkOffset = nextChunkOffset;
+    nextChunkOffset += cut;
+    return chunk;
+  }
+
+  /**
+   * 마지막으로 반환한 조각의 문서 내 시작 offset.
+   */
+  int getChunkOffset() {
+    return chunkOffset;
+  }
+
+  /**
+   * 지금까지 반환한 조각들의 전체 길이.
+   */
+  int getConsumedLength() {
+    return nextChunkOffset;
+  }
+
+  private void fill() throws IOException {
+    while (!eof && length < buffer.length) {
+      int len = input.read(buffer, length, buffer.length - length);
+      if (len == -1) {
+        eof = true;
+      } else {
+        length += len;
+      }
+    }
+  }
+
+  private int findBoundary() {
+    int half = length / 2;
+    for (int i = length - 1; i >= half; i--) {
+      char c = buffer[i];
+      if (c == '\n' || (isSentenceEnd(buffer[i - 1]) && Character.isWhitespace(c))) {
+        return i + 1;
+      }
+    }
+    for (int i = length - 2; i >= half; i--) {
+      if (Character.isWhitespace(buffer[i]) &&
+          !(isHangul(buffer[i - 1]) && isHangul(buffer[i + 1]))) {
+        return i + 1;
+      }
+    }
+    for (int i = length - 1; i >= 1; i--) {
+      if (Character.isWhitespace(buffer[i])) {
+        return i + 1;
+      }
+    }
+    return Character.isHighSurrogate(buffer[length - 1]) ? length - 1 : length;
+  }
+
+  private static boolean isSentenceEnd(char c) {
+    return c == '.' || c == '!' || c == '?';
+  }
+
+  private static boolean isHangul(char c) {
+    return ('가' <= c && c <= '힣') || ('ㄱ' <= c && c <= 'ㆎ');
+  }
+}
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 
 /**
@@ -27,8 +28,8 @@ class Eojeol {
   private int compoundNounMinLength;
   private boolean hasCompoundNoun;
 
-  private LinkedList<Pos> posList = new LinkedList<Pos>();
-  private String term = "";
+  private ArrayList<Pos> posList = new ArrayList<Pos>();
+  private StringBuilder term = new StringBuilder();
 
   Eojeol(PosAppender appender, int compoundNounMinLength) {
     this.appender = appender;
@@ -45,7 +46,7 @@ class Eojeol {
       } else {
         posList.add(pos);
       }
-      term += pos.getSurface();
+      term.append(pos.getSurface());
       return true;
     } else {
       return false;
@@ -53,7 +54,8 @@ class Eojeol {
   }
 
   private boolean isAppendable(Pos pos) {
-    return posList.isEmpty() || appender.isAppendable(posList.getLast(), pos);
+    return posList.isEmpty() ||
+        appender.isAppendable(posList.get(posList.size() - 1), pos);
   }
 
   /**
@@ -81,16 +83,16 @@ class Eojeol {
     return posList.get(index);
   }
 
-  public LinkedList<Pos> getPosList() {
+  public ArrayList<Pos> getPosList() {
     return posList;
   }
 
   public String getTerm() {
-    return term;
+    return term.toString();
   }
 
   public int getStartOffset() {
-    return posList.getFirst().getStartOffset();
+    return posList.get(0).getStartOffset();
   }
 
   public boolean hasCompoundNoun() {
@@ -103,7 +105,15 @@ class Eojeol {
 
   public void clear() {
     posList.clear();
-    term = "";
+    term.setLength(0);
+  }
+
+  /**
+   * 새로운 어절을 구성할 수 있도록 복합명사 포함 여부까지 모두 초기화한다.
+   */
+  void reset() {
+    clear();
+    hasCompoundNoun = false;
   }
 
   @Override
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+
+/**
+ * 사전 항목별로 feature 문자열을 해석한 결과(ParsedFeature)를 저장하는 캐시.
+ *
+ * mecab-java의 Node는 사전의 단어 ID를 제공하지 않으므로 feature 문자열을 key로 사용한다.
+ * BestPathBuffer를 사용하는 경우에는 사전 안의 feature 주소를 ID로 사용한다.
+ * Model마다 하나씩 ModelHandle에 붙여서 사용하므로, 사전이 교체되면 새 캐시가 사용된다.
+ * key의 종류별로 먼저 나온 항목부터 MAX_SIZE개까지만 저장하며, 이후의 항목은 저장하지
+ * 않고 매번 해석한다.
+ */
+final class FeatureCache {
+  static final int MAX_SIZE = 65536;
+
+  private final ConcurrentHashMap<String, ParsedFeature> features =
+      new ConcurrentHashMap<>();
+  /** BestPathBuffer를 사용하는 경우, feature 주소(사전 항목 ID)를 key로 사용한다. */
+  private final ConcurrentHashMap<Long, ParsedFeature> featuresById =
+      new ConcurrentHashMap<>();
+
+  ParsedFeature get(String feature, PosId posId) {
+    ParsedFeature parsed = features.get(feature);
+    if (parsed != null && parsed.posId == posId) {
+      return parsed;
+    }
+    parsed = ParsedFeature.parse(feature, posId);
+    if (features.size() < MAX_SIZE) {
+      features.putIfAbsent(feature, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * 사전 항목 ID로 저장된 결과를 반환한다. 없으면 null을 반환한다.
+   */
+  ParsedFeature get(long featureId, PosId posId) {
+    ParsedFeature parsed = featuresById.get(featureId);
+    return (parsed != null && parsed.posId == posId) ? parsed : null;
+  }
+
+  void put(long featureId, ParsedFeature parsed) {
+    if (featuresById.size() < MAX_SIZE) {
+      featuresById.putIfAbsent(featureId, parsed);
+    }
+  }
+
+  int size() {
+    return features.size() + featuresById.size();
+  }
+}
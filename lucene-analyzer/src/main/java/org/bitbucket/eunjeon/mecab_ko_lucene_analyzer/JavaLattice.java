@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.util.Arrays;
+
+/**
+ * JavaTagger의 분석 상태와 결과를 담는 클래스. mecab의 Lattice에 해당한다.
+ *
+ * node는 객체 대신 index로 구분하고 속성은 배열에 저장하므로, 한 번 늘어난 배열은
+ * 다음 문장을 분석할 때 그대로 재사용된다. 위치와 길이는 mecab과 같이 문장을 UTF-8로
+ * 인코딩한 byte 단위이다. 하나의 Tokenizer에서만 사용하며 thread-safe 하지 않다.
+ */
+final class JavaLattice implements BestPath {
+  static final int NIL = -1;
+  static final int BOS = 0;
+  static final int NOR_NODE = 0;
+  static final int UNK_NODE = 1;
+  /** mecab의 Allocator::results_size()와 같은 commonPrefixSearch 결과의 최대 수 */
+  static final int RESULTS_SIZE = 512;
+  private static final int INITIAL_NODES = 256;
+
+  private JavaTagger tagger;
+  private String sentence;
+  /** mecab-java(JNI)와 같이 modified UTF-8로 인코딩한 문장 */
+  private byte[] bytes = new byte[256];
+  private int length;
+  /** byte 위치에 해당하는 문장의 char 위치 */
+  private int[] charIndexes = new int[257];
+
+  // node 속성
+  private int numNodes;
+  private int[] lcAttr = new int[INITIAL_NODES];
+  private int[] rcAttr = new int[INITIAL_NODES];
+  private int[] posid = new int[INITIAL_NODES];
+  private int[] wcost = new int[INITIAL_NODES];
+  private int[] feature = new int[INITIAL_NODES];
+  private int[] stat = new int[INITIAL_NODES];
+  private int[] begin = new int[INITIAL_NODES];
+  private int[] nodeLength = new int[INITIAL_NODES];
+  private int[] rlength = new int[INITIAL_NODES];
+  private int[] bnext = new int[INITIAL_NODES];
+  private int[] enext = new int[INITIAL_NODES];
+  private int[] prev = new int[INITIAL_NODES];
+  private long[] cost = new long[INITIAL_NODES];
+  /** 각 byte 위치에서 끝나는 node 목록의 첫 node */
+  private int[] endNodes = new int[260];
+
+  // JavaTagger.lookup()에서 사용하는 작업 공간
+  final int[] resultValues = new int[RESULTS_SIZE];
+  final int[] resultLengths = new int[RESULTS_SIZE];
+  /** 마지막으로 읽은 문자의 CharInfo와 byte 길이, seekToOtherType()으로 건너뛴 문자 수 */
+  int charInfo;
+  int mblen;
+  int clen;
+
+  /** BOS, EOS를 제외한 best path의 node */
+  private int[] path = new int[64];
+  private int pathSize;
+
+  /**
+   * 분석할 문장을 지정하고 이전 분석 결과를 지운다.
+   */
+  void setSentence(JavaTagger tagger, String sentence) {
+    this.tagger = tagger;
+    this.sentence = sentence;
+    encode(sentence);
+    // mecab과 같이 문장 끝을 넘어서 끝나는 미등록어 node를 위한 여유를 둔다.
+    if (endNodes.length < length + 4) {
+      endNodes = new int[length + 4];
+    }
+    Arrays.fill(endNodes, 0, length + 4, NIL);
+    numNodes = 0;
+    pathSize = 0;
+  }
+
+  /**
+   * JNI의 GetStringUTFChars()와 같은 modified UTF-8로 인코딩한다. surrogate pair는
+   * 각각 3 byte로, '\0'은 2 byte로 인코딩된다.
+   */
+  private void encode(String sentence) {
+    int maxLength = sentence.length() * 3;
+    if (bytes.length < maxLength) {
+      bytes = new byte[maxLength];
+      charIndexes = new int[maxLength + 1];
+    }
+    int pos = 0;
+    for (int i = 0; i < sentence.length(); i++) {
+      char c = sentence.charAt(i);
+      charIndexes[pos] = i;
+      if (c != 0 && c < 0x80) {
+        bytes[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[pos++] = (byte) (0xc0 | (c >> 6));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else {
+        bytes[pos++] = (byte) (0xe0 | (c >> 12));
+        bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    charIndexes[pos] = sentence.length();
+    length = pos;
+  }
+
+  byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * 인코딩된 문장의 byte 길이.
+   */
+  int getByteLength() {
+    return length;
+  }
+
+  /**
+   * 새 node를 만들고 index를 반환한다. BOS, EOS는 속성이 모두 0인 node이다.
+   */
+  int newNode(int lcAttr, int rcAttr, int posid, int wcost, int feature,
+              int stat, int begin, int length, int rlength) {
+    if (numNodes == this.lcAttr.length) {
+      grow();
+    }
+    int node = numNodes++;
+    this.lcAttr[node] = lcAttr;
+    this.rcAttr[node] = rcAttr;
+    this.posid[node] = posid;
+    this.wcost[node] = wcost;
+    this.feature[node] = feature;
+    this.stat[node] = stat;
+    this.begin[node] = begin;
+    this.nodeLength[node] = length;
+    this.rlength[node] = rlength;
+    this.bnext[node] = NIL;
+    this.enext[node] = NIL;
+    this.prev[node] = NIL;
+    this.cost[node] = 0;
+    return node;
+  }
+
+  private void grow() {
+    int size = lcAttr.length * 2;
+    lcAttr = Arrays.copyOf(lcAttr, size);
+    rcAttr = Arrays.copyOf(rcAttr, size);
+    posid = Arrays.copyOf(posid, size);
+    wcost = Arrays.copyOf(wcost, size);
+    feature = Arrays.copyOf(feature, size);
+    stat = Arrays.copyOf(stat, size);
+    begin = Arrays.copyOf(begin, size);
+    nodeLength = Arrays.copyOf(nodeLength, size);
+    rlength = Arrays.copyOf(rlength, size);
+    bnext = Arrays.copyOf(bnext, size);
+    enext = Arrays.copyOf(enext, size);
+    prev = Arrays.copyOf(prev, size);
+    cost = Arrays.copyOf(cost, size);
+  }
+
+  int getLcAttr(int node) {
+    return lcAttr[node];
+  }
+
+  int getRcAttr(int node) {
+    return rcAttr[node];
+  }
+
+  int getNodePosid(int node) {
+    return posid[node];
+  }
+
+  int getWcost(int node) {
+    return wcost[node];
+  }
+
+  boolean hasSpace(int node) {
+    return rlength[node] != nodeLength[node];
+  }
+
+  int getNodeRlength(int node) {
+    return rlength[node];
+  }
+
+  int getBnext(int node) {
+    return bnext[node];
+  }
+
+  void setBnext(int node, int next) {
+    bnext[node] = next;
+  }
+
+  long getCost(int node) {
+    return cost[node];
+  }
+
+  int getEndNodes(int pos) {
+    return endNodes[pos];
+  }
+
+  int getEnext(int node) {
+    return enext[node];
+  }
+
+  /**
+   * 비용이 가장 작은 이전 node를 연결하고, node를 끝 위치의 node 목록 앞에 추가한다.
+   */
+  void connect(int node, int prevNode, long cost, int endPos) {
+    this.prev[node] = prevNode;
+    this.cost[node] = cost;
+    this.enext[node] = endNodes[endPos];
+    endNodes[endPos] = node;
+  }
+
+  /**
+   * EOS node에서 BOS node까지 거슬러 올라가며 best path를 만든다.
+   */
+  void buildBestPath(int eosNode) {
+    pathSize = 0;
+    for (int node = prev[eosNode]; node != BOS; node = prev[node]) {
+      if (pathSize == path.length) {
+        path = Arrays.copyOf(path, pathSize * 2);
+      }
+      path[pathSize++] = node;
+    }
+    for (int i = 0, j = pathSize - 1; i < j; i++, j--) {
+      int tmp = path[i];
+      path[i] = path[j];
+      path[j] = tmp;
+    }
+  }
+
+  @Override
+  public int size() {
+    return pathSize;
+  }
+
+  @Override
+  public int getPosid(int index) {
+    return posid[path[index]];
+  }
+
+  int getStat(int index) {
+    return stat[path[index]];
+  }
+
+  @Override
+  public int getLength(int index) {
+    return nodeLength[path[index]];
+  }
+
+  @Override
+  public int getRlength(int index) {
+    return rlength[path[index]];
+  }
+
+  /**
+   * 사전 항목 ID. sys.dic과 unk.dic의 feature 위치가 겹치지 않도록 unk.dic의 항목은
+   * 상위 bit를 설정한다.
+   */
+  @Override
+  public long getFeatureId(int index) {
+    int node = path[index];
+    long id = feature[node] & 0xffffffffL;
+    return stat[node] == UNK_NODE ? id | (1L << 32) : id;
+  }
+
+  @Override
+  public String getSurface(int index) {
+    int node = path[index];
+    return sentence.substring(
+        charIndexes[begin[node]], charIndexes[begin[node] + nodeLength[node]]);
+  }
+
+  @Override
+  public String getFeature(int index) {
+    int node = path[index];
+    return tagger.getFeature(stat[node] == UNK_NODE, feature[node]);
+  }
+}
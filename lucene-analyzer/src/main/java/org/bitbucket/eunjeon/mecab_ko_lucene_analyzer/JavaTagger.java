@@ -0,0 +1,414 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.DictionaryFingerprint;
+
+/**
+ * native mecab 없이 컴파일된 mecab-ko-dic을 읽어서 형태소 분석을 하는 Java 구현.
+ *
+ * sys.dic, unk.dic, char.bin, matrix.bin을 memory map으로 읽고, mecab-ko의
+ * Tokenizer::lookup()과 Viterbi::viterbi()를 그대로 옮긴 방식으로 best path를 찾는다.
+ * 분석 결과는 BestPath로 읽으므로 TokenGenerator는 mecab-java를 사용할 때와 같은 Pos를
+ * 만든다.
+ *
+ * mecab 실행옵션 중에서는 사전 디렉터리(-d)만 사용한다. 사용자 사전(-u)과
+ * 사전 디렉터리를 지정하지 않은 경우(mecabrc의 기본 사전)는 지원하지 않는다.
+ * 사전 디렉터리마다 하나의 JavaTagger를 공유하며, JavaTagger는 thread-safe 하다.
+ * MeCabLoader와 같이 FINGERPRINT_CHECK_INTERVAL 마다 사전 파일의 지문을 확인하고,
+ * 사전이 바뀌었으면 새로 읽은 JavaTagger로 교체한다.
+ */
+final class JavaTagger {
+  private static final ConcurrentHashMap<String, JavaTagger> taggers =
+      new ConcurrentHashMap<>();
+  /** 사전 파일의 지문을 확인하는 최소 간격(ms) */
+  static final long FINGERPRINT_CHECK_INTERVAL = 1000;
+  private static final int DEFAULT_MAX_GROUPING_SIZE = 24;
+  private static final int MAX_LOOKUP_LENGTH = 65535;
+
+  private final MappedDictionary sysDic;
+  private final MappedDictionary unkDic;
+  private final CharProperty property;
+  private final ByteBuffer matrix;
+  private final int lsize;
+  private final int rsize;
+  /** 문자 종류(defaultType)별 미등록어 token의 검색 결과 value */
+  private final int[] unkTokens;
+  private final int spaceCharInfo;
+  private final int maxGroupingSize;
+  /** posid별 왼쪽 공백 비용. hasSpacePenalty가 false인 posid는 0이다. */
+  private final int[] spacePenalties = new int[0x10000];
+  private final boolean[] hasSpacePenalty = new boolean[0x10000];
+  private final FeatureCache featureCache = new FeatureCache();
+  private final String dicDir;
+  private final DictionaryFingerprint fingerprint;
+  private final AtomicLong nextCheckTime =
+      new AtomicLong(System.currentTimeMillis() + FINGERPRINT_CHECK_INTERVAL);
+  /** 읽어들이지 못한 사전의 지문. 사전이 다시 바뀔 때까지 읽지 않는다. */
+  private volatile DictionaryFingerprint rejectedFingerprint;
+
+  /**
+   * mecab 실행옵션에 지정된 사전 디렉터리의 최신 JavaTagger를 반환한다.
+   * 처음 요청된 사전은 이 때 memory map 한다.
+   */
+  static JavaTagger getInstance(String mecabArgs) {
+    String dicDir = DictionaryFingerprint.parseDicDir(mecabArgs);
+    if (dicDir == null) {
+      throw new IllegalArgumentException(
+          "JavaTagger requires a dictionary directory(-d): " + mecabArgs);
+    }
+    String key = new File(dicDir).getAbsolutePath();
+    JavaTagger tagger = taggers.get(key);
+    if (tagger == null) {
+      return taggers.computeIfAbsent(key, JavaTagger::load);
+    }
+    return tagger.latest();
+  }
+
+  private static JavaTagger load(String dicDir) {
+    try {
+      return new JavaTagger(new File(dicDir));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot load mecab dictionary: " + dicDir, e);
+    }
+  }
+
+  /**
+   * 사전 파일이 바뀌었으면 다시 읽은 JavaTagger를, 아니면 자신을 반환한다.
+   * 지문은 FINGERPRINT_CHECK_INTERVAL 마다 한 스레드만 확인하며, 교체하는 동안 다른
+   * 스레드는 자신을 그대로 사용한다. 교체된 JavaTagger의 FeatureCache는 비우지 않는다.
+   * 분석 중인 조각(ParsedChunk)이 아직 그 캐시를 참조하므로, JavaTagger와 함께 GC되게 둔다.
+   * 바뀐 사전을 읽지 못하면 그 지문을 기록해 두고, 사전이 다시 바뀔 때까지 자신을 사용한다.
+   */
+  JavaTagger latest() {
+    long now = System.currentTimeMillis();
+    long next = nextCheckTime.get();
+    if (now < next ||
+        !nextCheckTime.compareAndSet(next, now + FINGERPRINT_CHECK_INTERVAL)) {
+      return taggers.getOrDefault(dicDir, this);
+    }
+    DictionaryFingerprint latest = DictionaryFingerprint.of("-d " + dicDir);
+    if (latest.equals(fingerprint) || latest.equals(rejectedFingerprint)) {
+      return taggers.getOrDefault(dicDir, this);
+    }
+    return taggers.compute(dicDir, (key, current) -> {
+      if (current != null && current != this) {
+        // 다른 스레드가 이미 교체하였다.
+        return current;
+      }
+      try {
+        return new JavaTagger(new File(key));
+      } catch (IOException | RuntimeException e) {
+        rejectedFingerprint = latest;
+        return this;
+      }
+    });
+  }
+
+  JavaTagger(File dicDir) throws IOException {
+    this.dicDir = dicDir.getAbsolutePath();
+    // 파일을 읽는 중에 바뀌면 다음 확인에서 다시 읽도록 먼저 지문을 만든다.
+    fingerprint = DictionaryFingerprint.of("-d " + this.dicDir);
+    sysDic = new MappedDictionary(new File(dicDir, "sys.dic"));
+    unkDic = new MappedDictionary(new File(dicDir, "unk.dic"));
+    property = new CharProperty(new File(dicDir, "char.bin"));
+
+    File matrixFile = new File(dicDir, "matrix.bin");
+    matrix = MappedDictionary.map(matrixFile);
+    lsize = matrix.getShort(0) & 0xffff;
+    rsize = matrix.getShort(2) & 0xffff;
+    if (2 * (lsize * rsize + 2) != matrix.capacity()) {
+      throw new IOException("file size is invalid: " + matrixFile);
+    }
+
+    String[] names = property.getNames();
+    unkTokens = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      unkTokens[i] = unkDic.exactMatchSearch(
+          names[i].getBytes(StandardCharsets.UTF_8));
+      if (unkTokens[i] == -1) {
+        throw new IOException("cannot find UNK category: " + names[i]);
+      }
+    }
+    spaceCharInfo = property.getCharInfo(0x20);
+
+    Properties dicrc = loadDicrc(new File(dicDir, "dicrc"));
+    int groupingSize = Integer.decode(
+        dicrc.getProperty("max-grouping-size", "0").trim());
+    maxGroupingSize =
+        groupingSize == 0 ? DEFAULT_MAX_GROUPING_SIZE : groupingSize;
+    setLeftSpacePenaltyFactor(
+        dicrc.getProperty("left-space-penalty-factor", ""));
+  }
+
+  /**
+   * dicrc는 "이름 = 값" 형식이므로 Properties로 읽는다. ';'로 시작하는 줄은 주석이다.
+   */
+  private static Properties loadDicrc(File file) throws IOException {
+    Properties dicrc = new Properties();
+    if (file.exists()) {
+      try (Reader reader = new InputStreamReader(
+          new FileInputStream(file), StandardCharsets.UTF_8)) {
+        dicrc.load(reader);
+      }
+    }
+    return dicrc;
+  }
+
+  /**
+   * "posid,비용,posid,비용,..." 형식의 left-space-penalty-factor를 설정한다.
+   * mecab과 같이 같은 posid가 여러번 나오면 처음 값을 사용한다.
+   */
+  private void setLeftSpacePenaltyFactor(String factor) {
+    String[] columns = factor.split(",");
+    for (int i = 0; i + 1 < columns.length; i += 2) {
+      int posid = Integer.decode(columns[i].trim()) & 0xffff;
+      if (!hasSpacePenalty[posid]) {
+        hasSpacePenalty[posid] = true;
+        spacePenalties[posid] = Integer.decode(columns[i + 1].trim());
+      }
+    }
+  }
+
+  /**
+   * 사전 항목 ID로 feature 해석 결과를 저장하는 캐시. 사전마다 하나씩 사용한다.
+   */
+  FeatureCache getFeatureCache() {
+    return featureCache;
+  }
+
+  String getFeature(boolean unknown, int featureOffset) {
+    return (unknown ? unkDic : sysDic).getFeature(featureOffset);
+  }
+
+  /**
+   * sentence를 분석해서 best path를 lattice에 저장한다.
+   */
+  void parse(String sentence, JavaLattice lattice) {
+    lattice.setSentence(this, sentence);
+    int length = lattice.getByteLength();
+    int bos = lattice.newNode(0, 0, 0, 0, 0, JavaLattice.NOR_NODE, 0, 0, 0);
+    lattice.connect(bos, JavaLattice.NIL, 0, 0);
+
+    for (int pos = 0; pos < length; pos++) {
+      if (lattice.getEndNodes(pos) != JavaLattice.NIL) {
+        connect(lattice, pos, lookup(lattice, pos, length));
+      }
+    }
+
+    int eos = lattice.newNode(
+        0, 0, 0, 0, 0, JavaLattice.NOR_NODE, length, 0, 0);
+    for (int pos = length; pos >= 0; pos--) {
+      if (lattice.getEndNodes(pos) != JavaLattice.NIL) {
+        connect(lattice, pos, eos);
+        break;
+      }
+    }
+    lattice.buildBestPath(eos);
+  }
+
+  private void connect(JavaLattice lattice, int pos, int rnode) {
+    for (; rnode != JavaLattice.NIL; rnode = lattice.getBnext(rnode)) {
+      long bestCost = Integer.MAX_VALUE;
+      int bestNode = JavaLattice.NIL;
+      for (int lnode = lattice.getEndNodes(pos); lnode != JavaLattice.NIL;
+           lnode = lattice.getEnext(lnode)) {
+        long cost = lattice.getCost(lnode) + cost(lattice, lnode, rnode);
+        if (cost < bestCost) {
+          bestNode = lnode;
+          bestCost = cost;
+        }
+      }
+      if (bestNode == JavaLattice.NIL) {
+        throw new IllegalStateException("too long sentence.");
+      }
+      lattice.connect(
+          rnode, bestNode, bestCost, pos + lattice.getNodeRlength(rnode));
+    }
+  }
+
+  private int cost(JavaLattice lattice, int lnode, int rnode) {
+    int cost = matrix.getShort(
+        4 + 2 * (lattice.getRcAttr(lnode) + lsize * lattice.getLcAttr(rnode)));
+    cost += lattice.getWcost(rnode);
+    if (lattice.hasSpace(rnode)) {
+      cost += spacePenalties[lattice.getNodePosid(rnode)];
+    }
+    return cost;
+  }
+
+  /**
+   * begin 위치에서 시작하는 node 목록(bnext로 연결)의 첫 node를 반환한다.
+   * mecab-ko의 Tokenizer::lookup()과 같은 순서로 node를 만든다.
+   */
+  private int lookup(JavaLattice lattice, int begin, int end) {
+    byte[] bytes = lattice.getBytes();
+    int result = JavaLattice.NIL;
+    lattice.charInfo = 0;
+    lattice.mblen = 0;
+    lattice.clen = 0;
+
+    if (end - begin >= MAX_LOOKUP_LENGTH) {
+      end = begin + MAX_LOOKUP_LENGTH;
+    }
+
+    int begin2 = seekToOtherType(lattice, begin, end, spaceCharInfo);
+    int cinfo = lattice.charInfo;
+
+    int n = sysDic.commonPrefixSearch(bytes, begin2, end,
+        lattice.resultValues, lattice.resultLengths);
+    n = Math.min(n, JavaLattice.RESULTS_SIZE);
+    for (int i = 0; i < n; i++) {
+      int value = lattice.resultValues[i];
+      int token = MappedDictionary.tokenIndex(value);
+      int size = MappedDictionary.tokenSize(value);
+      int length = lattice.resultLengths[i];
+      for (int j = 0; j < size; j++) {
+        int node = newNode(lattice, sysDic, token + j, JavaLattice.NOR_NODE,
+            begin2, length, begin2 - begin + length);
+        lattice.setBnext(node, result);
+        result = node;
+      }
+    }
+
+    if (result != JavaLattice.NIL && !CharProperty.isInvoke(cinfo)) {
+      return result;
+    }
+
+    int begin3 = begin2 + lattice.mblen;
+    int groupBegin3 = -1;
+
+    if (begin3 > end) {
+      result = addUnknown(lattice, cinfo, begin, begin2, begin3, result);
+      if (result != JavaLattice.NIL) {
+        return result;
+      }
+    }
+
+    if (CharProperty.isGroup(cinfo)) {
+      int tmp = begin3;
+      begin3 = seekToOtherType(lattice, begin3, end, cinfo);
+      if (lattice.clen <= maxGroupingSize) {
+        result = addUnknown(lattice, cinfo, begin, begin2, begin3, result);
+      }
+      groupBegin3 = begin3;
+      begin3 = tmp;
+    }
+
+    for (int i = 1; i <= CharProperty.length(cinfo); i++) {
+      if (begin3 > end) {
+        break;
+      }
+      if (begin3 == groupBegin3) {
+        continue;
+      }
+      result = addUnknown(lattice, cinfo, begin, begin2, begin3, result);
+      if (!CharProperty.isKindOf(cinfo, getCharInfo(lattice, begin3, end))) {
+        break;
+      }
+      begin3 += lattice.mblen;
+    }
+
+    if (result == JavaLattice.NIL) {
+      result = addUnknown(lattice, cinfo, begin, begin2, begin3, result);
+    }
+    return result;
+  }
+
+  private int addUnknown(JavaLattice lattice, int cinfo,
+                         int begin, int begin2, int begin3, int result) {
+    int value = unkTokens[CharProperty.defaultType(cinfo)];
+    int token = MappedDictionary.tokenIndex(value);
+    int size = MappedDictionary.tokenSize(value);
+    for (int k = 0; k < size; k++) {
+      int node = newNode(lattice, unkDic, token + k, JavaLattice.UNK_NODE,
+          begin2, begin3 - begin2, begin3 - begin);
+      lattice.setBnext(node, result);
+      result = node;
+    }
+    return result;
+  }
+
+  private static int newNode(JavaLattice lattice, MappedDictionary dic,
+                             int token, int stat,
+                             int begin, int length, int rlength) {
+    return lattice.newNode(
+        dic.getLcAttr(token), dic.getRcAttr(token), dic.getPosid(token),
+        dic.getWcost(token), dic.getFeatureOffset(token), stat,
+        begin, length, rlength);
+  }
+
+  /**
+   * c와 같은 종류의 문자가 이어지는 동안 건너뛴다. 마지막으로 읽은 문자(처음으로 다른
+   * 종류인 문자)의 CharInfo는 lattice.charInfo에 담긴다. mecab과 같이 비교 대상 c는
+   * 앞 문자로 바뀐다.
+   */
+  private int seekToOtherType(JavaLattice lattice, int begin, int end, int c) {
+    int p = begin;
+    lattice.clen = 0;
+    while (p != end && CharProperty.isKindOf(
+        c, lattice.charInfo = getCharInfo(lattice, p, end))) {
+      p += lattice.mblen;
+      lattice.clen++;
+      c = lattice.charInfo;
+    }
+    return p;
+  }
+
+  /**
+   * begin 위치의 문자의 CharInfo를 반환하고, 문자의 byte 길이를 lattice.mblen에 담는다.
+   * mecab의 utf8_to_ucs2()와 같이 UCS2 범위를 벗어나는 문자는 0으로 읽는다.
+   * 문장의 끝에서는 C 문자열의 끝('\0')을 읽은 것으로 처리한다.
+   */
+  private int getCharInfo(JavaLattice lattice, int begin, int end) {
+    byte[] bytes = lattice.getBytes();
+    int len = end - begin;
+    int b0 = begin < lattice.getByteLength() ? bytes[begin] & 0xff : 0;
+    int code = 0;
+    if (b0 < 0x80) {
+      lattice.mblen = 1;
+      code = b0;
+    } else if (len >= 2 && (b0 & 0xe0) == 0xc0) {
+      lattice.mblen = 2;
+      code = ((b0 & 0x1f) << 6) | (bytes[begin + 1] & 0x3f);
+    } else if (len >= 3 && (b0 & 0xf0) == 0xe0) {
+      lattice.mblen = 3;
+      code = ((b0 & 0x0f) << 12) | ((bytes[begin + 1] & 0x3f) << 6) |
+          (bytes[begin + 2] & 0x3f);
+    } else if (len >= 4 && (b0 & 0xf8) == 0xf0) {
+      lattice.mblen = 4;
+    } else if (len >= 5 && (b0 & 0xfc) == 0xf8) {
+      lattice.mblen = 5;
+    } else if (len >= 6 && (b0 & 0xfe) == 0xfc) {
+      lattice.mblen = 6;
+    } else {
+      lattice.mblen = 1;
+    }
+    return property.getCharInfo(code);
+  }
+}
@@ -19,6 +19,7 @@ import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
 
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -63,13 +64,16 @@ public class KeywordSearchPosAppender extends PosAppender {
     appendableSet.add(new Appendable(PosId.XPN, PosId.UNKNOWN));
   }
 
+  static final AppendableMatrix appendableMatrix =
+      new AppendableMatrix(appendableSet);
+
   public KeywordSearchPosAppender(TokenizerOption option) {
     super(option);
   }
 
   @Override
   public boolean isAppendable(Pos left, Pos right) {
-    if (right.getNode() != null && right.hasSpace()) {
+    if (right.hasSpace()) {
       return false;
     }
     if (left.getPosId() == PosId.INFLECT &&
@@ -77,8 +81,8 @@ public class KeywordSearchPosAppender extends PosAppender {
             left.getStartPosId() == PosId.VV)) {
       return false;
     }
-    return appendableSet.contains(
-        new Appendable(left.getEndPosId(), right.getStartPosId()));
+    return appendableMatrix.isAppendable(
+        left.getEndPosId(), right.getStartPosId());
   }
 
   @Override
@@ -108,9 +112,9 @@ public class KeywordSearchPosAppender extends PosAppender {
   @Override
   public LinkedList<Pos> getTokensFrom(Eojeol eojeol) {
     LinkedList<Pos> output = new LinkedList<Pos>();
-    LinkedList<Pos> poses = eojeol.getPosList();
+    List<Pos> poses = eojeol.getPosList();
     if (poses.size() == 1) {
-      output.add(poses.getFirst());
+      output.add(poses.get(0));
     } else {
       Pos eojeolPos = new Pos(
           eojeol.getTerm(), PosId.EOJEOL, eojeol.getStartOffset(), 1, 1);
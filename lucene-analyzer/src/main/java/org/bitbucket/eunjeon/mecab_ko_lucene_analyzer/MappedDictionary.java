@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * mecab-dict-index로 컴파일된 사전 파일(sys.dic, unk.dic)을 memory map으로 읽는 클래스.
+ *
+ * 파일의 구조는 mecab의 dictionary.cpp와 같다.
+ *   - header: magic, version, type, lexsize, lsize, rsize, dsize, tsize, fsize, dummy
+ *     (각 4 byte), charset(32 byte)
+ *   - double array(dsize byte): base(int32), check(uint32) 쌍의 배열
+ *   - token(tsize byte): lcAttr, rcAttr, posid(uint16), wcost(int16), feature, compound(uint32)
+ *   - feature(fsize byte): '\0'으로 끝나는 feature 문자열들
+ * 파일은 사전을 컴파일한 장비의 byte order로 기록되므로 native byte order로 읽는다.
+ * 모든 읽기는 절대 위치로 하므로 여러 스레드에서 동시에 사용할 수 있다.
+ */
+final class MappedDictionary {
+  static final int MAGIC_ID = 0xef718f77;
+  static final int VERSION = 102;
+  private static final int HEADER_SIZE = 4 * 10 + 32;
+  private static final int UNIT_SIZE = 8;
+  private static final int TOKEN_SIZE = 16;
+
+  private final ByteBuffer buffer;
+  private final int numUnits;
+  private final int tokenOffset;
+  private final int featureOffset;
+  private final int lsize;
+  private final int rsize;
+
+  MappedDictionary(File file) throws IOException {
+    buffer = map(file);
+    int magic = buffer.getInt(0);
+    if ((magic ^ MAGIC_ID) != buffer.capacity()) {
+      throw new IOException("dictionary file is broken: " + file);
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("incompatible version: " + version);
+    }
+    lsize = buffer.getInt(16);
+    rsize = buffer.getInt(20);
+    int dsize = buffer.getInt(24);
+    int tsize = buffer.getInt(28);
+    int fsize = buffer.getInt(32);
+    if (HEADER_SIZE + dsize + tsize + fsize != buffer.capacity()) {
+      throw new IOException("dictionary file is broken: " + file);
+    }
+    numUnits = dsize / UNIT_SIZE;
+    tokenOffset = HEADER_SIZE + dsize;
+    featureOffset = tokenOffset + tsize;
+  }
+
+  /**
+   * 파일 전체를 읽기 전용으로 memory map 한다.
+   */
+  static ByteBuffer map(File file) throws IOException {
+    try (FileChannel channel =
+             FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer mapped =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return mapped.order(ByteOrder.nativeOrder());
+    }
+  }
+
+  int getLeftSize() {
+    return lsize;
+  }
+
+  int getRightSize() {
+    return rsize;
+  }
+
+  /**
+   * key[begin, end)의 접두사 중 사전에 있는 것을 짧은 순서대로 찾는다.
+   * darts의 commonPrefixSearch()와 같으며, 결과의 value와 길이(byte)를 배열에 담는다.
+   *
+   * @return 찾은 접두사의 수. 배열의 크기보다 클 수 있다.
+   */
+  int commonPrefixSearch(
+      byte[] key, int begin, int end, int[] values, int[] lengths) {
+    int b = base(0);
+    int num = 0;
+    for (int i = begin; i < end; i++) {
+      int n = base(b);
+      if (check(b) == b && n < 0) {
+        if (num < values.length) {
+          values[num] = -n - 1;
+          lengths[num] = i - begin;
+        }
+        num++;
+      }
+      int p = b + (key[i] & 0xff) + 1;
+      if (p < 0 || p >= numUnits || check(p) != b) {
+        return num;
+      }
+      b = base(p);
+    }
+    int n = base(b);
+    if (check(b) == b && n < 0) {
+      if (num < values.length) {
+        values[num] = -n - 1;
+        lengths[num] = end - begin;
+      }
+      num++;
+    }
+    return num;
+  }
+
+  /**
+   * key와 정확히 일치하는 항목의 value를 반환한다. 없으면 -1을 반환한다.
+   */
+  int exactMatchSearch(byte[] key) {
+    int b = base(0);
+    for (int i = 0; i < key.length; i++) {
+      int p = b + (key[i] & 0xff) + 1;
+      if (p < 0 || p >= numUnits || check(p) != b) {
+        return -1;
+      }
+      b = base(p);
+    }
+    int n = base(b);
+    return (check(b) == b && n < 0) ? -n - 1 : -1;
+  }
+
+  private int base(int index) {
+    return buffer.getInt(HEADER_SIZE + index * UNIT_SIZE);
+  }
+
+  private int check(int index) {
+    return buffer.getInt(HEADER_SIZE + index * UNIT_SIZE + 4);
+  }
+
+  /**
+   * 검색 결과 value가 가리키는 첫 token의 index.
+   */
+  static int tokenIndex(int value) {
+    return value >> 8;
+  }
+
+  /**
+   * 검색 결과 value가 가리키는 token의 수.
+   */
+  static int tokenSize(int value) {
+    return value & 0xff;
+  }
+
+  int getLcAttr(int token) {
+    return buffer.getShort(tokenOffset + token * TOKEN_SIZE) & 0xffff;
+  }
+
+  int getRcAttr(int token) {
+    return buffer.getShort(tokenOffset + token * TOKEN_SIZE + 2) & 0xffff;
+  }
+
+  int getPosid(int token) {
+    return buffer.getShort(tokenOffset + token * TOKEN_SIZE + 4) & 0xffff;
+  }
+
+  int getWcost(int token) {
+    return buffer.getShort(tokenOffset + token * TOKEN_SIZE + 6);
+  }
+
+  /**
+   * token의 feature 문자열의 위치. 사전 안에서 사전 항목을 구분하는 ID로도 사용한다.
+   */
+  int getFeatureOffset(int token) {
+    return buffer.getInt(tokenOffset + token * TOKEN_SIZE + 8);
+  }
+
+  String getFeature(int featureOffset) {
+    int begin = this.featureOffset + featureOffset;
+    int end = begin;
+    while (buffer.get(end) != 0) {
+      end++;
+    }
+    byte[] bytes = new byte[end - begin];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(begin + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -17,6 +17,7 @@ package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
 
 import java.io.IOException;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
@@ -28,9 +29,8 @@ import org.apache.lucene.util.AttributeFactory;
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.tokenattributes.PartOfSpeechAttribute;
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.tokenattributes.SemanticClassAttribute;
 import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
-import org.chasen.mecab.Lattice;
-import org.chasen.mecab.Model;
-import org.chasen.mecab.Tagger;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.ModelHandle;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.TaggerPool;
 
 /**
  * Lucene/Solr용 Tokenizer.
@@ -49,12 +49,19 @@ public final class MeCabKoTokenizer extends Tokenizer {
  
   private String document;
   private TokenizerOption option;
-  private Model model;
-  private Lattice lattice;
-  private Tagger tagger;
+  private ModelHandle modelHandle;
+  private TaggerPool.Entry mecab;
   private PosAppender posAppender;
-  private TokenGenerator generator;
+  private final TokenGenerator generator;
+  private boolean parsed;
   private Queue<Pos> tokensQueue;
+  private ChunkReader chunkReader;
+  private BestPathBuffer bestPath;
+  private JavaTagger javaTagger;
+  private JavaLattice javaLattice;
+  private ParallelParser parallelParser;
+  /** 문서를 나누어 동시에 분석하고 있는지 여부 */
+  private boolean parsingInParallel;
   
   /**
    * MeCabKoTokenizer 생성자.
@@ -88,14 +95,72 @@ public final class MeCabKoTokenizer extends Tokenizer {
     super(factory);
     posAppender = appender;
     this.option = option;
-    setMeCab();
+    if (option.useStreamingInput) {
+      chunkReader = new ChunkReader(option.streamingChunkLength);
+    }
+    generator = new TokenGenerator(appender, option.compoundNounMinLength);
+    if (option.useJavaTagger) {
+      setJavaTagger();
+    } else {
+      if (option.useBestPathBuffer && BestPathBuffer.isSupported()) {
+        bestPath = new BestPathBuffer();
+      }
+      setMeCab();
+    }
+    if (option.useParallelParsing && !option.useStreamingInput &&
+        (javaTagger != null || bestPath != null)) {
+      parallelParser = new ParallelParser(option.parallelChunkLength);
+    }
     setAttributes();
   }
 
   private void setMeCab() {
-    model = MeCabLoader.getModel(option.mecabArgs);
-    lattice = model.createLattice();
-    tagger = model.createTagger();
+    // 잘못된 mecab 실행옵션은 생성 시점에 오류를 낸다.
+    MeCabLoader.acquireModel(option.mecabArgs).release();
+  }
+
+  private void setJavaTagger() {
+    javaTagger = JavaTagger.getInstance(option.mecabArgs);
+    javaLattice = new JavaLattice();
+    generator.setFeatureCache(javaTagger.getFeatureCache());
+  }
+
+  /**
+   * 사전이 바뀌어 JavaTagger가 교체되었다면 최신 JavaTagger를 사용한다.
+   */
+  private void refreshJavaTagger() {
+    JavaTagger latest = javaTagger.latest();
+    if (latest != javaTagger) {
+      javaTagger = latest;
+      generator.setFeatureCache(javaTagger.getFeatureCache());
+    }
+  }
+
+  /**
+   * 최신 버전의 Model을 참조하고 그 Model의 pool에서 Tagger/Lattice 쌍을 대여한다.
+   * 대여한 쌍과 참조한 Model은 close()가 호출될 때 반환된다.
+   */
+  private void borrowMeCab() {
+    modelHandle = MeCabLoader.acquireModel(option.mecabArgs);
+    try {
+      mecab = modelHandle.getTaggerPool().borrow(
+          option.taggerBorrowTimeoutMillis, TimeUnit.MILLISECONDS);
+      generator.setFeatureCache(
+          modelHandle.getAttachment(FeatureCache.class, FeatureCache::new));
+    } catch (RuntimeException e) {
+      modelHandle.release();
+      modelHandle = null;
+      throw e;
+    }
+  }
+
+  private void returnMeCab() {
+    if (modelHandle != null) {
+      modelHandle.getTaggerPool().release(mecab);
+      modelHandle.release();
+      mecab = null;
+      modelHandle = null;
+    }
   }
   
   private void setAttributes() {
@@ -112,13 +177,24 @@ public final class MeCabKoTokenizer extends Tokenizer {
   public boolean incrementToken() throws IOException {
     clearAttributes();
     if (isBegin()) {
-      document = getDocument();
-      createTokenGenerator();
+      if (option.useStreamingInput) {
+        if (!parseNextChunk()) {
+          return false;
+        }
+      } else {
+        document = getDocument();
+        if (parallelParser != null &&
+            document.length() >= option.parallelParsingThreshold) {
+          submitParallelParsing();
+        } else {
+          createTokenGenerator();
+        }
+      }
     }
     
-    if (tokensQueue == null || tokensQueue.isEmpty()) {
+    while (tokensQueue == null || tokensQueue.isEmpty()) {
       tokensQueue = generator.getNextEojeolTokens();
-      if (tokensQueue == null) {
+      if (tokensQueue == null && !parseNextChunk()) {
         return false;
       }
     }
@@ -128,14 +204,78 @@ public final class MeCabKoTokenizer extends Tokenizer {
   }
 
   private boolean isBegin() {
-    return generator == null;
+    return !parsed;
   }
 
   private void createTokenGenerator() {
-    lattice.set_sentence(document);
-    tagger.parse(lattice);
-    this.generator = new TokenGenerator(
-        posAppender, option.compoundNounMinLength, lattice.bos_node());
+    createTokenGenerator(document, 0);
+  }
+
+  private void createTokenGenerator(String sentence, int startOffset) {
+    if (javaTagger != null) {
+      javaTagger.parse(sentence, javaLattice);
+      generator.reset(javaLattice, startOffset);
+      parsed = true;
+      return;
+    }
+    mecab.getLattice().set_sentence(sentence);
+    mecab.getTagger().parse(mecab.getLattice());
+    if (bestPath != null) {
+      bestPath.fill(mecab.getLattice());
+      generator.reset(bestPath, startOffset);
+    } else {
+      generator.reset(mecab.getLattice().bos_node(), startOffset);
+    }
+    parsed = true;
+  }
+
+  /**
+   * 문서의 조각들을 ParallelParser에서 동시에 분석하도록 요청하고 첫 조각을 읽는다.
+   */
+  private void submitParallelParsing() throws IOException {
+    if (javaTagger != null) {
+      parallelParser.submit(document, javaTagger);
+    } else {
+      parallelParser.submit(document, modelHandle, mecab,
+          option.taggerBorrowTimeoutMillis);
+    }
+    parsingInParallel = true;
+    parsed = true;
+    if (!parseNextChunk()) {
+      parsingInParallel = false;
+      createTokenGenerator();
+    }
+  }
+
+  private void cancelParallelParsing() {
+    if (parsingInParallel) {
+      parallelParser.cancel();
+      parsingInParallel = false;
+    }
+  }
+
+  /**
+   * 입력의 다음 조각을 분석한다. useStreamingInput이 아니거나 더 이상 분석할 조각이
+   * 없으면 false를 반환한다. 동시에 분석중인 경우에는 다음 조각의 분석 결과를 읽는다.
+   */
+  private boolean parseNextChunk() throws IOException {
+    if (parsingInParallel) {
+      ParsedChunk chunk = parallelParser.next();
+      if (chunk == null) {
+        return false;
+      }
+      generator.reset(chunk, chunk.getOffset());
+      return true;
+    }
+    if (!option.useStreamingInput) {
+      return false;
+    }
+    String chunk = chunkReader.next();
+    if (chunk == null) {
+      return false;
+    }
+    createTokenGenerator(chunk.toLowerCase(), chunkReader.getChunkOffset());
+    return true;
   }
   
   private void setAttributes(Pos token) {
@@ -144,9 +284,12 @@ public final class MeCabKoTokenizer extends Tokenizer {
     offsetAtt.setOffset(
         correctOffset(token.getStartOffset()),
         correctOffset(token.getEndOffset()));
-    String term = token.getTokenString();
-    charTermAtt.copyBuffer(term.toCharArray(), 0, term.length());
-    typeAtt.setType(token.getPosId().toString());
+    // CharTermAttribute의 buffer에 바로 복사하여 token마다 문자열을 만들지 않는다.
+    charTermAtt.setEmpty().append(token.getSurface());
+    if (token.hasPosIdSuffix()) {
+      charTermAtt.append('/').append(token.getPosId().name());
+    }
+    typeAtt.setType(token.getPosId().name());
     posAtt.setPartOfSpeech(token.getMophemes());
     semanticClassAtt.setSemanticClass(token.getSemanticClass());
   }
@@ -155,17 +298,37 @@ public final class MeCabKoTokenizer extends Tokenizer {
   public final void end() throws IOException {
     super.end();
     // set final offset
-    offsetAtt.setOffset(
-        correctOffset(document.length()), correctOffset(document.length()));
+    int finalOffset = option.useStreamingInput ?
+        chunkReader.getConsumedLength() : document.length();
+    offsetAtt.setOffset(correctOffset(finalOffset), correctOffset(finalOffset));
     document = null;
-    lattice.clear();
+    if (mecab != null) {
+      mecab.getLattice().clear();
+    }
   }
   
   @Override
   public final void reset() throws IOException {
     super.reset();
-    generator = null;
+    cancelParallelParsing();
+    if (javaTagger == null) {
+      returnMeCab();
+      borrowMeCab();
+    } else {
+      refreshJavaTagger();
+    }
+    parsed = false;
     tokensQueue = null;
+    if (option.useStreamingInput) {
+      chunkReader.reset(input);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    cancelParallelParsing();
+    returnMeCab();
   }
 
   private String getDocument() throws IOException {
@@ -173,7 +336,7 @@ public final class MeCabKoTokenizer extends Tokenizer {
     char[] tmp = new char[1024];
     int len;
     while ((len = input.read(tmp)) != -1) {
-      document.append(new String(tmp, 0, len));
+      document.append(tmp, 0, len);
     }
     return document.toString().toLowerCase();
   }
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.ModelHandle;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.TaggerPool;
+
+/**
+ * 긴 문서를 ChunkReader와 같은 경계에서 조각으로 나누고, 조각들을 공유 ForkJoinPool에서
+ * 동시에 분석하는 클래스. Tokenizer는 next()로 조각의 분석 결과를 문서 순서대로 읽는다.
+ *
+ * worker는 분석할 때마다 Model의 worker 전용 TaggerPool에서 Tagger/Lattice 쌍을 대여한다.
+ * 이 pool은 worker 스레드 수만큼의 쌍을 가지므로, Tokenizer가 자신의 쌍을 가진 채로
+ * 결과를 기다려도 worker는 대여를 기다리지 않는다. 그래도 시간 안에 대여하지 못한 조각은
+ * next()에서 Tokenizer의 쌍으로 직접 분석한다.
+ * BestPathBuffer와 JavaLattice는 worker 스레드마다 하나씩 재사용한다.
+ * pool의 크기는 CPU 수로 고정되어 있어서 동시에 분석중인 문서가 많아도 스레드가 늘지 않는다.
+ * 하나의 Tokenizer에서만 사용하며 thread-safe 하지 않다.
+ */
+final class ParallelParser {
+  private static final ThreadLocal<BestPathBuffer> bestPathBuffers =
+      ThreadLocal.withInitial(BestPathBuffer::new);
+  private static final ThreadLocal<JavaLattice> javaLattices =
+      ThreadLocal.withInitial(JavaLattice::new);
+
+  /** 처음 사용할 때 생성되는 공유 pool */
+  private static final class PoolHolder {
+    static final ForkJoinPool POOL =
+        new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  private final ChunkReader chunkReader;
+  private final ArrayList<ForkJoinTask<ParsedChunk>> tasks = new ArrayList<>();
+  /** worker가 분석하지 못했을 때 직접 분석할 조각과 그 offset */
+  private final ArrayList<String> chunks = new ArrayList<>();
+  private final ArrayList<Integer> offsets = new ArrayList<>();
+  private TaggerPool.Entry callerMecab;
+  private FeatureCache callerFeatureCache;
+  private BestPathBuffer callerBestPath;
+  private int nextTask;
+
+  ParallelParser(int chunkLength) {
+    chunkReader = new ChunkReader(chunkLength);
+  }
+
+  /**
+   * document의 조각들을 native mecab으로 분석하도록 요청한다.
+   *
+   * @param modelHandle 분석에 사용할 Model. worker는 이 Model의 worker 전용 pool에서 대여한다.
+   * @param mecab Tokenizer가 대여한 쌍. worker가 borrowTimeoutMillis 안에 대여하지 못한
+   *              조각은 next()를 호출한 스레드에서 이 쌍으로 분석한다.
+   */
+  void submit(String document, ModelHandle modelHandle, TaggerPool.Entry mecab,
+      long borrowTimeoutMillis) {
+    TaggerPool workerPool =
+        modelHandle.getWorkerTaggerPool(PoolHolder.POOL.getParallelism());
+    FeatureCache featureCache =
+        modelHandle.getAttachment(FeatureCache.class, FeatureCache::new);
+    callerMecab = mecab;
+    callerFeatureCache = featureCache;
+    split(document, (chunk, offset) -> () -> {
+      TaggerPool.Entry worker =
+          workerPool.tryBorrow(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+      if (worker == null) {
+        return null;
+      }
+      try {
+        return parse(worker, bestPathBuffers.get(), chunk, offset, featureCache);
+      } finally {
+        workerPool.release(worker);
+      }
+    });
+  }
+
+  private static ParsedChunk parse(TaggerPool.Entry mecab, BestPathBuffer bestPath,
+      String chunk, int offset, FeatureCache featureCache) {
+    mecab.getLattice().set_sentence(chunk);
+    mecab.getTagger().parse(mecab.getLattice());
+    bestPath.fill(mecab.getLattice());
+    return new ParsedChunk(bestPath, offset, featureCache);
+  }
+
+  /**
+   * document의 조각들을 JavaTagger로 분석하도록 요청한다.
+   */
+  void submit(String document, JavaTagger javaTagger) {
+    callerMecab = null;
+    split(document, (chunk, offset) -> () -> {
+      JavaLattice lattice = javaLattices.get();
+      javaTagger.parse(chunk, lattice);
+      return new ParsedChunk(lattice, offset, javaTagger.getFeatureCache());
+    });
+  }
+
+  private interface ChunkTaskFactory {
+    Callable<ParsedChunk> create(String chunk, int offset);
+  }
+
+  private void split(String document, ChunkTaskFactory factory) {
+    cancel();
+    chunkReader.reset(new StringReader(document));
+    try {
+      String chunk;
+      while ((chunk = chunkReader.next()) != null) {
+        int offset = chunkReader.getChunkOffset();
+        tasks.add(PoolHolder.POOL.submit(factory.create(chunk, offset)));
+        chunks.add(chunk);
+        offsets.add(offset);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * 다음 조각의 분석 결과를 반환한다. 분석이 끝나지 않았으면 기다린다.
+   * worker가 Tagger/Lattice 쌍을 대여하지 못한 조각은 호출한 스레드에서 분석한다.
+   * 더 이상 조각이 없으면 null을 반환한다.
+   */
+  ParsedChunk next() {
+    if (nextTask >= tasks.size()) {
+      return null;
+    }
+    int index = nextTask++;
+    ForkJoinTask<ParsedChunk> task = tasks.get(index);
+    String chunk = chunks.get(index);
+    tasks.set(index, null);
+    chunks.set(index, null);
+    ParsedChunk parsed = task.join();
+    if (parsed == null) {
+      if (callerBestPath == null) {
+        callerBestPath = new BestPathBuffer();
+      }
+      parsed = parse(callerMecab, callerBestPath, chunk, offsets.get(index),
+          callerFeatureCache);
+    }
+    return parsed;
+  }
+
+  /**
+   * 아직 읽지 않은 조각의 분석을 취소한다. 이미 분석중인 조각은 끝날 때까지 기다리므로,
+   * 반환된 후에는 대여한 Tagger/Lattice를 사용하는 worker가 없다.
+   */
+  void cancel() {
+    for (int i = nextTask; i < tasks.size(); i++) {
+      ForkJoinTask<ParsedChunk> task = tasks.get(i);
+      if (!task.cancel(false)) {
+        task.quietlyJoin();
+      }
+    }
+    tasks.clear();
+    chunks.clear();
+    offsets.clear();
+    nextTask = 0;
+  }
+}
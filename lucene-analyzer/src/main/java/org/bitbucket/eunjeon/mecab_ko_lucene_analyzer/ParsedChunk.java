@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+
+/**
+ * 문서의 한 조각을 분석한 best path를 복사해 둔 클래스.
+ *
+ * ParallelParser의 worker는 BestPathBuffer나 JavaLattice를 다음 조각의 분석에 다시
+ * 사용하므로, Tokenizer가 나중에 읽을 수 있도록 필요한 값만 복사한다. FeatureCache에
+ * 없는 feature는 worker에서 미리 해석해서 캐시에 넣어 둔다.
+ */
+final class ParsedChunk implements BestPath {
+  private final int offset;
+  private final int size;
+  private final int[] posids;
+  private final int[] lengths;
+  private final int[] rlengths;
+  private final long[] featureIds;
+  private final String[] surfaces;
+  /** 복사할 때 FeatureCache에 없었던 feature. 나머지는 null이다. */
+  private final String[] features;
+
+  /**
+   * @param bestPath 조각의 분석 결과
+   * @param offset 조각의 문서 내 시작 offset
+   * @param featureCache 분석에 사용한 사전의 FeatureCache
+   */
+  ParsedChunk(BestPath bestPath, int offset, FeatureCache featureCache) {
+    this.offset = offset;
+    size = bestPath.size();
+    posids = new int[size];
+    lengths = new int[size];
+    rlengths = new int[size];
+    featureIds = new long[size];
+    surfaces = new String[size];
+    features = new String[size];
+    for (int i = 0; i < size; i++) {
+      posids[i] = bestPath.getPosid(i);
+      lengths[i] = bestPath.getLength(i);
+      rlengths[i] = bestPath.getRlength(i);
+      featureIds[i] = bestPath.getFeatureId(i);
+      surfaces[i] = bestPath.getSurface(i);
+      PosId posId = PosId.convertFrom(posids[i]);
+      if (featureCache.get(featureIds[i], posId) == null) {
+        features[i] = bestPath.getFeature(i);
+        featureCache.put(featureIds[i], ParsedFeature.parse(features[i], posId));
+      }
+    }
+  }
+
+  /**
+   * 조각의 문서 내 시작 offset.
+   */
+  int getOffset() {
+    return offset;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int getPosid(int index) {
+    return posids[index];
+  }
+
+  @Override
+  public int getLength(int index) {
+    return lengths[index];
+  }
+
+  @Override
+  public int getRlength(int index) {
+    return rlengths[index];
+  }
+
+  @Override
+  public long getFeatureId(int index) {
+    return featureIds[index];
+  }
+
+  @Override
+  public String getSurface(int index) {
+    return surfaces[index];
+  }
+
+  @Override
+  public String getFeature(int index) {
+    return features[index];
+  }
+}
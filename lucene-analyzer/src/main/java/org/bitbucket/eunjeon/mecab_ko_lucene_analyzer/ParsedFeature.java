@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.Pos.NodeIndex;
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+
+/**
+ * mecab node의 feature 문자열을 해석한 결과. 같은 사전 항목은 항상 같은 결과를 가지므로
+ * FeatureCache에 저장하여 여러 스레드가 공유한다. 생성 후에는 변경되지 않는다.
+ */
+final class ParsedFeature {
+  final PosId posId;
+  final String pos;
+  final String semanticClass;
+  final PosId startPosId;
+  final PosId endPosId;
+  final String expression;
+  /** 복합명사(COMPOUND)를 구성하는 명사의 수. 그 외에는 1이다. */
+  final int positionLength;
+  /**
+   * expression을 '+'와 '/'로 나눈 형태소 목록.
+   * ex) 갔/VV+ㅏㅆ/EP -> [[갔, VV], [ㅏㅆ, EP]]
+   * expression이 없으면 null이다.
+   */
+  final String[][] morphemes;
+
+  private ParsedFeature(
+      PosId posId, String pos, String semanticClass,
+      PosId startPosId, PosId endPosId, String expression, int positionLength) {
+    this.posId = posId;
+    this.pos = pos;
+    this.semanticClass = semanticClass;
+    this.startPosId = startPosId;
+    this.endPosId = endPosId;
+    this.expression = expression;
+    this.positionLength = positionLength;
+    this.morphemes = splitMorphemes(expression);
+  }
+
+  static ParsedFeature parse(String feature, PosId posId) {
+    String[] items = feature.split(",");
+    String pos = Pos.intern(items[NodeIndex.POS]);
+    String semanticClass =
+        Pos.convertSemanticClass(items[NodeIndex.SEMANTIC_CLASS]);
+    if (posId == PosId.INFLECT || posId == PosId.PREANALYSIS) {
+      return new ParsedFeature(
+          posId, pos, semanticClass,
+          PosId.convertFrom(items[NodeIndex.START_POS].toUpperCase()),
+          PosId.convertFrom(items[NodeIndex.END_POS].toUpperCase()),
+          items[NodeIndex.EXPRESSION], 1);
+    } else if (posId == PosId.COMPOUND) {
+      String expression = items[NodeIndex.EXPRESSION];
+      return new ParsedFeature(
+          posId, pos, semanticClass, PosId.NNG, PosId.NNG,
+          expression, expression.split("\\+").length);
+    } else {
+      return new ParsedFeature(
+          posId, pos, semanticClass, posId, posId, null, 1);
+    }
+  }
+
+  static String[][] splitMorphemes(String expression) {
+    if (expression == null) {
+      return null;
+    }
+    String[] posExps = expression.split("\\+");
+    String[][] morphemes = new String[posExps.length][];
+    for (int i = 0; i < posExps.length; i++) {
+      morphemes[i] = posExps[i].split("/");
+    }
+    return morphemes;
+  }
+}
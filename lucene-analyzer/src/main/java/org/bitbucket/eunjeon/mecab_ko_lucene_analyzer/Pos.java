@@ -15,6 +15,8 @@
  ******************************************************************************/
 package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
 import org.chasen.mecab.Node;
 
@@ -24,6 +26,10 @@ import org.chasen.mecab.Node;
  * @author bibreen <bibreen@gmail.com>
  */
 public class Pos {
+  private static final int MAX_INTERNED_STRINGS = 4096;
+  private static final ConcurrentHashMap<String, String> INTERNED_STRINGS =
+      new ConcurrentHashMap<>();
+
   private String surface;
   private String semanticClass;
   private String pos;
@@ -35,6 +41,8 @@ public class Pos {
   private int positionLength;
   private String expression;
   private Node node;
+  private int spaceLength;
+  private ParsedFeature feature;
   
   // index_expression
   public static class ExpressionIndex {
@@ -70,6 +78,12 @@ public class Pos {
     this.positionLength = positionLength;
   }
   
+  /**
+   * 빈 Pos 생성자. TokenGenerator의 pool에서 set()으로 값을 채워서 사용한다.
+   */
+  Pos() {
+  }
+
   /**
    * mecab의 자료 구조인 node를 사용하는 Pos 생성자.
    * 
@@ -77,13 +91,52 @@ public class Pos {
    * @param prevEndOffset 이전 Pos의 end offset
    */
   public Pos(Node node, int prevEndOffset) {
-    this(
-        node.getSurface(),
-        PosId.convertFrom(node.getPosid()),
-        prevEndOffset + node.getRlength() - node.getLength(),
-        1, 1);
+    set(node, prevEndOffset, null);
+  }
+
+  /**
+   * node의 정보로 모든 필드를 다시 설정한다. TokenGenerator가 Pos 객체를 재사용할 때
+   * 사용한다.
+   *
+   * @param featureCache feature 문자열의 해석 결과를 저장하는 캐시. null이면 매번 해석한다.
+   */
+  Pos set(Node node, int prevEndOffset, FeatureCache featureCache) {
+    this.surface = node.getSurface();
+    this.posId = PosId.convertFrom(node.getPosid());
+    this.startOffset = prevEndOffset + node.getRlength() - node.getLength();
+    this.positionIncr = 1;
     this.node = node;
-    parseFeatureString();
+    this.spaceLength = node.getRlength() - node.getLength();
+    String featureString = node.getFeature();
+    setFeature(featureCache != null ?
+        featureCache.get(featureString, posId) :
+        ParsedFeature.parse(featureString, posId));
+    return this;
+  }
+
+  /**
+   * best path의 index번째 node의 정보로 모든 필드를 다시 설정한다.
+   * feature 문자열은 캐시에 없는 사전 항목인 경우에만 읽는다.
+   */
+  Pos set(BestPath bestPath, int index, int prevEndOffset,
+          FeatureCache featureCache) {
+    this.surface = bestPath.getSurface(index);
+    this.posId = PosId.convertFrom(bestPath.getPosid(index));
+    this.spaceLength = bestPath.getRlength(index) - bestPath.getLength(index);
+    this.startOffset = prevEndOffset + spaceLength;
+    this.positionIncr = 1;
+    this.node = null;
+    long featureId = bestPath.getFeatureId(index);
+    ParsedFeature parsed =
+        (featureCache != null) ? featureCache.get(featureId, posId) : null;
+    if (parsed == null) {
+      parsed = ParsedFeature.parse(bestPath.getFeature(index), posId);
+      if (featureCache != null) {
+        featureCache.put(featureId, parsed);
+      }
+    }
+    setFeature(parsed);
+    return this;
   }
   
   /**
@@ -93,11 +146,17 @@ public class Pos {
    * ex) 판교/NNP/지명
    */
   public Pos(String expression, int startOffset) {
+    this(expression.split("/"), startOffset);
+  }
+
+  /**
+   * Pos를 표현하는 문자열을 '/'로 나눈 배열을 받는 Pos 생성자.
+   */
+  Pos(String[] datas, int startOffset) {
     try {
-      String[] datas = expression.split("/");
       this.surface = datas[ExpressionIndex.TERM];
       this.posId = PosId.convertFrom(datas[ExpressionIndex.TAG]);
-      this.pos = datas[ExpressionIndex.TAG];
+      this.pos = intern(datas[ExpressionIndex.TAG]);
       this.semanticClass = convertSemanticClass(datas[ExpressionIndex.SEMANTIC_CLASS]);
       startPosId = posId;
       endPosId = posId;
@@ -109,33 +168,14 @@ public class Pos {
     }
   }
   
-  private void parseFeatureString() {
-    String feature = node.getFeature();
-
-    String features[] = node.getFeature().split(",");
-    this.pos = features[NodeIndex.POS];
-    this.semanticClass = convertSemanticClass(features[NodeIndex.SEMANTIC_CLASS]);
-
-    String items[] = feature.split(",");
-    if (posId == PosId.INFLECT || posId == PosId.PREANALYSIS) {
-      this.startPosId = PosId.convertFrom(items[NodeIndex.START_POS].toUpperCase());
-      this.endPosId = PosId.convertFrom(items[NodeIndex.END_POS].toUpperCase());
-      expression = items[NodeIndex.EXPRESSION];
-    } else if (posId == PosId.COMPOUND){
-      this.startPosId = PosId.NNG;
-      this.endPosId = PosId.NNG;
-      this.positionLength =
-          getCompoundNounPositionLength(items[NodeIndex.EXPRESSION]);
-      expression = items[NodeIndex.EXPRESSION];
-    } else {
-      this.startPosId = posId;
-      this.endPosId = posId;
-    }
-  }
-  
-  private int getCompoundNounPositionLength(String indexExpression) {
-    String[] tokens = indexExpression.split("\\+");
-    return tokens.length;
+  private void setFeature(ParsedFeature feature) {
+    this.feature = feature;
+    this.pos = feature.pos;
+    this.semanticClass = feature.semanticClass;
+    this.startPosId = feature.startPosId;
+    this.endPosId = feature.endPosId;
+    this.expression = feature.expression;
+    this.positionLength = feature.positionLength;
   }
 
   public Pos append(Pos pos, PosId posId, int positionIncr) {
@@ -171,13 +211,18 @@ public class Pos {
   }
 
   public String getTokenString() {
-    switch (posId) {
-      case VV:
-      case VA:
-        return surface + '/' + posId.toString();
-      default:
-        return surface;
+    if (hasPosIdSuffix()) {
+      return surface + '/' + posId.toString();
     }
+    return surface;
+  }
+
+  /**
+   * token 문자열이 surface 뒤에 '/'와 PosId를 붙인 형태인지 여부를 반환한다.
+   * (동사, 형용사 원형)
+   */
+  public boolean hasPosIdSuffix() {
+    return posId == PosId.VV || posId == PosId.VA;
   }
   
   public int getSurfaceLength() {
@@ -196,6 +241,17 @@ public class Pos {
     return expression;
   }
 
+  /**
+   * expression을 '+'와 '/'로 나눈 형태소 목록을 반환한다. expression이 없으면 null이다.
+   * node로 생성한 Pos는 미리 해석된 결과를 사용하므로 반환된 배열을 변경해서는 안된다.
+   */
+  String[][] getMorphemes() {
+    if (feature != null) {
+      return feature.morphemes;
+    }
+    return ParsedFeature.splitMorphemes(expression);
+  }
+
   public int getStartOffset() {
     return startOffset;
   }
@@ -212,9 +268,11 @@ public class Pos {
     return positionLength;
   }
   
+  /**
+   * 형태소 앞의 공백 길이. mecab의 분석 결과로 생성된 Pos에서만 0보다 클 수 있다.
+   */
   public int getSpaceLength() {
-    if (node == null) return 0;
-    return node.getRlength() - node.getLength(); 
+    return spaceLength;
   }
   
   public int getLength() {
@@ -242,7 +300,7 @@ public class Pos {
   }
   
   public void setPos(String pos) {
-    this.pos = pos;
+    this.pos = intern(pos);
   }
 
   @Override
@@ -255,7 +313,26 @@ public class Pos {
         getStartOffset() + "/" + getEndOffset());
   }
 
-  private static String convertSemanticClass(String semanticClass) {
-    return semanticClass.equals("*") ? null : semanticClass;
+  static String convertSemanticClass(String semanticClass) {
+    return semanticClass.equals("*") ? null : intern(semanticClass);
+  }
+
+  /**
+   * 품사 태그와 의미 부류 문자열은 종류가 많지 않으므로, 같은 값은 하나의 객체를 공유하도록
+   * 한다. token의 attribute에 담기는 문자열이 token마다 새로 생기지 않는다.
+   */
+  static String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    String interned = INTERNED_STRINGS.get(value);
+    if (interned != null) {
+      return interned;
+    }
+    if (INTERNED_STRINGS.size() >= MAX_INTERNED_STRINGS) {
+      return value;
+    }
+    interned = INTERNED_STRINGS.putIfAbsent(value, value);
+    return interned == null ? value : interned;
   }
 }
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
 
+import java.util.Arrays;
+
 /**
  * mecab-ko-dic의 PosId를 관리하는 클래스
  * 
@@ -35,6 +37,23 @@ public final class PosIdManager {
     EOJEOL(900);
 
     private int num;
+
+    /** PosId 번호를 index로 하는 변환 테이블. 정의되지 않은 번호는 UNKNOWN이다. */
+    private static final PosId[] posIdTable;
+
+    static {
+      int maxNum = 0;
+      for (PosId posId: values()) {
+        maxNum = Math.max(maxNum, posId.num);
+      }
+      posIdTable = new PosId[maxNum + 1];
+      Arrays.fill(posIdTable, PosId.UNKNOWN);
+      // 200~299는 활용(INFLECT)
+      Arrays.fill(posIdTable, 200, 300, PosId.INFLECT);
+      for (PosId posId: values()) {
+        posIdTable[posId.num] = posId;
+      }
+    }
     
     PosId(int num) {
       this.num = num;
@@ -45,51 +64,10 @@ public final class PosIdManager {
     }
     
     public static PosId convertFrom(int posIdNum) {
-      switch(posIdNum) {
-      case 0: return PosId.UNKNOWN;
-      case 1: return PosId.COMPOUND;
-      case 2: return PosId.INFLECT;
-      case 3: return PosId.PREANALYSIS;
-      case 100: return PosId.E;
-      case 110: return PosId.IC;
-      case 120: return PosId.J;
-      case 130: return PosId.MAG;
-      case 131: return PosId.MAJ;
-      case 140: return PosId.MM;
-      case 150: return PosId.NNG;
-      case 151: return PosId.NNP;
-      case 152: return PosId.NNB;
-      case 153: return PosId.NNBC;
-      case 154: return PosId.NP;
-      case 155: return PosId.NR;
-      case 160: return PosId.SF;
-      case 161: return PosId.SH;
-      case 162: return PosId.SL;
-      case 163: return PosId.SN;
-      case 164: return PosId.SP;
-      case 165: return PosId.SSC;
-      case 166: return PosId.SSO;
-      case 167: return PosId.SC;
-      case 168: return PosId.SY;
-      case 169: return PosId.SE;
-      case 170: return PosId.VA;
-      case 171: return PosId.VCN;
-      case 172: return PosId.VCP;
-      case 173: return PosId.VV;
-      case 174: return PosId.VX;
-      case 181: return PosId.XPN;
-      case 182: return PosId.XR;
-      case 183: return PosId.XSA;
-      case 184: return PosId.XSN;
-      case 185: return PosId.XSV;
-      case 900: return PosId.EOJEOL;
-      default:
-        if (200 <= posIdNum && posIdNum < 300) {
-          return PosId.INFLECT;
-        } else {
-          return PosId.UNKNOWN;
-        }
+      if (0 <= posIdNum && posIdNum < posIdTable.length) {
+        return posIdTable[posIdNum];
       }
+      return PosId.UNKNOWN;
     }
     
     public static PosId convertFrom(String tagString) {
@@ -17,6 +17,7 @@ package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
 
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
@@ -64,17 +65,20 @@ public class SimilarityMeasurePosAppender extends PosAppender {
     appendableSet.add(new Appendable(PosId.SY, PosId.SN));
   }
 
+  static final AppendableMatrix appendableMatrix =
+      new AppendableMatrix(appendableSet);
+
   public SimilarityMeasurePosAppender(TokenizerOption option) {
     super(option);
   }
 
   @Override
   public boolean isAppendable(Pos left, Pos right) {
-    if (right.getNode() != null && right.hasSpace()) {
+    if (right.hasSpace()) {
       return false;
     }
-    return appendableSet.contains(
-        new Appendable(left.getEndPosId(), right.getStartPosId()));
+    return appendableMatrix.isAppendable(
+        left.getEndPosId(), right.getStartPosId());
   }
 
   @Override
@@ -99,9 +103,9 @@ public class SimilarityMeasurePosAppender extends PosAppender {
   @Override
   public LinkedList<Pos> getTokensFrom(Eojeol eojeol) {
     LinkedList<Pos> output = new LinkedList<Pos>();
-    LinkedList<Pos> poses = eojeol.getPosList();
+    List<Pos> poses = eojeol.getPosList();
     if (poses.size() == 1) {
-      output.add(poses.getFirst());
+      output.add(poses.get(0));
     } else {
       Pos eojeolPos = new Pos(
           eojeol.getTerm(), PosId.EOJEOL, eojeol.getStartOffset(), 1, 1);
@@ -114,17 +114,20 @@ public class StandardPosAppender extends PosAppender {
     appendableSet.add(new Appendable(PosId.SH, PosId.J));
   }
 
+  static final AppendableMatrix appendableMatrix =
+      new AppendableMatrix(appendableSet);
+
   public StandardPosAppender(TokenizerOption option) {
     super(option);
   }
 
   @Override
   public boolean isAppendable(Pos left, Pos right) {
-    if (right.getNode() != null && right.hasSpace()) {
+    if (right.hasSpace()) {
       return false;
     }
-    return appendableSet.contains(
-        new Appendable(left.getEndPosId(), right.getStartPosId()));
+    return appendableMatrix.isAppendable(
+        left.getEndPosId(), right.getStartPosId());
   }
 
   @Override
@@ -168,17 +171,16 @@ public class StandardPosAppender extends PosAppender {
     if (XpnDiscriminator.isIndependentXpn(first.getSurface())) {
       eojeol.setToCompoundNoun();
     } else {
-      LinkedList<Pos> eojeolPosList = eojeol.getPosList();
-      Pos xpn = eojeolPosList.poll();
-      Pos noun = eojeolPosList.poll();
-      Pos newNoun = xpn.append(noun, PosId.NNG, 1);
+      List<Pos> eojeolPosList = eojeol.getPosList();
+      Pos newNoun = first.append(second, PosId.NNG, 1);
       newNoun.setPositionLength(1);
-      eojeolPosList.addFirst(newNoun);
+      eojeolPosList.remove(1);
+      eojeolPosList.set(0, newNoun);
     }
   }
 
   private LinkedList<Pos> getAdditionalPosesFrom(Eojeol eojeol) {
-    LinkedList<Pos> poses = eojeol.getPosList();
+    List<Pos> poses = eojeol.getPosList();
     if (eojeol.hasCompoundNoun()) {
       LinkedList<Pos> output = new LinkedList<>();
       // TODO: 이해하기 어려운 코드 리팩토링 해보자
@@ -232,8 +234,8 @@ public class StandardPosAppender extends PosAppender {
         p2.getSurfaceLength() == 1);
   }
 
-  private Pos generateWholeCompoundNoun(LinkedList<Pos> poses) {
-    Pos wholeCompoundNoun = poses.getFirst();
+  private Pos generateWholeCompoundNoun(List<Pos> poses) {
+    Pos wholeCompoundNoun = poses.get(0);
     for (Pos pos: poses.subList(1, poses.size())) {
       if (!isAbsolutePos(pos)) {
         break;
@@ -245,13 +247,13 @@ public class StandardPosAppender extends PosAppender {
 
   private Pos insertEojeolPosTo(Eojeol eojeol, LinkedList<Pos> eojeolTokens) {
     Pos eojeolPos;
-    LinkedList<Pos> posList = eojeol.getPosList();
+    List<Pos> posList = eojeol.getPosList();
     if (posList.size() == 1) {
       if (eojeolTokens.isEmpty()) {
-        eojeolTokens.add(posList.getFirst());
+        eojeolTokens.add(posList.get(0));
       }
-      if (eojeolTokens.getFirst() != posList.getFirst()) {
-        eojeolTokens.addFirst(posList.getFirst());
+      if (eojeolTokens.getFirst() != posList.get(0)) {
+        eojeolTokens.addFirst(posList.get(0));
       }
       eojeolPos = eojeolTokens.getFirst();
       eojeolPos.setPositionIncr(1);
@@ -342,8 +344,7 @@ public class StandardPosAppender extends PosAppender {
     if (!inflectPos.isPosIdOf(PosId.INFLECT)) {
       return null;
     }
-    String first = inflectPos.getExpression().split("\\+")[0];
-    String[] datas = first.split("/");
+    String[] datas = inflectPos.getMorphemes()[0];
     if (datas.length != 3) {
       return null;
     }
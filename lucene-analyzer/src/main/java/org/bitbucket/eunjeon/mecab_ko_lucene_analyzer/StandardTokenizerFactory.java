@@ -23,6 +23,12 @@ import java.util.Map;
  *     mecab 실행 옵션은 다음의 URL을 참조. http://mecab.googlecode.com/svn/trunk/mecab/doc/mecab.html
  *   - compoundNounMinLength: 분해를 해야하는 복합명사의 최소 길이. 디폴트 값은 3이다.
  *   - useAdjectiveAndVerbOriginalForm: 동사와 형용사 원형을 사용하여 검색할지 여부. 디폴트 값은 true이다.
+ *   - useStreamingInput: 입력을 조각으로 나누어 분석할지 여부. 디폴트 값은 false이다.
+ *   - streamingChunkLength: useStreamingInput 사용시 한번에 분석하는 최대 글자 수. 디폴트 값은 4096이다.
+ *   - useJavaTagger: native mecab 대신 Java로 구현한 형태소 분석기를 사용할지 여부. 디폴트 값은 false이다.
+ *   - useParallelParsing: 긴 문서를 조각으로 나누어 여러 스레드에서 동시에 분석할지 여부. 디폴트 값은 false이다.
+ *   - parallelParsingThreshold: useParallelParsing 사용시 나누어 분석할 문서의 최소 글자 수. 디폴트 값은 65536이다.
+ *   - parallelChunkLength: useParallelParsing 사용시 한 조각의 최대 글자 수. 디폴트 값은 8192이다.
  * 
  * <pre>
  * {@code
@@ -32,10 +32,37 @@ public class TokenGenerator {
   public static final int DEFAULT_COMPOUND_NOUN_MIN_LENGTH = 3;
 
   private final PosAppender appender;
-  private LinkedList<Pos> posList = new LinkedList<Pos>();
-  private ListIterator<Pos> posIter;
-  private int compoundNounMinLength;
-  
+  private final int compoundNounMinLength;
+  private final Eojeol eojeol;
+
+  /** 다음에 읽을 node */
+  private Node node;
+  /** node 대신 사용하는 best path와 다음에 읽을 index */
+  private BestPath bestPath;
+  private int bestPathIndex;
+  private int prevEndOffset;
+  /** 기분석(PREANALYSIS) node를 분해한 Pos 중 아직 읽지 않은 Pos */
+  private final ArrayDeque<Pos> analyzedPoses = new ArrayDeque<Pos>();
+  /** 어절에 붙지 못해서 다음 어절의 첫 Pos가 될 Pos */
+  private Pos pushedBackPos;
+  /** node로 생성한 Pos를 재사용하기 위한 pool. 앞의 numUsedPoses개가 사용중이다. */
+  private final ArrayList<Pos> posPool = new ArrayList<Pos>();
+  private int numUsedPoses;
+  private FeatureCache featureCache;
+
+  /**
+   * TokenGenerator 생성자. reset()으로 분석할 node를 지정한 후 사용한다.
+   *
+   * @param appender PosAppender
+   * @param compoundNounMinLength 복합명사에서 분해할 명사의 최소길이.
+   * 복합명사 분해가 필요없는 경우, TokenGenerator.NO_DECOMPOUND를 입력한다.
+   */
+  public TokenGenerator(PosAppender appender, int compoundNounMinLength) {
+    this.appender = appender;
+    this.compoundNounMinLength = compoundNounMinLength;
+    this.eojeol = new Eojeol(appender, compoundNounMinLength);
+  }
+
   /**
    * TokenGenerator 생성자
    * 
@@ -46,25 +73,125 @@ public class TokenGenerator {
    */
   public TokenGenerator(
       PosAppender appender, int compoundNounMinLength, Node beginNode) {
-    this.appender = appender;
-    this.compoundNounMinLength = compoundNounMinLength;
-    convertNodeListToPosList(beginNode);
-    posIter = posList.listIterator();
+    this(appender, compoundNounMinLength, beginNode, 0);
   }
-  
-  private void convertNodeListToPosList(Node beginNode) {
-    Node node = beginNode.getNext();
-    Pos prevPos = new Pos("", PosId.UNKNOWN, 0, 0, 0);
-    while (!isEosNode(node)) {
-      Pos curPos = new Pos(node, prevPos.getEndOffset());
-      if (curPos.getPosId() == PosId.PREANALYSIS) {
-        posList.addAll(getAnalyzedPoses(curPos));
-      } else {
-        posList.add(curPos);
+
+  /**
+   * TokenGenerator 생성자
+   *
+   * @param appender PosAppender
+   * @param compoundNounMinLength 복합명사에서 분해할 명사의 최소길이.
+   * 복합명사 분해가 필요없는 경우, TokenGenerator.NO_DECOMPOUND를 입력한다.
+   * @param beginNode 시작 노드
+   * @param startOffset 분석한 문장의 문서 내 시작 offset. 문서를 나누어 분석하는 경우 사용한다.
+   */
+  public TokenGenerator(
+      PosAppender appender, int compoundNounMinLength, Node beginNode,
+      int startOffset) {
+    this(appender, compoundNounMinLength);
+    reset(beginNode, startOffset);
+  }
+
+  /**
+   * 새로운 분석 결과를 읽도록 TokenGenerator를 초기화한다.
+   * 내부의 Eojeol과 Pos 객체는 버리지 않고 재사용한다.
+   *
+   * @param beginNode 시작 노드
+   * @param startOffset 분석한 문장의 문서 내 시작 offset
+   */
+  public void reset(Node beginNode, int startOffset) {
+    node = beginNode.getNext();
+    bestPath = null;
+    resetState(startOffset);
+  }
+
+  /**
+   * BestPathBuffer나 JavaLattice에 저장된 분석 결과를 읽도록 TokenGenerator를 초기화한다.
+   *
+   * @param bestPath 분석 결과
+   * @param startOffset 분석한 문장의 문서 내 시작 offset
+   */
+  void reset(BestPath bestPath, int startOffset) {
+    this.node = null;
+    this.bestPath = bestPath;
+    this.bestPathIndex = 0;
+    resetState(startOffset);
+  }
+
+  private void resetState(int startOffset) {
+    prevEndOffset = startOffset;
+    analyzedPoses.clear();
+    pushedBackPos = null;
+    numUsedPoses = 0;
+    eojeol.reset();
+  }
+
+  /**
+   * node의 feature 해석 결과를 저장할 캐시를 지정한다. 분석에 사용하는 Model의 캐시여야 한다.
+   */
+  void setFeatureCache(FeatureCache featureCache) {
+    this.featureCache = featureCache;
+  }
+
+  /**
+   * 다음 Pos를 반환한다. 더 이상 Pos가 없으면 null을 반환한다.
+   * node는 필요할 때마다 하나씩 Pos로 변환한다.
+   */
+  private Pos nextPos() {
+    if (pushedBackPos != null) {
+      Pos pos = pushedBackPos;
+      pushedBackPos = null;
+      return pos;
+    }
+    if (!analyzedPoses.isEmpty()) {
+      return analyzedPoses.pollFirst();
+    }
+    Pos curPos;
+    if (bestPath != null) {
+      if (bestPathIndex >= bestPath.size()) {
+        return null;
+      }
+      curPos = obtainPos().set(
+          bestPath, bestPathIndex++, prevEndOffset, featureCache);
+    } else {
+      if (isEosNode(node)) {
+        return null;
       }
-      prevPos = curPos;
+      curPos = obtainPos().set(node, prevEndOffset, featureCache);
       node = node.getNext();
     }
+    prevEndOffset = curPos.getEndOffset();
+    if (curPos.getPosId() == PosId.PREANALYSIS) {
+      LinkedList<Pos> poses = getAnalyzedPoses(curPos);
+      curPos = poses.poll();
+      analyzedPoses.addAll(poses);
+    }
+    return curPos;
+  }
+
+  private Pos obtainPos() {
+    Pos pos;
+    if (numUsedPoses < posPool.size()) {
+      pos = posPool.get(numUsedPoses);
+    } else {
+      pos = new Pos();
+      posPool.add(pos);
+    }
+    numUsedPoses++;
+    return pos;
+  }
+
+  /**
+   * 이전 어절에서 사용한 Pos를 재사용할 수 있도록 반환한다.
+   * 다음 어절의 첫 Pos가 될 Pos는 pool의 맨 앞으로 옮겨서 계속 사용한다.
+   */
+  private void recyclePoses() {
+    if (numUsedPoses > 0 && posPool.get(numUsedPoses - 1) == pushedBackPos) {
+      Collections.swap(posPool, 0, numUsedPoses - 1);
+      numUsedPoses = 1;
+    } else {
+      numUsedPoses = 0;
+    }
   }
   
   static private boolean isEosNode(Node node) {
@@ -76,19 +203,14 @@ public class TokenGenerator {
    */
   static public LinkedList<Pos> getAnalyzedPoses(Pos pos) {
     LinkedList<Pos> output = new LinkedList<Pos>();
-    String indexExp = pos.getExpression();
-    if (indexExp == null) {
-      output.add(pos);
-      return output;
-    }
-    String[] posExps = indexExp.split("\\+");
-    if (posExps.length == 1) {
+    String[][] morphemes = pos.getMorphemes();
+    if (morphemes == null || morphemes.length == 1) {
       output.add(pos);
       return output;
     }
     
-    for (String posExp: posExps) {
-      output.add(new Pos(posExp, 0));
+    for (String[] morpheme: morphemes) {
+      output.add(new Pos(morpheme, 0));
     }
     // 분해된 POS의 offset 재계산
     Pos prevPos = null;
@@ -110,14 +232,16 @@ public class TokenGenerator {
   
   /**
    * 다음 어절의 Pos들을 반환한다.
+   * 반환된 Pos 객체는 재사용되므로 다음 getNextEojeolTokens() 호출 전까지만 유효하다.
    * @return 반환 값이 null이면 generator 종료이다.
    */
   public LinkedList<Pos> getNextEojeolTokens() {
-    Eojeol eojeol = new Eojeol(appender, compoundNounMinLength);
-    while (posIter.hasNext()) {
-      Pos curPos = posIter.next();
+    recyclePoses();
+    eojeol.reset();
+    Pos curPos;
+    while ((curPos = nextPos()) != null) {
       if (!eojeol.append(curPos)) {
-        posIter.previous();
+        pushedBackPos = curPos;
         LinkedList<Pos> poses = eojeol.generateTokens();
         if (poses != null) {
           return poses;
@@ -129,4 +253,4 @@ public class TokenGenerator {
     // return last eojeol tokens
     return eojeol.generateTokens();
   }
-}
\ No newline at end of file
+}
@@ -36,6 +36,9 @@ public abstract class TokenizerFactoryBase extends TokenizerFactory {
     setMeCabArgs(args);
     setCompoundNounMinLength(args);
     setUseAdjectiveAndVerbOriginalForm(args);
+    setStreamingInput(args);
+    setUseJavaTagger(args);
+    setParallelParsing(args);
     if (!args.isEmpty()) {
       throw new IllegalArgumentException("Unknown parameters: " + args);
     }
@@ -63,6 +66,27 @@ public abstract class TokenizerFactoryBase extends TokenizerFactory {
         option.useAdjectiveAndVerbOriginalForm);
   }
 
+  protected void setStreamingInput(Map<String,String> args) {
+    option.useStreamingInput = getBoolean(
+        args, "useStreamingInput", option.useStreamingInput);
+    option.streamingChunkLength = getInt(
+        args, "streamingChunkLength", option.streamingChunkLength);
+  }
+
+  protected void setUseJavaTagger(Map<String,String> args) {
+    option.useJavaTagger = getBoolean(
+        args, "useJavaTagger", option.useJavaTagger);
+  }
+
+  protected void setParallelParsing(Map<String,String> args) {
+    option.useParallelParsing = getBoolean(
+        args, "useParallelParsing", option.useParallelParsing);
+    option.parallelParsingThreshold = getInt(
+        args, "parallelParsingThreshold", option.parallelParsingThreshold);
+    option.parallelChunkLength = getInt(
+        args, "parallelChunkLength", option.parallelChunkLength);
+  }
+
   @Override
   public Tokenizer create(AttributeFactory factory) {
     return new MeCabKoTokenizer(
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
 
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.TaggerPool;
+
 /**
  * Tokenizer 옵션
  */
@@ -27,5 +29,36 @@ public class TokenizerOption {
   public int compoundNounMinLength = 3;
   /** 동사, 형용사 원형 검색 여부 */
   public boolean useAdjectiveAndVerbOriginalForm = true;
+  /** 입력을 조각으로 나누어 읽고 분석할지 여부. 큰 문서의 메모리 사용량을 일정하게 유지한다. */
+  public boolean useStreamingInput = false;
+  /** useStreamingInput 사용시 한번에 읽어서 분석하는 최대 글자 수 */
+  public int streamingChunkLength = 4096;
+  /**
+   * mecab-java가 Lattice.serializeBestPath()를 지원하는 경우, 분석 결과를 node마다 JNI로
+   * 읽지 않고 한 번에 버퍼로 복사해서 읽을지 여부.
+   */
+  public boolean useBestPathBuffer = true;
+  /**
+   * native mecab 대신 Java로 구현한 형태소 분석기(JavaTagger)를 사용할지 여부.
+   * mecabArgs의 사전 디렉터리(-d)에 있는 컴파일된 사전을 직접 읽으며, native
+   * library(libMeCab.so)를 읽어들이지 않는다.
+   */
+  public boolean useJavaTagger = false;
+  /**
+   * 긴 문서를 조각으로 나누어 여러 스레드에서 동시에 분석할지 여부.
+   * useStreamingInput을 사용하지 않고 문서의 길이가 parallelParsingThreshold 이상인 경우에만
+   * 적용된다. native mecab을 사용하는 경우 useBestPathBuffer가 지원되어야 한다.
+   */
+  public boolean useParallelParsing = false;
+  /** useParallelParsing 사용시 나누어 분석할 문서의 최소 글자 수 */
+  public int parallelParsingThreshold = 65536;
+  /** useParallelParsing 사용시 한 조각의 최대 글자 수 */
+  public int parallelChunkLength = 8192;
+  /**
+   * native mecab의 TaggerPool에서 Tagger/Lattice 쌍을 대여할 때 기다리는 최대 시간(ms).
+   * 시간 안에 대여하지 못하면 분석은 IllegalStateException으로 실패한다. useParallelParsing의
+   * worker가 시간 안에 대여하지 못한 조각은 실패하지 않고 Tokenizer의 쌍으로 분석한다.
+   */
+  public long taggerBorrowTimeoutMillis = TaggerPool.DEFAULT_BORROW_TIMEOUT_MILLIS;
   // boolean useHanjaRead = false;
 }
@@ -8,6 +8,11 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
   MeCabKoStandardTokenizerTest.class,
   PosIdManagerTest.class,
+  AppendableMatrixTest.class,
+  FeatureCacheTest.class,
+  JavaTaggerParityTest.class,
+  ParallelParsingTest.class,
+  ChunkReaderTest.class,
   TokenGeneratorWithStandardPosAppenderTest.class,
   TokenGeneratorWithSimilarityMeasurePosAppenderTest.class,
   TokenGeneratorWithKeywordSearchPosAppenderTest.class})
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+import org.junit.Test;
+
+public class AppendableMatrixTest {
+  @Test
+  public void testStandardPosAppenderMatrix() {
+    assertMatrixEqualsSet(
+        StandardPosAppender.appendableSet, StandardPosAppender.appendableMatrix);
+  }
+
+  @Test
+  public void testKeywordSearchPosAppenderMatrix() {
+    assertMatrixEqualsSet(
+        KeywordSearchPosAppender.appendableSet,
+        KeywordSearchPosAppender.appendableMatrix);
+  }
+
+  @Test
+  public void testSimilarityMeasurePosAppenderMatrix() {
+    assertMatrixEqualsSet(
+        SimilarityMeasurePosAppender.appendableSet,
+        SimilarityMeasurePosAppender.appendableMatrix);
+  }
+
+  private void assertMatrixEqualsSet(
+      Set<Appendable> appendableSet, AppendableMatrix matrix) {
+    for (PosId left: PosId.values()) {
+      for (PosId right: PosId.values()) {
+        assertEquals(
+            left + " + " + right,
+            appendableSet.contains(new Appendable(left, right)),
+            matrix.isAppendable(left, right));
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class ChunkReaderTest {
+  @Test
+  public void testShortDocumentIsOneChunk() throws Exception {
+    ChunkReader reader = new ChunkReader(64);
+    reader.reset(new StringReader("진달래 꽃이 피었습니다."));
+    assertEquals("진달래 꽃이 피었습니다.", reader.next());
+    assertEquals(0, reader.getChunkOffset());
+    assertNull(reader.next());
+    assertEquals(13, reader.getConsumedLength());
+  }
+
+  @Test
+  public void testCutAtSentenceEnd() throws Exception {
+    ChunkReader reader = new ChunkReader(16);
+    reader.reset(new StringReader("꽃이 피었습니다. 새가 웁니다. 끝"));
+    assertEquals("꽃이 피었습니다. ", reader.next());
+    assertEquals(0, reader.getChunkOffset());
+    assertEquals("새가 웁니다. 끝", reader.next());
+    assertEquals(10, reader.getChunkOffset());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testPreferWhitespaceOutsideHangul() throws Exception {
+    ChunkReader reader = new ChunkReader(12);
+    reader.reset(new StringReader("가나 abc 다라 마바사"));
+    assertEquals("가나 abc ", reader.next());
+    assertEquals("다라 마바사", reader.next());
+    assertEquals(7, reader.getChunkOffset());
+  }
+
+  @Test
+  public void testHardCutWithoutWhitespace() throws Exception {
+    ChunkReader reader = new ChunkReader(4);
+    reader.reset(new StringReader("가나다라마바"));
+    assertEquals("가나다라", reader.next());
+    assertEquals("마바", reader.next());
+    assertEquals(4, reader.getChunkOffset());
+    assertNull(reader.next());
+    assertEquals(6, reader.getConsumedLength());
+  }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+import org.junit.Test;
+
+public class FeatureCacheTest {
+  private static final String INFLECT_FEATURE =
+      "VV+EP,*,T,갔,Inflect,VV,EP,가/VV/*+았/EP/*";
+
+  @Test
+  public void testParseInflect() {
+    ParsedFeature feature = ParsedFeature.parse(INFLECT_FEATURE, PosId.INFLECT);
+    assertEquals("VV+EP", feature.pos);
+    assertNull(feature.semanticClass);
+    assertEquals(PosId.VV, feature.startPosId);
+    assertEquals(PosId.E, feature.endPosId);
+    assertEquals("가/VV/*+았/EP/*", feature.expression);
+    assertEquals(2, feature.morphemes.length);
+    assertArrayEquals(new String[] {"가", "VV", "*"}, feature.morphemes[0]);
+    assertArrayEquals(new String[] {"았", "EP", "*"}, feature.morphemes[1]);
+  }
+
+  @Test
+  public void testParseCompound() {
+    ParsedFeature feature = ParsedFeature.parse(
+        "NNG,*,T,삼성전자,Compound,*,*,삼성/NNP/*+전자/NNG/*", PosId.COMPOUND);
+    assertEquals(PosId.NNG, feature.startPosId);
+    assertEquals(PosId.NNG, feature.endPosId);
+    assertEquals(2, feature.positionLength);
+  }
+
+  @Test
+  public void testSameEntryIsShared() {
+    FeatureCache cache = new FeatureCache();
+    ParsedFeature first = cache.get(INFLECT_FEATURE, PosId.INFLECT);
+    assertSame(first, cache.get(INFLECT_FEATURE, PosId.INFLECT));
+    assertEquals(1, cache.size());
+
+    ParsedFeature noun = cache.get("NNG,*,F,꽃,*,*,*,*", PosId.NNG);
+    assertEquals(PosId.NNG, noun.startPosId);
+    assertNull(noun.expression);
+    assertNull(noun.morphemes);
+    assertEquals(2, cache.size());
+  }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.tokenattributes.PartOfSpeechAttribute;
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.tokenattributes.SemanticClassAttribute;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.ModelHandle;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.TaggerPool;
+import org.chasen.mecab.MeCab;
+import org.chasen.mecab.Node;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JavaTagger의 분석 결과가 native mecab과 같은지 확인한다.
+ * 다른 사전으로 확인하려면 -DmecabArgs="-d <사전 디렉터리>"를 지정한다.
+ */
+public class JavaTaggerParityTest {
+  private static final String[] SENTENCES = {
+    "",
+    "화학 이외의 것",
+    "삼성전자 갤럭시북 프로 15.6인치 노트북 NT950XDB-KC58S 미스틱 실버",
+    "철수가 학교에 간다. 무궁화꽃이피었습니다. 아버지가방에들어가신다.",
+    "  앞뒤에   공백이\t있는\n문장  ",
+    "漢字와 ひらがな, Ελληνικά, русский 그리고 😀 이모지",
+    "ㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋㅋ 하하하하하",
+    "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa 1234567890.12345 !!!???",
+    "널문자\u0000와 제어문자\u0001가 섞인 문장",
+    "나는 학교에 갔다 사과를 먹었다 아주 좋다."
+  };
+
+  private TokenizerOption option;
+
+  @Before
+  public void setUp() throws Exception {
+    option = new TokenizerOption();
+    option.mecabArgs = System.getProperty("mecabArgs", option.mecabArgs);
+  }
+
+  @Test
+  public void testBestPath() throws Exception {
+    JavaTagger javaTagger = JavaTagger.getInstance(option.mecabArgs);
+    JavaLattice javaLattice = new JavaLattice();
+    ModelHandle modelHandle = MeCabLoader.acquireModel(option.mecabArgs);
+    TaggerPool.Entry mecab = modelHandle.getTaggerPool().borrow();
+    try {
+      for (String sentence: SENTENCES) {
+        mecab.getLattice().set_sentence(sentence);
+        mecab.getTagger().parse(mecab.getLattice());
+        javaTagger.parse(sentence, javaLattice);
+
+        int index = 0;
+        for (Node node = mecab.getLattice().bos_node().getNext();
+             node.getStat() != MeCab.MECAB_EOS_NODE;
+             node = node.getNext(), index++) {
+          String message = sentence + " [" + index + "]";
+          assertTrue(message, index < javaLattice.size());
+          assertEquals(message, node.getSurface(), javaLattice.getSurface(index));
+          assertEquals(message, node.getPosid(), javaLattice.getPosid(index));
+          assertEquals(message, node.getStat(), javaLattice.getStat(index));
+          assertEquals(message, node.getLength(), javaLattice.getLength(index));
+          assertEquals(message, node.getRlength(), javaLattice.getRlength(index));
+          assertEquals(message, node.getFeature(), javaLattice.getFeature(index));
+        }
+        assertEquals(sentence, index, javaLattice.size());
+      }
+    } finally {
+      modelHandle.getTaggerPool().release(mecab);
+      modelHandle.release();
+    }
+  }
+
+  @Test
+  public void testStandardTokens() throws Exception {
+    for (String sentence: SENTENCES) {
+      assertEquals(sentence,
+          tokenize(sentence, false, new StandardPosAppender(option)),
+          tokenize(sentence, true, new StandardPosAppender(option)));
+    }
+  }
+
+  @Test
+  public void testKeywordSearchTokens() throws Exception {
+    for (String sentence: SENTENCES) {
+      assertEquals(sentence,
+          tokenize(sentence, false, new KeywordSearchPosAppender(option)),
+          tokenize(sentence, true, new KeywordSearchPosAppender(option)));
+    }
+  }
+
+  @Test
+  public void testStreamingInput() throws Exception {
+    option.useStreamingInput = true;
+    option.streamingChunkLength = 16;
+    StringBuilder document = new StringBuilder();
+    for (String sentence: SENTENCES) {
+      document.append(sentence).append(' ');
+    }
+    assertEquals(
+        tokenize(document.toString(), false, new StandardPosAppender(option)),
+        tokenize(document.toString(), true, new StandardPosAppender(option)));
+  }
+
+  private String tokenize(
+      String document, boolean useJavaTagger, PosAppender appender)
+      throws Exception {
+    option.useJavaTagger = useJavaTagger;
+    Tokenizer tokenizer = new MeCabKoTokenizer(option, appender);
+    OffsetAttribute offset = tokenizer.addAttribute(OffsetAttribute.class);
+    PositionIncrementAttribute posIncr =
+        tokenizer.addAttribute(PositionIncrementAttribute.class);
+    PositionLengthAttribute posLength =
+        tokenizer.addAttribute(PositionLengthAttribute.class);
+    CharTermAttribute term = tokenizer.addAttribute(CharTermAttribute.class);
+    TypeAttribute type = tokenizer.addAttribute(TypeAttribute.class);
+    SemanticClassAttribute semanticClass =
+        tokenizer.addAttribute(SemanticClassAttribute.class);
+    PartOfSpeechAttribute pos =
+        tokenizer.addAttribute(PartOfSpeechAttribute.class);
+
+    StringBuilder result = new StringBuilder();
+    // 같은 tokenizer로 두 번 분석해서 재사용되는 JavaLattice도 확인한다.
+    for (int i = 0; i < 2; i++) {
+      tokenizer.setReader(new StringReader(document));
+      tokenizer.reset();
+      while (tokenizer.incrementToken()) {
+        result.append(term.toString()).append(':')
+            .append(type.type()).append(':')
+            .append(pos.partOfSpeech()).append(':')
+            .append(semanticClass.semanticClass()).append(':')
+            .append(posIncr.getPositionIncrement()).append(':')
+            .append(posLength.getPositionLength()).append(':')
+            .append(offset.startOffset()).append(':')
+            .append(offset.endOffset()).append(',');
+      }
+      tokenizer.end();
+      result.append(offset.endOffset()).append('\n');
+      tokenizer.close();
+    }
+    return result.toString();
+  }
+}
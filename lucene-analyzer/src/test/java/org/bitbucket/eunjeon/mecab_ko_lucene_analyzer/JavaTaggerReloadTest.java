@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.bitbucket.eunjeon.mecab_ko_lucene_analyzer.PosIdManager.PosId;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.DictionaryFingerprint;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 사전 파일이 바뀌면 JavaTagger를 다시 읽는지 확인한다.
+ * 사전 디렉터리를 복사해서 사용하며, 다른 사전으로 확인하려면
+ * -DmecabArgs="-d <사전 디렉터리>"를 지정한다.
+ */
+public class JavaTaggerReloadTest {
+  private static final String[] FILES =
+      {"dicrc", "sys.dic", "unk.dic", "char.bin", "matrix.bin"};
+
+  private File dicDir;
+  private String mecabArgs;
+
+  @Before
+  public void setUp() throws IOException {
+    String source = DictionaryFingerprint.parseDicDir(
+        System.getProperty("mecabArgs", new TokenizerOption().mecabArgs));
+    dicDir = Files.createTempDirectory("java-tagger").toFile();
+    dicDir.deleteOnExit();
+    for (String name : FILES) {
+      File file = new File(dicDir, name);
+      Files.copy(new File(source, name).toPath(), file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+      file.deleteOnExit();
+    }
+    mecabArgs = "-d " + dicDir.getAbsolutePath();
+  }
+
+  private void append(String name, byte[] bytes) throws IOException {
+    try (OutputStream out = new FileOutputStream(new File(dicDir, name), true)) {
+      out.write(bytes);
+    }
+  }
+
+  @Test
+  public void testReloadChangedDictionary() throws Exception {
+    JavaTagger first = JavaTagger.getInstance(mecabArgs);
+    first.getFeatureCache().put(1, ParsedFeature.parse("NNG,*,T,사전,*,*,*,*", PosId.NNG));
+    assertSame(first, JavaTagger.getInstance(mecabArgs));
+
+    append("dicrc", "\n; changed\n".getBytes(StandardCharsets.UTF_8));
+    Thread.sleep(JavaTagger.FINGERPRINT_CHECK_INTERVAL + 100);
+    JavaTagger second = JavaTagger.getInstance(mecabArgs);
+    assertNotSame(first, second);
+    // 이전 JavaTagger로 분석 중인 스트림이 캐시된 feature를 계속 찾을 수 있어야 한다.
+    assertEquals(1, first.getFeatureCache().size());
+    assertNotSame(first.getFeatureCache(), second.getFeatureCache());
+    assertSame(second, JavaTagger.getInstance(mecabArgs));
+    // 이전 JavaTagger를 가진 쪽도 최신 JavaTagger를 얻는다.
+    assertSame(second, first.latest());
+  }
+
+  @Test
+  public void testKeepWhenChangedDictionaryIsBroken() throws Exception {
+    JavaTagger first = JavaTagger.getInstance(mecabArgs);
+    // 크기가 맞지 않는 matrix.bin은 읽을 수 없다.
+    append("matrix.bin", new byte[] {0});
+    Thread.sleep(JavaTagger.FINGERPRINT_CHECK_INTERVAL + 100);
+    assertSame(first, JavaTagger.getInstance(mecabArgs));
+    Thread.sleep(JavaTagger.FINGERPRINT_CHECK_INTERVAL + 100);
+    assertSame(first, JavaTagger.getInstance(mecabArgs));
+  }
+}
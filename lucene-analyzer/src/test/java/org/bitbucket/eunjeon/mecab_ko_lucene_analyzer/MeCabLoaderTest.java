@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.ModelHandle;
+import org.junit.Test;
+
+/**
+ * Model을 교체해도 사용중인 Model이 해제되지 않는지 확인한다.
+ * 다른 사전으로 확인하려면 -DmecabArgs="-d <사전 디렉터리>"를 지정한다.
+ */
+public class MeCabLoaderTest {
+  /**
+   * 다른 테스트가 반환하지 않은 참조의 영향을 받지 않도록, 같은 사전이지만 다른 실행옵션
+   * 문자열을 사용하여 별도의 핸들을 등록한다.
+   */
+  private final String mecabArgs =
+      System.getProperty("mecabArgs", new TokenizerOption().mecabArgs).trim() + " ";
+
+  @Test
+  public void testReloadModelReturnsAcquiredHandle() {
+    ModelHandle previous = MeCabLoader.acquireModel(mecabArgs);
+    ModelHandle reloaded = MeCabLoader.reloadModel(mecabArgs);
+    try {
+      assertNotSame(previous, reloaded);
+      assertTrue(previous.isRetired());
+      // 반환하기 전까지는 이전 Model도 해제되지 않는다.
+      assertFalse(previous.isFreed());
+      assertFalse(reloaded.isFreed());
+      assertEquals(previous.getVersion() + 1, reloaded.getVersion());
+    } finally {
+      previous.release();
+    }
+    assertTrue(previous.isFreed());
+    MeCabLoader.reloadModel(mecabArgs).release();
+    assertTrue(reloaded.isRetired());
+    reloaded.release();
+    assertTrue(reloaded.isFreed());
+  }
+}
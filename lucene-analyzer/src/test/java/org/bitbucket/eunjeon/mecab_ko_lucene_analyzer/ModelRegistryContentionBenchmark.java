@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
+
+/**
+ * 여러 스레드에서 동시에 MeCabKoTokenizer를 생성할 때의 처리량을 측정한다.
+ *
+ * "synchronized" 모드는 이전 MeCabLoader와 같이 모든 Model 조회를 하나의 모니터로
+ * 직렬화하여 비교 기준으로 사용한다.
+ *
+ * 사용법: ModelRegistryContentionBenchmark [스레드 수] [스레드당 tokenizer 수]
+ */
+public class ModelRegistryContentionBenchmark {
+  private static final String MECAB_ARGS = "-d /usr/local/lib/mecab/dic/mecab-ko-dic";
+  private static final String TEXT = "삼성전자 갤럭시 노트북 15인치 블랙";
+  private static final Object LEGACY_MONITOR = new Object();
+
+  public static void main(String[] args) throws Exception {
+    int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int numTokenizers = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    MeCabLoader.acquireModel(MECAB_ARGS).release();
+
+    // warm up
+    run(numThreads, numTokenizers / 10, false);
+    run(numThreads, numTokenizers / 10, true);
+
+    report("synchronized", numThreads, numTokenizers, run(numThreads, numTokenizers, true));
+    report("lock-free", numThreads, numTokenizers, run(numThreads, numTokenizers, false));
+  }
+
+  private static long run(int numThreads, final int numTokenizers, final boolean serialized)
+      throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(numThreads);
+    final TokenizerOption option = new TokenizerOption();
+    option.mecabArgs = MECAB_ARGS;
+    for (int i = 0; i < numThreads; i++) {
+      new Thread(() -> {
+        try {
+          start.await();
+          for (int j = 0; j < numTokenizers; j++) {
+            if (serialized) {
+              synchronized (LEGACY_MONITOR) {
+                MeCabLoader.acquireModel(option.mecabArgs).release();
+              }
+            }
+            Tokenizer tokenizer =
+                new MeCabKoTokenizer(option, new StandardPosAppender(option));
+            tokenizer.setReader(new StringReader(TEXT));
+            tokenizer.reset();
+            while (tokenizer.incrementToken()) {
+            }
+            tokenizer.end();
+            tokenizer.close();
+          }
+        } catch (Exception e) {
+          e.printStackTrace();
+        } finally {
+          done.countDown();
+        }
+      }).start();
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    done.await();
+    return System.nanoTime() - begin;
+  }
+
+  private static void report(String mode, int numThreads, int numTokenizers, long elapsed) {
+    long total = (long) numThreads * numTokenizers;
+    System.out.println(String.format("%-12s threads: %d, tokenizers: %d, time: %d ms, %.1f tokenizers/s",
+        mode, numThreads, total, elapsed / 1000000, total * 1e9 / elapsed));
+  }
+}
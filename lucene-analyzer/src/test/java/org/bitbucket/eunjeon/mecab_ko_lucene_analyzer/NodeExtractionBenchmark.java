@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.lucene.analysis.Tokenizer;
+
+/**
+ * 분석 결과를 node마다 JNI로 읽는 방식과 BestPathBuffer로 한 번에 읽는 방식의
+ * 처리량(tokens/s)을 비교한다. BestPathBuffer는 저장소의 mecab-java-0.996.tar.gz로
+ * 빌드한 MeCab.jar와 libMeCab.so가 필요하다.
+ *
+ * 사용법: NodeExtractionBenchmark [반복 횟수] [상품 설명 파일(한 줄에 하나)]
+ * 파일을 지정하지 않으면 상품 설명 문장을 이어 붙인 긴 문서를 사용한다.
+ */
+public class NodeExtractionBenchmark {
+  private static final String[] DESCRIPTIONS = {
+    "삼성전자 갤럭시북 프로 15.6인치 노트북 NT950XDB-KC58S 미스틱 실버 인텔 11세대 코어 i5 탑재.",
+    "가볍고 얇은 알루미늄 바디에 AMOLED 디스플레이를 적용하여 선명한 화질을 제공합니다.",
+    "LG전자 그램 17인치 17Z90P-GA5CK 윈도우10 탑재 초경량 노트북으로 최대 19.5시간 사용 가능합니다.",
+    "무선 블루투스 이어폰 노이즈캔슬링 지원, 생활방수 IPX4 등급, 고속 충전 케이스 포함.",
+    "국내산 햇사과 5kg 가정용 꿀사과, 당도 선별 후 산지에서 직접 발송해 드립니다.",
+    "아동용 겨울 패딩 점퍼 오리털 충전재 사용, 모자 탈부착 가능, 110~160 사이즈."
+  };
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    String document = (args.length > 1) ? readCorpus(args[1]) : buildCorpus(200);
+    System.out.println("serializeBestPath supported: " + BestPathBuffer.isSupported());
+    System.out.println("document length: " + document.length());
+
+    for (boolean useBestPathBuffer: new boolean[] {false, true}) {
+      TokenizerOption option = new TokenizerOption();
+      option.useBestPathBuffer = useBestPathBuffer;
+      Tokenizer tokenizer = new MeCabKoTokenizer(option, new StandardPosAppender(option));
+      // warm up
+      run(tokenizer, document, Math.max(1, iterations / 10));
+
+      long startTime = System.nanoTime();
+      long tokens = run(tokenizer, document, iterations);
+      long elapsed = System.nanoTime() - startTime;
+      System.out.println(String.format(
+          "useBestPathBuffer=%s tokens: %d, time: %d ms, %.1f tokens/s",
+          useBestPathBuffer, tokens, elapsed / 1000000, tokens * 1e9 / elapsed));
+    }
+  }
+
+  private static String buildCorpus(int repeat) {
+    StringBuilder buffer = new StringBuilder();
+    for (int i = 0; i < repeat; i++) {
+      buffer.append(DESCRIPTIONS[i % DESCRIPTIONS.length]).append(' ');
+    }
+    return buffer.toString();
+  }
+
+  private static String readCorpus(String path) throws Exception {
+    List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+    return String.join("\n", lines);
+  }
+
+  private static long run(Tokenizer tokenizer, String document, int iterations)
+      throws Exception {
+    long tokens = 0;
+    for (int i = 0; i < iterations; i++) {
+      tokenizer.setReader(new StringReader(document));
+      tokenizer.reset();
+      while (tokenizer.incrementToken()) {
+        tokens++;
+      }
+      tokenizer.end();
+      tokenizer.close();
+    }
+    return tokens;
+  }
+}
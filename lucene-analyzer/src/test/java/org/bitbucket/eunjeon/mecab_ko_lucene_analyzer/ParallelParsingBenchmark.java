@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.StringReader;
+
+import org.apache.lucene.analysis.Tokenizer;
+
+/**
+ * 긴 문서 하나를 분석하는 시간(latency)을 useParallelParsing 사용 여부별로 비교한다.
+ *
+ * 사용법: ParallelParsingBenchmark [반복 횟수] [문서 길이(글자 수)]
+ */
+public class ParallelParsingBenchmark {
+  private static final String[] DESCRIPTIONS = {
+    "삼성전자 갤럭시북 프로 15.6인치 노트북 NT950XDB-KC58S 미스틱 실버 인텔 11세대 코어 i5 탑재.",
+    "가볍고 얇은 알루미늄 바디에 AMOLED 디스플레이를 적용하여 선명한 화질을 제공합니다.",
+    "LG전자 그램 17인치 17Z90P-GA5CK 윈도우10 탑재 초경량 노트북으로 최대 19.5시간 사용 가능합니다.",
+    "무선 블루투스 이어폰 노이즈캔슬링 지원, 생활방수 IPX4 등급, 고속 충전 케이스 포함."
+  };
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    int length = args.length > 1 ? Integer.parseInt(args[1]) : 300000;
+    StringBuilder buffer = new StringBuilder();
+    for (int i = 0; buffer.length() < length; i++) {
+      buffer.append(DESCRIPTIONS[i % DESCRIPTIONS.length]).append(' ');
+    }
+    String document = buffer.toString();
+    System.out.println("document length: " + document.length() +
+        ", processors: " + Runtime.getRuntime().availableProcessors());
+
+    for (boolean useParallelParsing: new boolean[] {false, true}) {
+      TokenizerOption option = new TokenizerOption();
+      option.useParallelParsing = useParallelParsing;
+      Tokenizer tokenizer = new MeCabKoTokenizer(option, new StandardPosAppender(option));
+      // warm up
+      run(tokenizer, document, Math.max(1, iterations / 10));
+
+      long startTime = System.nanoTime();
+      long tokens = run(tokenizer, document, iterations);
+      long elapsed = System.nanoTime() - startTime;
+      System.out.println(String.format(
+          "useParallelParsing=%s tokens: %d, %.2f ms/document",
+          useParallelParsing, tokens, elapsed / 1e6 / iterations));
+    }
+  }
+
+  private static long run(Tokenizer tokenizer, String document, int iterations)
+      throws Exception {
+    long tokens = 0;
+    for (int i = 0; i < iterations; i++) {
+      tokenizer.setReader(new StringReader(document));
+      tokenizer.reset();
+      while (tokenizer.incrementToken()) {
+        tokens++;
+      }
+      tokenizer.end();
+      tokenizer.close();
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.ModelHandle;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.TaggerPool;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 문서를 나누어 동시에 분석한 결과가 같은 크기의 조각으로 차례대로 분석한
+ * (useStreamingInput) 결과와 같은지 확인한다.
+ * 다른 사전으로 확인하려면 -DmecabArgs="-d <사전 디렉터리>"를 지정한다.
+ */
+public class ParallelParsingTest {
+  private static final String TEXT =
+      "삼성전자 갤럭시북 프로 15.6인치 노트북 NT950XDB-KC58S 미스틱 실버. " +
+      "철수가 학교에 간다. 무궁화꽃이피었습니다. 아버지가방에들어가신다.\n" +
+      "화학은 물질의 성질, 조성, 구조, 변화 및 그에 수반하는 에너지의 변화를 연구하는 " +
+      "자연과학의 한 분야이다. 나는 학교에 갔다 사과를 먹었다 아주 좋다. ";
+
+  private TokenizerOption option;
+  private String document;
+
+  @Before
+  public void setUp() throws Exception {
+    option = new TokenizerOption();
+    option.mecabArgs = System.getProperty("mecabArgs", option.mecabArgs);
+    option.streamingChunkLength = 64;
+    option.parallelChunkLength = 64;
+    option.parallelParsingThreshold = 0;
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      builder.append(TEXT);
+    }
+    document = builder.toString();
+  }
+
+  @Test
+  public void testSameAsStreamingInput() throws Exception {
+    assertEquals(
+        tokenize(createTokenizer(true, false), document),
+        tokenize(createTokenizer(false, true), document));
+  }
+
+  @Test
+  public void testSameAsStreamingInputWithJavaTagger() throws Exception {
+    option.useJavaTagger = true;
+    assertEquals(
+        tokenize(createTokenizer(true, false), document),
+        tokenize(createTokenizer(false, true), document));
+  }
+
+  @Test
+  public void testBelowThreshold() throws Exception {
+    option.parallelParsingThreshold = document.length() + 1;
+    assertEquals(
+        tokenize(createTokenizer(false, false), document),
+        tokenize(createTokenizer(false, true), document));
+  }
+
+  @Test
+  public void testResetBeforeEnd() throws Exception {
+    String expected = tokenize(createTokenizer(true, false), document);
+    Tokenizer tokenizer = createTokenizer(false, true);
+    tokenizer.setReader(new StringReader(document));
+    tokenizer.reset();
+    assertTrue(tokenizer.incrementToken());
+    tokenizer.close();
+    // 읽지 않은 조각의 분석을 취소한 후에도 다시 사용할 수 있어야 한다.
+    assertEquals(expected, tokenize(tokenizer, document));
+  }
+
+  /**
+   * 다른 Tokenizer들이 Model의 TaggerPool을 모두 대여한 상태에서도, 마지막 쌍을 대여한
+   * Tokenizer의 worker는 대여를 기다리지 않고 분석해야 한다.
+   */
+  @Test(timeout = 60000)
+  public void testTaggerPoolSaturated() throws Exception {
+    String expected = tokenize(createTokenizer(true, false), document);
+    ModelHandle handle = MeCabLoader.acquireModel(option.mecabArgs);
+    List<TaggerPool.Entry> borrowed = drain(handle.getTaggerPool());
+    try {
+      // 이 Tokenizer가 대여할 쌍 하나만 남긴다.
+      handle.getTaggerPool().release(borrowed.remove(borrowed.size() - 1));
+      assertEquals(expected, tokenize(createTokenizer(false, true), document));
+    } finally {
+      release(handle.getTaggerPool(), borrowed);
+      handle.release();
+    }
+  }
+
+  /**
+   * worker가 Tagger/Lattice 쌍을 대여하지 못하면 Tokenizer의 쌍으로 직접 분석한다.
+   */
+  @Test(timeout = 60000)
+  public void testWorkerTaggerPoolSaturated() throws Exception {
+    String expected = tokenize(createTokenizer(true, false), document);
+    ModelHandle handle = MeCabLoader.acquireModel(option.mecabArgs);
+    TaggerPool workerPool = handle.getWorkerTaggerPool(
+        Runtime.getRuntime().availableProcessors());
+    List<TaggerPool.Entry> borrowed = drain(workerPool);
+    try {
+      option.taggerBorrowTimeoutMillis = 10;
+      long exhausted = workerPool.getExhaustedCount();
+      assertEquals(expected, tokenize(createTokenizer(false, true), document));
+      assertTrue(workerPool.getExhaustedCount() > exhausted);
+    } finally {
+      release(workerPool, borrowed);
+      handle.release();
+    }
+  }
+
+  private static List<TaggerPool.Entry> drain(TaggerPool pool) {
+    List<TaggerPool.Entry> borrowed = new ArrayList<>();
+    TaggerPool.Entry entry;
+    while ((entry = pool.tryBorrow(0, TimeUnit.MILLISECONDS)) != null) {
+      borrowed.add(entry);
+    }
+    return borrowed;
+  }
+
+  private static void release(TaggerPool pool, List<TaggerPool.Entry> borrowed) {
+    for (TaggerPool.Entry entry : borrowed) {
+      pool.release(entry);
+    }
+  }
+
+  /**
+   * Tokenizer는 option을 참조하므로, 다른 옵션의 Tokenizer를 만들기 전에 사용을 끝내야 한다.
+   */
+  private Tokenizer createTokenizer(
+      boolean useStreamingInput, boolean useParallelParsing) {
+    option.useStreamingInput = useStreamingInput;
+    option.useParallelParsing = useParallelParsing;
+    return new MeCabKoTokenizer(option, new StandardPosAppender(option));
+  }
+
+  private String tokenize(Tokenizer tokenizer, String document)
+      throws Exception {
+    OffsetAttribute offset = tokenizer.addAttribute(OffsetAttribute.class);
+    PositionIncrementAttribute posIncr =
+        tokenizer.addAttribute(PositionIncrementAttribute.class);
+    PositionLengthAttribute posLength =
+        tokenizer.addAttribute(PositionLengthAttribute.class);
+    CharTermAttribute term = tokenizer.addAttribute(CharTermAttribute.class);
+    TypeAttribute type = tokenizer.addAttribute(TypeAttribute.class);
+
+    StringBuilder result = new StringBuilder();
+    tokenizer.setReader(new StringReader(document));
+    tokenizer.reset();
+    while (tokenizer.incrementToken()) {
+      result.append(term.toString()).append(':')
+          .append(type.type()).append(':')
+          .append(posIncr.getPositionIncrement()).append(':')
+          .append(posLength.getPositionLength()).append(':')
+          .append(offset.startOffset()).append(':')
+          .append(offset.endOffset()).append(',');
+    }
+    tokenizer.end();
+    result.append(offset.endOffset());
+    tokenizer.close();
+    return result.toString();
+  }
+}
@@ -29,4 +29,16 @@ public class PosIdManagerTest {
     posId = PosId.convertFrom("InvalidTagString");
     assertEquals(PosId.UNKNOWN, posId);
   }
+
+  @Test
+  public void testConvertFromNum() {
+    for (PosId posId: PosId.values()) {
+      assertEquals(posId, PosId.convertFrom(posId.getNum()));
+    }
+    assertEquals(PosId.INFLECT, PosId.convertFrom(200));
+    assertEquals(PosId.INFLECT, PosId.convertFrom(299));
+    assertEquals(PosId.UNKNOWN, PosId.convertFrom(300));
+    assertEquals(PosId.UNKNOWN, PosId.convertFrom(-1));
+    assertEquals(PosId.UNKNOWN, PosId.convertFrom(1000));
+  }
 }
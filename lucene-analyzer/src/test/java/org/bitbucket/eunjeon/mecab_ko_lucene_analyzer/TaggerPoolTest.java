@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.MeCabLoader;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.ModelHandle;
+import org.bitbucket.eunjeon.mecab_ko_mecab_loader.TaggerPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * TaggerPool이 모두 대여된 경우 무한히 기다리지 않고 고갈을 알리는지 확인한다.
+ * 다른 사전으로 확인하려면 -DmecabArgs="-d <사전 디렉터리>"를 지정한다.
+ */
+public class TaggerPoolTest {
+  private ModelHandle handle;
+  private TaggerPool pool;
+  private final List<TaggerPool.Entry> borrowed = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    handle = MeCabLoader.acquireModel(
+        System.getProperty("mecabArgs", new TokenizerOption().mecabArgs));
+    pool = handle.getTaggerPool();
+  }
+
+  @After
+  public void tearDown() {
+    for (TaggerPool.Entry entry : borrowed) {
+      pool.release(entry);
+    }
+    handle.release();
+  }
+
+  /**
+   * 다른 테스트가 대여중인 쌍이 있을 수 있으므로 더 이상 대여되지 않을 때까지 대여한다.
+   */
+  private void saturate() {
+    TaggerPool.Entry entry;
+    while ((entry = pool.tryBorrow(0, TimeUnit.MILLISECONDS)) != null) {
+      borrowed.add(entry);
+    }
+    assertTrue(borrowed.size() <= TaggerPool.DEFAULT_MAX_SIZE);
+  }
+
+  @Test
+  public void testTryBorrowTimesOut() {
+    saturate();
+    long exhausted = pool.getExhaustedCount();
+    assertNull(pool.tryBorrow(10, TimeUnit.MILLISECONDS));
+    assertEquals(exhausted + 1, pool.getExhaustedCount());
+  }
+
+  @Test
+  public void testBorrowThrowsWhenExhausted() {
+    saturate();
+    long exhausted = pool.getExhaustedCount();
+    try {
+      pool.borrow(10, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("exhausted"));
+    }
+    assertEquals(exhausted + 1, pool.getExhaustedCount());
+  }
+
+  /**
+   * Model의 TaggerPool이 고갈되어도 worker 전용 pool에서는 대여할 수 있다.
+   */
+  @Test
+  public void testWorkerTaggerPoolIsSeparate() {
+    saturate();
+    TaggerPool workerPool = handle.getWorkerTaggerPool(1);
+    assertNotSame(pool, workerPool);
+    TaggerPool.Entry entry = workerPool.tryBorrow(0, TimeUnit.MILLISECONDS);
+    assertNotNull(entry);
+    workerPool.release(entry);
+  }
+
+  @Test
+  public void testBorrowAfterRelease() {
+    saturate();
+    pool.release(borrowed.remove(borrowed.size() - 1));
+    TaggerPool.Entry entry = pool.tryBorrow(10, TimeUnit.MILLISECONDS);
+    assertNotNull(entry);
+    borrowed.add(entry);
+  }
+}
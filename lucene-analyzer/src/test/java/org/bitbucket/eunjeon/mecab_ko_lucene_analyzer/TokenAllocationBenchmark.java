@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_lucene_analyzer;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+
+import org.apache.lucene.analysis.Tokenizer;
+
+/**
+ * MeCabKoTokenizer가 token 하나를 만들 때 할당하는 메모리(byte/token)를 측정한다.
+ * JMH의 gc.alloc.rate.norm과 같은 값으로, 현재 스레드의 누적 할당량을 이용한다.
+ * 변경 전후의 값을 비교하려면 각 revision에서 이 클래스를 실행한다.
+ *
+ * 사용법: TokenAllocationBenchmark [반복 횟수]
+ */
+public class TokenAllocationBenchmark {
+  private static final String[] TEXTS = {
+    "삼성전자 갤럭시북 프로 15.6인치 노트북 NT950XDB-KC58S 미스틱 실버",
+    "LG전자 그램 17인치 17Z90P-GA5CK 인텔 11세대 i5 윈도우10 탑재",
+    "화학은 물질의 성질, 조성, 구조, 변화 및 그에 수반하는 에너지의 변화를 연구하는 자연과학의 한 분야이다.",
+    "철수가 학교에 간다. 무궁화꽃이피었습니다. 아버지가방에들어가신다."
+  };
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    TokenizerOption option = new TokenizerOption();
+    Tokenizer tokenizer = new MeCabKoTokenizer(option, new StandardPosAppender(option));
+
+    // warm up
+    run(tokenizer, iterations / 10);
+
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+    long startTime = System.nanoTime();
+    long tokens = run(tokenizer, iterations);
+    long elapsed = System.nanoTime() - startTime;
+    long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+    System.out.println(String.format(
+        "tokens: %d, time: %d ms, %.1f tokens/s, gc.alloc.rate.norm: %.1f B/token",
+        tokens, elapsed / 1000000, tokens * 1e9 / elapsed, (double) allocated / tokens));
+  }
+
+  private static long run(Tokenizer tokenizer, int iterations) throws Exception {
+    long tokens = 0;
+    for (int i = 0; i < iterations; i++) {
+      tokenizer.setReader(new StringReader(TEXTS[i % TEXTS.length]));
+      tokenizer.reset();
+      while (tokenizer.incrementToken()) {
+        tokens++;
+      }
+      tokenizer.end();
+      tokenizer.close();
+    }
+    return tokens;
+  }
+}
@@ -65,6 +65,47 @@ public class TokenGeneratorWithStandardPosAppenderTest
     assertEquals(null, tokens);
   }
 
+  @Test
+  public void testReuseAfterReset() {
+    TokenGenerator generator = new TokenGenerator(
+        new StandardPosAppender(option), TokenGenerator.NO_DECOMPOUND);
+    List<Pos> tokens;
+
+    generator.reset(mockNodeListFactory(new String[] {
+        "진달래\tNNG,*,F,진달래,*,*,*,*",
+        " 꽃\tNNG,*,T,꽃,*,*,*,*",
+        "이\tJKS,*,F,이,*,*,*,*",
+        " 피\tVV,*,F,피,*,*,*,*",
+        "었\tEP,*,T,었,*,*,*,*",
+        "습니다\tEF,F,습니다,*,*,*,*",
+        ".\t SF,*,*,*,*,*,*,*"
+    }), 0);
+    tokens = generator.getNextEojeolTokens();
+    assertEquals("[진달래/NNG/null/1/1/0/3]", tokens.toString());
+    tokens = generator.getNextEojeolTokens();
+    assertEquals(
+        "[꽃이/EOJEOL/null/1/1/4/6, 꽃/NNG/null/0/1/4/5]", tokens.toString());
+
+    // 이전 분석을 끝까지 읽지 않은 상태에서 재설정한다.
+    generator.reset(mockNodeListFactory(new String[] {
+        "꽃\tNNG,*,T,꽃,*,*,*,*",
+        "이\tJKS,*,F,이,*,*,*,*",
+        " 피\tVV,*,F,피,*,*,*,*",
+        "었\tEP,*,T,었,*,*,*,*",
+        "습니다\tEF,F,습니다,*,*,*,*"
+    }), 10);
+    tokens = generator.getNextEojeolTokens();
+    assertEquals(
+        "[꽃이/EOJEOL/null/1/1/10/12, 꽃/NNG/null/0/1/10/11]",
+        tokens.toString());
+    tokens = generator.getNextEojeolTokens();
+    assertEquals(
+        "[피었습니다/EOJEOL/null/1/1/13/18, 피/VV/null/0/1/13/14]",
+        tokens.toString());
+    tokens = generator.getNextEojeolTokens();
+    assertEquals(null, tokens);
+  }
+
   @Test
   public void testNoUsingVaVvOriginalForm() {
     Node node = mockNodeListFactory(new String[] {
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_mecab_loader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * mecab 사전 파일의 변경 여부를 판단하기 위한 지문(fingerprint).
+ * Model이 사전 디렉터리에서 읽어들이는 모든 파일(dicrc, sys.dic, unk.dic, char.bin, matrix.bin)과
+ * 사용자 사전의 수정 시각과 크기만을 사용하므로 Model을 생성하지 않고도 사전의 변경 여부를 알 수 있다.
+ */
+public final class DictionaryFingerprint {
+  /** Model이 사전 디렉터리에서 읽어들이는 파일 */
+  static final String[] DICTIONARY_FILES = {"dicrc", "sys.dic", "unk.dic", "char.bin", "matrix.bin"};
+  /** Model이 읽어들이는 컴파일된 사전 파일 */
+  static final String[] MODEL_FILES = {"sys.dic", "matrix.bin", "char.bin", "unk.dic"};
+
+  private final long[] values;
+
+  private DictionaryFingerprint(long[] values) {
+    this.values = values;
+  }
+
+  /**
+   * mecab 실행옵션에 지정된 사전 디렉터리의 지문을 생성한다.
+   * 사전 디렉터리를 알 수 없는 경우(mecabrc의 기본 사전 사용) 빈 지문을 반환한다.
+   */
+  public static DictionaryFingerprint of(String args) {
+    String dicDir = parseDicDir(args);
+    if (dicDir == null) {
+      return new DictionaryFingerprint(new long[0]);
+    }
+    List<File> files = new ArrayList<File>();
+    for (String fileName : DICTIONARY_FILES) {
+      files.add(new File(dicDir, fileName));
+    }
+    for (String userDic : parseUserDics(args, dicDir)) {
+      files.add(new File(userDic));
+    }
+    long[] values = new long[files.size() * 2];
+    for (int i = 0; i < files.size(); i++) {
+      File file = files.get(i);
+      // 존재하지 않는 파일은 lastModified(), length() 모두 0 이다.
+      values[i * 2] = file.lastModified();
+      values[i * 2 + 1] = file.length();
+    }
+    return new DictionaryFingerprint(values);
+  }
+
+  /**
+   * 실행옵션("-u FILE", "-uFILE", "--userdic=FILE", "--userdic FILE")과 dicrc의 userdic 항목에 지정된
+   * 사용자 사전 파일. 컴마로 여러개를 지정할 수 있다. dicrc의 상대경로는 사전 디렉터리 기준이다.
+   */
+  static List<String> parseUserDics(String args, String dicDir) {
+    List<String> userDics = new ArrayList<String>();
+    String[] tokens = args.trim().split("\\s+");
+    for (int i = 0; i < tokens.length; i++) {
+      String token = tokens[i];
+      String value = null;
+      if (token.equals("-u") || token.equals("--userdic")) {
+        value = i + 1 < tokens.length ? tokens[i + 1] : null;
+      } else if (token.startsWith("--userdic=")) {
+        value = token.substring("--userdic=".length());
+      } else if (token.startsWith("-u") && !token.startsWith("--")) {
+        value = token.substring(2);
+      }
+      addUserDics(userDics, value, null);
+    }
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(
+          new FileInputStream(new File(dicDir, "dicrc")), "UTF-8"));
+      for (String line; (line = reader.readLine()) != null; ) {
+        int eq = line.indexOf('=');
+        if (eq > 0 && line.substring(0, eq).trim().equals("userdic")) {
+          addUserDics(userDics, line.substring(eq + 1), dicDir);
+        }
+      }
+    } catch (IOException ignore) {
+      // dicrc가 없으면 사용자 사전 설정도 없다.
+    } finally {
+      if (reader != null) {
+        try { reader.close(); } catch (IOException ignore) { }
+      }
+    }
+    return userDics;
+  }
+
+  private static void addUserDics(List<String> userDics, String value, String baseDir) {
+    if (value == null) {
+      return;
+    }
+    for (String path : value.split(",")) {
+      path = path.trim();
+      if (path.length() > 0) {
+        File file = new File(path);
+        if (!file.isAbsolute() && baseDir != null) {
+          file = new File(baseDir, path);
+        }
+        userDics.add(file.getPath());
+      }
+    }
+  }
+
+  /**
+   * Model이 사용하는 native 메모리를 컴파일된 사전 파일 크기의 합으로 추정한다.
+   * 사전 디렉터리를 알 수 없는 경우 0을 반환한다.
+   */
+  static long estimateModelBytes(String args) {
+    String dicDir = parseDicDir(args);
+    if (dicDir == null) {
+      return 0;
+    }
+    long bytes = 0;
+    for (String fileName : MODEL_FILES) {
+      bytes += new File(dicDir, fileName).length();
+    }
+    return bytes;
+  }
+
+  /**
+   * mecab 실행옵션에서 사전 디렉터리를 추출한다.
+   * "-d DIR", "-dDIR", "--dicdir=DIR", "--dicdir DIR" 형식을 지원한다.
+   */
+  public static String parseDicDir(String args) {
+    if (args == null) {
+      return null;
+    }
+    String[] tokens = args.trim().split("\\s+");
+    for (int i = 0; i < tokens.length; i++) {
+      String token = tokens[i];
+      if (token.equals("-d") || token.equals("--dicdir")) {
+        return i + 1 < tokens.length ? tokens[i + 1] : null;
+      } else if (token.startsWith("--dicdir=")) {
+        return token.substring("--dicdir=".length());
+      } else if (token.startsWith("-d") && !token.startsWith("--")) {
+        return token.substring(2);
+      }
+    }
+    return null;
+  }
+
+  boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == null) return false;
+    if (!(o instanceof DictionaryFingerprint)) return false;
+    return Arrays.equals(values, ((DictionaryFingerprint) o).values);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values);
+  }
+}
@@ -21,11 +21,19 @@ import org.elasticsearch.common.logging.Loggers;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class MeCabLoader {
-  private static Map<String, Model> models = new WeakHashMap<>();
+  /** 사전 파일의 지문을 다시 확인하기까지의 최소 간격(ms) */
+  static final long FINGERPRINT_CHECK_INTERVAL = 1000;
+
+  private static final ConcurrentMap<String, ModelHandle> models = new ConcurrentHashMap<>();
+  /** 등록된 핸들과, 교체되었지만 아직 해제되지 않은 핸들 */
+  private static final Set<ModelHandle> liveHandles = ConcurrentHashMap.newKeySet();
   private static Logger logger = Loggers.getLogger(MeCabLoader.class, "");
   static {
     AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
@@ -40,28 +48,142 @@ public final class MeCabLoader {
     });
   }
 
-  public static synchronized Model getModel(String args) throws RuntimeException {
-    Model currentModel = models.get(args);
-
-    if (currentModel == null) {
-      currentModel = new Model(args);
-      models.put(args, currentModel);
-    } else {
-      Model latestModel = new Model(args);
-      Long currentSize = currentModel.dictionary_info().getSize();
-      Long latestSize = latestModel.dictionary_info().getSize();
-
-      // 사전 크기가 변경되었다면 모델을 최신으로 교체한다
-      if(latestSize != 0){
-        if(!currentSize.equals(latestSize)){
-          logger.info("Compare Dictionary Size Current Dic. {} vs Latest Dic. {} ", currentSize, latestSize);
-          logger.info("Swap Dictionary ... ");
-          currentModel.swap(latestModel);
-          models.put(args, currentModel);
-        }
+  /**
+   * mecab 실행옵션에 해당하는 최신 버전의 ModelHandle을 참조 카운트를 증가시켜 반환한다.
+   * 사용이 끝나면 반드시 ModelHandle.release()를 호출해야 한다.
+   */
+  public static ModelHandle acquireModel(String args) throws RuntimeException {
+    while (true) {
+      ModelHandle handle = getModelHandle(args);
+      if (handle.tryAcquire()) {
+        return handle;
       }
+      // 방금 교체되어 해제된 핸들이므로 최신 핸들로 다시 시도한다.
+    }
+  }
+
+  /**
+   * 사전 파일의 변경 여부와 관계없이 mecab 실행옵션에 해당하는 Model을 다시 읽어들이고,
+   * 최신 버전의 ModelHandle을 참조 카운트를 증가시켜 반환한다.
+   * mecab 실행옵션에 사전 디렉터리가 없어서 지문으로 변경을 감지할 수 없는 경우에 사용한다.
+   * 사용이 끝나면 반드시 ModelHandle.release()를 호출해야 한다.
+   */
+  public static ModelHandle reloadModel(String args) throws RuntimeException {
+    replaceModel(args, models.get(args));
+    return acquireModel(args);
+  }
+
+  /**
+   * 등록된 ModelHandle을 잠금 없이 반환한다.
+   * 사전 파일의 지문은 FINGERPRINT_CHECK_INTERVAL 마다 한 스레드만 확인하며, 사전이
+   * 변경된 경우 새로운 버전의 Model을 생성하여 교체한다. 교체하는 동안 다른 스레드는
+   * 이전 버전의 핸들을 그대로 사용한다.
+   */
+  static ModelHandle getModelHandle(String args) {
+    ModelHandle handle = models.get(args);
+    if (handle == null) {
+      return models.computeIfAbsent(args, key -> createHandle(key, 1));
+    }
+    if (!handle.tryScheduleCheck(System.currentTimeMillis(), FINGERPRINT_CHECK_INTERVAL)) {
+      return handle;
+    }
+    DictionaryFingerprint latestFingerprint = DictionaryFingerprint.of(args);
+    if (latestFingerprint.equals(handle.getFingerprint()) ||
+        latestFingerprint.equals(handle.getRejectedFingerprint())) {
+      // 이미 읽어서 버린 사전은 다시 바뀔 때까지 읽지 않는다.
+      return handle;
     }
-    return currentModel;
+    // 사전 파일이 변경되었다면 모델을 최신으로 교체한다
+    logger.info("Compare Dictionary Fingerprint Current Dic. {} vs Latest Dic. {} ",
+        handle.getFingerprint(), latestFingerprint);
+    return replaceModel(args, handle);
+  }
+
+  /**
+   * expected를 새로 읽은 Model로 교체한다. native Model은 맵의 잠금 밖에서 읽으므로 읽는 동안
+   * 같은 실행옵션의 다른 조회를 막지 않는다. 읽는 동안 다른 스레드가 먼저 교체했다면
+   * 새로 읽은 Model을 버리고 등록된 핸들을 반환한다.
+   */
+  private static ModelHandle replaceModel(String args, ModelHandle expected) {
+    if (expected == null) {
+      return models.computeIfAbsent(args, key -> createHandle(key, 1));
+    }
+    ModelHandle next = createHandle(args, expected.getVersion() + 1);
+    if (next.getModel().dictionary_info().getSize() == 0) {
+      logger.warn("Latest Dictionary is empty. Keep Dictionary version {}", expected.getVersion());
+      expected.setRejectedFingerprint(next.getFingerprint());
+      next.retire();
+      return models.getOrDefault(args, expected);
+    }
+    // 등록된 핸들이 아직 expected(같은 버전)인 경우에만 교체한다.
+    if (!models.replace(args, expected, next)) {
+      logger.info("Dictionary already swapped. Discard version {}", next.getVersion());
+      next.retire();
+      return models.get(args);
+    }
+    logger.info("Swap Dictionary ... version {} -> {}", expected.getVersion(), next.getVersion());
+    expected.retire();
+    return next;
+  }
+
+  private static ModelHandle createHandle(String args, long version) {
+    DictionaryFingerprint fingerprint = DictionaryFingerprint.of(args);
+    ModelHandle handle = new ModelHandle(args, new Model(args), version, fingerprint,
+        System.currentTimeMillis() + FINGERPRINT_CHECK_INTERVAL);
+    liveHandles.add(handle);
+    return handle;
+  }
+
+  static void onFreed(ModelHandle handle) {
+    liveHandles.remove(handle);
+    logger.info("Free Dictionary ... {}", handle);
+  }
+
+  /**
+   * native 메모리가 아직 해제되지 않은 모든 ModelHandle을 반환한다.
+   * 교체된 후 진행중인 분석이 끝나지 않은 이전 버전의 핸들도 포함한다.
+   */
+  public static Collection<ModelHandle> getLiveModelHandles() {
+    return new ArrayList<>(liveHandles);
+  }
+
+  /**
+   * 해제되지 않은 native 객체(Model, Tagger, Lattice)의 수를 반환한다.
+   */
+  public static int getLiveNativeObjects() {
+    int count = 0;
+    for (ModelHandle handle : liveHandles) {
+      count += handle.getLiveNativeObjects();
+    }
+    return count;
+  }
+
+  /**
+   * 해제되지 않은 native 객체가 사용하는 메모리의 추정치(byte)를 반환한다.
+   */
+  public static long getEstimatedBytes() {
+    long bytes = 0;
+    for (ModelHandle handle : liveHandles) {
+      bytes += handle.getEstimatedBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * mecab 실행옵션에 해당하는 최신 Model의 Tagger/Lattice pool을 반환한다.
+   * 등록된 Model이 없으면 null을 반환한다.
+   */
+  public static TaggerPool getTaggerPool(String args) {
+    ModelHandle handle = models.get(args);
+    return handle == null ? null : handle.getTaggerPool();
+  }
+
+  /**
+   * mecab 실행옵션에 해당하는 최신 Model의 버전을 반환한다. Model이 교체될 때마다 증가하므로
+   * 분석 결과를 캐시하는 쪽에서 무효화 여부를 판단하는 데 사용한다.
+   */
+  public static long getModelVersion(String args) throws RuntimeException {
+    return getModelHandle(args).getVersion();
   }
 
   public static int getModelCount() {
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_mecab_loader;
+
+import org.chasen.mecab.Model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * MeCabLoader에 등록된 Model과 그 버전 정보를 담는 불변 핸들.
+ *
+ * 참조 카운트는 MeCabLoader가 가지는 1개의 참조와 acquire()로 얻은 참조의 합이다.
+ * 새로운 버전의 Model이 등록되면 이전 핸들은 retire 되며, 진행중인 분석은 release()를
+ * 호출할 때까지 이전 Model을 그대로 사용한다. 참조 카운트가 0이 되면 pool의 Tagger/Lattice와
+ * Model의 native 메모리를 즉시 해제한다.
+ */
+public final class ModelHandle {
+  private final String args;
+  private final Model model;
+  private final long version;
+  private final DictionaryFingerprint fingerprint;
+  private final TaggerPool taggerPool;
+  private volatile TaggerPool workerTaggerPool;
+  private final long modelBytes;
+  private final AtomicInteger refCount = new AtomicInteger(1);
+  private final AtomicLong nextCheckTime;
+  private final ConcurrentHashMap<Class<?>, Object> attachments =
+      new ConcurrentHashMap<>();
+  /** 읽었지만 비어 있어서 교체하지 않은 사전의 지문 */
+  private volatile DictionaryFingerprint rejectedFingerprint;
+  private volatile boolean retired = false;
+  private volatile boolean freed = false;
+
+  ModelHandle(String args, Model model, long version,
+              DictionaryFingerprint fingerprint, long nextCheckTime) {
+    this.args = args;
+    this.model = model;
+    this.version = version;
+    this.fingerprint = fingerprint;
+    this.taggerPool = new TaggerPool(model, TaggerPool.DEFAULT_MAX_SIZE);
+    this.modelBytes = DictionaryFingerprint.estimateModelBytes(args);
+    this.nextCheckTime = new AtomicLong(nextCheckTime);
+  }
+
+  public String getArgs() {
+    return args;
+  }
+
+  public Model getModel() {
+    return model;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * 이 Model에서 생성된 Tagger/Lattice 쌍의 pool을 반환한다.
+   */
+  public TaggerPool getTaggerPool() {
+    return taggerPool;
+  }
+
+  /**
+   * 다른 스레드에서 문서의 조각을 분석하는 worker(ParallelParser)가 사용하는 별도의 pool을
+   * 반환한다. Tokenizer는 getTaggerPool()에서 대여한 쌍을 가진 채로 worker를 기다리므로,
+   * worker가 같은 pool에서 대여하면 pool이 고갈되었을 때 서로를 기다리게 된다.
+   * maxSize를 worker 스레드 수로 지정하면 worker는 대여를 기다리지 않는다.
+   * 처음 호출할 때의 maxSize로 생성된다.
+   */
+  public TaggerPool getWorkerTaggerPool(int maxSize) {
+    TaggerPool pool = workerTaggerPool;
+    if (pool == null) {
+      synchronized (this) {
+        pool = workerTaggerPool;
+        if (pool == null) {
+          pool = new TaggerPool(model, maxSize);
+          if (retired) {
+            pool.close();
+          }
+          workerTaggerPool = pool;
+        }
+      }
+    }
+    return pool;
+  }
+
+  /**
+   * 이 Model에 종속된 객체(사전 항목 단위의 캐시 등)를 반환한다. 없으면 factory로 생성한다.
+   * Model이 교체되면 새 핸들에서 새로 생성되므로, 이전 Model의 결과는 핸들과 함께 버려진다.
+   */
+  public <T> T getAttachment(Class<T> type, Supplier<? extends T> factory) {
+    return type.cast(attachments.computeIfAbsent(type, key -> factory.get()));
+  }
+
+  /**
+   * 더 최신 버전의 Model이 등록되었는지 여부를 반환한다.
+   */
+  public boolean isRetired() {
+    return retired;
+  }
+
+  /**
+   * Model의 native 메모리가 해제되었는지 여부를 반환한다.
+   */
+  public boolean isFreed() {
+    return freed;
+  }
+
+  public int getRefCount() {
+    return refCount.get();
+  }
+
+  /**
+   * 해제되지 않은 native 객체(Model, Tagger, Lattice)의 수를 반환한다.
+   */
+  public int getLiveNativeObjects() {
+    if (freed) {
+      return 0;
+    }
+    TaggerPool pool = workerTaggerPool;
+    return 1 + taggerPool.getLiveNativeObjects() +
+        (pool != null ? pool.getLiveNativeObjects() : 0);
+  }
+
+  /**
+   * 해제되지 않은 native 객체가 사용하는 메모리의 추정치(byte)를 반환한다.
+   * Model은 사전 파일의 크기로, Tagger/Lattice는 고정된 값으로 추정한다.
+   */
+  public long getEstimatedBytes() {
+    if (freed) {
+      return 0;
+    }
+    TaggerPool pool = workerTaggerPool;
+    return modelBytes + taggerPool.getEstimatedBytes() +
+        (pool != null ? pool.getEstimatedBytes() : 0);
+  }
+
+  /**
+   * 참조 카운트를 증가시킨다. 이미 해제된 핸들인 경우 false를 반환한다.
+   */
+  boolean tryAcquire() {
+    while (true) {
+      int count = refCount.get();
+      if (count <= 0) {
+        return false;
+      }
+      if (refCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * acquire로 얻은 참조를 반환한다.
+   */
+  public void release() {
+    int count = refCount.decrementAndGet();
+    if (count < 0) {
+      throw new IllegalStateException("ModelHandle is released too many times: " + this);
+    }
+    if (count == 0) {
+      free();
+    }
+  }
+
+  /**
+   * 더 이상 참조하는 곳이 없으므로 Tagger/Lattice와 Model을 해제한다.
+   * 참조 카운트가 0이 되면 tryAcquire()가 실패하므로 한 번만 호출된다.
+   */
+  private void free() {
+    closeTaggerPools();
+    model.delete();
+    attachments.clear();
+    freed = true;
+    MeCabLoader.onFreed(this);
+  }
+
+  /**
+   * MeCabLoader가 가지고 있던 참조를 반환하고, 이 핸들을 이전 버전으로 표시한다.
+   */
+  void retire() {
+    synchronized (this) {
+      retired = true;
+    }
+    closeTaggerPools();
+    release();
+  }
+
+  private void closeTaggerPools() {
+    taggerPool.close();
+    TaggerPool pool;
+    synchronized (this) {
+      pool = workerTaggerPool;
+    }
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  DictionaryFingerprint getFingerprint() {
+    return fingerprint;
+  }
+
+  DictionaryFingerprint getRejectedFingerprint() {
+    return rejectedFingerprint;
+  }
+
+  void setRejectedFingerprint(DictionaryFingerprint rejectedFingerprint) {
+    this.rejectedFingerprint = rejectedFingerprint;
+  }
+
+  /**
+   * 사전 파일의 지문을 확인할 시각이 되었다면 다음 확인 시각을 예약하고 true를 반환한다.
+   * 여러 스레드가 동시에 호출하더라도 한 스레드만 true를 받는다.
+   */
+  boolean tryScheduleCheck(long now, long interval) {
+    long next = nextCheckTime.get();
+    return now >= next && nextCheckTime.compareAndSet(next, now + interval);
+  }
+
+  @Override
+  public String toString() {
+    return "ModelHandle[" + args + ", version=" + version +
+        ", refCount=" + refCount.get() + ", retired=" + retired +
+        ", liveNativeObjects=" + getLiveNativeObjects() +
+        ", estimatedBytes=" + getEstimatedBytes() + "]";
+  }
+}
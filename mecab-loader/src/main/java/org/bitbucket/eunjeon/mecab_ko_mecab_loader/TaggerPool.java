@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright 2013 Yongwoon Lee, Yungho Yu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.bitbucket.eunjeon.mecab_ko_mecab_loader;
+
+import org.apache.logging.log4j.Logger;
+import org.chasen.mecab.Lattice;
+import org.chasen.mecab.Model;
+import org.chasen.mecab.Tagger;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 하나의 Model에서 생성된 Tagger/Lattice 쌍을 재사용하기 위한 pool.
+ *
+ * 동시에 대여할 수 있는 쌍의 수는 maxSize로 제한되며, 모두 대여중인 경우 지정한 시간까지만
+ * 반환을 기다린다. 기다려도 대여하지 못하면 pool 고갈로 기록하고 로그를 남긴다. Model이 교체되어 pool이 닫히면 대기중인 쌍은 즉시 해제(delete)되고, 이후
+ * 반환되는 쌍도 재사용하지 않고 해제한다.
+ */
+public final class TaggerPool {
+  public static final int DEFAULT_MAX_SIZE = 256;
+  /** borrow()가 반환을 기다리는 최대 시간(ms) */
+  public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30 * 1000;
+  private static Logger logger = Loggers.getLogger(TaggerPool.class, "");
+  /** Tagger/Lattice 쌍 하나가 사용하는 native 메모리의 추정치(byte) */
+  static final long ESTIMATED_ENTRY_BYTES = 128 * 1024;
+
+  private final Model model;
+  private final Semaphore permits;
+  private final ConcurrentLinkedDeque<Entry> idleEntries = new ConcurrentLinkedDeque<>();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong waitCount = new AtomicLong();
+  private final AtomicLong exhaustedCount = new AtomicLong();
+  private final AtomicInteger liveEntries = new AtomicInteger();
+  private volatile boolean closed = false;
+
+  /**
+   * Tagger와 Lattice 쌍.
+   */
+  public static final class Entry {
+    private final Tagger tagger;
+    private final Lattice lattice;
+
+    Entry(Tagger tagger, Lattice lattice) {
+      this.tagger = tagger;
+      this.lattice = lattice;
+    }
+
+    public Tagger getTagger() {
+      return tagger;
+    }
+
+    public Lattice getLattice() {
+      return lattice;
+    }
+  }
+
+  TaggerPool(Model model, int maxSize) {
+    this.model = model;
+    this.permits = new Semaphore(maxSize);
+  }
+
+  /**
+   * Tagger/Lattice 쌍을 대여한다. 사용이 끝나면 반드시 release()로 반환해야 한다.
+   * DEFAULT_BORROW_TIMEOUT_MILLIS 안에 대여하지 못하면 IllegalStateException을 던진다.
+   */
+  public Entry borrow() {
+    return borrow(DEFAULT_BORROW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Tagger/Lattice 쌍을 대여한다. 사용이 끝나면 반드시 release()로 반환해야 한다.
+   *
+   * @throws IllegalStateException timeout 안에 대여하지 못했거나 기다리는 중 인터럽트된 경우
+   */
+  public Entry borrow(long timeout, TimeUnit unit) {
+    Entry entry = tryBorrow(timeout, unit);
+    if (entry == null) {
+      throw new IllegalStateException("Tagger pool exhausted: " + this);
+    }
+    return entry;
+  }
+
+  /**
+   * Tagger/Lattice 쌍을 대여한다. timeout 안에 대여하지 못하면 null을 반환하므로
+   * 호출한 쪽에서 다른 방법으로 처리할 수 있다. 인터럽트된 경우 인터럽트 상태를 유지하고
+   * null을 반환한다.
+   */
+  public Entry tryBorrow(long timeout, TimeUnit unit) {
+    if (!permits.tryAcquire()) {
+      waitCount.incrementAndGet();
+      boolean acquired;
+      try {
+        acquired = permits.tryAcquire(timeout, unit);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        acquired = false;
+      }
+      if (!acquired) {
+        long exhausted = exhaustedCount.incrementAndGet();
+        logger.warn("Tagger pool exhausted after waiting {} ms ({} times) {}",
+            unit.toMillis(timeout), exhausted, this);
+        return null;
+      }
+    }
+    return take();
+  }
+
+  private Entry take() {
+    Entry entry = idleEntries.pollFirst();
+    if (entry != null) {
+      hitCount.incrementAndGet();
+      return entry;
+    }
+    missCount.incrementAndGet();
+    Tagger tagger = null;
+    try {
+      tagger = model.createTagger();
+      Entry created = new Entry(tagger, model.createLattice());
+      liveEntries.incrementAndGet();
+      return created;
+    } catch (RuntimeException e) {
+      if (tagger != null) {
+        tagger.delete();
+      }
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * 대여한 Tagger/Lattice 쌍을 반환한다.
+   */
+  public void release(Entry entry) {
+    if (closed) {
+      destroy(entry);
+    } else {
+      entry.getLattice().clear();
+      idleEntries.offerFirst(entry);
+      if (closed) {
+        // close()와 경합한 경우 남은 쌍을 다시 해제한다.
+        destroyIdleEntries();
+      }
+    }
+    permits.release();
+  }
+
+  /**
+   * 대기중인 쌍을 해제하고 이후 반환되는 쌍을 재사용하지 않는다.
+   */
+  void close() {
+    closed = true;
+    destroyIdleEntries();
+  }
+
+  private void destroyIdleEntries() {
+    Entry entry;
+    while ((entry = idleEntries.pollFirst()) != null) {
+      destroy(entry);
+    }
+  }
+
+  private void destroy(Entry entry) {
+    entry.getLattice().delete();
+    entry.getTagger().delete();
+    liveEntries.decrementAndGet();
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getWaitCount() {
+    return waitCount.get();
+  }
+
+  /**
+   * 기다려도 대여하지 못한 횟수를 반환한다.
+   */
+  public long getExhaustedCount() {
+    return exhaustedCount.get();
+  }
+
+  public int getIdleCount() {
+    return idleEntries.size();
+  }
+
+  /**
+   * 해제되지 않은 Tagger와 Lattice의 수를 반환한다.
+   */
+  public int getLiveNativeObjects() {
+    return liveEntries.get() * 2;
+  }
+
+  public long getEstimatedBytes() {
+    return liveEntries.get() * ESTIMATED_ENTRY_BYTES;
+  }
+
+  @Override
+  public String toString() {
+    return "TaggerPool[hit=" + hitCount.get() + ", miss=" + missCount.get() +
+        ", wait=" + waitCount.get() + ", exhausted=" + exhaustedCount.get() +
+        ", idle=" + idleEntries.size() +
+        ", live=" + liveEntries.get() + ", closed=" + closed + "]";
+  }
+}